@@ -0,0 +1,103 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.bench;
+
+import com.bluemarsh.jswat.core.breakpoint.Breakpoint;
+import com.bluemarsh.jswat.core.breakpoint.BreakpointFactory;
+import com.bluemarsh.jswat.core.breakpoint.BreakpointProvider;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the rate at which breakpoints are hit in the DeepStack program,
+ * which descends the stack over and over. Each operation resumes the
+ * debuggee and waits for it to stop at the breakpoint once again. The
+ * breakpoint is either plain, has a condition that is always satisfied,
+ * or is accompanied by a trace breakpoint that reports the entry and exit
+ * of each method along the way.
+ *
+ * @author Nathan Fiedler
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BreakpointBenchmark {
+
+    /**
+     * Number of times DeepStack descends the stack, effectively forever.
+     */
+    private static final int DESCENTS = Integer.MAX_VALUE;
+    /**
+     * The kind of breakpoint to be hit.
+     */
+    @Param({"plain", "conditional", "trace"})
+    public String kind;
+    /**
+     * The debuggee being debugged.
+     */
+    private Debuggee debuggee;
+
+    /**
+     * Closes the debuggee.
+     */
+    @TearDown(Level.Trial)
+    public void disconnect() {
+        debuggee.close();
+    }
+
+    /**
+     * Resumes the debuggee and waits for it to hit the breakpoint.
+     */
+    @Benchmark
+    public void hit() {
+        debuggee.resumeAndWait();
+    }
+
+    /**
+     * Launches the debuggee, creates the breakpoints, and runs to the
+     * first hit, by which time the breakpoints have been resolved.
+     *
+     * @throws Exception if the breakpoints could not be created.
+     */
+    @Setup(Level.Trial)
+    public void launch() throws Exception {
+        debuggee = new Debuggee("DeepStack " + DESCENTS);
+        BreakpointFactory bf = BreakpointProvider.getBreakpointFactory();
+        Breakpoint bp = bf.createBreakpoint("DeepStack.subroutine_4(int)", null);
+        if (kind.equals("conditional")) {
+            bp.addCondition(bf.createCondition("w == 10"));
+        } else if (kind.equals("trace")) {
+            debuggee.addBreakpoint(bf.createTraceBreakpoint(
+                    "DeepStack", null, true, true));
+        }
+        debuggee.addBreakpoint(bp);
+        debuggee.resumeAndWait();
+    }
+}
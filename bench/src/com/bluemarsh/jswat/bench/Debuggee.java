@@ -0,0 +1,208 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.bench;
+
+import com.bluemarsh.jswat.core.breakpoint.Breakpoint;
+import com.bluemarsh.jswat.core.breakpoint.BreakpointProvider;
+import com.bluemarsh.jswat.core.connect.ConnectionFactory;
+import com.bluemarsh.jswat.core.connect.ConnectionProvider;
+import com.bluemarsh.jswat.core.connect.JvmConnection;
+import com.bluemarsh.jswat.core.context.ContextProvider;
+import com.bluemarsh.jswat.core.runtime.JavaRuntime;
+import com.bluemarsh.jswat.core.runtime.RuntimeFactory;
+import com.bluemarsh.jswat.core.runtime.RuntimeManager;
+import com.bluemarsh.jswat.core.runtime.RuntimeProvider;
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.session.SessionEvent;
+import com.bluemarsh.jswat.core.session.SessionListener;
+import com.bluemarsh.jswat.core.session.SessionManager;
+import com.bluemarsh.jswat.core.session.SessionProvider;
+import com.sun.jdi.ThreadReference;
+import java.io.File;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Class Debuggee launches one of the integration test programs in a
+ * session of its own, and waits for that session to suspend, much like
+ * the SessionHelper in the unit tests, but without using the current
+ * session.
+ *
+ * @author Nathan Fiedler
+ */
+class Debuggee implements SessionListener {
+
+    /**
+     * The session connected to the debuggee.
+     */
+    private final Session session;
+    /**
+     * Released when the session suspends or disconnects.
+     */
+    private final Semaphore suspendedSem;
+
+    /**
+     * Launches the debuggee, which is left suspended at the start.
+     *
+     * @param main class to launch (with optional arguments).
+     */
+    Debuggee(String main) {
+        session = createSession();
+        suspendedSem = new Semaphore(0);
+        session.addSessionListener(this);
+        String cp = "-cp " + getPath("core/test/integration/build");
+        RuntimeManager rm = RuntimeProvider.getRuntimeManager();
+        RuntimeFactory rf = RuntimeProvider.getRuntimeFactory();
+        JavaRuntime rt = rm.findByBase(rf.getDefaultBase());
+        ConnectionFactory factory = ConnectionProvider.getConnectionFactory();
+        JvmConnection conn = factory.createLaunching(rt, cp, main);
+        try {
+            conn.connect();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        // Returns once the debuggee has started.
+        session.connect(conn);
+    }
+
+    /**
+     * Adds the breakpoint to the session.
+     *
+     * @param bp breakpoint to add.
+     */
+    void addBreakpoint(Breakpoint bp) {
+        BreakpointProvider.getBreakpointManager(session).addBreakpoint(bp);
+    }
+
+    /**
+     * Disconnects the debuggee, forcing it to exit, and removes the
+     * session.
+     */
+    void close() {
+        session.removeSessionListener(this);
+        if (session.isConnected()) {
+            session.disconnect(true);
+        }
+        closeSession(session);
+    }
+
+    @Override
+    public void closing(SessionEvent sevt) {
+    }
+
+    /**
+     * Removes and closes a session created by {@link #createSession()}.
+     *
+     * @param session session to close.
+     */
+    static void closeSession(Session session) {
+        if (!SessionProvider.isCurrentSession(session)) {
+            // The manager makes the first session current, and the
+            // current session cannot be removed; leaving it is harmless.
+            SessionProvider.getSessionManager().remove(session);
+        }
+        session.close();
+    }
+
+    @Override
+    public void connected(SessionEvent sevt) {
+    }
+
+    /**
+     * Creates a new session and adds it to the session manager. The
+     * session need not be the current one to be debugged.
+     *
+     * @return new session.
+     */
+    static Session createSession() {
+        SessionManager sm = SessionProvider.getSessionManager();
+        Session session = SessionProvider.getSessionFactory().createSession(
+                sm.generateIdentifier());
+        sm.add(session);
+        return session;
+    }
+
+    @Override
+    public void disconnected(SessionEvent sevt) {
+        // Let anyone waiting know that the debuggee has gone away.
+        suspendedSem.release();
+    }
+
+    /**
+     * Returns the path of a file within the JSwat source tree, whose root
+     * is given by the {@code jswat.root} system property.
+     *
+     * @param name path relative to the root of the source tree.
+     * @return absolute path of the file.
+     */
+    static String getPath(String name) {
+        String root = System.getProperty("jswat.root");
+        if (root == null || root.isEmpty()) {
+            throw new RuntimeException("jswat.root sysproperty required");
+        }
+        return new File(root, name).getAbsolutePath();
+    }
+
+    /**
+     * Returns the session connected to the debuggee.
+     *
+     * @return debuggee session.
+     */
+    Session getSession() {
+        return session;
+    }
+
+    /**
+     * Returns the thread in which the debuggee last suspended.
+     *
+     * @return current thread, or null if none.
+     */
+    ThreadReference getThread() {
+        return ContextProvider.getContext(session).getThread();
+    }
+
+    @Override
+    public void opened(Session session) {
+    }
+
+    /**
+     * Resumes the debuggee and waits for it to suspend again, typically
+     * at a breakpoint.
+     *
+     * @throws IllegalStateException if the debuggee exited instead.
+     */
+    void resumeAndWait() {
+        suspendedSem.drainPermits();
+        session.resumeVM();
+        suspendedSem.acquireUninterruptibly();
+        if (!session.isConnected()) {
+            throw new IllegalStateException("debuggee has exited");
+        }
+    }
+
+    @Override
+    public void resuming(SessionEvent sevt) {
+    }
+
+    @Override
+    public void suspended(SessionEvent sevt) {
+        suspendedSem.release();
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.bench;
+
+import com.bluemarsh.jswat.core.breakpoint.BreakpointFactory;
+import com.bluemarsh.jswat.core.breakpoint.BreakpointProvider;
+import com.bluemarsh.jswat.core.expr.EvaluationException;
+import com.bluemarsh.jswat.core.expr.Evaluator;
+import com.sun.jdi.ThreadReference;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the time to parse and evaluate expressions while the PackRat
+ * program is stopped in its {@code params_test()} method. The expressions
+ * cover arithmetic on local variables, field and array access, and method
+ * invocation in the debuggee.
+ *
+ * @author Nathan Fiedler
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EvaluatorBenchmark {
+
+    /**
+     * The expression to be evaluated.
+     */
+    @Param({"i * 2 + 1", "this.inst_int", "static_strarr[1]", "s.length()"})
+    public String expression;
+    /**
+     * The debuggee being debugged.
+     */
+    private Debuggee debuggee;
+    /**
+     * The thread in which the debuggee is stopped.
+     */
+    private ThreadReference thread;
+
+    /**
+     * Closes the debuggee.
+     */
+    @TearDown(Level.Trial)
+    public void disconnect() {
+        debuggee.close();
+    }
+
+    /**
+     * Evaluates the expression in the top frame of the stopped thread.
+     *
+     * @return the result of the evaluation.
+     * @throws EvaluationException if the evaluation failed.
+     */
+    @Benchmark
+    public Object evaluate() throws EvaluationException {
+        Evaluator eval = new Evaluator(expression);
+        return eval.evaluate(thread, 0);
+    }
+
+    /**
+     * Launches the debuggee and runs to the breakpoint.
+     *
+     * @throws Exception if the breakpoint could not be created.
+     */
+    @Setup(Level.Trial)
+    public void launch() throws Exception {
+        debuggee = new Debuggee("PackRat");
+        BreakpointFactory bf = BreakpointProvider.getBreakpointFactory();
+        debuggee.addBreakpoint(bf.createBreakpoint(
+                "PackRat.params_test(java.lang.String, char, int, boolean)", null));
+        debuggee.resumeAndWait();
+        thread = debuggee.getThread();
+    }
+}
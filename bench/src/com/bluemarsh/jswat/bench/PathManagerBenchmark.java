@@ -0,0 +1,107 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.bench;
+
+import com.bluemarsh.jswat.core.path.PathEntry;
+import com.bluemarsh.jswat.core.path.PathManager;
+import com.bluemarsh.jswat.core.path.PathProvider;
+import com.bluemarsh.jswat.core.session.Session;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the time for the path manager to find the source of a class,
+ * given a sourcepath of directories and a classpath of both archives and
+ * directories. The classes are found in the first sourcepath entry, the
+ * last one, only by reading the source name from the bytecode in an
+ * archive, and not at all.
+ *
+ * @author Nathan Fiedler
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PathManagerBenchmark {
+
+    /**
+     * Name of the class whose source is to be found.
+     */
+    @Param({"com.bluemarsh.jswat.core.path.DefaultPathManager", "PackRat",
+        "org.openide.util.Lookup", "NoSuchClass"})
+    public String name;
+    /**
+     * The path manager being measured.
+     */
+    private PathManager pathManager;
+    /**
+     * The session to which the path manager belongs.
+     */
+    private Session session;
+
+    /**
+     * Closes the session.
+     */
+    @TearDown(Level.Trial)
+    public void close() {
+        Debuggee.closeSession(session);
+    }
+
+    /**
+     * Finds the source for the named class.
+     *
+     * @return the source file, or null if not found.
+     */
+    @Benchmark
+    public PathEntry findSource() {
+        return pathManager.findSource(name);
+    }
+
+    /**
+     * Creates a session and sets the paths of its path manager.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        session = Debuggee.createSession();
+        pathManager = PathProvider.getPathManager(session);
+        List<String> sourcepath = new ArrayList<String>();
+        sourcepath.add(Debuggee.getPath("core/src"));
+        sourcepath.add(Debuggee.getPath("cmd/src"));
+        sourcepath.add(Debuggee.getPath("core/test/integration/src"));
+        pathManager.setSourcePath(sourcepath);
+        List<String> classpath = new ArrayList<String>();
+        classpath.add(Debuggee.getPath("core/lib/com-bluemarsh-jswat-parser.jar"));
+        classpath.add(Debuggee.getPath("core/lib/org-openide-util.jar"));
+        classpath.add(Debuggee.getPath("core/lib/org-openide-util-lookup.jar"));
+        classpath.add(Debuggee.getPath("core/test/integration/build"));
+        pathManager.setClassPath(classpath);
+    }
+}
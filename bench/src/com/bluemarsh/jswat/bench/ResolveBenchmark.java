@@ -0,0 +1,130 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.bench;
+
+import com.bluemarsh.jswat.core.breakpoint.Breakpoint;
+import com.bluemarsh.jswat.core.breakpoint.BreakpointFactory;
+import com.bluemarsh.jswat.core.breakpoint.BreakpointProvider;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the time to resolve a number of method and line breakpoints
+ * when the PackRat class is prepared. The breakpoints are created while
+ * the debuggee is stopped at the start, before the class has been loaded,
+ * and each operation resumes the debuggee and waits for every breakpoint
+ * to be resolved.
+ *
+ * @author Nathan Fiedler
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ResolveBenchmark implements PropertyChangeListener {
+
+    /**
+     * Breakpoint specifications, used round-robin.
+     */
+    private static final String[] SPECS = {
+        "PackRat.array_test()", "PackRat:121",
+        "PackRat.local_test()", "PackRat:194",
+        "PackRat.loop_test()", "PackRat:226",
+        "PackRat.null_test()", "PackRat:239"
+    };
+    /**
+     * The number of breakpoints to resolve.
+     */
+    @Param({"1", "10", "100", "1000"})
+    public int count;
+    /**
+     * The debuggee being debugged.
+     */
+    private Debuggee debuggee;
+    /**
+     * Breakpoints that have been resolved.
+     */
+    private Set<Object> resolved;
+    /**
+     * Released when all of the breakpoints have been resolved.
+     */
+    private CountDownLatch latch;
+
+    /**
+     * Closes the debuggee.
+     */
+    @TearDown(Level.Invocation)
+    public void disconnect() {
+        debuggee.close();
+    }
+
+    /**
+     * Launches the debuggee and creates the breakpoints.
+     *
+     * @throws Exception if the breakpoints could not be created.
+     */
+    @Setup(Level.Invocation)
+    public void launch() throws Exception {
+        debuggee = new Debuggee("PackRat");
+        resolved = Collections.synchronizedSet(new HashSet<Object>());
+        latch = new CountDownLatch(count);
+        BreakpointFactory bf = BreakpointProvider.getBreakpointFactory();
+        for (int ii = 0; ii < count; ii++) {
+            Breakpoint bp = bf.createBreakpoint(SPECS[ii % SPECS.length], null);
+            bp.addPropertyChangeListener(this);
+            debuggee.addBreakpoint(bp);
+        }
+    }
+
+    @Override
+    public void propertyChange(PropertyChangeEvent evt) {
+        if (evt.getPropertyName().equals(Breakpoint.PROP_RESOLVED)
+                && Boolean.TRUE.equals(evt.getNewValue())
+                && resolved.add(evt.getSource())) {
+            latch.countDown();
+        }
+    }
+
+    /**
+     * Resumes the debuggee and waits for the breakpoints to resolve.
+     *
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    @Benchmark
+    public void resolve() throws InterruptedException {
+        debuggee.getSession().resumeVM();
+        latch.await();
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.bench;
+
+import com.bluemarsh.jswat.core.breakpoint.Breakpoint;
+import com.bluemarsh.jswat.core.breakpoint.DefaultBreakpointGroup;
+import com.bluemarsh.jswat.core.breakpoint.DefaultLineBreakpoint;
+import com.bluemarsh.jswat.core.breakpoint.ExpressionCondition;
+import com.bluemarsh.jswat.core.util.BeanReader;
+import com.bluemarsh.jswat.core.util.BeanWriter;
+import java.beans.XMLDecoder;
+import java.beans.XMLEncoder;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the time to save and load a group of line breakpoints, each
+ * with a condition, using the compact binary format of the bean writer
+ * and reader, compared with the XML encoder and decoder that it replaced.
+ * No debuggee is involved.
+ *
+ * @author Nathan Fiedler
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StoreBenchmark {
+
+    /**
+     * Number of breakpoints in the group.
+     */
+    @Param({"100", "2000"})
+    public int count;
+    /**
+     * The breakpoints to be saved.
+     */
+    private DefaultBreakpointGroup group;
+    /**
+     * The breakpoints as saved in the binary format.
+     */
+    private byte[] binary;
+    /**
+     * The breakpoints as saved by the XML encoder.
+     */
+    private byte[] xml;
+
+    /**
+     * Loads the breakpoints from the binary format.
+     *
+     * @return the loaded breakpoints.
+     * @throws IOException if the data is malformed.
+     */
+    @Benchmark
+    public List<Breakpoint> loadBinary() throws IOException {
+        BeanReader reader = new BeanReader(binary, "bench");
+        int size = reader.readInt();
+        List<Breakpoint> list = new ArrayList<Breakpoint>(size);
+        for (int ii = 0; ii < size; ii++) {
+            DefaultLineBreakpoint bp = (DefaultLineBreakpoint) reader.readBean();
+            bp.addCondition((ExpressionCondition) reader.readBean());
+            list.add(bp);
+        }
+        return list;
+    }
+
+    /**
+     * Loads the breakpoints with the XML decoder.
+     *
+     * @return the loaded breakpoint group.
+     */
+    @Benchmark
+    public Object loadXml() {
+        XMLDecoder decoder = new XMLDecoder(new ByteArrayInputStream(xml));
+        Object result = decoder.readObject();
+        decoder.close();
+        return result;
+    }
+
+    /**
+     * Saves the breakpoints in the binary format.
+     *
+     * @return the saved data.
+     * @throws IOException if writing fails.
+     */
+    @Benchmark
+    public byte[] saveBinary() throws IOException {
+        BeanWriter writer = new BeanWriter("bench");
+        writer.writeInt(group.breakpointCount(false));
+        Iterator<Breakpoint> iter = group.breakpoints(false);
+        while (iter.hasNext()) {
+            Breakpoint bp = iter.next();
+            writer.writeBean(bp);
+            writer.writeBean(bp.conditions().next());
+        }
+        return writer.toByteArray();
+    }
+
+    /**
+     * Saves the breakpoints with the XML encoder.
+     *
+     * @return the saved data.
+     */
+    @Benchmark
+    public byte[] saveXml() {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        XMLEncoder encoder = new XMLEncoder(baos);
+        encoder.writeObject(group);
+        encoder.close();
+        return baos.toByteArray();
+    }
+
+    /**
+     * Creates the breakpoints and saves them in both formats.
+     *
+     * @throws IOException if writing fails.
+     */
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        group = new DefaultBreakpointGroup();
+        group.setName("Default");
+        for (int ii = 0; ii < count; ii++) {
+            DefaultLineBreakpoint bp = new DefaultLineBreakpoint();
+            bp.setPackageName("com.example.pkg" + (ii % 10));
+            bp.setSourceName("Source" + (ii % 50) + ".java");
+            bp.setURL("file:/src/com/example/pkg" + (ii % 10)
+                    + "/Source" + (ii % 50) + ".java");
+            bp.setLineNumber(ii + 1);
+            ExpressionCondition cond = new ExpressionCondition();
+            cond.setExpression("i > " + ii);
+            bp.addCondition(cond);
+            group.addBreakpoint(bp);
+        }
+        binary = saveBinary();
+        xml = saveXml();
+    }
+}
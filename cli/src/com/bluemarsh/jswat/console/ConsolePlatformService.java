@@ -60,6 +60,16 @@ public class ConsolePlatformService implements PlatformService {
         }
     }
 
+    @Override
+    public OutputStream appendFile(String name) throws IOException {
+        File file = new File(userDirectory, name);
+        File parent = file.getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        return new FileOutputStream(file, true);
+    }
+
     @Override
     public void deleteFile(String name) throws IOException {
         File file = new File(userDirectory, name);
@@ -95,6 +105,19 @@ public class ConsolePlatformService implements PlatformService {
         // Nothing to do.
     }
 
+    @Override
+    public void renameFile(String name, String newName) throws IOException {
+        File file = new File(userDirectory, name);
+        File target = new File(userDirectory, newName);
+        if (!file.renameTo(target)) {
+            // Some platforms will not rename over an existing file.
+            target.delete();
+            if (!file.renameTo(target)) {
+                throw new IOException("cannot rename " + file + " to " + target);
+            }
+        }
+    }
+
     @Override
     public Object startProgress(String label, Cancellable callback) {
         throw new UnsupportedOperationException();
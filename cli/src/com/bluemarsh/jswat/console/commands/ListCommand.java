@@ -33,6 +33,7 @@ import com.bluemarsh.jswat.core.context.DebuggingContext;
 import com.bluemarsh.jswat.core.path.PathEntry;
 import com.bluemarsh.jswat.core.path.PathManager;
 import com.bluemarsh.jswat.core.path.PathProvider;
+import com.bluemarsh.jswat.core.path.SourceContent;
 import com.bluemarsh.jswat.core.session.Session;
 import com.sun.jdi.IncompatibleThreadStateException;
 import com.sun.jdi.Location;
@@ -41,12 +42,8 @@ import com.sun.jdi.ObjectCollectedException;
 import com.sun.jdi.ReferenceType;
 import com.sun.jdi.StackFrame;
 import com.sun.jdi.ThreadReference;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.PrintWriter;
-import java.util.ArrayList;
 import java.util.List;
 import org.openide.util.NbBundle;
 
@@ -111,16 +108,9 @@ public class ListCommand extends AbstractCommand {
                 ViewCommand.class, "ERR_view_NotFound"));
         }
 
-        List<String> lines = new ArrayList<String>(128);
+        SourceContent content;
         try {
-            InputStream is = pe.getInputStream();
-            BufferedReader br = new BufferedReader(new InputStreamReader(is));
-            String ln = br.readLine();
-            while (ln != null) {
-                lines.add(ln);
-                ln = br.readLine();
-            }
-            br.close();
+            content = pe.getContent();
         } catch (IOException ioe) {
             throw new CommandException(NbBundle.getMessage(
                 ViewCommand.class, "ERR_view_IOError"), ioe);
@@ -129,10 +119,10 @@ public class ListCommand extends AbstractCommand {
         int startLine = Math.max(line - 5, 1);
         int endLine = startLine + 10;
         for (int i = startLine; i <= endLine; i++) {
-            if (i >= lines.size()) {
+            if (i > content.getLineCount()) {
                 break;
             }
-            String sourceLine = lines.get(i - 1);  // ArrayList is zero-indexed
+            String sourceLine = content.getLine(i);
             if (i == line) {
                 writer.println(String.format("%d:=>%s", i, sourceLine));
             } else {
@@ -29,6 +29,7 @@ import com.bluemarsh.jswat.command.CommandContext;
 import com.bluemarsh.jswat.command.CommandException;
 import com.bluemarsh.jswat.command.MissingArgumentsException;
 import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.util.ClassIndex;
 import com.bluemarsh.jswat.core.util.Classes;
 import com.sun.jdi.ClassLoaderReference;
 import com.sun.jdi.ReferenceType;
@@ -63,7 +64,7 @@ public class ClassesCommand extends AbstractCommand {
             String cname = arguments.nextToken();
             classes = Classes.findClasses(vm, cname);
         } else {
-            classes = vm.allClasses();
+            classes = ClassIndex.getInstance(session).getAllClasses();
         }
         Iterator<ReferenceType> iter = classes.iterator();
         if (iter.hasNext()) {
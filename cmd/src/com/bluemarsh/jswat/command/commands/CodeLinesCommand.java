@@ -29,7 +29,8 @@ import com.bluemarsh.jswat.command.CommandContext;
 import com.bluemarsh.jswat.command.CommandException;
 import com.bluemarsh.jswat.command.MissingArgumentsException;
 import com.bluemarsh.jswat.core.session.Session;
-import com.bluemarsh.jswat.core.util.Strings;
+import com.bluemarsh.jswat.core.util.MirrorCache;
+import com.bluemarsh.jswat.core.util.MirrorCache.MethodInfo;
 import com.sun.jdi.AbsentInformationException;
 import com.sun.jdi.ClassLoaderReference;
 import com.sun.jdi.Location;
@@ -128,17 +129,16 @@ public class CodeLinesCommand extends AbstractCommand {
             PrintWriter writer) throws AbsentInformationException, CommandException {
         List<Location> lines = null;
         if (methodName == null) {
-            lines = clazz.allLineLocations();
-            // Need to make it modifiable so it can be sorted.
-            lines = new ArrayList<Location>(lines);
+            // The index has the lines already sorted.
+            lines = MirrorCache.getTypeInfo(clazz).getLineIndex().getLines();
         } else {
             lines = new ArrayList<Location>();
             List<Method> methods = clazz.allMethods();
             Iterator<Method> iter = methods.iterator();
             while (iter.hasNext()) {
-                Method method = iter.next();
-                if (method.name().equals(methodName)) {
-                    lines.addAll(method.allLineLocations());
+                MethodInfo info = MirrorCache.getMethodInfo(iter.next());
+                if (info.getName().equals(methodName)) {
+                    lines.addAll(info.getLineLocations());
                 }
             }
 
@@ -146,10 +146,9 @@ public class CodeLinesCommand extends AbstractCommand {
                 throw new CommandException(NbBundle.getMessage(getClass(),
                         "ERR_lines_InvalidMethod", methodName));
             }
+            Collections.sort(lines, new LineComparator());
         }
 
-        Collections.sort(lines, new LineComparator());
-
         StringBuilder sb = new StringBuilder(256);
         ClassLoaderReference clr = clazz.classLoader();
         if (clr != null) {
@@ -161,12 +160,10 @@ public class CodeLinesCommand extends AbstractCommand {
         for (Location line : lines) {
             sb.append(line.lineNumber());
             sb.append(": ");
-            sb.append(line.method().name());
+            MethodInfo info = MirrorCache.getMethodInfo(line.method());
+            sb.append(info.getName());
             sb.append('(');
-            List<String> types = line.method().argumentTypeNames();
-            if (types != null && types.size() > 0) {
-                sb.append(Strings.listToString(types));
-            }
+            sb.append(info.getArguments());
             sb.append(')');
             sb.append('\n');
         }
@@ -36,7 +36,9 @@ import com.bluemarsh.jswat.core.breakpoint.Condition;
 import com.bluemarsh.jswat.core.breakpoint.ExpressionCondition;
 import com.bluemarsh.jswat.core.session.Session;
 import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.ListIterator;
 import org.openide.util.NbBundle;
 
@@ -113,23 +115,30 @@ public class ConditionCommand extends AbstractCommand {
                 // Find the matching condition and remove it.
                 arguments.returnAsIs(true);
                 String expr = arguments.rest().trim();
+                // The iterator is read-only, so find the match first.
+                Condition found = null;
                 ListIterator<Condition> iter = bp.conditions();
-                while (iter.hasNext()) {
+                while (iter.hasNext() && found == null) {
                     Condition cond = iter.next();
                     if (cond instanceof ExpressionCondition) {
                         ExpressionCondition ec = (ExpressionCondition) cond;
                         if (ec.getExpression().equals(expr)) {
-                            iter.remove();
-                            break;
+                            found = cond;
                         }
                     }
                 }
+                if (found != null) {
+                    bp.removeCondition(found);
+                }
             } else {
                 // Remove all conditions from the breakpoint.
+                List<Condition> all = new ArrayList<Condition>();
                 ListIterator<Condition> iter = bp.conditions();
                 while (iter.hasNext()) {
-                    iter.next();
-                    iter.remove();
+                    all.add(iter.next());
+                }
+                for (Condition cond : all) {
+                    bp.removeCondition(cond);
                 }
             }
             writer.println(NbBundle.getMessage(ConditionCommand.class,
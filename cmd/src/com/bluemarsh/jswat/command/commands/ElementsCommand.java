@@ -32,6 +32,8 @@ import com.bluemarsh.jswat.core.context.DebuggingContext;
 import com.bluemarsh.jswat.core.expr.EvaluationException;
 import com.bluemarsh.jswat.core.expr.Evaluator;
 import com.bluemarsh.jswat.core.util.Classes;
+import com.bluemarsh.jswat.core.util.ElementReader;
+import com.bluemarsh.jswat.core.util.ElementReader.Element;
 import com.bluemarsh.jswat.core.util.Strings;
 import com.sun.jdi.ArrayReference;
 import com.sun.jdi.BooleanValue;
@@ -134,12 +136,12 @@ public class ElementsCommand extends AbstractCommand {
                     "ERR_EvaluationError", ee.getMessage()));
         }
 
-        // First check ArrayReference case since it extends ObjectReference.
-        if (o instanceof ArrayReference) {
-            // Display the elements of the array.
+        // Arrays and the common collections can be read a page at a time,
+        // without invoking methods in the debuggee.
+        if (o instanceof ObjectReference
+                && ElementReader.canRead((ObjectReference) o)) {
             try {
-                writer.println(printArray((ArrayReference) o, start, end,
-                                thread));
+                printElements((ObjectReference) o, start, end, thread, writer);
             } catch (Exception e) {
                 throw new CommandException(e.toString(), e);
             }
@@ -199,43 +201,6 @@ public class ElementsCommand extends AbstractCommand {
         }
     }
 
-    /**
-     * Prints the given range of elements from the array to a
-     * String, separated by newline characters.
-     *
-     * @param  array   array reference.
-     * @param  start   first element to print.
-     * @param  end     last element to print.
-     * @param  thread  thread from which to get values.
-     * @return  array elements in a string.
-     * @throws  Exception
-     *          because Variables.printValue() can.
-     */
-    private static String printArray(ArrayReference array, int start,
-            int end, ThreadReference thread) throws Exception {
-
-        // Adjust the ending point accordingly.
-        if (end < 0 || end >= array.length()) {
-            end = array.length();
-        } else {
-            end++;
-        }
-        StringBuilder sb = new StringBuilder(80);
-        for (int ii = start; ii < end; ii++) {
-            sb.append(ii);
-            sb.append(": ");
-            Value v = array.getValue(ii);
-            sb.append(printValue(v, thread, ", "));
-            sb.append('\n');
-        }
-        // Remove the last linefeed.
-        int l = sb.length();
-        if (l > 0) {
-            sb.delete(l - 1, l);
-        }
-        return sb.toString();
-    }
-
     /**
      * Prints the given range of elements from the collection to a
      * String, separated by newline characters.
@@ -338,6 +303,57 @@ public class ElementsCommand extends AbstractCommand {
         return sb.toString();
     }
 
+    /**
+     * Prints the given range of elements from the array or collection to
+     * the writer, one per line. The elements are retrieved one page at a
+     * time, such that only the requested range is read from the debuggee.
+     *
+     * @param  object  array or collection that can be read by ElementReader.
+     * @param  start   first element to print.
+     * @param  end     last element to print.
+     * @param  thread  thread from which to get values.
+     * @param  writer  writer to which elements are printed.
+     * @throws  Exception
+     *          because printValue() can.
+     */
+    private static void printElements(ObjectReference object, int start,
+            int end, ThreadReference thread, PrintWriter writer)
+            throws Exception {
+
+        ElementReader reader = ElementReader.getInstance(
+                object.virtualMachine());
+        int size = reader.getSize(object);
+        boolean isaMap = reader.isMap(object);
+        // Adjust the ending point accordingly.
+        if (end < 0 || end >= size) {
+            end = size;
+        } else {
+            end++;
+        }
+        int index = start;
+        while (index < end) {
+            int count = Math.min(ElementReader.PAGE_SIZE, end - index);
+            List<Element> elements = reader.getElements(object, index, count);
+            if (elements.isEmpty()) {
+                // Collection changed size since it was read.
+                break;
+            }
+            StringBuilder sb = new StringBuilder(80);
+            for (Element element : elements) {
+                sb.setLength(0);
+                if (isaMap) {
+                    sb.append(printValue(element.getKey(), thread, ", "));
+                } else {
+                    sb.append(element.getIndex());
+                }
+                sb.append(": ");
+                sb.append(printValue(element.getValue(), thread, ", "));
+                writer.println(sb.toString());
+            }
+            index += elements.size();
+        }
+    }
+
     /**
      * Prints all the elements from the map to a String, separated by
      * newline characters.
@@ -0,0 +1,133 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is the JSwat Command Module. The Initial Developer of the
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ *
+ * $Id$
+ */
+package com.bluemarsh.jswat.command.commands;
+
+import com.bluemarsh.jswat.command.AbstractCommand;
+import com.bluemarsh.jswat.command.CommandArguments;
+import com.bluemarsh.jswat.command.CommandContext;
+import com.bluemarsh.jswat.command.CommandException;
+import com.bluemarsh.jswat.command.MissingArgumentsException;
+import com.bluemarsh.jswat.core.util.JdwpProfiler;
+import com.bluemarsh.jswat.core.util.JdwpProfiler.Statistics;
+import java.io.PrintWriter;
+import java.util.List;
+import org.openide.util.NbBundle;
+
+/**
+ * Displays the calls made to the debuggee, as recorded by the profiler,
+ * and enables, disables, and resets the profiler.
+ *
+ * @author Nathan Fiedler
+ */
+public class JdwpStatsCommand extends AbstractCommand {
+    /** Number of calling sites to show for each category. */
+    private static final int SITE_LIMIT = 5;
+    /** Nanoseconds per millisecond. */
+    private static final double NANOS_PER_MS = 1000000.0;
+
+    /**
+     * Formats the nanosecond duration in milliseconds.
+     *
+     * @param  nanos  duration in nanoseconds.
+     * @return  formatted duration.
+     */
+    private static String format(double nanos) {
+        return String.format("%.2f", nanos / NANOS_PER_MS);
+    }
+
+    @Override
+    public String getName() {
+        return "jdwpstats";
+    }
+
+    @Override
+    public void perform(CommandContext context, CommandArguments arguments)
+            throws CommandException, MissingArgumentsException {
+
+        PrintWriter writer = context.getWriter();
+        JdwpProfiler profiler = JdwpProfiler.getInstance(context.getSession());
+        if (arguments.hasMoreTokens()) {
+            String token = arguments.nextToken();
+            if (token.equals("on")) {
+                profiler.setEnabled(true);
+                writer.println(NbBundle.getMessage(JdwpStatsCommand.class,
+                        "CTL_jdwpstats_Enabled"));
+            } else if (token.equals("off")) {
+                profiler.setEnabled(false);
+                writer.println(NbBundle.getMessage(JdwpStatsCommand.class,
+                        "CTL_jdwpstats_Disabled"));
+            } else if (token.equals("reset")) {
+                profiler.reset();
+                writer.println(NbBundle.getMessage(JdwpStatsCommand.class,
+                        "CTL_jdwpstats_Reset"));
+            } else {
+                throw new CommandException(NbBundle.getMessage(
+                        JdwpStatsCommand.class, "ERR_jdwpstats_UnknownOption",
+                        token));
+            }
+            return;
+        }
+
+        List<Statistics> list = profiler.getStatistics();
+        if (list.isEmpty()) {
+            String key = profiler.isEnabled() ? "CTL_jdwpstats_NoCalls"
+                    : "CTL_jdwpstats_NotEnabled";
+            writer.println(NbBundle.getMessage(JdwpStatsCommand.class, key));
+            return;
+        }
+        long[] limits = JdwpProfiler.getBucketLimits();
+        StringBuilder sb = new StringBuilder(256);
+        for (Statistics stats : list) {
+            long count = stats.getCount();
+            sb.append(NbBundle.getMessage(JdwpStatsCommand.class,
+                    "CTL_jdwpstats_Category", stats.getCategory(),
+                    String.valueOf(count), format(stats.getTotalTime()),
+                    format((double) stats.getTotalTime() / count),
+                    format(stats.getMaxTime())));
+            sb.append('\n');
+            long[] histogram = stats.getHistogram();
+            sb.append("   ");
+            for (int ii = 0; ii < histogram.length; ii++) {
+                sb.append(' ');
+                if (ii < limits.length) {
+                    sb.append('<');
+                    sb.append(format(limits[ii]));
+                } else {
+                    sb.append(">=");
+                    sb.append(format(limits[ii - 1]));
+                }
+                sb.append(": ");
+                sb.append(histogram[ii]);
+            }
+            sb.append('\n');
+            for (String site : stats.getSites(SITE_LIMIT)) {
+                sb.append(NbBundle.getMessage(JdwpStatsCommand.class,
+                        "CTL_jdwpstats_Site", site,
+                        String.valueOf(stats.getSiteCount(site)),
+                        format(stats.getSiteTime(site))));
+                sb.append('\n');
+            }
+        }
+        writer.print(sb.toString());
+    }
+}
@@ -33,6 +33,7 @@ import com.bluemarsh.jswat.core.context.DebuggingContext;
 import com.bluemarsh.jswat.core.session.Session;
 import com.bluemarsh.jswat.core.util.Names;
 import com.bluemarsh.jswat.core.util.Strings;
+import com.bluemarsh.jswat.core.util.SuspendCache;
 import com.sun.jdi.AbsentInformationException;
 import com.sun.jdi.CharValue;
 import com.sun.jdi.Field;
@@ -48,6 +49,7 @@ import com.sun.jdi.StackFrame;
 import com.sun.jdi.ThreadReference;
 import com.sun.jdi.Value;
 import java.io.PrintWriter;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.ListIterator;
 import java.util.Map;
@@ -74,6 +76,7 @@ public class LocalsCommand extends AbstractCommand {
      * map is sorted and so iterating it will return the variables in
      * alphabetical order.
      *
+     * @param  cache  cache of the current suspension.
      * @param  frame  stack frame from which to retrieve variables.
      * @return  map of visible variables in sorted order.
      * @throws  AbsentInformationException
@@ -83,7 +86,8 @@ public class LocalsCommand extends AbstractCommand {
      * @throws  NativeMethodException
      *          if this method is a native one.
      */
-    private Map<String, Mirror> getVariables(StackFrame frame)
+    private Map<String, Mirror> getVariables(SuspendCache cache,
+            StackFrame frame)
         throws AbsentInformationException, InvalidStackFrameException,
                NativeMethodException {
         // Create a sorted map in which to store all of the variable
@@ -105,7 +109,7 @@ public class LocalsCommand extends AbstractCommand {
         }
 
         // Get the fields from 'this' object.
-        ObjectReference thisObj = frame.thisObject();
+        ObjectReference thisObj = cache.thisObject(frame);
         if (thisObj != null) {
             while (fields.hasPrevious()) {
                 Field field = fields.previous();
@@ -118,7 +122,7 @@ public class LocalsCommand extends AbstractCommand {
 
         // Get the visible local variables in this frame. Any fields
         // with the same name as a local will be appropriately hidden.
-        ListIterator<LocalVariable> locals = frame.visibleVariables().listIterator();
+        ListIterator<LocalVariable> locals = cache.visibleVariables(frame).listIterator();
         while (locals.hasNext()) {
             LocalVariable var = locals.next();
             vars.put(var.name(), var);
@@ -151,9 +155,10 @@ public class LocalsCommand extends AbstractCommand {
         }
 
         // Get the stack frame.
+        SuspendCache cache = SuspendCache.getInstance(session);
         StackFrame frame;
         try {
-            frame = thread.frame(frameIdx);
+            frame = cache.frame(thread, frameIdx);
         } catch (IncompatibleThreadStateException itse) {
             throw new CommandException(NbBundle.getMessage(
                     LocalsCommand.class, "ERR_ThreadNotSuspended"));
@@ -172,7 +177,7 @@ public class LocalsCommand extends AbstractCommand {
         // Get the list of visible variables, including fields.
         Map vars;
         try {
-            vars = getVariables(frame);
+            vars = getVariables(cache, frame);
         } catch (AbsentInformationException aie) {
             throw new CommandException(NbBundle.getMessage(
                     LocalsCommand.class, "ERR_NoVariableInfo"));
@@ -192,7 +197,7 @@ public class LocalsCommand extends AbstractCommand {
         StringBuilder sb = new StringBuilder(256);
         Iterator iter = vars.keySet().iterator();
         ReferenceType clazz = frame.location().declaringType();
-        ObjectReference thisObj = frame.thisObject();
+        ObjectReference thisObj = cache.thisObject(frame);
         while (iter.hasNext()) {
             String name = (String) iter.next();
             Object o = vars.get(name);
@@ -207,7 +212,8 @@ public class LocalsCommand extends AbstractCommand {
                     sb.append("  ");
                 }
                 // Fetch the local variable value.
-                val = frame.getValue(var);
+                val = cache.getValues(frame,
+                        Collections.singletonList(var)).get(var);
 
                 // Print the variable's type name.
                 // Value.type().name() returns actual type name.
@@ -27,27 +27,129 @@ import com.bluemarsh.jswat.command.CommandArguments;
 import com.bluemarsh.jswat.command.CommandContext;
 import com.bluemarsh.jswat.command.CommandException;
 import com.bluemarsh.jswat.command.MissingArgumentsException;
-import com.bluemarsh.jswat.core.breakpoint.Breakpoint;
 import com.bluemarsh.jswat.core.breakpoint.BreakpointFactory;
 import com.bluemarsh.jswat.core.breakpoint.BreakpointManager;
 import com.bluemarsh.jswat.core.breakpoint.BreakpointProvider;
+import com.bluemarsh.jswat.core.breakpoint.TraceBreakpoint;
+import com.bluemarsh.jswat.core.breakpoint.TraceLog;
 import com.bluemarsh.jswat.core.session.Session;
 import com.sun.jdi.request.EventRequest;
 import java.io.PrintWriter;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedList;
 import org.openide.util.NbBundle;
 
 /**
- * Creates trace breakpoints to monitor method entry and exit events.
+ * Creates trace breakpoints to monitor method entry and exit events, and
+ * displays the events recorded in the trace log.
  *
  * @author Nathan Fiedler
  */
 public class MethodTraceCommand extends AbstractCommand {
 
+    /**
+     * Display the records in the trace log that match the filters given
+     * in the arguments.
+     *
+     * @param  log        trace log to display.
+     * @param  arguments  command arguments.
+     * @param  writer     where output is written.
+     * @param  tail       true to display only the last records.
+     * @throws  CommandException  if the arguments are invalid.
+     */
+    private static void displayLog(TraceLog log, CommandArguments arguments,
+            PrintWriter writer, boolean tail) throws CommandException {
+        int limit = Integer.MAX_VALUE;
+        if (tail) {
+            limit = 20;
+            if (arguments.hasMoreTokens() && !arguments.peek().contains(":")) {
+                String token = arguments.nextToken();
+                try {
+                    limit = Integer.parseInt(token);
+                } catch (NumberFormatException nfe) {
+                    throw new CommandException(NbBundle.getMessage(
+                            MethodTraceCommand.class, "ERR_InvalidNumber",
+                            token), nfe);
+                }
+            }
+        }
+        String cfilter = null;
+        String tfilter = null;
+        while (arguments.hasMoreTokens()) {
+            String token = arguments.nextToken();
+            if (token.startsWith("c:")) {
+                cfilter = token.substring(2);
+            } else if (token.startsWith("t:")) {
+                tfilter = token.substring(2);
+            } else {
+                throw new CommandException(NbBundle.getMessage(
+                        MethodTraceCommand.class, "ERR_trace_UnknownFilter", token));
+            }
+        }
+
+        // Walk backward from the most recent record to find the matches,
+        // describing only those that will be shown.
+        LinkedList<TraceLog.Entry> matches = new LinkedList<TraceLog.Entry>();
+        long first = log.getFirst();
+        for (long seq = log.getNext() - 1; seq >= first
+                && matches.size() < limit; seq--) {
+            TraceLog.Entry entry = log.get(seq);
+            if (entry == null) {
+                // Overwritten while we were looking.
+                break;
+            }
+            if (cfilter != null && !matchesClass(cfilter,
+                    entry.getMethod().declaringType().name())) {
+                continue;
+            }
+            if (tfilter != null && !tfilter.equals(String.valueOf(
+                    entry.getThreadId())) && !tfilter.equals(
+                    entry.getThreadName())) {
+                continue;
+            }
+            matches.addFirst(entry);
+        }
+        if (matches.isEmpty()) {
+            writer.println(NbBundle.getMessage(MethodTraceCommand.class,
+                    "CTL_trace_NoRecords"));
+            return;
+        }
+        DateFormat format = new SimpleDateFormat("HH:mm:ss.SSS");
+        StringBuilder sb = new StringBuilder(256);
+        for (TraceLog.Entry entry : matches) {
+            sb.append(format.format(new Date(entry.getTime())));
+            sb.append(' ');
+            sb.append(entry.describe());
+            writer.println(sb.toString());
+            sb.setLength(0);
+        }
+    }
+
     @Override
     public String getName() {
         return "trace";
     }
 
+    /**
+     * Determine if the class name matches the filter, which may have a
+     * leading or trailing asterisk to match any number of characters.
+     *
+     * @param  filter  class filter.
+     * @param  name    name of class.
+     * @return  true if name matches, false otherwise.
+     */
+    private static boolean matchesClass(String filter, String name) {
+        if (filter.startsWith("*")) {
+            return name.endsWith(filter.substring(1));
+        } else if (filter.endsWith("*")) {
+            return name.startsWith(filter.substring(0, filter.length() - 1));
+        } else {
+            return name.equals(filter);
+        }
+    }
+
     @Override
     public void perform(CommandContext context, CommandArguments arguments)
             throws CommandException, MissingArgumentsException {
@@ -55,13 +157,30 @@ public class MethodTraceCommand extends AbstractCommand {
         Session session = context.getSession();
         PrintWriter writer = context.getWriter();
 
+        // Check for the trace log operations.
+        String peek = arguments.peek();
+        if (peek.equals("dump") || peek.equals("tail")) {
+            arguments.nextToken();
+            TraceLog log = TraceLog.getInstance(session);
+            displayLog(log, arguments, writer, peek.equals("tail"));
+            return;
+        } else if (peek.equals("clear")) {
+            TraceLog.getInstance(session).clear();
+            writer.println(NbBundle.getMessage(MethodTraceCommand.class,
+                    "CTL_trace_Cleared"));
+            return;
+        }
+
         // Look for any optional arguments.
         int suspendPolicy = EventRequest.SUSPEND_ALL;
         boolean enter = true;
         boolean exit = true;
+        boolean record = false;
         while (arguments.hasMoreTokens()) {
-            String peek = arguments.peek();
-            if (peek.equals("go")) {
+            peek = arguments.peek();
+            if (peek.equals("record")) {
+                record = true;
+            } else if (peek.equals("go")) {
                 suspendPolicy = EventRequest.SUSPEND_NONE;
             } else if (peek.equals("thread")) {
                 suspendPolicy = EventRequest.SUSPEND_EVENT_THREAD;
@@ -91,9 +210,10 @@ public class MethodTraceCommand extends AbstractCommand {
         }
 
         BreakpointFactory bf = BreakpointProvider.getBreakpointFactory();
-        Breakpoint bp = bf.createTraceBreakpoint(cfilter, tfilter, enter, exit);
+        TraceBreakpoint bp = bf.createTraceBreakpoint(cfilter, tfilter, enter, exit);
         bp.setEnabled(false);
         bp.setSuspendPolicy(suspendPolicy);
+        bp.setRecord(record);
         bp.setEnabled(true);
         BreakpointManager bm = BreakpointProvider.getBreakpointManager(session);
         bm.addBreakpoint(bp);
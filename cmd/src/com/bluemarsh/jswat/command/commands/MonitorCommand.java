@@ -35,7 +35,9 @@ import com.bluemarsh.jswat.core.breakpoint.ExpressionMonitor;
 import com.bluemarsh.jswat.core.breakpoint.Monitor;
 import com.bluemarsh.jswat.core.session.Session;
 import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.ListIterator;
 import org.openide.util.NbBundle;
 
@@ -110,23 +112,30 @@ public class MonitorCommand extends AbstractCommand {
                 // Find the matching monitor and remove it.
                 arguments.returnAsIs(true);
                 String expr = arguments.rest().trim();
+                // The iterator is read-only, so find the match first.
+                Monitor found = null;
                 ListIterator<Monitor> iter = bp.monitors();
-                while (iter.hasNext()) {
+                while (iter.hasNext() && found == null) {
                     Monitor mon = iter.next();
                     if (mon instanceof ExpressionMonitor) {
                         ExpressionMonitor ec = (ExpressionMonitor) mon;
                         if (ec.getExpression().equals(expr)) {
-                            iter.remove();
-                            break;
+                            found = mon;
                         }
                     }
                 }
+                if (found != null) {
+                    bp.removeMonitor(found);
+                }
             } else {
                 // Remove all monitors from the breakpoint.
+                List<Monitor> all = new ArrayList<Monitor>();
                 ListIterator<Monitor> iter = bp.monitors();
                 while (iter.hasNext()) {
-                    iter.next();
-                    iter.remove();
+                    all.add(iter.next());
+                }
+                for (Monitor mon : all) {
+                    bp.removeMonitor(mon);
                 }
             }
             writer.println(NbBundle.getMessage(MonitorCommand.class,
@@ -28,6 +28,9 @@ import com.bluemarsh.jswat.command.CommandArguments;
 import com.bluemarsh.jswat.command.CommandContext;
 import com.bluemarsh.jswat.command.CommandException;
 import com.bluemarsh.jswat.command.MissingArgumentsException;
+import com.bluemarsh.jswat.core.breakpoint.BreakpointProvider;
+import com.bluemarsh.jswat.core.breakpoint.ClassPrepareMultiplexer;
+import com.bluemarsh.jswat.core.breakpoint.ConnectResolver;
 import com.bluemarsh.jswat.core.session.Session;
 import com.sun.jdi.VirtualMachine;
 import com.sun.jdi.request.AccessWatchpointRequest;
@@ -92,6 +95,20 @@ public class RequestsCommand extends AbstractCommand {
             writer.println(br.location().toString());
             writer.println();
         }
+        ConnectResolver cr = BreakpointProvider.getConnectResolver(session);
+        writer.print("\tBreakpoints resolved on connect: ");
+        writer.println(String.valueOf(cr.getResolvedCount()) + " of "
+                + String.valueOf(cr.getBreakpointCount()));
+        writer.print("\tDeferred until class prepare: ");
+        writer.println(String.valueOf(cr.getDeferredCount()));
+        writer.print("\tClass lookups: ");
+        writer.println(String.valueOf(cr.getClassLookupCount()));
+        writer.print("\tLine tables: ");
+        writer.println(String.valueOf(cr.getLineTableCount()));
+        writer.print("\tLookup time (ms): ");
+        writer.println(String.valueOf(cr.getLookupTime() / 1000000));
+        writer.print("\tResolve time (ms): ");
+        writer.println(String.valueOf(cr.getResolveTime() / 1000000));
         writer.println();
 
         // Class prepare requests
@@ -103,6 +120,16 @@ public class RequestsCommand extends AbstractCommand {
             printCommon(cpr, writer);
             writer.println();
         }
+        ClassPrepareMultiplexer cpm =
+            BreakpointProvider.getClassPrepareMultiplexer(session);
+        writer.print("\tBreakpoints sharing requests: ");
+        writer.println(String.valueOf(cpm.getBreakpointCount()));
+        writer.print("\tRequests for breakpoints: ");
+        writer.println(String.valueOf(cpm.getRequestCount()));
+        writer.print("\tEvents received: ");
+        writer.println(String.valueOf(cpm.getEventCount()));
+        writer.print("\tEvents saved: ");
+        writer.println(String.valueOf(cpm.getSavedEventCount()));
         writer.println();
 
         // Class unload requests
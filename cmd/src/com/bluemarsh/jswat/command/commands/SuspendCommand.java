@@ -32,6 +32,8 @@ import com.bluemarsh.jswat.core.session.Session;
 import com.bluemarsh.jswat.core.util.Threads;
 import com.sun.jdi.ThreadReference;
 import com.sun.jdi.VirtualMachine;
+import java.util.ArrayList;
+import java.util.List;
 import org.openide.util.NbBundle;
 
 /**
@@ -54,11 +56,13 @@ public class SuspendCommand extends AbstractCommand {
         VirtualMachine vm = session.getConnection().getVM();
 
         if (arguments.hasMoreTokens()) {
+            List<ThreadReference> threads = new ArrayList<ThreadReference>();
             String token = arguments.nextToken();
             while (token != null) {
                 ThreadReference thread = Threads.findThread(vm, token);
                 if (thread != null) {
                     thread.suspend();
+                    threads.add(thread);
                 } else {
                     throw new CommandException(
                             NbBundle.getMessage(SuspendCommand.class,
@@ -66,6 +70,7 @@ public class SuspendCommand extends AbstractCommand {
                 }
                 token = arguments.hasMoreTokens() ? arguments.nextToken() : null;
             }
+            session.suspendStateChanged(threads, true);
         } else {
             session.suspendVM();
         }
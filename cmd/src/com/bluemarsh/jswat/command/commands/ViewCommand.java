@@ -33,19 +33,14 @@ import com.bluemarsh.jswat.core.context.DebuggingContext;
 import com.bluemarsh.jswat.core.path.PathEntry;
 import com.bluemarsh.jswat.core.path.PathManager;
 import com.bluemarsh.jswat.core.path.PathProvider;
+import com.bluemarsh.jswat.core.path.SourceContent;
 import com.bluemarsh.jswat.core.session.Session;
 import com.bluemarsh.jswat.core.util.Names;
 import com.sun.jdi.Location;
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.PrintWriter;
-import java.util.ArrayList;
-import java.util.List;
 import org.openide.util.NbBundle;
 
 /**
@@ -92,26 +87,26 @@ public class ViewCommand extends AbstractCommand {
             }
         }
 
-        InputStream is = null;
+        SourceContent content = null;
         try {
             if (name != null) {
                 // If it looks like a class name, try finding its source.
                 if (Names.isValidClassname(name, false)) {
                     PathEntry pe = pm.findSource(name);
                     if (pe != null) {
-                        is = pe.getInputStream();
+                        content = pe.getContent();
                     }
                 }
                 // Otherwise, see if it's a file we can find.
-                if (is == null) {
+                if (content == null) {
                     File file = new File(name);
                     if (file.exists()) {
-                        is = new FileInputStream(file);
+                        content = SourceContent.forFile(file);
                     } else {
                         // Could it be a relative path then?
                         PathEntry pe = pm.findFile(name);
                         if (pe != null) {
-                            is = pe.getInputStream();
+                            content = pe.getContent();
                         }
                     }
                 }
@@ -128,7 +123,7 @@ public class ViewCommand extends AbstractCommand {
                     throw new CommandException(NbBundle.getMessage(
                             ViewCommand.class, "ERR_view_NotFound"));
                 }
-                is = pe.getInputStream();
+                content = pe.getContent();
                 pc = loc.lineNumber();
                 if (line == 0) {
                     // Default to showing the lines near the current location.
@@ -143,26 +138,11 @@ public class ViewCommand extends AbstractCommand {
                     ViewCommand.class, "ERR_view_IOError"), ioe);
         }
 
-        if (is == null) {
+        if (content == null) {
             throw new CommandException(NbBundle.getMessage(
                     ViewCommand.class, "ERR_view_MissingFile", name));
         }
 
-        // Read the file contents into memory. Let the OS handle the caching.
-        BufferedReader br = new BufferedReader(new InputStreamReader(is));
-        List<String> lines = new ArrayList<String>(128);
-        try {
-            String ln = br.readLine();
-            while (ln != null) {
-                lines.add(ln);
-                ln = br.readLine();
-            }
-            br.close();
-        } catch (IOException ioe) {
-            throw new CommandException(NbBundle.getMessage(
-                    ViewCommand.class, "ERR_view_IOError"), ioe);
-        }
-
         // Perform bounds checking on the line and count values.
         if (line <= 0) {
             line = 1;
@@ -170,12 +150,12 @@ public class ViewCommand extends AbstractCommand {
         if (count <= 0) {
             count = 1;
         }
-        int max = Math.min(line + count, lines.size() + 1);
+        int max = Math.min(line + count, content.getLineCount() + 1);
 
         // Display the lines of source code.
         StringBuilder sb = new StringBuilder();
         for (int ii = line; ii < max; ii++) {
-            String ln = lines.get(ii - 1);
+            String ln = content.getLine(ii);
             if (ii == pc) {
                 sb.append(String.format("%d:=>%s\n", ii, ln));
             } else {
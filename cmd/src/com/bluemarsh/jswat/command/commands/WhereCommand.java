@@ -30,6 +30,9 @@ import com.bluemarsh.jswat.command.CommandException;
 import com.bluemarsh.jswat.command.MissingArgumentsException;
 import com.bluemarsh.jswat.core.context.DebuggingContext;
 import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.util.MirrorCache;
+import com.bluemarsh.jswat.core.util.MirrorCache.TypeInfo;
+import com.bluemarsh.jswat.core.util.SuspendCache;
 import com.bluemarsh.jswat.core.util.Threads;
 import com.sun.jdi.AbsentInformationException;
 import com.sun.jdi.IncompatibleThreadStateException;
@@ -83,7 +86,7 @@ public class WhereCommand extends AbstractCommand {
             arg = arguments.nextToken();
             if (arg.equals("all")) {
                 // Show thread locks for all threads.
-                List<ThreadReference> threads = vm.allThreads();
+                List<ThreadReference> threads = SuspendCache.getThreads(vm);
                 for (ThreadReference thread : threads) {
                     printStack(thread, writer, dc);
                     writer.println();
@@ -159,15 +162,16 @@ public class WhereCommand extends AbstractCommand {
      */
     public void appendFrameDescriptor(Location loc, StringBuilder sb) {
         Method method = loc.method();
-        sb.append(method.declaringType().name());
+        TypeInfo type = MirrorCache.getTypeInfo(method.declaringType());
+        sb.append(type.getName());
         sb.append('.');
-        sb.append(method.name());
+        sb.append(MirrorCache.getMethodInfo(method).getName());
         sb.append(" (");
         if (method.isNative()) {
             sb.append(getMessage("CTL_where_native"));
         } else if (loc.lineNumber() != -1) {
             try {
-                sb.append(loc.sourceName());
+                sb.append(type.getSourceName());
             } catch (AbsentInformationException e) {
                 sb.append(getMessage("CTL_where_absentInfo"));
             }
@@ -184,7 +188,7 @@ public class WhereCommand extends AbstractCommand {
             throws CommandException {
         List<StackFrame> stack = null;
         try {
-            stack = thread.frames();
+            stack = SuspendCache.getFrames(thread);
         } catch (IncompatibleThreadStateException itse) {
             throw new CommandException(getMessage("ERR_ThreadNotSuspended"));
         } catch (ObjectCollectedException oce) {
@@ -0,0 +1,113 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.command;
+
+import com.bluemarsh.jswat.core.breakpoint.Breakpoint;
+import com.bluemarsh.jswat.core.breakpoint.BreakpointFactory;
+import com.bluemarsh.jswat.core.breakpoint.BreakpointManager;
+import com.bluemarsh.jswat.core.breakpoint.BreakpointProvider;
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.session.SessionProvider;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ListIterator;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the condition and monitor commands.
+ */
+public class ConditionCommandTest {
+
+    /**
+     * Counts the elements of the given iterator.
+     *
+     * @param  iter  iterator to count.
+     * @return  number of elements.
+     */
+    private static int count(ListIterator<?> iter) {
+        int n = 0;
+        while (iter.hasNext()) {
+            iter.next();
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Runs the given command, failing the test if it throws.
+     *
+     * @param  input  command to run.
+     */
+    private static void run(String input) {
+        CommandParser parser = new DefaultCommandParser();
+        parser.setOutput(new PrintWriter(new StringWriter()));
+        try {
+            parser.parseInput(input);
+        } catch (CommandException ce) {
+            Assert.fail(ce.toString());
+        }
+    }
+
+    @Test
+    public void testConditionDelete() throws Exception {
+        Session session = SessionProvider.getCurrentSession();
+        BreakpointManager bm = BreakpointProvider.getBreakpointManager(session);
+        BreakpointFactory bf = BreakpointProvider.getBreakpointFactory();
+        Breakpoint bp = bf.createLineBreakpoint("file:/Foo.java", null, 10);
+        bm.addBreakpoint(bp);
+        Object n = bp.getProperty(Breakpoint.PROP_NUMBER);
+        try {
+            run("condition add " + n + " i > 1");
+            run("condition add " + n + " i > 2");
+            run("condition add " + n + " i > 3");
+            Assert.assertEquals(3, count(bp.conditions()));
+            run("condition del " + n + " i > 2");
+            Assert.assertEquals(2, count(bp.conditions()));
+            run("condition del " + n);
+            Assert.assertEquals(0, count(bp.conditions()));
+        } finally {
+            bm.removeBreakpoint(bp);
+        }
+    }
+
+    @Test
+    public void testMonitorDelete() throws Exception {
+        Session session = SessionProvider.getCurrentSession();
+        BreakpointManager bm = BreakpointProvider.getBreakpointManager(session);
+        BreakpointFactory bf = BreakpointProvider.getBreakpointFactory();
+        Breakpoint bp = bf.createLineBreakpoint("file:/Foo.java", null, 20);
+        bm.addBreakpoint(bp);
+        Object n = bp.getProperty(Breakpoint.PROP_NUMBER);
+        try {
+            run("monitor add " + n + " i");
+            run("monitor add " + n + " j");
+            run("monitor add " + n + " k");
+            Assert.assertEquals(3, count(bp.monitors()));
+            run("monitor del " + n + " j");
+            Assert.assertEquals(2, count(bp.monitors()));
+            run("monitor del " + n);
+            Assert.assertEquals(0, count(bp.monitors()));
+        } finally {
+            bm.removeBreakpoint(bp);
+        }
+    }
+}
@@ -34,10 +34,14 @@ import java.util.prefs.Preferences;
  */
 public class CoreSettings {
 
+    /** Name of the asynchronous event dispatch setting. */
+    public static final String PROP_ASYNC_DISPATCH = "asyncDispatch";
     /** Name of the connection timeout setting. */
     public static final String PROP_CONNECT_TIMEOUT = "connectionTimeout";
     /** Name of the method invocation timeout setting. */
     public static final String PROP_INVOKE_TIMEOUT = "invocationTimeout";
+    /** Name of the persist path index setting. */
+    public static final String PROP_PERSIST_PATH_INDEX = "persistPathIndex";
     /** Name of the show all threads setting. */
     public static final String PROP_SHOW_ALL_THREADS = "showAllThreads";
     /** Name of the show hidden files setting. */
@@ -48,6 +52,8 @@ public class CoreSettings {
     public static final String PROP_SOURCE_EXTENSION = "sourceExtension";
     /** Name of the single-stepping excludes setting. */
     public static final String PROP_STEPPING_EXCLUDES = "steppingExcludes";
+    /** Name of the periodic suspend state sweep setting. */
+    public static final String PROP_SUSPEND_SWEEP = "suspendStateSweep";
     /** Singleton instance. */
     private static CoreSettings theInstance;
     /** The Preferences instance where our settings are stored. */
@@ -73,6 +79,16 @@ public class CoreSettings {
         return theInstance;
     }
 
+    /**
+     * Retrieves the asynchronous event dispatch value.
+     *
+     * @return  true if observe-only event handling is performed after
+     *          the debuggee is resumed, false to handle events serially.
+     */
+    public boolean getAsyncDispatch() {
+        return preferences.getBoolean(PROP_ASYNC_DISPATCH, false);
+    }
+
     /**
      * Retrieves the attaching connector timeout value.
      *
@@ -91,6 +107,16 @@ public class CoreSettings {
         return preferences.getInt(PROP_INVOKE_TIMEOUT, 5000);
     }
 
+    /**
+     * Retrieves the persist path index value.
+     *
+     * @return  true if the index of path archives is saved between
+     *          sessions, false otherwise.
+     */
+    public boolean getPersistPathIndex() {
+        return preferences.getBoolean(PROP_PERSIST_PATH_INDEX, true);
+    }
+
     /**
      * Retrieves the show all threads value.
      *
@@ -138,6 +164,28 @@ public class CoreSettings {
         return Strings.stringToList(exc, ",");
     }
 
+    /**
+     * Retrieves the periodic suspend state sweep value.
+     *
+     * @return  true if every thread of the debuggee is periodically asked
+     *          whether it is suspended, false otherwise.
+     */
+    public boolean getSuspendStateSweep() {
+        return preferences.getBoolean(PROP_SUSPEND_SWEEP, false);
+    }
+
+    /**
+     * Sets the asynchronous event dispatch value. Takes effect with the
+     * next connection to a debuggee.
+     *
+     * @param  async  true to perform observe-only event handling after
+     *                the debuggee is resumed, false to handle events
+     *                serially.
+     */
+    public void setAsyncDispatch(boolean async) {
+        preferences.putBoolean(PROP_ASYNC_DISPATCH, async);
+    }
+
     /**
      * Set the attaching connector timeout value.
      *
@@ -162,6 +210,16 @@ public class CoreSettings {
         preferences.putInt(PROP_INVOKE_TIMEOUT, timeout);
     }
 
+    /**
+     * Sets the persist path index value.
+     *
+     * @param  persist  true to save the index of path archives between
+     *                  sessions, false otherwise.
+     */
+    public void setPersistPathIndex(boolean persist) {
+        preferences.putBoolean(PROP_PERSIST_PATH_INDEX, persist);
+    }
+
     /**
      * Sets the show all threads value.
      *
@@ -214,4 +272,15 @@ public class CoreSettings {
         String exc = Strings.listToString(excl, ",");
         preferences.put(PROP_STEPPING_EXCLUDES, exc);
     }
+
+    /**
+     * Sets the periodic suspend state sweep value. Takes effect with the
+     * next connection to a debuggee.
+     *
+     * @param  sweep  true to periodically ask every thread of the debuggee
+     *                whether it is suspended, false otherwise.
+     */
+    public void setSuspendStateSweep(boolean sweep) {
+        preferences.putBoolean(PROP_SUSPEND_SWEEP, sweep);
+    }
 }
@@ -37,6 +37,19 @@ import org.openide.util.Cancellable;
  */
 public interface PlatformService {
 
+    /**
+     * Opens an output stream for appending to the named file (with optional
+     * leading path), creating the file if it does not already exist.
+     * <p>The caller is required to invoke releaseLock(String) when finished
+     * writing to the file.</p>
+     * <p>The caller is responsible for closing the stream when finished.</p>
+     *
+     * @param  name  name of the file, with optional partial path.
+     * @return  output stream.
+     * @throws  IOException  if the write operation fails.
+     */
+    OutputStream appendFile(String name) throws IOException;
+
     /**
      * Deletes the named file (with optional leading path).
      *
@@ -76,12 +89,25 @@ public interface PlatformService {
 
     /**
      * Release the exclusive file lock for the named file. This must be
-     * called after invoking the writeFile(String) method.
+     * called after invoking the writeFile(String) or appendFile(String)
+     * methods.
      *
      * @param  name  name of the file, with optional partial path.
      */
     void releaseLock(String name);
 
+    /**
+     * Renames the named file (with optional leading path), replacing the
+     * file of the new name if it exists. Where the platform permits, the
+     * replacement is atomic, such that the new name refers to either the
+     * old file or the renamed one, and never to neither.
+     *
+     * @param  name     name of the file, with optional partial path.
+     * @param  newName  new name of the file, with optional partial path.
+     * @throws  IOException  if the rename operation fails.
+     */
+    void renameFile(String name, String newName) throws IOException;
+
     /**
      * Displays a progress indicator to show that a task is running in
      * the background.
@@ -24,17 +24,28 @@ import com.bluemarsh.jswat.core.event.Dispatcher;
 import com.bluemarsh.jswat.core.event.DispatcherListener;
 import com.bluemarsh.jswat.core.event.DispatcherProvider;
 import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.util.Arrays;
+import com.bluemarsh.jswat.core.util.SuspendCache;
 import com.sun.jdi.ThreadReference;
+import com.sun.jdi.VMDisconnectedException;
+import com.sun.jdi.VirtualMachine;
 import com.sun.jdi.event.Event;
 import com.sun.jdi.event.LocatableEvent;
+import com.sun.jdi.request.BreakpointRequest;
 import com.sun.jdi.request.EventRequest;
+import com.sun.jdi.request.EventRequestManager;
+import com.sun.jdi.request.MethodEntryRequest;
+import com.sun.jdi.request.MethodExitRequest;
+import com.sun.jdi.request.ThreadDeathRequest;
+import com.sun.jdi.request.WatchpointRequest;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.HashSet;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Class AbstractBreakpoint is an abstract implementation of the Breakpoint
@@ -60,23 +71,32 @@ public abstract class AbstractBreakpoint implements Breakpoint, DispatcherListen
     /**
      * True if this breakpoint is enabled.
      */
-    private boolean isEnabled;
+    private volatile boolean isEnabled;
     /**
      * Breakpoint group that contains us (always non-null).
      */
-    private BreakpointGroup breakpointGroup;
+    private volatile BreakpointGroup breakpointGroup;
+    /**
+     * The state derived from our groups, as of the group state stamp held
+     * in the upper bits: whether we are effectively enabled, whether any
+     * of our groups have conditions, and whether our manager suppresses
+     * its breakpoints. Zero if not yet computed.
+     */
+    private volatile long groupState;
     /**
      * Number of times this breakpoint has been hit.
      */
-    private int hitCount;
+    private final AtomicInteger hitCount;
     /**
-     * List of conditions this breakpoint depends on.
+     * Conditions this breakpoint depends on; replaced rather than
+     * modified, so it may be read without locking.
      */
-    private final List<Condition> conditionList;
+    private volatile Condition[] conditions;
     /**
-     * List of monitors this breakpoint executes when it stops.
+     * Monitors this breakpoint executes when it stops; replaced rather
+     * than modified, so it may be read without locking.
      */
-    private final List<Monitor> monitorList;
+    private volatile Monitor[] monitors;
     /**
      * Class filter, appropriate for JDI event requests.
      */
@@ -84,7 +104,30 @@ public abstract class AbstractBreakpoint implements Breakpoint, DispatcherListen
     /**
      * Thread filter, appropriate for JDI event requests.
      */
-    private String threadFilter;
+    private volatile String threadFilter;
+    /**
+     * The thread named by the thread filter, with which the event requests
+     * are filtered in the debuggee; null if not known.
+     */
+    private volatile ThreadReference filterThread;
+    /**
+     * Request for learning of the death of the filter thread.
+     */
+    private volatile ThreadDeathRequest filterDeathRequest;
+    /**
+     * The filter thread that most recently died, which may still be
+     * listed among the threads of the debuggee for a time.
+     */
+    private volatile ThreadReference deadThread;
+    /**
+     * Threads known not to be named by the thread filter, so their names
+     * need not be asked of the debuggee again; null if none are known.
+     */
+    private Set<ThreadReference> unmatchedThreads;
+    /**
+     * The thread filter with which the unmatched threads were found.
+     */
+    private String unmatchedFilter;
     /**
      * True if the breakpoint should be deleted after being hit.
      */
@@ -106,8 +149,9 @@ public abstract class AbstractBreakpoint implements Breakpoint, DispatcherListen
      * Creates a AbstractBreakpoint with the default parameters.
      */
     public AbstractBreakpoint() {
-        conditionList = new LinkedList<Condition>();
-        monitorList = new LinkedList<Monitor>();
+        conditions = new Condition[0];
+        monitors = new Monitor[0];
+        hitCount = new AtomicInteger();
         isEnabled = true;
         propSupport = new PropertyChangeSupport(this);
         propertiesMap = new HashMap<String, Object>();
@@ -127,9 +171,10 @@ public abstract class AbstractBreakpoint implements Breakpoint, DispatcherListen
         if (condition == null) {
             throw new IllegalArgumentException("null condition not permitted");
         }
-        synchronized (conditionList) {
-            conditionList.add(condition);
+        synchronized (this) {
+            conditions = Arrays.add(conditions, condition);
         }
+        propSupport.firePropertyChange(PROP_CONDITIONS, null, condition);
     }
 
     @Override
@@ -137,11 +182,12 @@ public abstract class AbstractBreakpoint implements Breakpoint, DispatcherListen
         if (monitor == null) {
             throw new IllegalArgumentException("null monitor not permitted");
         }
-        synchronized (monitorList) {
-            monitorList.add(monitor);
+        synchronized (this) {
+            monitors = Arrays.add(monitors, monitor);
         }
         // Update the suspend policy of the breakpoint requests.
         setSuspendPolicy(getSuspendPolicy());
+        propSupport.firePropertyChange(PROP_MONITORS, null, monitor);
     }
 
     @Override
@@ -161,9 +207,65 @@ public abstract class AbstractBreakpoint implements Breakpoint, DispatcherListen
                 : getSuspendPolicy());
     }
 
+    /**
+     * Applies the thread filter of this breakpoint to the given JDI event
+     * request, if the request supports thread filters and the thread named
+     * by the filter is running, such that the debuggee does not report
+     * events from the other threads. Otherwise the thread name is compared
+     * in <code>shouldResume()</code>, as each event occurs.
+     *
+     * @param request event request to apply thread filter, must be disabled.
+     */
+    protected void applyThreadFilter(EventRequest request) {
+        String filter = threadFilter;
+        if (filter == null || filter.length() == 0 || !canFilterThread()) {
+            return;
+        }
+        if (!(request instanceof BreakpointRequest
+                || request instanceof WatchpointRequest
+                || request instanceof MethodEntryRequest
+                || request instanceof MethodExitRequest)) {
+            // Such as the thread start requests of thread breakpoints.
+            return;
+        }
+        ThreadReference thread = filterThread;
+        if (thread != null && thread.virtualMachine() != request.virtualMachine()) {
+            // The thread is from an earlier connection.
+            filterThread = null;
+            filterDeathRequest = null;
+            thread = null;
+        }
+        if (thread == null) {
+            thread = findFilterThread(request.virtualMachine(), filter, deadThread);
+            if (thread == null) {
+                return;
+            }
+            // Learn of the thread's death, so the requests can be created
+            // again for any thread of the same name.
+            EventRequestManager erm = request.virtualMachine().eventRequestManager();
+            ThreadDeathRequest tdr = erm.createThreadDeathRequest();
+            tdr.addThreadFilter(thread);
+            tdr.setSuspendPolicy(EventRequest.SUSPEND_NONE);
+            Session session = BreakpointProvider.getSession(getBreakpointGroup());
+            DispatcherProvider.getDispatcher(session).register(this, tdr);
+            tdr.setEnabled(true);
+            filterThread = thread;
+            filterDeathRequest = tdr;
+        }
+        if (request instanceof BreakpointRequest) {
+            ((BreakpointRequest) request).addThreadFilter(thread);
+        } else if (request instanceof WatchpointRequest) {
+            ((WatchpointRequest) request).addThreadFilter(thread);
+        } else if (request instanceof MethodEntryRequest) {
+            ((MethodEntryRequest) request).addThreadFilter(thread);
+        } else {
+            ((MethodExitRequest) request).addThreadFilter(thread);
+        }
+    }
+
     @Override
     public ListIterator<Condition> conditions() {
-        return conditionList.listIterator();
+        return Arrays.listIterator(conditions);
     }
 
     /**
@@ -175,8 +277,11 @@ public abstract class AbstractBreakpoint implements Breakpoint, DispatcherListen
     @Override
     public void destroy() {
         deleteRequests();
-        conditionList.clear();
-        monitorList.clear();
+        forgetFilterThread();
+        synchronized (this) {
+            conditions = new Condition[0];
+            monitors = new Monitor[0];
+        }
     }
 
     @Override
@@ -188,11 +293,21 @@ public abstract class AbstractBreakpoint implements Breakpoint, DispatcherListen
         // with the event dispatcher. When the event for the corresponding
         // request occurs, this method does the standard processing.
         //
+        if (event.request() == filterDeathRequest) {
+            // The filter thread has died, create the requests again in
+            // case another thread by the same name comes along.
+            deadThread = filterThread;
+            forgetFilterThread();
+            recreateRequests();
+            return true;
+        }
         boolean resume = true;
-        if (isEnabled()) {
+        // Suppressed breakpoints, such as while a method is invoked in the
+        // debuggee, are treated as disabled without being disabled.
+        if (isEnabled() && (getGroupState() & 4) == 0) {
             // Only count hits for enabled breakpoints. Each hit must be
             // counted so the hit count condition evaluation can work.
-            hitCount++;
+            hitCount.incrementAndGet();
             // Check the filters and conditions.
             resume = shouldResume(event);
             if (!resume) {
@@ -203,6 +318,47 @@ public abstract class AbstractBreakpoint implements Breakpoint, DispatcherListen
         return resume;
     }
 
+    /**
+     * Find the one running thread with the given name. The threads are
+     * read through the suspend cache, and only those threads not already
+     * known to have a different name are asked for their name, so that
+     * creating many requests costs little more than creating one. A thread
+     * that is renamed afterward is still matched by name in
+     * <code>shouldResume()</code>.
+     *
+     * @param vm debuggee virtual machine.
+     * @param name name of thread.
+     * @param ignore thread to be ignored, such as one that is dying.
+     * @return the thread, or null if there is none, or more than one.
+     */
+    private synchronized ThreadReference findFilterThread(VirtualMachine vm,
+            String name, ThreadReference ignore) {
+        Set<ThreadReference> known = unmatchedThreads;
+        if (known == null || !name.equals(unmatchedFilter)
+                || (!known.isEmpty() && known.iterator().next().virtualMachine() != vm)) {
+            known = new HashSet<ThreadReference>();
+        }
+        // Keep only the threads that are still running.
+        Set<ThreadReference> unmatched = new HashSet<ThreadReference>();
+        ThreadReference found = null;
+        int matches = 0;
+        for (ThreadReference thread : SuspendCache.getThreads(vm)) {
+            if (thread.equals(ignore)) {
+                continue;
+            }
+            if (known.contains(thread) || !name.equals(thread.name())) {
+                unmatched.add(thread);
+            } else {
+                found = thread;
+                matches++;
+            }
+        }
+        unmatchedThreads = unmatched;
+        unmatchedFilter = name;
+        // Cannot filter on more than one thread.
+        return matches == 1 ? found : null;
+    }
+
     /**
      * Notify breakpoint listeners that this breakpoint experienced an
      * exceptional event.
@@ -222,6 +378,55 @@ public abstract class AbstractBreakpoint implements Breakpoint, DispatcherListen
         e.getType().fireEvent(e, multicaster);
     }
 
+    /**
+     * Notify the breakpoint listeners that this breakpoint has stopped, and
+     * run the associated monitors. If the debuggee will not be suspended
+     * by this event, that work is given to the event dispatcher as
+     * observe-only work, which may be performed after the debuggee has
+     * resumed. Otherwise the work is performed immediately.
+     *
+     * @param e Event for which we are stopping.
+     */
+    protected void fireStopped(Event e) {
+        final BreakpointEvent be = new BreakpointEvent(this,
+                BreakpointEventType.STOPPED, e);
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                fireEvent(be);
+                runMonitors(be);
+            }
+        };
+        Session session = null;
+        if (suspendPolicy == EventRequest.SUSPEND_NONE && !forceSuspend
+                && !deleteWhenHit) {
+            session = BreakpointProvider.getSession(getBreakpointGroup());
+        }
+        if (session != null) {
+            Dispatcher dispatcher = DispatcherProvider.getDispatcher(session);
+            dispatcher.observe(task);
+        } else {
+            task.run();
+        }
+    }
+
+    /**
+     * Forget the filter thread, deleting the request for its death.
+     */
+    private void forgetFilterThread() {
+        ThreadDeathRequest tdr = filterDeathRequest;
+        filterThread = null;
+        filterDeathRequest = null;
+        if (tdr != null) {
+            unregister(tdr);
+            try {
+                tdr.virtualMachine().eventRequestManager().deleteEventRequest(tdr);
+            } catch (VMDisconnectedException vmde) {
+                // This happens all the time.
+            }
+        }
+    }
+
     @Override
     public BreakpointGroup getBreakpointGroup() {
         return breakpointGroup;
@@ -234,7 +439,7 @@ public abstract class AbstractBreakpoint implements Breakpoint, DispatcherListen
 
     @Override
     public int getHitCount() {
-        return hitCount;
+        return hitCount.get();
     }
 
     @Override
@@ -254,14 +459,46 @@ public abstract class AbstractBreakpoint implements Breakpoint, DispatcherListen
         return threadFilter;
     }
 
+    /**
+     * Returns the state derived from our groups, computing it again if the
+     * groups have changed since it was last computed.
+     *
+     * @return  group state, with bit 0 set if the groups are enabled, bit 1
+     *          set if any of the groups have conditions, and bit 2 set if
+     *          the breakpoints of the manager are suppressed.
+     */
+    private int getGroupState() {
+        int stamp = AbstractBreakpointGroup.getStateStamp();
+        long state = groupState;
+        if ((int) (state >>> 3) == stamp) {
+            return (int) state & 7;
+        }
+        int bits = 0;
+        BreakpointGroup group = breakpointGroup;
+        if (group == null || group.isEnabled()) {
+            bits |= 1;
+        }
+        if (group != null) {
+            BreakpointManager bm = BreakpointProvider.getBreakpointManager(group);
+            if (bm != null && bm.isSuppressed()) {
+                bits |= 4;
+            }
+        }
+        while (group != null) {
+            if (group.conditions().hasNext()) {
+                bits |= 2;
+                break;
+            }
+            group = group.getParent();
+        }
+        groupState = ((long) stamp << 3) | bits;
+        return bits;
+    }
+
     @Override
     public boolean isEnabled() {
-        BreakpointGroup parent = getBreakpointGroup();
-        if (parent != null) {
-            return parent.isEnabled() ? isEnabled : false;
-        } else {
-            return isEnabled;
-        }
+        // Avoid walking the group hierarchy on every event.
+        return isEnabled && (getGroupState() & 1) != 0;
     }
 
     @Override
@@ -269,7 +506,7 @@ public abstract class AbstractBreakpoint implements Breakpoint, DispatcherListen
 
     @Override
     public ListIterator<Monitor> monitors() {
-        return monitorList.listIterator();
+        return Arrays.listIterator(monitors);
     }
 
     /**
@@ -280,10 +517,7 @@ public abstract class AbstractBreakpoint implements Breakpoint, DispatcherListen
      * @return true if VM should resume, false otherwise.
      */
     protected boolean performStop(Event e) {
-        BreakpointEvent be = new BreakpointEvent(this,
-                BreakpointEventType.STOPPED, e);
-        fireEvent(be);
-        runMonitors(be);
+        fireStopped(e);
         if (deleteWhenHit) {
             // Let listeners know we should be deleted. Hopefully one of
             // them (e.g. breakpoint manager) will actually remove us.
@@ -293,11 +527,25 @@ public abstract class AbstractBreakpoint implements Breakpoint, DispatcherListen
         return suspendPolicy == EventRequest.SUSPEND_NONE;
     }
 
+    /**
+     * Delete and create again the event requests of this breakpoint, so
+     * they reflect a change in its settings. This is done by setting the
+     * enabled state, which for every breakpoint type deletes the requests,
+     * and creates them if the breakpoint is enabled.
+     */
+    private void recreateRequests() {
+        BreakpointGroup group = getBreakpointGroup();
+        Session session = group == null ? null : BreakpointProvider.getSession(group);
+        if (session != null && session.isConnected()) {
+            setEnabled(isEnabled);
+        }
+    }
+
     /**
      * Register this breakpoint as a listener for the given event request, such
      * that the event dispatcher will invoke this breakpoint when events related
-     * to this request occur. Also sets the suspend policy and the enabled state
-     * based on the properties of this breakpoint.
+     * to this request occur. Also sets the suspend policy, thread filter, and
+     * the enabled state based on the properties of this breakpoint.
      *
      * @param request event request to be registered.
      */
@@ -309,6 +557,7 @@ public abstract class AbstractBreakpoint implements Breakpoint, DispatcherListen
             Dispatcher dispatcher = DispatcherProvider.getDispatcher(session);
             dispatcher.register(this, request);
             applySuspendPolicy(request);
+            applyThreadFilter(request);
             request.setEnabled(isEnabled());
         }
     }
@@ -323,18 +572,20 @@ public abstract class AbstractBreakpoint implements Breakpoint, DispatcherListen
 
     @Override
     public void removeCondition(Condition condition) {
-        synchronized (conditionList) {
-            conditionList.remove(condition);
+        synchronized (this) {
+            conditions = Arrays.remove(conditions, condition);
         }
+        propSupport.firePropertyChange(PROP_CONDITIONS, condition, null);
     }
 
     @Override
     public void removeMonitor(Monitor monitor) {
-        synchronized (monitorList) {
-            monitorList.remove(monitor);
+        synchronized (this) {
+            monitors = Arrays.remove(monitors, monitor);
         }
         // Update the suspend policy of the breakpoint requests.
         setSuspendPolicy(getSuspendPolicy());
+        propSupport.firePropertyChange(PROP_MONITORS, monitor, null);
     }
 
     @Override
@@ -344,7 +595,7 @@ public abstract class AbstractBreakpoint implements Breakpoint, DispatcherListen
 
     @Override
     public void reset() {
-        hitCount = 0;
+        hitCount.set(0);
     }
 
     /**
@@ -353,9 +604,7 @@ public abstract class AbstractBreakpoint implements Breakpoint, DispatcherListen
      * @param event breakpoint event.
      */
     protected void runMonitors(BreakpointEvent event) {
-        // We are not expecting multiple threads to modify this list,
-        // but if it does happen, an exception will be thrown.
-        for (Monitor monitor : monitorList) {
+        for (Monitor monitor : monitors) {
             try {
                 monitor.perform(event);
             } catch (Exception e) {
@@ -369,6 +618,7 @@ public abstract class AbstractBreakpoint implements Breakpoint, DispatcherListen
     public void setBreakpointGroup(BreakpointGroup group) {
         BreakpointGroup old = breakpointGroup;
         breakpointGroup = group;
+        AbstractBreakpointGroup.invalidateState();
         propSupport.firePropertyChange(PROP_BREAKPOINTGROUP, old, group);
     }
 
@@ -429,7 +679,7 @@ public abstract class AbstractBreakpoint implements Breakpoint, DispatcherListen
         suspendPolicy = policy;
         // Determine if we require the debuggee to always suspend.
         forceSuspend = false;
-        for (Monitor monitor : monitorList) {
+        for (Monitor monitor : monitors) {
             if (monitor.requiresThread()) {
                 // Found a monitor that requires a suspended debuggee.
                 forceSuspend = true;
@@ -453,6 +703,12 @@ public abstract class AbstractBreakpoint implements Breakpoint, DispatcherListen
         } else {
             threadFilter = filter;
         }
+        if (old == null ? threadFilter != null : !old.equals(threadFilter)) {
+            // The requests are filtered by the old thread, if any.
+            forgetFilterThread();
+            deadThread = null;
+            recreateRequests();
+        }
         propSupport.firePropertyChange(PROP_THREADFILTER, old, threadFilter);
     }
 
@@ -471,11 +727,13 @@ public abstract class AbstractBreakpoint implements Breakpoint, DispatcherListen
     protected boolean shouldResume(Event event) {
         // Check the thread filter to see if there is a match.
         if (event instanceof LocatableEvent) {
-            String filter = getThreadFilter();
+            String filter = threadFilter;
             if (filter != null && filter.length() > 0) {
                 LocatableEvent le = (LocatableEvent) event;
                 ThreadReference thread = le.thread();
-                if (!filter.equals(thread.name())) {
+                // The debuggee filters by the thread, if it is known,
+                // so it is only necessary to compare names otherwise.
+                if (!thread.equals(filterThread) && !filter.equals(thread.name())) {
                     // Not a match, resume the debuggee.
                     return true;
                 }
@@ -485,9 +743,7 @@ public abstract class AbstractBreakpoint implements Breakpoint, DispatcherListen
         // Check that the conditions are all satisfied.
         // We start by assuming they are satisfied.
         boolean satisfied = true;
-        // We are not expecting multiple threads to modify this list,
-        // but if it does happen, an exception will be thrown.
-        for (Condition condition : conditionList) {
+        for (Condition condition : conditions) {
             try {
                 if (!condition.isSatisfied(this, event)) {
                     satisfied = false;
@@ -498,13 +754,14 @@ public abstract class AbstractBreakpoint implements Breakpoint, DispatcherListen
             }
         }
 
-        // Check the parent group to see if its conditions are satisfied.
-        // Note the reversal of the boolean, since we are determining if
-        // the debuggee should resume or not.
-        if (satisfied) {
+        // Check the parent group to see if its conditions are satisfied,
+        // unless none of the groups have any conditions. Note the reversal
+        // of the boolean, since we are determining if the debuggee should
+        // resume or not.
+        if (satisfied && (getGroupState() & 2) != 0) {
             return !breakpointGroup.conditionsSatisfied(this, event);
         } else {
-            return true;
+            return !satisfied;
         }
     }
 
@@ -22,6 +22,7 @@ package com.bluemarsh.jswat.core.breakpoint;
 
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Class AbstractBreakpointGroup is an abstract implementation of the
@@ -32,10 +33,16 @@ import java.beans.PropertyChangeSupport;
  */
 public abstract class AbstractBreakpointGroup implements BreakpointGroup {
 
+    /**
+     * Incremented whenever a group is enabled or disabled, moved to another
+     * group, or its conditions change, so that breakpoints know to refresh
+     * the state they derive from their groups.
+     */
+    private static final AtomicInteger stateStamp = new AtomicInteger(1);
     /**
      * True if this breakpoint group is enabled.
      */
-    private boolean isEnabled;
+    private volatile boolean isEnabled;
     /**
      * Name of our breakpoint group. Used for display.
      */
@@ -43,7 +50,7 @@ public abstract class AbstractBreakpointGroup implements BreakpointGroup {
     /**
      * The breakpoint group to which we belong (always non-null).
      */
-    private BreakpointGroup parentGroup;
+    private volatile BreakpointGroup parentGroup;
     /**
      * Handles property change listeners and sending events.
      */
@@ -85,6 +92,17 @@ public abstract class AbstractBreakpointGroup implements BreakpointGroup {
         e.getType().fireEvent(e, multicaster);
     }
 
+    /**
+     * Returns the current group state stamp. If the stamp has not changed
+     * since a breakpoint last derived its state from its groups, that
+     * state is still correct.
+     *
+     * @return  group state stamp.
+     */
+    static int getStateStamp() {
+        return stateStamp.get();
+    }
+
     @Override
     public String getName() {
         return groupName;
@@ -104,6 +122,14 @@ public abstract class AbstractBreakpointGroup implements BreakpointGroup {
         }
     }
 
+    /**
+     * Indicates that the state of the groups has changed in a way that
+     * affects the breakpoints they contain.
+     */
+    protected static void invalidateState() {
+        stateStamp.incrementAndGet();
+    }
+
     @Override
     public void removeBreakpointGroupListener(BreakpointGroupListener listener) {
         if (listener != null) {
@@ -121,6 +147,7 @@ public abstract class AbstractBreakpointGroup implements BreakpointGroup {
     public void setEnabled(boolean enabled) {
         boolean old = isEnabled;
         isEnabled = enabled;
+        invalidateState();
         propSupport.firePropertyChange(PROP_ENABLED, old, enabled);
     }
 
@@ -135,6 +162,7 @@ public abstract class AbstractBreakpointGroup implements BreakpointGroup {
     public void setParent(BreakpointGroup parent) {
         BreakpointGroup old = parentGroup;
         parentGroup = parent;
+        invalidateState();
         propSupport.firePropertyChange(PROP_PARENT, old, parent);
     }
 }
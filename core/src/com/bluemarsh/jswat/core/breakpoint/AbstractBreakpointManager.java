@@ -46,6 +46,8 @@ public abstract class AbstractBreakpointManager
     private BreakpointGroupEventMulticaster groupMulticaster;
     /** The Session instance with which we are associated. */
     private Session ourSession;
+    /** True if the breakpoints are suppressed. */
+    private volatile boolean suppressed;
 
     protected AbstractBreakpointManager() {
         bpMulticaster = new BreakpointEventMulticaster();
@@ -54,6 +56,8 @@ public abstract class AbstractBreakpointManager
 
     @Override
     public void addBreakpoint(Breakpoint bp) {
+        // Make sure the existing breakpoints are loaded first.
+        ourSession.activate();
         bp.addBreakpointListener(this);
     }
 
@@ -69,6 +73,7 @@ public abstract class AbstractBreakpointManager
         if (parent == null) {
             throw new IllegalArgumentException("parent must not be null");
         }
+        ourSession.activate();
         group.addBreakpointGroupListener(this);
     }
 
@@ -190,10 +195,20 @@ public abstract class AbstractBreakpointManager
      */
     protected abstract void loadBreakpoints(Session session);
 
+    @Override
+    public boolean isSuppressed() {
+        return suppressed;
+    }
+
     @Override
     public void opened(Session session) {
         ourSession = session;
-        loadBreakpoints(session);
+        if (session.isActive()) {
+            loadBreakpoints(session);
+        } else {
+            // Defer loading until the session is put to use.
+            session.addPropertyChangeListener(this);
+        }
     }
 
     @Override
@@ -203,6 +218,11 @@ public abstract class AbstractBreakpointManager
             bpMulticaster.propertyChange(event);
         } else if (src instanceof BreakpointGroup) {
             groupMulticaster.propertyChange(event);
+        } else if (src instanceof Session) {
+            if (event.getPropertyName().equals(Session.PROP_ACTIVE)) {
+                ourSession.removePropertyChangeListener(this);
+                loadBreakpoints(ourSession);
+            }
         }
     }
 
@@ -257,6 +277,13 @@ public abstract class AbstractBreakpointManager
         deleteBreakpoints(e.getSession());
     }
 
+    @Override
+    public void setSuppressed(boolean suppressed) {
+        this.suppressed = suppressed;
+        // Let the breakpoints know their enabled state has changed.
+        AbstractBreakpointGroup.invalidateState();
+    }
+
     @Override
     public void suspended(SessionEvent sevt) {
     }
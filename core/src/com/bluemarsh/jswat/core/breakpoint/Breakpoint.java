@@ -37,10 +37,16 @@ public interface Breakpoint {
     String PROP_BREAKPOINTGROUP = "breakpointGroup";
     /** Name of 'classFilter' property. */
     String PROP_CLASSFILTER = "classFilter";
+    /** Name of the 'conditions' property, fired when a condition is
+     * added or removed. */
+    String PROP_CONDITIONS = "conditions";
     /** Name of 'description' property. */
     String PROP_DESCRIPTION = "description";
     /** Name of 'enabled' property. */
     String PROP_ENABLED = "enabled";
+    /** Name of the 'monitors' property, fired when a monitor is added
+     * or removed. */
+    String PROP_MONITORS = "monitors";
     /** Name of 'resolved' property. */
     String PROP_RESOLVED = "resolved";
     /** Name of 'suspendPolicy' property. */
@@ -99,8 +105,8 @@ public interface Breakpoint {
     boolean canFilterThread();
 
     /**
-     * Returns an iterator of the conditions associated with this
-     * breakpoint.
+     * Returns a read-only iterator of the conditions associated with this
+     * breakpoint. Use <code>removeCondition()</code> to remove a condition.
      *
      * @return  ListIterator of <code>Condition</code> objects.
      */
@@ -198,8 +204,8 @@ public interface Breakpoint {
     boolean isResolved();
 
     /**
-     * Returns an iterator of the monitors associated with this
-     * breakpoint.
+     * Returns a read-only iterator of the monitors associated with this
+     * breakpoint. Use <code>removeMonitor()</code> to remove a monitor.
      *
      * @return  ListIterator of <code>Monitor</code> objects.
      */
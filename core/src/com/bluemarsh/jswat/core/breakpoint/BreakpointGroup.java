@@ -110,7 +110,8 @@ public interface BreakpointGroup {
     Iterator<Breakpoint> breakpoints(boolean recurse);
 
     /**
-     * Returns an iterator of the conditions associated with this group.
+     * Returns a read-only iterator of the conditions associated with this
+     * group. Use <code>removeCondition()</code> to remove a condition.
      *
      * @return  ListIterator of <code>Condition</code> objects.
      */
@@ -177,7 +178,8 @@ public interface BreakpointGroup {
     boolean isEnabled();
 
     /**
-     * Returns an iterator of the monitors associated with this group.
+     * Returns a read-only iterator of the monitors associated with this
+     * group. Use <code>removeMonitor()</code> to remove a monitor.
      *
      * @return  ListIterator of <code>Monitor</code> objects.
      */
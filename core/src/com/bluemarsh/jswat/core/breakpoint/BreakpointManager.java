@@ -112,6 +112,14 @@ public interface BreakpointManager {
      */
     BreakpointGroup getDefaultGroup();
 
+    /**
+     * Indicates if the breakpoints of this manager are suppressed.
+     *
+     * @return  true if suppressed, false otherwise.
+     * @see  #setSuppressed(boolean)
+     */
+    boolean isSuppressed();
+
     /**
      * Remove a BreakpointListener from the listener list.
      *
@@ -144,4 +152,14 @@ public interface BreakpointManager {
      * @param  listener  listener to be removed.
      */
     void removeBreakpointGroupListener(BreakpointGroupListener listener);
+
+    /**
+     * Suppresses or restores all of the breakpoints of this manager, such
+     * that they do not stop the debuggee while suppressed. Unlike disabling
+     * the default group, this does not change the settings of the groups
+     * or breakpoints, and is not saved with them.
+     *
+     * @param  suppressed  true to suppress, false to restore.
+     */
+    void setSuppressed(boolean suppressed);
 }
@@ -23,6 +23,7 @@
 package com.bluemarsh.jswat.core.breakpoint;
 
 import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.session.SessionEvent;
 import com.bluemarsh.jswat.core.session.SessionListener;
 import com.bluemarsh.jswat.core.session.SessionManager;
 import com.bluemarsh.jswat.core.session.SessionManagerListener;
@@ -53,6 +54,10 @@ public class BreakpointProvider {
     private static Map<BreakpointManager, Session> reverseMap;
     /** Map of BreakpointManager instances, keyed by their root groups. */
     private static Map<BreakpointGroup, BreakpointManager> groupMap;
+    /** Map of ClassPrepareMultiplexer instances, keyed by Session instance. */
+    private static Map<Session, ClassPrepareMultiplexer> multiplexerMap;
+    /** Map of ConnectResolver instances, keyed by Session instance. */
+    private static Map<Session, ConnectResolver> resolverMap;
     /** The BreakpointFactory instance, if it has already been retrieved. */
     private static BreakpointFactory bpFactory;
 
@@ -61,6 +66,8 @@ public class BreakpointProvider {
         instanceMap = new HashMap<Session, BreakpointManager>();
         reverseMap = new HashMap<BreakpointManager, Session>();
         groupMap = new HashMap<BreakpointGroup, BreakpointManager>();
+        multiplexerMap = new HashMap<Session, ClassPrepareMultiplexer>();
+        resolverMap = new HashMap<Session, ConnectResolver>();
     }
 
     /**
@@ -82,6 +89,45 @@ public class BreakpointProvider {
         return bpFactory;
     }
 
+    /**
+     * Retrieve the ClassPrepareMultiplexer instance for the given Session,
+     * creating one if necessary.
+     *
+     * @param  session  Session for which to get ClassPrepareMultiplexer.
+     * @return  ClassPrepareMultiplexer instance.
+     */
+    public static ClassPrepareMultiplexer getClassPrepareMultiplexer(
+            Session session) {
+        synchronized (mapsLock) {
+            ClassPrepareMultiplexer inst = multiplexerMap.get(session);
+            if (inst == null) {
+                inst = new ClassPrepareMultiplexer(session);
+                multiplexerMap.put(session, inst);
+                session.addSessionListener(new Remover(session));
+            }
+            return inst;
+        }
+    }
+
+    /**
+     * Retrieve the ConnectResolver instance for the given Session,
+     * creating one if necessary.
+     *
+     * @param  session  Session for which to get ConnectResolver.
+     * @return  ConnectResolver instance.
+     */
+    public static ConnectResolver getConnectResolver(Session session) {
+        synchronized (mapsLock) {
+            ConnectResolver inst = resolverMap.get(session);
+            if (inst == null) {
+                inst = new ConnectResolver(session);
+                resolverMap.put(session, inst);
+                session.addSessionListener(new Remover(session));
+            }
+            return inst;
+        }
+    }
+
     /**
      * Retrieve the BreakpointManager instance for the given Session, creating
      * one if necessary.
@@ -168,4 +214,52 @@ public class BreakpointProvider {
             return reverseMap.get(bm);
         }
     }
+
+    /**
+     * Removes the per-session instances from the maps when the session
+     * is closing, so they do not outlive the session.
+     *
+     * @author  Nathan Fiedler
+     */
+    private static class Remover implements SessionListener {
+        /** Session whose instances are to be removed. */
+        private final Session session;
+
+        /**
+         * Constructs a Remover for the given session.
+         *
+         * @param  session  session whose instances are to be removed.
+         */
+        Remover(Session session) {
+            this.session = session;
+        }
+
+        @Override
+        public void closing(SessionEvent sevt) {
+            synchronized (mapsLock) {
+                multiplexerMap.remove(session);
+                resolverMap.remove(session);
+            }
+        }
+
+        @Override
+        public void connected(SessionEvent sevt) {
+        }
+
+        @Override
+        public void disconnected(SessionEvent sevt) {
+        }
+
+        @Override
+        public void opened(Session session) {
+        }
+
+        @Override
+        public void resuming(SessionEvent sevt) {
+        }
+
+        @Override
+        public void suspended(SessionEvent sevt) {
+        }
+    }
 }
@@ -0,0 +1,538 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.breakpoint;
+
+import com.bluemarsh.jswat.core.event.Dispatcher;
+import com.bluemarsh.jswat.core.event.DispatcherListener;
+import com.bluemarsh.jswat.core.event.DispatcherProvider;
+import com.bluemarsh.jswat.core.session.Session;
+import com.sun.jdi.AbsentInformationException;
+import com.sun.jdi.ReferenceType;
+import com.sun.jdi.VMDisconnectedException;
+import com.sun.jdi.VirtualMachine;
+import com.sun.jdi.event.ClassPrepareEvent;
+import com.sun.jdi.event.Event;
+import com.sun.jdi.request.ClassPrepareRequest;
+import com.sun.jdi.request.EventRequest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Class ClassPrepareMultiplexer shares class prepare requests among all
+ * of the resolvable breakpoints in a session. Rather than each breakpoint
+ * creating its own request, one request is created for each distinct
+ * class pattern (and source name filter), or a single unfiltered request
+ * if any breakpoint needs to see every class. When a class is prepared,
+ * the breakpoints whose pattern matches the class name are found using
+ * a pair of prefix and suffix tries, and are asked to resolve.
+ *
+ * <p>Instances are acquired via the <code>BreakpointProvider</code>,
+ * one per session.</p>
+ *
+ * @author Nathan Fiedler
+ */
+public class ClassPrepareMultiplexer implements DispatcherListener {
+
+    /** Session for which we multiplex class prepare events. */
+    private final Session session;
+    /** The debuggee for which the current requests were created. */
+    private VirtualMachine ourVM;
+    /** Filters keyed by the breakpoints registered with them. */
+    private final Map<DefaultResolvableBreakpoint, Filter> registrations;
+    /** All distinct filters, keyed by pattern and source name. */
+    private final Map<String, Filter> filterMap;
+    /** Filters without wildcards, keyed by their class name. */
+    private final Map<String, List<Filter>> exactFilters;
+    /** Filters with a trailing wildcard, keyed by their class prefix. */
+    private final NameTrie prefixTrie;
+    /** Filters with a leading wildcard, keyed by reversed class suffix. */
+    private final NameTrie suffixTrie;
+    /** The filter that matches every class, if any. */
+    private Filter unfiltered;
+    /** The most recently dispatched class, to detect duplicate events. */
+    private ReferenceType lastPrepared;
+    /** Number of class prepare events received from the debuggee. */
+    private long eventCount;
+    /** Number of events the debuggee would have otherwise sent. */
+    private long savedEventCount;
+
+    /**
+     * Creates a new instance of ClassPrepareMultiplexer.
+     *
+     * @param  session  session for which to multiplex events.
+     */
+    public ClassPrepareMultiplexer(Session session) {
+        this.session = session;
+        registrations = new HashMap<DefaultResolvableBreakpoint, Filter>();
+        filterMap = new HashMap<String, Filter>();
+        exactFilters = new HashMap<String, List<Filter>>();
+        prefixTrie = new NameTrie();
+        suffixTrie = new NameTrie();
+    }
+
+    /**
+     * Register the given breakpoint to be notified when a class matching
+     * its class name specification is prepared in the debuggee. If the
+     * breakpoint was already registered, it is first removed.
+     *
+     * @param  bp  breakpoint to be registered.
+     * @param  vm  debuggee in which to create the class prepare request.
+     */
+    public synchronized void add(DefaultResolvableBreakpoint bp,
+            VirtualMachine vm) {
+        if (vm != ourVM) {
+            // Requests from a previous connection are long gone.
+            clear();
+            ourVM = vm;
+        }
+        remove(bp);
+        String pattern = bp.getClassName();
+        String source = bp.getSourceNameFilter();
+        if (source != null && !vm.canUseSourceNameFilters()) {
+            source = null;
+        }
+        String key = source == null ? pattern : pattern + '\u0000' + source;
+        Filter filter = filterMap.get(key);
+        if (filter == null) {
+            filter = new Filter(pattern, source);
+            filterMap.put(key, filter);
+            index(filter);
+            if (filter.isUnfiltered()) {
+                // Every class is now reported, the other requests are
+                // redundant and only cost the debuggee more events.
+                unfiltered = filter;
+                for (Filter f : filterMap.values()) {
+                    deleteRequest(f);
+                }
+                createRequest(filter);
+            } else if (unfiltered == null) {
+                createRequest(filter);
+            }
+        }
+        filter.members.add(bp);
+        registrations.put(bp, filter);
+    }
+
+    /**
+     * Forget all registered breakpoints and requests, without deleting
+     * the requests from the debuggee.
+     */
+    private void clear() {
+        registrations.clear();
+        filterMap.clear();
+        exactFilters.clear();
+        prefixTrie.clear();
+        suffixTrie.clear();
+        unfiltered = null;
+        lastPrepared = null;
+        ourVM = null;
+    }
+
+    /**
+     * Create the class prepare request for the given filter.
+     *
+     * @param  filter  filter for which to create request.
+     */
+    private void createRequest(Filter filter) {
+        ClassPrepareRequest request =
+                ourVM.eventRequestManager().createClassPrepareRequest();
+        if (!filter.isUnfiltered()) {
+            request.addClassFilter(filter.pattern);
+            if (filter.sourceName != null) {
+                request.addSourceNameFilter(filter.sourceName);
+            }
+        }
+        // Suspending the loading thread is sufficient to resolve the
+        // breakpoints before the code of the new class can run.
+        request.setSuspendPolicy(EventRequest.SUSPEND_EVENT_THREAD);
+        Dispatcher dispatcher = DispatcherProvider.getDispatcher(session);
+        dispatcher.register(this, request);
+        request.setEnabled(true);
+        filter.request = request;
+    }
+
+    /**
+     * Delete the class prepare request of the given filter, if any.
+     *
+     * @param  filter  filter for which to delete request.
+     */
+    private void deleteRequest(Filter filter) {
+        if (filter.request != null) {
+            try {
+                ourVM.eventRequestManager().deleteEventRequest(filter.request);
+            } catch (VMDisconnectedException vmde) {
+                // This happens all the time.
+            } finally {
+                filter.request = null;
+            }
+        }
+    }
+
+    @Override
+    public boolean eventOccurred(Event event) {
+        if (!(event instanceof ClassPrepareEvent)) {
+            return true;
+        }
+        ClassPrepareEvent cpe = (ClassPrepareEvent) event;
+        ReferenceType clazz = cpe.referenceType();
+        List<DefaultResolvableBreakpoint> targets =
+                new ArrayList<DefaultResolvableBreakpoint>();
+        synchronized (this) {
+            eventCount++;
+            if (clazz.equals(lastPrepared)) {
+                // Several of our requests matched the same class, all of
+                // the breakpoints were notified with the first event.
+                savedEventCount--;
+                return true;
+            }
+            lastPrepared = clazz;
+            String name = clazz.name();
+            List<Filter> matches = new ArrayList<Filter>();
+            List<Filter> exact = exactFilters.get(name);
+            if (exact != null) {
+                matches.addAll(exact);
+            }
+            prefixTrie.collect(name, matches);
+            suffixTrie.collect(reverse(name), matches);
+            String source = null;
+            boolean sourceFetched = false;
+            for (Filter filter : matches) {
+                if (filter.sourceName != null) {
+                    if (!sourceFetched) {
+                        sourceFetched = true;
+                        try {
+                            source = clazz.sourceName();
+                        } catch (AbsentInformationException aie) {
+                            // The source filter would not have matched.
+                        }
+                    }
+                    if (!filter.sourceName.equals(source)) {
+                        continue;
+                    }
+                }
+                targets.addAll(filter.members);
+            }
+            int enabled = 0;
+            for (DefaultResolvableBreakpoint bp : targets) {
+                if (bp.isEnabled()) {
+                    enabled++;
+                }
+            }
+            if (enabled > 1) {
+                savedEventCount += enabled - 1;
+            }
+        }
+
+        // Notify the breakpoints without holding the lock, as resolving
+        // involves a fair amount of debuggee communication.
+        boolean resume = true;
+        for (DefaultResolvableBreakpoint bp : targets) {
+            resume &= bp.classPrepared(cpe);
+        }
+        return resume;
+    }
+
+    /**
+     * Returns the number of breakpoints registered with this multiplexer.
+     *
+     * @return  number of registered breakpoints.
+     */
+    public synchronized int getBreakpointCount() {
+        return registrations.size();
+    }
+
+    /**
+     * Returns the number of class prepare events received from the
+     * debuggee since the session connected.
+     *
+     * @return  number of events received.
+     */
+    public synchronized long getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * Returns the number of class prepare requests currently set in the
+     * debuggee on behalf of the registered breakpoints.
+     *
+     * @return  number of requests.
+     */
+    public synchronized int getRequestCount() {
+        int count = 0;
+        for (Filter filter : filterMap.values()) {
+            if (filter.request != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of class prepare events the debuggee would have
+     * sent had each breakpoint created its own request, less the events
+     * that were actually received.
+     *
+     * @return  number of events saved.
+     */
+    public synchronized long getSavedEventCount() {
+        return savedEventCount;
+    }
+
+    /**
+     * Add the filter to the appropriate index, according to the position
+     * of the wildcard in the pattern.
+     *
+     * @param  filter  filter to be indexed.
+     */
+    private void index(Filter filter) {
+        if (filter.preWild) {
+            suffixTrie.put(reverse(filter.tameName), filter);
+        } else if (filter.postWild) {
+            prefixTrie.put(filter.tameName, filter);
+        } else {
+            List<Filter> list = exactFilters.get(filter.tameName);
+            if (list == null) {
+                list = new ArrayList<Filter>(1);
+                exactFilters.put(filter.tameName, list);
+            }
+            list.add(filter);
+        }
+    }
+
+    /**
+     * Unregister the given breakpoint, deleting the class prepare request
+     * if no other breakpoint shares it.
+     *
+     * @param  bp  breakpoint to be removed.
+     */
+    public synchronized void remove(DefaultResolvableBreakpoint bp) {
+        Filter filter = registrations.remove(bp);
+        if (filter == null) {
+            return;
+        }
+        filter.members.remove(bp);
+        if (!filter.members.isEmpty()) {
+            return;
+        }
+        filterMap.remove(filter.key());
+        unindex(filter);
+        deleteRequest(filter);
+        if (filter == unfiltered) {
+            // The narrower requests are needed once again.
+            unfiltered = null;
+            try {
+                for (Filter f : filterMap.values()) {
+                    createRequest(f);
+                }
+            } catch (VMDisconnectedException vmde) {
+                // We will start over when the session connects again.
+            }
+        }
+    }
+
+    /**
+     * Reverses the given string, for use with the suffix trie.
+     *
+     * @param  s  string to reverse.
+     * @return  reversed string.
+     */
+    private static String reverse(String s) {
+        return new StringBuilder(s).reverse().toString();
+    }
+
+    /**
+     * Remove the filter from the index to which it was added.
+     *
+     * @param  filter  filter to be removed.
+     */
+    private void unindex(Filter filter) {
+        if (filter.preWild) {
+            suffixTrie.remove(reverse(filter.tameName), filter);
+        } else if (filter.postWild) {
+            prefixTrie.remove(filter.tameName, filter);
+        } else {
+            List<Filter> list = exactFilters.get(filter.tameName);
+            if (list != null) {
+                list.remove(filter);
+                if (list.isEmpty()) {
+                    exactFilters.remove(filter.tameName);
+                }
+            }
+        }
+    }
+
+    /**
+     * A distinct class prepare filter and the breakpoints that share it.
+     */
+    private static class Filter {
+        /** Class name pattern, possibly with a wildcard. */
+        private final String pattern;
+        /** Class name without the wildcard. */
+        private final String tameName;
+        /** True if the pattern starts with a wildcard. */
+        private final boolean preWild;
+        /** True if the pattern ends with a wildcard. */
+        private final boolean postWild;
+        /** Source name filter, or null if none. */
+        private final String sourceName;
+        /** Breakpoints sharing this filter. */
+        private final Set<DefaultResolvableBreakpoint> members;
+        /** Request set in the debuggee for this filter, if any. */
+        private ClassPrepareRequest request;
+
+        /**
+         * Constructs a new instance of Filter.
+         *
+         * @param  pattern     class name pattern.
+         * @param  sourceName  source name filter, may be null.
+         */
+        Filter(String pattern, String sourceName) {
+            this.pattern = pattern;
+            this.sourceName = sourceName;
+            preWild = pattern.startsWith("*");
+            postWild = pattern.endsWith("*");
+            if (preWild) {
+                tameName = pattern.substring(1);
+            } else if (postWild) {
+                tameName = pattern.substring(0, pattern.length() - 1);
+            } else {
+                tameName = pattern;
+            }
+            members = new LinkedHashSet<DefaultResolvableBreakpoint>();
+        }
+
+        /**
+         * Returns the key by which this filter is known.
+         *
+         * @return  filter key.
+         */
+        String key() {
+            return sourceName == null ? pattern : pattern + '\u0000' + sourceName;
+        }
+
+        /**
+         * Indicates if this filter matches every class.
+         *
+         * @return  true if unfiltered, false otherwise.
+         */
+        boolean isUnfiltered() {
+            return tameName.length() == 0 && sourceName == null;
+        }
+    }
+
+    /**
+     * A character trie mapping names to filters, used to find all of the
+     * filters whose key is a prefix of a given name.
+     */
+    private static class NameTrie {
+        /** Root node of the trie, corresponding to the empty string. */
+        private Node root = new Node();
+
+        /**
+         * Remove all entries from the trie.
+         */
+        void clear() {
+            root = new Node();
+        }
+
+        /**
+         * Add to the list all of the filters whose key is a prefix of
+         * (or equal to) the given name.
+         *
+         * @param  name     name to look up.
+         * @param  matches  list to which matching filters are added.
+         */
+        void collect(String name, List<Filter> matches) {
+            Node node = root;
+            int length = name.length();
+            for (int ii = 0; node != null; ii++) {
+                if (node.values != null) {
+                    matches.addAll(node.values);
+                }
+                if (ii == length || node.children == null) {
+                    break;
+                }
+                node = node.children.get(name.charAt(ii));
+            }
+        }
+
+        /**
+         * Associate the filter with the given key.
+         *
+         * @param  key     trie key.
+         * @param  filter  filter to add.
+         */
+        void put(String key, Filter filter) {
+            Node node = root;
+            for (int ii = 0; ii < key.length(); ii++) {
+                Character ch = key.charAt(ii);
+                if (node.children == null) {
+                    node.children = new HashMap<Character, Node>(4);
+                }
+                Node child = node.children.get(ch);
+                if (child == null) {
+                    child = new Node();
+                    node.children.put(ch, child);
+                }
+                node = child;
+            }
+            if (node.values == null) {
+                node.values = new ArrayList<Filter>(1);
+            }
+            node.values.add(filter);
+        }
+
+        /**
+         * Disassociate the filter from the given key. Empty branches
+         * are left in place, as they are likely to be reused.
+         *
+         * @param  key     trie key.
+         * @param  filter  filter to remove.
+         */
+        void remove(String key, Filter filter) {
+            Node node = root;
+            for (int ii = 0; node != null && ii < key.length(); ii++) {
+                node = node.children == null ? null
+                        : node.children.get(key.charAt(ii));
+            }
+            if (node != null && node.values != null) {
+                node.values.remove(filter);
+                if (node.values.isEmpty()) {
+                    node.values = null;
+                }
+            }
+        }
+
+        /**
+         * A node in the trie.
+         */
+        private static class Node {
+            /** Child nodes keyed by the next character, may be null. */
+            Map<Character, Node> children;
+            /** Filters whose key ends at this node, may be null. */
+            List<Filter> values;
+        }
+    }
+}
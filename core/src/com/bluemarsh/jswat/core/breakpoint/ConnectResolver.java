@@ -0,0 +1,325 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.breakpoint;
+
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.util.JdwpProfiler;
+import com.bluemarsh.jswat.core.util.MirrorCache;
+import com.bluemarsh.jswat.core.util.MirrorCache.TypeInfo;
+import com.sun.jdi.AbsentInformationException;
+import com.sun.jdi.ClassNotPreparedException;
+import com.sun.jdi.ReferenceType;
+import com.sun.jdi.VirtualMachine;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Class ConnectResolver resolves all of the breakpoints in a session when
+ * the session connects to the debuggee. Rather than each breakpoint
+ * looking for its classes, and each line breakpoint asking the debuggee
+ * for the locations of its line, the breakpoints are grouped by their
+ * class name specification. The classes for each specification are found
+ * once, and the line index of each candidate class is built once (and
+ * cached in the <code>MirrorCache</code>), after which every
+ * breakpoint is resolved against the classes it may match, in one pass.
+ *
+ * <p>The resolver keeps a report of the most recent connection, giving
+ * the counts and times of the lookup and resolve phases.</p>
+ *
+ * <p>Instances are acquired via the <code>BreakpointProvider</code>,
+ * one per session.</p>
+ *
+ * @author Nathan Fiedler
+ */
+public class ConnectResolver {
+    /** Logger for reporting the resolution times. */
+    private static final Logger logger = Logger.getLogger(
+            ConnectResolver.class.getName());
+    /** Session for which we resolve breakpoints. */
+    private final Session session;
+    /** Number of breakpoints resolved upon connecting. */
+    private int breakpointCount;
+    /** Number of distinct class name specifications looked up. */
+    private int classLookupCount;
+    /** Number of class line tables retrieved. */
+    private int lineTableCount;
+    /** Number of breakpoints that resolved immediately. */
+    private int resolvedCount;
+    /** Number of breakpoints waiting for their classes to be prepared. */
+    private int deferredCount;
+    /** Nanoseconds spent finding classes and line tables. */
+    private long lookupTime;
+    /** Nanoseconds spent resolving the breakpoints. */
+    private long resolveTime;
+
+    /**
+     * Creates a new instance of ConnectResolver.
+     *
+     * @param  session  session for which to resolve breakpoints.
+     */
+    public ConnectResolver(Session session) {
+        this.session = session;
+    }
+
+    /**
+     * Returns the candidate classes for breakpoints restricted to the
+     * given source file, building the line indices of those classes.
+     * Classes whose source name is not known are candidates for every
+     * source file, as they were before the classes were grouped.
+     *
+     * @param  source    name of source file.
+     * @param  bySource  prepared classes, keyed by source name, with the
+     *                   null key for those of unknown source.
+     * @param  cache     where the candidates are kept, keyed by source.
+     * @return  candidate classes.
+     */
+    private List<ReferenceType> candidates(String source,
+            Map<String, List<ReferenceType>> bySource,
+            Map<String, List<ReferenceType>> cache) {
+        List<ReferenceType> list = cache.get(source);
+        if (list == null) {
+            list = new ArrayList<ReferenceType>();
+            List<ReferenceType> named = bySource.get(source);
+            if (named != null) {
+                MirrorCache mc = MirrorCache.getInstance(session);
+                for (ReferenceType clazz : named) {
+                    try {
+                        mc.getInfo(clazz).getLineIndex();
+                        lineTableCount++;
+                    } catch (AbsentInformationException aie) {
+                        // The breakpoint will report this when resolving.
+                    } catch (ClassNotPreparedException cnpe) {
+                        // Will resolve when it is prepared.
+                    }
+                }
+                list.addAll(named);
+            }
+            List<ReferenceType> unknown = bySource.get(null);
+            if (unknown != null) {
+                list.addAll(unknown);
+            }
+            cache.put(source, list);
+        }
+        return list;
+    }
+
+    /**
+     * Returns the number of breakpoints resolved upon connecting.
+     *
+     * @return  number of breakpoints.
+     */
+    public synchronized int getBreakpointCount() {
+        return breakpointCount;
+    }
+
+    /**
+     * Returns the number of distinct class name specifications for which
+     * the classes were looked up in the debuggee.
+     *
+     * @return  number of class lookups.
+     */
+    public synchronized int getClassLookupCount() {
+        return classLookupCount;
+    }
+
+    /**
+     * Returns the number of breakpoints that did not resolve upon
+     * connecting, and are waiting for their classes to be prepared.
+     *
+     * @return  number of deferred breakpoints.
+     */
+    public synchronized int getDeferredCount() {
+        return deferredCount;
+    }
+
+    /**
+     * Returns the number of class line tables that were retrieved.
+     *
+     * @return  number of line tables.
+     */
+    public synchronized int getLineTableCount() {
+        return lineTableCount;
+    }
+
+    /**
+     * Returns the time spent finding the classes and their line tables.
+     *
+     * @return  lookup time in nanoseconds.
+     */
+    public synchronized long getLookupTime() {
+        return lookupTime;
+    }
+
+    /**
+     * Returns the number of breakpoints that resolved upon connecting.
+     *
+     * @return  number of resolved breakpoints.
+     */
+    public synchronized int getResolvedCount() {
+        return resolvedCount;
+    }
+
+    /**
+     * Returns the time spent resolving the breakpoints, once the classes
+     * and line tables were found.
+     *
+     * @return  resolve time in nanoseconds.
+     */
+    public synchronized long getResolveTime() {
+        return resolveTime;
+    }
+
+    /**
+     * Groups the prepared classes by the name of their source file.
+     *
+     * @param  classes  classes to be grouped.
+     * @return  classes keyed by source name, with the null key for those
+     *          whose source name is not known.
+     */
+    private Map<String, List<ReferenceType>> groupBySource(
+            List<ReferenceType> classes) {
+        MirrorCache mc = MirrorCache.getInstance(session);
+        Map<String, List<ReferenceType>> map =
+                new HashMap<String, List<ReferenceType>>();
+        for (ReferenceType clazz : classes) {
+            if (!clazz.isPrepared()) {
+                continue;
+            }
+            TypeInfo info = mc.getInfo(clazz);
+            String source;
+            try {
+                source = info.getSourceName();
+            } catch (AbsentInformationException aie) {
+                source = null;
+            }
+            List<ReferenceType> list = map.get(source);
+            if (list == null) {
+                list = new ArrayList<ReferenceType>();
+                map.put(source, list);
+            }
+            list.add(clazz);
+        }
+        return map;
+    }
+
+    /**
+     * Resolve the resolvable breakpoints in the given group, and all of
+     * its subgroups, against the classes loaded in the debuggee. Those
+     * breakpoints that do not resolve will do so when their classes are
+     * prepared.
+     *
+     * @param  vm     debuggee to which the session has connected.
+     * @param  group  breakpoint group to be resolved.
+     */
+    public synchronized void resolve(VirtualMachine vm, BreakpointGroup group) {
+        breakpointCount = 0;
+        classLookupCount = 0;
+        lineTableCount = 0;
+        resolvedCount = 0;
+        deferredCount = 0;
+        long start = System.nanoTime();
+
+        // Group the breakpoints by their class name specification.
+        Map<String, List<DefaultResolvableBreakpoint>> specs =
+                new LinkedHashMap<String, List<DefaultResolvableBreakpoint>>();
+        boolean needAll = false;
+        Iterator<Breakpoint> iter = group.breakpoints(true);
+        while (iter.hasNext()) {
+            Breakpoint bp = iter.next();
+            if (bp instanceof DefaultResolvableBreakpoint) {
+                DefaultResolvableBreakpoint drb = (DefaultResolvableBreakpoint) bp;
+                String name = drb.getClassName();
+                if (name == null) {
+                    // Will be resolved once it has a class name.
+                    continue;
+                }
+                List<DefaultResolvableBreakpoint> list = specs.get(name);
+                if (list == null) {
+                    list = new ArrayList<DefaultResolvableBreakpoint>();
+                    specs.put(name, list);
+                    needAll |= drb.needsAllClasses(vm);
+                }
+                list.add(drb);
+                breakpointCount++;
+            }
+        }
+
+        // Find the classes for each specification, and the line tables of
+        // the classes that the breakpoints with a source file may match.
+        List<ReferenceType> all = null;
+        if (needAll) {
+            long call = JdwpProfiler.start();
+            all = vm.allClasses();
+            JdwpProfiler.record(vm, JdwpProfiler.Category.CLASSES, call);
+        }
+        List<DefaultResolvableBreakpoint> pending =
+                new ArrayList<DefaultResolvableBreakpoint>(breakpointCount);
+        List<List<ReferenceType>> pendingClasses =
+                new ArrayList<List<ReferenceType>>(breakpointCount);
+        for (List<DefaultResolvableBreakpoint> list : specs.values()) {
+            List<ReferenceType> classes = list.get(0).findClasses(vm, all);
+            classLookupCount++;
+            Map<String, List<ReferenceType>> bySource = null;
+            Map<String, List<ReferenceType>> cache = null;
+            for (DefaultResolvableBreakpoint bp : list) {
+                List<ReferenceType> candidates = classes;
+                String source = bp.getSourceNameFilter();
+                if (source != null) {
+                    if (bySource == null) {
+                        bySource = groupBySource(classes);
+                        cache = new HashMap<String, List<ReferenceType>>();
+                    }
+                    candidates = candidates(source, bySource, cache);
+                }
+                pending.add(bp);
+                pendingClasses.add(candidates);
+            }
+        }
+        long middle = System.nanoTime();
+        lookupTime = middle - start;
+
+        // Resolve the breakpoints against their candidate classes.
+        for (int ii = 0; ii < pending.size(); ii++) {
+            DefaultResolvableBreakpoint bp = pending.get(ii);
+            bp.resolveOnConnect(vm, pendingClasses.get(ii));
+            if (bp.isResolved()) {
+                resolvedCount++;
+            } else {
+                deferredCount++;
+            }
+        }
+        resolveTime = System.nanoTime() - middle;
+
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine("resolved " + resolvedCount + " of " + breakpointCount
+                    + " breakpoints using " + classLookupCount
+                    + " class lookups and " + lineTableCount
+                    + " line tables; lookup " + lookupTime / 1000000
+                    + " ms, resolve " + resolveTime / 1000000 + " ms");
+        }
+    }
+}
@@ -23,6 +23,7 @@
 
 package com.bluemarsh.jswat.core.breakpoint;
 
+import com.bluemarsh.jswat.core.util.Arrays;
 import com.sun.jdi.event.Event;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -43,10 +44,12 @@ public class DefaultBreakpointGroup extends AbstractBreakpointGroup {
     private final List<BreakpointGroup> groupList;
     /** List of breakpoints in this group. */
     private final List<Breakpoint> breakpointList;
-    /** List of conditions this breakpoint evaluates when it stops. */
-    private final List<Condition> conditionList;
-    /** List of monitors this breakpoint executes when it stops. */
-    private final List<Monitor> monitorList;
+    /** Conditions this group evaluates when a breakpoint stops; replaced
+     * rather than modified, so it may be read without locking. */
+    private volatile Condition[] conditions;
+    /** Monitors this group executes when a breakpoint stops; replaced
+     * rather than modified, so it may be read without locking. */
+    private volatile Monitor[] monitors;
 
     /**
      * Creates a BreakpointGroup with the default parameters.
@@ -54,8 +57,8 @@ public class DefaultBreakpointGroup extends AbstractBreakpointGroup {
     public DefaultBreakpointGroup() {
         groupList = new LinkedList<BreakpointGroup>();
         breakpointList = new LinkedList<Breakpoint>();
-        conditionList = new LinkedList<Condition>();
-        monitorList = new LinkedList<Monitor>();
+        conditions = new Condition[0];
+        monitors = new Monitor[0];
     }
 
     @Override
@@ -80,9 +83,10 @@ public class DefaultBreakpointGroup extends AbstractBreakpointGroup {
 
     @Override
     public void addCondition(Condition condition) {
-        synchronized (conditionList) {
-            conditionList.add(condition);
+        synchronized (this) {
+            conditions = Arrays.add(conditions, condition);
         }
+        invalidateState();
     }
 
     @Override
@@ -90,8 +94,8 @@ public class DefaultBreakpointGroup extends AbstractBreakpointGroup {
         if (monitor.requiresThread()) {
             throw new IllegalArgumentException("monitor must not require thread");
         }
-        synchronized (monitorList) {
-            monitorList.add(monitor);
+        synchronized (this) {
+            monitors = Arrays.add(monitors, monitor);
         }
     }
 
@@ -120,7 +124,7 @@ public class DefaultBreakpointGroup extends AbstractBreakpointGroup {
 
     @Override
     public ListIterator<Condition> conditions() {
-        return conditionList.listIterator();
+        return Arrays.listIterator(conditions);
     }
 
     @Override
@@ -128,9 +132,7 @@ public class DefaultBreakpointGroup extends AbstractBreakpointGroup {
         // Check that the conditions are all satisfied.
         // We start by assuming they are satisfied.
         boolean satisfied = true;
-        // We are not expecting multiple threads to modify this list,
-        // but if it does happen, an exception will be thrown.
-        for (Condition condition : conditionList) {
+        for (Condition condition : conditions) {
             try {
                 if (!condition.isSatisfied(bp, event)) {
                     satisfied = false;
@@ -183,7 +185,7 @@ public class DefaultBreakpointGroup extends AbstractBreakpointGroup {
 
     @Override
     public ListIterator<Monitor> monitors() {
-        return monitorList.listIterator();
+        return Arrays.listIterator(monitors);
     }
 
     @Override
@@ -206,15 +208,16 @@ public class DefaultBreakpointGroup extends AbstractBreakpointGroup {
 
     @Override
     public void removeCondition(Condition condition) {
-        synchronized (conditionList) {
-            conditionList.remove(condition);
+        synchronized (this) {
+            conditions = Arrays.remove(conditions, condition);
         }
+        invalidateState();
     }
 
     @Override
     public void removeMonitor(Monitor monitor) {
-        synchronized (monitorList) {
-            monitorList.remove(monitor);
+        synchronized (this) {
+            monitors = Arrays.remove(monitors, monitor);
         }
     }
 
@@ -227,9 +230,7 @@ public class DefaultBreakpointGroup extends AbstractBreakpointGroup {
 
     @Override
     public void runMonitors(BreakpointEvent event) {
-        // We are not expecting multiple threads to modify this list,
-        // but if it does happen, an exception will be thrown.
-        for (Monitor monitor : monitorList) {
+        for (Monitor monitor : monitors) {
             try {
                 monitor.perform(event);
             } catch (Exception exc) {
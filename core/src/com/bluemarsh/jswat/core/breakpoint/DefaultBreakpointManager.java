@@ -25,14 +25,18 @@ package com.bluemarsh.jswat.core.breakpoint;
 import com.bluemarsh.jswat.core.PlatformProvider;
 import com.bluemarsh.jswat.core.PlatformService;
 import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.session.SessionEvent;
 import com.bluemarsh.jswat.core.session.SessionListener;
+import com.bluemarsh.jswat.core.util.BeanReader;
+import com.bluemarsh.jswat.core.util.BeanWriter;
+import com.bluemarsh.jswat.core.util.ChangeJournal;
+import com.sun.jdi.VirtualMachine;
+import java.beans.PropertyChangeEvent;
 import java.beans.ExceptionListener;
 import java.beans.XMLDecoder;
-import java.beans.XMLEncoder;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -52,12 +56,37 @@ public class DefaultBreakpointManager extends AbstractBreakpointManager {
     private static final Logger logger = Logger.getLogger(
             DefaultBreakpointManager.class.getName());
     /** Suffix for the session file names. */
-    private static final String FILENAME_SUFFIX = "-breakpoints.xml";
+    private static final String FILENAME_SUFFIX = "-breakpoints.bin";
+    /** Suffix for the session file names written by the XMLEncoder. */
+    private static final String LEGACY_SUFFIX = "-breakpoints.xml";
+    /** Suffix for the session journal file names. */
+    private static final String JOURNAL_SUFFIX = "-breakpoints.journal";
+    /** Identifies the kind of data in the breakpoints file. */
+    private static final String STORE_KIND = "breakpoints";
+    /** Identifies the kind of data in the journal records. */
+    private static final String CHANGE_KIND = "breakpoint-change";
+    /** Journal record for a breakpoint that was added or changed. */
+    private static final int CHANGE_PUT = 0;
+    /** Journal record for a breakpoint that was removed. */
+    private static final int CHANGE_DELETE = 1;
+    /** Number of journal records after which a snapshot is taken. */
+    private static final int JOURNAL_THRESHOLD = 256;
     /** The default breakpoint group, into which all new groups and
      * breakpoints will go by default. */
     private BreakpointGroup defaultGroup;
     /** Used to assign unique numbers to each breakpoint. */
     private int nextBreakpointNumber;
+    /** Records the changes to the breakpoints between snapshots. */
+    private ChangeJournal journal;
+
+    /**
+     * Creates a new instance of DefaultBreakpointManager.
+     */
+    public DefaultBreakpointManager() {
+        // The default group is needed before the breakpoints are loaded.
+        BreakpointFactory bf = BreakpointProvider.getBreakpointFactory();
+        defaultGroup = bf.createBreakpointGroup("Default");
+    }
 
     @Override
     public void addBreakpoint(Breakpoint bp) {
@@ -71,6 +100,7 @@ public class DefaultBreakpointManager extends AbstractBreakpointManager {
         }
         nextBreakpointNumber++;
         bp.setProperty(Breakpoint.PROP_NUMBER, nextBreakpointNumber);
+        journalChange(bp, CHANGE_PUT);
         // Notify everyone that a breakpoint was added.
         fireEvent(bp, BreakpointEventType.ADDED, null);
     }
@@ -79,66 +109,164 @@ public class DefaultBreakpointManager extends AbstractBreakpointManager {
     public void addBreakpointGroup(BreakpointGroup group, BreakpointGroup parent) {
         super.addBreakpointGroup(group, parent);
         parent.addBreakpointGroup(group);
+        // Changes to the groups are rare enough to warrant a snapshot.
+        takeSnapshot(false);
         fireEvent(new BreakpointGroupEvent(group, BreakpointGroupEventType.ADDED));
     }
 
+    @Override
+    public void connected(SessionEvent sevt) {
+        super.connected(sevt);
+        // Resolve the breakpoints together, before they each receive
+        // this event, so the classes and line tables are found only once.
+        Session session = sevt.getSession();
+        VirtualMachine vm = session.getConnection().getVM();
+        if (vm != null) {
+            ConnectResolver resolver = BreakpointProvider.getConnectResolver(session);
+            resolver.resolve(vm, defaultGroup);
+        }
+    }
+
     @Override
     protected void deleteBreakpoints(Session session) {
         try {
             PlatformService platform = PlatformProvider.getPlatformService();
             String name = session.getIdentifier() + FILENAME_SUFFIX;
             platform.deleteFile(name);
+            name = session.getIdentifier() + LEGACY_SUFFIX;
+            platform.deleteFile(name);
+            name = session.getIdentifier() + JOURNAL_SUFFIX;
+            platform.deleteFile(name);
         } catch (IOException ioe) {
             logger.log(Level.SEVERE, null, ioe);
         }
     }
 
+    /**
+     * Finds the group at the given path, as computed by getPath().
+     *
+     * @param  path  indices of the groups leading to the desired group.
+     * @return  the group, or the default group if the path is invalid.
+     */
+    private BreakpointGroup findGroup(List<Integer> path) {
+        BreakpointGroup group = defaultGroup;
+        for (int ii = path.size() - 1; ii >= 0; ii--) {
+            Iterator<BreakpointGroup> iter = group.groups(false);
+            int index = path.get(ii);
+            while (iter.hasNext() && index > 0) {
+                iter.next();
+                index--;
+            }
+            if (!iter.hasNext()) {
+                return defaultGroup;
+            }
+            group = iter.next();
+        }
+        return group;
+    }
+
     @Override
     public BreakpointGroup getDefaultGroup() {
         return defaultGroup;
     }
 
+    /**
+     * Computes the position of the group within the group hierarchy, as
+     * the index of the group within its parent, the index of the parent
+     * within its parent, and so on, up to the default group.
+     *
+     * @param  group  breakpoint group.
+     * @return  indices of the group and its ancestors.
+     */
+    private static List<Integer> getPath(BreakpointGroup group) {
+        List<Integer> path = new ArrayList<Integer>();
+        BreakpointGroup parent = group.getParent();
+        while (parent != null) {
+            int index = 0;
+            Iterator<BreakpointGroup> iter = parent.groups(false);
+            while (iter.hasNext() && iter.next() != group) {
+                index++;
+            }
+            path.add(index);
+            group = parent;
+            parent = group.getParent();
+        }
+        return path;
+    }
+
+    /**
+     * Appends a record of the change to the breakpoint to the journal,
+     * taking a snapshot if the journal has grown large.
+     *
+     * @param  bp    breakpoint that changed.
+     * @param  type  either CHANGE_PUT or CHANGE_DELETE.
+     */
+    private void journalChange(Breakpoint bp, int type) {
+        Integer number = (Integer) bp.getProperty(Breakpoint.PROP_NUMBER);
+        BreakpointGroup group = bp.getBreakpointGroup();
+        if (journal == null || number == null || group == null) {
+            // Not yet loaded, or not yet part of the hierarchy.
+            return;
+        }
+        try {
+            BeanWriter writer = new BeanWriter(CHANGE_KIND);
+            writer.writeInt(type);
+            writer.writeInt(number);
+            if (type == CHANGE_PUT) {
+                List<Integer> path = getPath(group);
+                writer.writeInt(path.size());
+                for (Integer index : path) {
+                    writer.writeInt(index);
+                }
+                writeBreakpoint(writer, bp);
+            }
+            if (journal.append(writer.toByteArray())) {
+                takeSnapshot(false);
+            }
+        } catch (IOException ioe) {
+            logger.log(Level.SEVERE, null, ioe);
+        }
+    }
+
     @Override
     protected void loadBreakpoints(Session session) {
-        // Recreate the breakpoints from the persistent store.
-        XMLDecoder decoder = null;
+        // Recreate the breakpoints from the persistent store, into the
+        // default group that was handed out before they were loaded.
+        boolean migrate = false;
         try {
-            PlatformService platform = PlatformProvider.getPlatformService();
             String name = session.getIdentifier() + FILENAME_SUFFIX;
-            InputStream is = platform.readFile(name);
-            decoder = new XMLDecoder(is);
-            decoder.setExceptionListener(new ExceptionListener() {
-
-                @Override
-                public void exceptionThrown(Exception e) {
-                    logger.log(Level.SEVERE, null, e);
-                }
-            });
-            defaultGroup = (BreakpointGroup) decoder.readObject();
+            BeanReader reader = BeanReader.open(name, STORE_KIND);
+            readGroup(reader, defaultGroup);
         } catch (FileNotFoundException e) {
-            // Do not report this error, it's normal.
+            // Perhaps there is an older file, which we then convert.
+            migrate = loadLegacy(session);
         } catch (Exception e) {
-            // Parser, I/O, and various runtime exceptions may occur,
+            // I/O and various runtime exceptions may occur,
             // need to report them and gracefully recover.
             logger.log(Level.SEVERE, null, e);
-        } finally {
-            if (decoder != null) {
-                decoder.close();
-            }
         }
-        BreakpointFactory bf = BreakpointProvider.getBreakpointFactory();
-        if (defaultGroup == null) {
-            defaultGroup = bf.createBreakpointGroup("Default");
+        journal = new ChangeJournal(session.getIdentifier() + JOURNAL_SUFFIX,
+                session.getIdentifier() + FILENAME_SUFFIX, JOURNAL_THRESHOLD);
+        // Recover the changes made since the snapshot was written.
+        List<byte[]> changes = journal.replay();
+        for (byte[] change : changes) {
+            try {
+                replayChange(new BeanReader(change, CHANGE_KIND));
+            } catch (Exception e) {
+                logger.log(Level.SEVERE, null, e);
+            }
         }
 
         // Make sure our uncaught exceptions breakpoint exists.
         // At the same time, we register each of the breakpoints.
         // Ensure breakpoints have a unique number for ease of reference.
         boolean uncaughtExists = false;
+        List<Breakpoint> loaded = new ArrayList<Breakpoint>();
         List<Breakpoint> numberless = new ArrayList<Breakpoint>();
         Iterator<Breakpoint> biter = defaultGroup.breakpoints(true);
         while (biter.hasNext()) {
             Breakpoint bp = biter.next();
+            loaded.add(bp);
             // Need to register the breakpoint upon deserialization.
             if (bp instanceof SessionListener) {
                 getSession().addSessionListener((SessionListener) bp);
@@ -156,6 +284,7 @@ public class DefaultBreakpointManager extends AbstractBreakpointManager {
             }
         }
         if (!uncaughtExists) {
+            BreakpointFactory bf = BreakpointProvider.getBreakpointFactory();
             Breakpoint bp = bf.createUncaughtExceptionBreakpoint();
             addBreakpoint(bp);
         }
@@ -165,15 +294,177 @@ public class DefaultBreakpointManager extends AbstractBreakpointManager {
         }
 
         // Make sure we are listening to all of the groups.
+        List<BreakpointGroup> groups = new ArrayList<BreakpointGroup>();
         Iterator<BreakpointGroup> giter = defaultGroup.groups(true);
         while (giter.hasNext()) {
-            giter.next().addBreakpointGroupListener(this);
+            BreakpointGroup group = giter.next();
+            group.addBreakpointGroupListener(this);
+            if (group != defaultGroup) {
+                groups.add(group);
+            }
+        }
+
+        // Anyone that looked at the session before it was activated saw
+        // an empty default group, so let them know what was loaded.
+        for (BreakpointGroup group : groups) {
+            fireEvent(new BreakpointGroupEvent(group, BreakpointGroupEventType.ADDED));
+        }
+        for (Breakpoint bp : loaded) {
+            fireEvent(bp, BreakpointEventType.ADDED, null);
+        }
+
+        if (migrate) {
+            saveBreakpoints(session);
+            try {
+                PlatformService platform = PlatformProvider.getPlatformService();
+                platform.deleteFile(session.getIdentifier() + LEGACY_SUFFIX);
+            } catch (IOException ioe) {
+                logger.log(Level.SEVERE, null, ioe);
+            }
+        } else if (!changes.isEmpty()) {
+            // Fold the recovered changes into a new snapshot.
+            takeSnapshot(false);
+        }
+    }
+
+    /**
+     * Reads the breakpoints file written by the XMLEncoder, as was done
+     * in earlier releases.
+     *
+     * @param  session  session whose breakpoints are to be loaded.
+     * @return  true if the breakpoints were loaded, false otherwise.
+     */
+    private boolean loadLegacy(Session session) {
+        XMLDecoder decoder = null;
+        try {
+            PlatformService platform = PlatformProvider.getPlatformService();
+            String name = session.getIdentifier() + LEGACY_SUFFIX;
+            InputStream is = platform.readFile(name);
+            decoder = new XMLDecoder(is);
+            decoder.setExceptionListener(new ExceptionListener() {
+
+                @Override
+                public void exceptionThrown(Exception e) {
+                    logger.log(Level.SEVERE, null, e);
+                }
+            });
+            BreakpointGroup group = (BreakpointGroup) decoder.readObject();
+            // Transfer the breakpoints to the default group by way of
+            // the binary form, rather than moving them piece by piece.
+            BeanWriter writer = new BeanWriter(STORE_KIND);
+            writeGroup(writer, group);
+            readGroup(new BeanReader(writer.toByteArray(), STORE_KIND),
+                    defaultGroup);
+            return true;
+        } catch (FileNotFoundException e) {
+            // Do not report this error, it's normal.
+        } catch (Exception e) {
+            // Parser, I/O, and various runtime exceptions may occur,
+            // need to report them and gracefully recover.
+            logger.log(Level.SEVERE, null, e);
+        } finally {
+            if (decoder != null) {
+                decoder.close();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads a breakpoint group, including its subgroups and breakpoints,
+     * as written by {@link #writeGroup(BeanWriter, BreakpointGroup)}.
+     *
+     * @param  reader  bean store reader.
+     * @param  into    group to be updated, or null to create a new group.
+     * @return  breakpoint group.
+     * @throws  IOException
+     *          if reading fails.
+     */
+    private static BreakpointGroup readGroup(BeanReader reader,
+            BreakpointGroup into) throws IOException {
+        BreakpointGroup group = (BreakpointGroup) reader.readBean(into);
+        int count = reader.readInt();
+        for (int ii = 0; ii < count; ii++) {
+            group.addBreakpointGroup(readGroup(reader, null));
+        }
+        count = reader.readInt();
+        for (int ii = 0; ii < count; ii++) {
+            int number = reader.readInt();
+            Breakpoint bp = readBreakpoint(reader, null);
+            if (number > 0) {
+                bp.setProperty(Breakpoint.PROP_NUMBER, number);
+            }
+            group.addBreakpoint(bp);
+        }
+        return group;
+    }
+
+    /**
+     * Reads a breakpoint, including its conditions and monitors, as
+     * written by {@link #writeBreakpoint(BeanWriter, Breakpoint)}.
+     *
+     * @param  reader  bean store reader.
+     * @param  bp      breakpoint to be updated, may be null.
+     * @return  the updated or new breakpoint.
+     * @throws  IOException
+     *          if reading fails.
+     */
+    private static Breakpoint readBreakpoint(BeanReader reader, Breakpoint bp)
+            throws IOException {
+        Breakpoint nb = (Breakpoint) reader.readBean(bp);
+        if (nb == bp) {
+            // Replace the conditions and monitors of the existing breakpoint.
+            List<Condition> conditions = new ArrayList<Condition>();
+            Iterator<Condition> citer = bp.conditions();
+            while (citer.hasNext()) {
+                conditions.add(citer.next());
+            }
+            for (Condition condition : conditions) {
+                bp.removeCondition(condition);
+            }
+            List<Monitor> monitors = new ArrayList<Monitor>();
+            Iterator<Monitor> miter = bp.monitors();
+            while (miter.hasNext()) {
+                monitors.add(miter.next());
+            }
+            for (Monitor monitor : monitors) {
+                bp.removeMonitor(monitor);
+            }
+        }
+        int n = reader.readInt();
+        for (int jj = 0; jj < n; jj++) {
+            nb.addCondition((Condition) reader.readBean());
+        }
+        n = reader.readInt();
+        for (int jj = 0; jj < n; jj++) {
+            nb.addMonitor((Monitor) reader.readBean());
+        }
+        return nb;
+    }
+
+    @Override
+    public void propertyChange(PropertyChangeEvent event) {
+        super.propertyChange(event);
+        Object src = event.getSource();
+        String name = event.getPropertyName();
+        if (src instanceof Breakpoint) {
+            if (name.equals(Breakpoint.PROP_BREAKPOINTGROUP)
+                    || name.equals(Breakpoint.PROP_CONDITIONS)
+                    || name.equals(Breakpoint.PROP_MONITORS)
+                    || BeanWriter.isPersistent(src.getClass(), name)) {
+                journalChange((Breakpoint) src, CHANGE_PUT);
+            }
+        } else if (src instanceof BreakpointGroup) {
+            if (BeanWriter.isPersistent(src.getClass(), name)) {
+                takeSnapshot(false);
+            }
         }
     }
 
     @Override
     public void removeBreakpoint(Breakpoint bp) {
         super.removeBreakpoint(bp);
+        journalChange(bp, CHANGE_DELETE);
         // Notify the listeners before taking action.
         fireEvent(bp, BreakpointEventType.REMOVED, null);
         if (bp instanceof SessionListener) {
@@ -214,23 +505,140 @@ public class DefaultBreakpointManager extends AbstractBreakpointManager {
         if (parent != null) {
             parent.removeBreakpointGroup(group);
         }
+        takeSnapshot(false);
         fireEvent(new BreakpointGroupEvent(group, BreakpointGroupEventType.REMOVED));
     }
 
+    /**
+     * Applies a change recorded in the journal to the breakpoints.
+     *
+     * @param  reader  journal record reader.
+     * @throws  IOException
+     *          if reading fails.
+     */
+    private void replayChange(BeanReader reader) throws IOException {
+        int type = reader.readInt();
+        Integer number = Integer.valueOf(reader.readInt());
+        Breakpoint bp = null;
+        Iterator<Breakpoint> biter = defaultGroup.breakpoints(true);
+        while (biter.hasNext()) {
+            Breakpoint b = biter.next();
+            if (number.equals(b.getProperty(Breakpoint.PROP_NUMBER))) {
+                bp = b;
+                break;
+            }
+        }
+        if (type == CHANGE_DELETE) {
+            if (bp != null) {
+                bp.getBreakpointGroup().removeBreakpoint(bp);
+            }
+            return;
+        }
+        List<Integer> path = new ArrayList<Integer>();
+        int n = reader.readInt();
+        for (int ii = 0; ii < n; ii++) {
+            path.add(reader.readInt());
+        }
+        BreakpointGroup group = findGroup(path);
+        Breakpoint nb = readBreakpoint(reader, bp);
+        if (nb != bp || bp.getBreakpointGroup() != group) {
+            if (bp != null) {
+                bp.getBreakpointGroup().removeBreakpoint(bp);
+            }
+            nb.setProperty(Breakpoint.PROP_NUMBER, number);
+            group.addBreakpoint(nb);
+        }
+    }
+
     @Override
     protected void saveBreakpoints(Session session) {
         // Persist the breakpoints to a file.
-        String name = session.getIdentifier() + FILENAME_SUFFIX;
-        PlatformService platform = PlatformProvider.getPlatformService();
+        takeSnapshot(true);
+    }
+
+    /**
+     * Writes all of the breakpoints to a snapshot, which replaces the
+     * journal of changes.
+     *
+     * @param  wait  true to wait for the snapshot to be written to disk.
+     */
+    private void takeSnapshot(boolean wait) {
+        if (journal == null) {
+            // Not yet loaded, nothing to save.
+            return;
+        }
         try {
-            OutputStream os = platform.writeFile(name);
-            XMLEncoder encoder = new XMLEncoder(os);
-            encoder.writeObject(defaultGroup);
-            encoder.close();
+            BeanWriter writer = new BeanWriter(STORE_KIND);
+            writeGroup(writer, defaultGroup);
+            journal.snapshot(writer, wait);
         } catch (IOException ioe) {
             logger.log(Level.SEVERE, null, ioe);
-        } finally {
-            platform.releaseLock(name);
+        }
+    }
+
+    /**
+     * Writes the breakpoint, including its conditions and monitors.
+     *
+     * @param  writer  bean store writer.
+     * @param  bp      breakpoint to write.
+     * @throws  IOException
+     *          if writing fails.
+     */
+    private static void writeBreakpoint(BeanWriter writer, Breakpoint bp)
+            throws IOException {
+        writer.writeBean(bp);
+        List<Condition> conditions = new ArrayList<Condition>();
+        Iterator<Condition> citer = bp.conditions();
+        while (citer.hasNext()) {
+            conditions.add(citer.next());
+        }
+        writer.writeInt(conditions.size());
+        for (Condition condition : conditions) {
+            writer.writeBean(condition);
+        }
+        List<Monitor> monitors = new ArrayList<Monitor>();
+        Iterator<Monitor> miter = bp.monitors();
+        while (miter.hasNext()) {
+            monitors.add(miter.next());
+        }
+        writer.writeInt(monitors.size());
+        for (Monitor monitor : monitors) {
+            writer.writeBean(monitor);
+        }
+    }
+
+    /**
+     * Writes the breakpoint group, its subgroups, and their breakpoints,
+     * including the number, conditions and monitors of each breakpoint.
+     *
+     * @param  writer  bean store writer.
+     * @param  group   breakpoint group to write.
+     * @throws  IOException
+     *          if writing fails.
+     */
+    private static void writeGroup(BeanWriter writer, BreakpointGroup group)
+            throws IOException {
+        writer.writeBean(group);
+        // Take copies so the counts agree with what is written.
+        List<BreakpointGroup> subgroups = new ArrayList<BreakpointGroup>();
+        Iterator<BreakpointGroup> giter = group.groups(false);
+        while (giter.hasNext()) {
+            subgroups.add(giter.next());
+        }
+        writer.writeInt(subgroups.size());
+        for (BreakpointGroup subgroup : subgroups) {
+            writeGroup(writer, subgroup);
+        }
+        List<Breakpoint> breakpoints = new ArrayList<Breakpoint>();
+        Iterator<Breakpoint> biter = group.breakpoints(false);
+        while (biter.hasNext()) {
+            breakpoints.add(biter.next());
+        }
+        writer.writeInt(breakpoints.size());
+        for (Breakpoint bp : breakpoints) {
+            Integer number = (Integer) bp.getProperty(Breakpoint.PROP_NUMBER);
+            writer.writeInt(number == null ? 0 : number.intValue());
+            writeBreakpoint(writer, bp);
         }
     }
 }
@@ -24,6 +24,8 @@ package com.bluemarsh.jswat.core.breakpoint;
 
 import com.bluemarsh.jswat.core.session.Session;
 import com.bluemarsh.jswat.core.session.SessionEvent;
+import com.bluemarsh.jswat.core.util.MirrorCache;
+import com.bluemarsh.jswat.core.util.MirrorCache.LineIndex;
 import com.bluemarsh.jswat.core.util.Names;
 import com.bluemarsh.jswat.core.util.Threads;
 import com.sun.jdi.AbsentInformationException;
@@ -35,10 +37,8 @@ import com.sun.jdi.VirtualMachine;
 import com.sun.jdi.event.Event;
 import com.sun.jdi.event.LocatableEvent;
 import com.sun.jdi.request.BreakpointRequest;
-import com.sun.jdi.request.ClassPrepareRequest;
 import com.sun.jdi.request.EventRequest;
 import com.sun.jdi.request.EventRequestManager;
-import java.util.Iterator;
 import java.util.List;
 import org.openide.util.NbBundle;
 
@@ -79,22 +79,6 @@ public class DefaultLineBreakpoint extends DefaultResolvableBreakpoint
     public void closing(SessionEvent sevt) {
     }
 
-    @Override
-    protected ClassPrepareRequest createPrepareRequest(VirtualMachine vm) {
-        ClassPrepareRequest request = super.createPrepareRequest(vm);
-        // If source name filtering is available, use it to make the
-        // event request more effective and reduce the number of events
-        // the JVM sends over the wire.
-        if (vm.canUseSourceNameFilters() && sourceName != null) {
-            // Must disable the request before modifying it.
-            boolean enabled = request.isEnabled();
-            request.setEnabled(false);
-            request.addSourceNameFilter(sourceName);
-            request.setEnabled(enabled);
-        }
-        return request;
-    }
-
     @Override
     public String describe(Event e) {
         String name = sourceName;
@@ -136,6 +120,13 @@ public class DefaultLineBreakpoint extends DefaultResolvableBreakpoint
         return sourceName;
     }
 
+    @Override
+    protected String getSourceNameFilter() {
+        // Make the class prepare request more effective and reduce the
+        // number of events the JVM sends over the wire.
+        return sourceName;
+    }
+
     @Override
     public String getURL() {
         return url;
@@ -186,15 +177,9 @@ public class DefaultLineBreakpoint extends DefaultResolvableBreakpoint
             List<EventRequest> requests) throws ResolveException {
         List<Location> locs = null;
         try {
-            locs = clazz.locationsOfLine(null, sourceName, lineNumber);
-            if (locs.isEmpty()) {
-                List<ReferenceType> inners = clazz.nestedTypes();
-                Iterator<ReferenceType> iter = inners.iterator();
-                while (iter.hasNext() && locs.isEmpty()) {
-                    ReferenceType type = iter.next();
-                    locs = type.locationsOfLine(null, sourceName, lineNumber);
-                }
-            }
+            // The index includes the lines of the nested types.
+            LineIndex index = MirrorCache.getTypeInfo(clazz).getLineIndex();
+            locs = index.locationsOfLine(sourceName, lineNumber);
         } catch (AbsentInformationException aie) {
             // If we got here, that means the matches() method thought this
             // class was a good candidate, but apparently not.
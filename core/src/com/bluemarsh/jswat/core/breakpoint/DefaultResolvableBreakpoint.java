@@ -26,13 +26,14 @@ package com.bluemarsh.jswat.core.breakpoint;
 import com.bluemarsh.jswat.core.session.Session;
 import com.bluemarsh.jswat.core.session.SessionEvent;
 import com.bluemarsh.jswat.core.session.SessionListener;
+import com.bluemarsh.jswat.core.util.ClassIndex;
+import com.bluemarsh.jswat.core.util.JdwpProfiler;
 import com.bluemarsh.jswat.core.util.Names;
 import com.sun.jdi.ReferenceType;
 import com.sun.jdi.VirtualMachine;
 import com.sun.jdi.VMDisconnectedException;
 import com.sun.jdi.event.ClassPrepareEvent;
 import com.sun.jdi.event.Event;
-import com.sun.jdi.request.ClassPrepareRequest;
 import com.sun.jdi.request.EventRequest;
 import com.sun.jdi.request.EventRequestManager;
 import com.sun.jdi.request.InvalidRequestStateException;
@@ -60,8 +61,8 @@ public abstract class DefaultResolvableBreakpoint extends AbstractBreakpoint
     private boolean postWild;
     /** True if class specification is prefixed with a wildcard. */
     private boolean preWild;
-    /** Class prepare request used to resolve the breakpoint. */
-    private ClassPrepareRequest prepareRequest;
+    /** Multiplexer with which we are registered for class prepare events. */
+    private ClassPrepareMultiplexer prepareMultiplexer;
     /** Resolved event requests, if breakpoint has resolved. */
     private List<EventRequest> eventRequests;
 
@@ -74,53 +75,26 @@ public abstract class DefaultResolvableBreakpoint extends AbstractBreakpoint
 
     @Override
     public void connected(SessionEvent sevt) {
+        if (prepareMultiplexer != null) {
+            // Already resolved by the breakpoint manager, along with the
+            // other breakpoints, via the ConnectResolver.
+            return;
+        }
         BreakpointGroup group = getBreakpointGroup();
         Session session = BreakpointProvider.getSession(group);
         VirtualMachine vm = session.getConnection().getVM();
         if (vm != null) {
-            try {
-                resolveEagerly(vm);
-                if (isResolved()) {
-                    propSupport.firePropertyChange(PROP_RESOLVED, false, true);
-                }
-            } catch (ResolveException re) {
-                fireError(re);
-            }
+            resolveOnConnect(vm, findClasses(vm, null));
         }
     }
 
     /**
-     * Create the class prepare request for this breakpoint.
-     *
-     * @param  vm  virtual machine in which to create request.
-     * @return  class prepare request, for subclasses to modify if desired.
-     */
-    protected ClassPrepareRequest createPrepareRequest(VirtualMachine vm) {
-        prepareRequest = vm.eventRequestManager().createClassPrepareRequest();
-        // Test tameName for length since that indicates whether there is
-        // anything to the className other than a wildcard.
-        if (tameName.length() > 0) {
-            // Use the className with the wilcard as the event filter.
-            prepareRequest.addClassFilter(className);
-        }
-        register(prepareRequest);
-        return prepareRequest;
-    }
-
-    /**
-     * Delete the class prepare request so we can resolve all over again.
+     * Stop receiving class prepare events so we can resolve all over again.
      */
     private void deletePrepareRequest() {
-        if (prepareRequest != null) {
-            try {
-                VirtualMachine vm = prepareRequest.virtualMachine();
-                EventRequestManager erm = vm.eventRequestManager();
-                erm.deleteEventRequest(prepareRequest);
-            } catch (VMDisconnectedException vmde) {
-                // This happens all the time.
-            } finally {
-                prepareRequest = null;
-            }
+        if (prepareMultiplexer != null) {
+            prepareMultiplexer.remove(this);
+            prepareMultiplexer = null;
         }
     }
 
@@ -159,34 +133,92 @@ public abstract class DefaultResolvableBreakpoint extends AbstractBreakpoint
         deleteRequests();
     }
 
+    /**
+     * Invoked by the class prepare multiplexer when a class that may match
+     * our class name specification has been prepared.
+     *
+     * @param  cpe  class prepare event.
+     * @return  true if debuggee VM should be resumed, false otherwise.
+     */
+    boolean classPrepared(ClassPrepareEvent cpe) {
+        try {
+            if (isEnabled()) {
+                ReferenceType clazz = cpe.referenceType();
+                if (matches(clazz) &&
+                        resolveReference(clazz, eventRequests)) {
+                    propSupport.firePropertyChange(
+                            PROP_RESOLVED, false, true);
+                }
+            }
+        } catch (ResolveException re) {
+            fireError(re);
+            return false;
+        }
+        return true;
+    }
+
     @Override
     public boolean eventOccurred(Event event) {
         if (event instanceof ClassPrepareEvent) {
-            try {
-                if (isEnabled()) {
-                    ClassPrepareEvent cpe = (ClassPrepareEvent) event;
-                    ReferenceType clazz = cpe.referenceType();
-                    if (matches(clazz) &&
-                            resolveReference(clazz, eventRequests)) {
-                        propSupport.firePropertyChange(
-                                PROP_RESOLVED, false, true);
-                    }
-                }
-            } catch (ResolveException re) {
-                fireError(re);
-                return false;
-            }
-            return true;
+            return classPrepared((ClassPrepareEvent) event);
         } else {
             return super.eventOccurred(event);
         }
     }
 
+    /**
+     * Find the classes in the debuggee that may match the class name
+     * specification of this breakpoint. The classes may not all have been
+     * prepared, nor do they necessarily match.
+     *
+     * @param  vm   debuggee virtual machine.
+     * @param  all  all of the classes in the debuggee, if already known,
+     *              to be used in place of <code>vm.allClasses()</code>;
+     *              may be null.
+     * @return  candidate classes.
+     */
+    List<ReferenceType> findClasses(VirtualMachine vm, List<ReferenceType> all) {
+        ClassIndex index = ClassIndex.getInstance(vm);
+        if (index != null && preWild) {
+            return index.findBySuffix(tameName);
+        } else if (index != null && postWild) {
+            return index.findByPrefix(tameName);
+        } else if ((preWild || postWild) && all != null) {
+            return all;
+        }
+        long start = JdwpProfiler.start();
+        List<ReferenceType> classes = preWild || postWild ? vm.allClasses()
+                : vm.classesByName(className);
+        JdwpProfiler.record(vm, JdwpProfiler.Category.CLASSES, start);
+        return classes;
+    }
+
+    /**
+     * Indicates if finding the candidate classes for this breakpoint
+     * requires the list of all classes in the debuggee.
+     *
+     * @param  vm  debuggee virtual machine.
+     * @return  true if all classes are needed, false otherwise.
+     */
+    boolean needsAllClasses(VirtualMachine vm) {
+        return (preWild || postWild) && ClassIndex.getInstance(vm) == null;
+    }
+
     @Override
     public String getClassName() {
         return className;
     }
 
+    /**
+     * Returns the name of the source file to which class prepare events
+     * should be restricted, if the debuggee supports such filtering.
+     *
+     * @return  source name filter, or null for no filtering.
+     */
+    protected String getSourceNameFilter() {
+        return null;
+    }
+
     @Override
     public boolean isResolved() {
         return !eventRequests.isEmpty();
@@ -226,18 +258,29 @@ public abstract class DefaultResolvableBreakpoint extends AbstractBreakpoint
      *          if the resolution fails in a bad way.
      */
     protected void resolveEagerly(VirtualMachine vm) throws ResolveException {
-        // Clear out the old prepare request to make room for the new one.
-        deletePrepareRequest();
-        // Create class prepare request for this breakpoint.
-        createPrepareRequest(vm);
+        resolveEagerly(vm, findClasses(vm, null));
+    }
 
-        // Get the appropriate list of classes.
-        List<ReferenceType> classes = null;
-        if (preWild || postWild) {
-            classes = vm.allClasses();
-        } else {
-            classes = vm.classesByName(className);
-        }
+    /**
+     * Try to resolve this event request eagerly against the given classes,
+     * as found by <code>findClasses()</code>. If none match, a class
+     * prepare request is created so we can resolve when the class is
+     * loaded.
+     *
+     * @param  vm       VirtualMachine
+     * @param  classes  candidate classes against which to resolve.
+     * @throws  ResolveException
+     *          if the resolution fails in a bad way.
+     */
+    void resolveEagerly(VirtualMachine vm, List<ReferenceType> classes)
+            throws ResolveException {
+        // Clear out the old registration to make room for the new one.
+        deletePrepareRequest();
+        // Listen for the class prepare events that may be of interest,
+        // sharing the event requests with the other breakpoints.
+        Session session = BreakpointProvider.getSession(getBreakpointGroup());
+        prepareMultiplexer = BreakpointProvider.getClassPrepareMultiplexer(session);
+        prepareMultiplexer.add(this, vm);
 
         // We handle exceptions specially because a class may be loaded by
         // more than one class loader, and one of those instances may have
@@ -307,6 +350,25 @@ public abstract class DefaultResolvableBreakpoint extends AbstractBreakpoint
         }
     }
 
+    /**
+     * Resolve against the given classes upon connecting to the debuggee,
+     * firing a change event if the resolution is successful, or an error
+     * event if a resolve exception occurs.
+     *
+     * @param  vm       VirtualMachine
+     * @param  classes  candidate classes against which to resolve.
+     */
+    void resolveOnConnect(VirtualMachine vm, List<ReferenceType> classes) {
+        try {
+            resolveEagerly(vm, classes);
+            if (isResolved()) {
+                propSupport.firePropertyChange(PROP_RESOLVED, false, true);
+            }
+        } catch (ResolveException re) {
+            fireError(re);
+        }
+    }
+
     /**
      * Resolve against the given ReferenceType. If successful, add the
      * new event requests to the provided list.
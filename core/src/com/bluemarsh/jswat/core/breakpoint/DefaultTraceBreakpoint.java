@@ -25,10 +25,10 @@ package com.bluemarsh.jswat.core.breakpoint;
 import com.bluemarsh.jswat.core.session.Session;
 import com.bluemarsh.jswat.core.session.SessionEvent;
 import com.bluemarsh.jswat.core.session.SessionListener;
-import com.bluemarsh.jswat.core.util.Strings;
+import com.bluemarsh.jswat.core.util.MirrorCache;
+import com.bluemarsh.jswat.core.util.MirrorCache.MethodInfo;
 import com.bluemarsh.jswat.core.util.Threads;
 import com.sun.jdi.Location;
-import com.sun.jdi.Method;
 import com.sun.jdi.Value;
 import com.sun.jdi.VirtualMachine;
 import com.sun.jdi.VMDisconnectedException;
@@ -59,6 +59,10 @@ public class DefaultTraceBreakpoint extends AbstractBreakpoint implements
     private boolean stopOnEnter;
     /** True to stop when method is exited. */
     private boolean stopOnExit;
+    /** True to record events in the trace log. */
+    private boolean record;
+    /** Trace log in which to record events, if recording. */
+    private TraceLog traceLog;
 
     /**
      * Creates a new instance of TraceBreakpoint.
@@ -101,6 +105,9 @@ public class DefaultTraceBreakpoint extends AbstractBreakpoint implements
             // Nothing we can do right now.
             return;
         }
+        if (record) {
+            traceLog = TraceLog.getInstance(session);
+        }
         VirtualMachine vm = session.getConnection().getVM();
         EventRequestManager erm = vm.eventRequestManager();
 
@@ -142,6 +149,7 @@ public class DefaultTraceBreakpoint extends AbstractBreakpoint implements
         } finally {
             entryRequest = null;
             exitRequest = null;
+            traceLog = null;
         }
     }
 
@@ -168,11 +176,11 @@ public class DefaultTraceBreakpoint extends AbstractBreakpoint implements
         }
         LocatableEvent le = (LocatableEvent) e;
         Location loc = le.location();
-        Method method = loc.method();
-        String cname = loc.declaringType().name();
-        String args = Strings.listToString(method.argumentTypeNames());
+        MethodInfo info = MirrorCache.getMethodInfo(loc.method());
+        String cname = MirrorCache.getTypeInfo(loc.declaringType()).getName();
         String tname = Threads.getIdentifier(le.thread());
-        String[] params = new String[]{cname, method.name(), args, type, tname};
+        String[] params = new String[]{cname, info.getName(),
+            info.getArguments(), type, tname};
         String msg = NbBundle.getMessage(DefaultTraceBreakpoint.class,
                 "Trace.description.stop", params);
         if (hasReturnValue) {
@@ -198,8 +206,14 @@ public class DefaultTraceBreakpoint extends AbstractBreakpoint implements
         if (tfilter == null) {
             tfilter = "*";
         }
+        String key = record ? "Trace.description.record" : "Trace.description";
         return NbBundle.getMessage(DefaultTraceBreakpoint.class,
-                "Trace.description", cfilter, tfilter);
+                key, cfilter, tfilter);
+    }
+
+    @Override
+    public boolean getRecord() {
+        return record;
     }
 
     @Override
@@ -247,6 +261,18 @@ public class DefaultTraceBreakpoint extends AbstractBreakpoint implements
         }
     }
 
+    @Override
+    public void setRecord(boolean record) {
+        // Delete so we can recreate them using changed settings.
+        deleteRequests();
+        boolean old = this.record;
+        this.record = record;
+        propSupport.firePropertyChange(PROP_RECORD, old, record);
+        if (isEnabled()) {
+            createRequests();
+        }
+    }
+
     @Override
     public void setSuspendPolicy(int policy) {
         // Do nothing because we simply trace, we never stop.
@@ -278,13 +304,18 @@ public class DefaultTraceBreakpoint extends AbstractBreakpoint implements
 
     @Override
     protected boolean shouldResume(Event event) {
+        TraceLog log = traceLog;
+        if (log != null) {
+            // Record the bare facts, leaving the description for later.
+            LocatableEvent le = (LocatableEvent) event;
+            log.append(le.location().method(), le.thread(),
+                    event instanceof MethodExitEvent);
+            return true;
+        }
         // Now is our only chance to display our message and run monitors.
         // Note we pretend to be stopped in order for a description to be
         // displayed appropriately.
-        BreakpointEvent be = new BreakpointEvent(this,
-                BreakpointEventType.STOPPED, event);
-        fireEvent(be);
-        runMonitors(be);
+        fireStopped(event);
         // We always resume because we only trace.
         return true;
     }
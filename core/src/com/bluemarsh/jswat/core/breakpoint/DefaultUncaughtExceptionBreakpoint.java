@@ -74,6 +74,7 @@ public class DefaultUncaughtExceptionBreakpoint extends AbstractBreakpoint
         if (group == null) {
             // During deserialization, we cannot get the group or session.
             // We will have our chance when the debuggee is connected.
+            return;
         }
         Session session = BreakpointProvider.getSession(group);
         if (session == null || !session.isConnected()) {
@@ -40,6 +40,8 @@ import org.openide.util.NbBundle;
 public class ExpressionCondition implements Condition {
     /** Expression to test. */
     private String expression;
+    /** Evaluator for the expression, holding the parsed form. */
+    private Evaluator evaluator;
 
     /**
      * Creates a new instance of ExpressionCondition.
@@ -77,7 +79,11 @@ public class ExpressionCondition implements Condition {
             return false;
         }
 
-        Evaluator eval = new Evaluator(expression);
+        Evaluator eval = evaluator;
+        if (eval == null) {
+            eval = new Evaluator(expression);
+            evaluator = eval;
+        }
         Object o = null;
         try {
             o = eval.evaluate(thread, 0);
@@ -107,5 +113,7 @@ public class ExpressionCondition implements Condition {
      */
     public void setExpression(String expr) {
         expression = expr;
+        // Parse the new expression when next needed.
+        evaluator = null;
     }
 }
@@ -41,6 +41,8 @@ import org.openide.util.NbBundle;
 public class ExpressionMonitor implements Monitor {
     /** Expression to evaluate. */
     private String expression;
+    /** Evaluator for the expression, holding the parsed form. */
+    private Evaluator evaluator;
 
     /**
      * Creates a new instance of ExpressionMonitor.
@@ -78,7 +80,11 @@ public class ExpressionMonitor implements Monitor {
             // Not a valid thread or not suspended.
             return;
         }
-        Evaluator eval = new Evaluator(expression);
+        Evaluator eval = evaluator;
+        if (eval == null) {
+            eval = new Evaluator(expression);
+            evaluator = eval;
+        }
         OutputWriter writer = OutputProvider.getWriter();
         try {
             Object o = eval.evaluate(thread, 0);
@@ -101,5 +107,7 @@ public class ExpressionMonitor implements Monitor {
      */
     public void setExpression(String expr) {
         expression = expr;
+        // Parse the new expression when next needed.
+        evaluator = null;
     }
 }
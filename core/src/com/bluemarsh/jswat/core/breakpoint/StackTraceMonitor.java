@@ -24,6 +24,8 @@ package com.bluemarsh.jswat.core.breakpoint;
 
 import com.bluemarsh.jswat.core.output.OutputProvider;
 import com.bluemarsh.jswat.core.output.OutputWriter;
+import com.bluemarsh.jswat.core.util.MirrorCache;
+import com.bluemarsh.jswat.core.util.MirrorCache.TypeInfo;
 import com.sun.jdi.AbsentInformationException;
 import com.sun.jdi.IncompatibleThreadStateException;
 import com.sun.jdi.Location;
@@ -108,19 +110,20 @@ public class StackTraceMonitor implements Monitor {
             StackFrame frame = stack.get(index);
             Location loc = frame.location();
             Method method = loc.method();
+            TypeInfo type = MirrorCache.getTypeInfo(method.declaringType());
             sb.append("  [");
             sb.append(index + 1);
             sb.append("] ");
-            sb.append(method.declaringType().name());
+            sb.append(type.getName());
             sb.append('.');
-            sb.append(method.name());
+            sb.append(MirrorCache.getMethodInfo(method).getName());
             sb.append(" (");
             if (method.isNative()) {
                 sb.append(NbBundle.getMessage(StackTraceMonitor.class,
                         "CTL_StackTrace_native"));
             } else if (loc.lineNumber() != -1) {
                 try {
-                    sb.append(loc.sourceName());
+                    sb.append(type.getSourceName());
                 } catch (AbsentInformationException e) {
                     sb.append(NbBundle.getMessage(StackTraceMonitor.class,
                             "CTL_StackTrace_absentInfo"));
@@ -24,17 +24,28 @@ package com.bluemarsh.jswat.core.breakpoint;
 
 /**
  * A TraceBreakpoint displays a message each time any method is entered or
- * exited during the execution of the debuggee.
+ * exited during the execution of the debuggee. Alternatively, the events
+ * may be recorded in the session's <code>TraceLog</code>, to be examined
+ * at a later time.
  *
  * @author  Nathan Fiedler
  */
 public interface TraceBreakpoint extends Breakpoint {
 
+    /** Name of 'record' property. */
+    String PROP_RECORD = "record";
     /** Name of 'stopOnEnter' property. */
     String PROP_STOPONENTER = "stopOnEnter";
     /** Name of 'stopOnExit' property. */
     String PROP_STOPONEXIT = "stopOnExit";
 
+    /**
+     * Returns the record status.
+     *
+     * @return  true if recording events in the trace log.
+     */
+    boolean getRecord();
+
     /**
      * Returns the stop-on-enter status.
      *
@@ -49,6 +60,14 @@ public interface TraceBreakpoint extends Breakpoint {
      */
     boolean getStopOnExit();
 
+    /**
+     * Sets the record status. When recording, events are appended to the
+     * trace log of the session rather than being displayed.
+     *
+     * @param  record  true to record events in the trace log.
+     */
+    void setRecord(boolean record);
+
     /**
      * Sets the stop-on-enter status.
      *
@@ -0,0 +1,358 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is the JSwat Core Module. The Initial Developer of the
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.breakpoint;
+
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.session.SessionEvent;
+import com.bluemarsh.jswat.core.session.SessionListener;
+import com.bluemarsh.jswat.core.util.MirrorCache;
+import com.bluemarsh.jswat.core.util.MirrorCache.MethodInfo;
+import com.bluemarsh.jswat.core.util.Threads;
+import com.sun.jdi.Method;
+import com.sun.jdi.ThreadReference;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.openide.util.NbBundle;
+
+/**
+ * Class TraceLog records method entry and exit events in a fixed-size
+ * ring buffer, allocated outside of the Java heap. Each record holds only
+ * the time of the event, the identifier of the thread, and an identifier
+ * for the method, such that recording an event is very fast. Describing
+ * the events is deferred until the log is read, at which point the
+ * records are converted to <code>Entry</code> instances.
+ *
+ * <p>Once the buffer is full, the oldest records are overwritten. Records
+ * are identified by a sequence number which increases with each record
+ * appended to the log. The log is cleared when the session connects to a
+ * debuggee, but retained after it disconnects.</p>
+ *
+ * @author  Nathan Fiedler
+ */
+public class TraceLog implements SessionListener {
+    /** Default number of records retained in the log. */
+    public static final int DEFAULT_CAPACITY = 65536;
+    /** Number of bytes in each record. */
+    private static final int RECORD_SIZE = 24;
+    /** Offset of the thread identifier within a record. */
+    private static final int THREAD_OFFSET = 8;
+    /** Offset of the method identifier within a record. */
+    private static final int METHOD_OFFSET = 16;
+    /** Offset of the flags within a record. */
+    private static final int FLAGS_OFFSET = 20;
+    /** Flag indicating the record is for a method exit. */
+    private static final int FLAG_EXIT = 1;
+    /** TraceLog instances, keyed by Session instance. */
+    private static final Map<Session, TraceLog> instanceMap =
+            new HashMap<Session, TraceLog>();
+    /** Session for which we record events, or null if none. */
+    private final Session session;
+    /** Buffer containing the records. */
+    private final ByteBuffer buffer;
+    /** Maximum number of records in the buffer. */
+    private final int capacity;
+    /** Number of records appended since the log was cleared. */
+    private long count;
+    /** Identifiers assigned to the methods, keyed by method. */
+    private final Map<Method, Integer> methodIds;
+    /** Methods in the order their identifiers were assigned. */
+    private final List<Method> methods;
+    /** Threads seen in the events, keyed by unique identifier. */
+    private final Map<Long, ThreadReference> threads;
+    /** Wall clock time at which the log was cleared. */
+    private long baseMillis;
+    /** Value of the nanosecond timer when the log was cleared. */
+    private long baseNanos;
+
+    /**
+     * Creates a new instance of TraceLog.
+     *
+     * @param  session   session for which events are recorded (may be null).
+     * @param  capacity  maximum number of records to retain.
+     */
+    TraceLog(Session session, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.session = session;
+        this.capacity = capacity;
+        buffer = ByteBuffer.allocateDirect(capacity * RECORD_SIZE);
+        methodIds = new HashMap<Method, Integer>();
+        methods = new ArrayList<Method>();
+        threads = new HashMap<Long, ThreadReference>();
+        clear();
+    }
+
+    /**
+     * Append a record of a method event to the log.
+     *
+     * @param  method  method that was entered or exited.
+     * @param  thread  thread in which the event occurred.
+     * @param  exit    true if the method was exited, false if entered.
+     */
+    public synchronized void append(Method method, ThreadReference thread,
+            boolean exit) {
+        long nanos = System.nanoTime();
+        Integer mid = methodIds.get(method);
+        if (mid == null) {
+            mid = Integer.valueOf(methods.size());
+            methodIds.put(method, mid);
+            methods.add(method);
+        }
+        long tid = thread.uniqueID();
+        Long key = Long.valueOf(tid);
+        if (!threads.containsKey(key)) {
+            threads.put(key, thread);
+        }
+        int offset = (int) (count % capacity) * RECORD_SIZE;
+        buffer.putLong(offset, nanos - baseNanos);
+        buffer.putLong(offset + THREAD_OFFSET, tid);
+        buffer.putInt(offset + METHOD_OFFSET, mid.intValue());
+        buffer.putInt(offset + FLAGS_OFFSET, exit ? FLAG_EXIT : 0);
+        count++;
+    }
+
+    /**
+     * Discard all of the records in the log.
+     */
+    public synchronized void clear() {
+        count = 0;
+        methodIds.clear();
+        methods.clear();
+        threads.clear();
+        baseMillis = System.currentTimeMillis();
+        baseNanos = System.nanoTime();
+    }
+
+    @Override
+    public void closing(SessionEvent sevt) {
+        synchronized (instanceMap) {
+            instanceMap.remove(session);
+        }
+    }
+
+    @Override
+    public void connected(SessionEvent sevt) {
+        // The records from the previous debuggee are of no use now.
+        clear();
+    }
+
+    @Override
+    public void disconnected(SessionEvent sevt) {
+        // Keep the records so they can be examined afterward.
+    }
+
+    /**
+     * Retrieve the record with the given sequence number.
+     *
+     * @param  seq  sequence number of the record.
+     * @return  the record, or null if it has been overwritten or does
+     *          not yet exist.
+     */
+    public synchronized Entry get(long seq) {
+        if (seq < getFirst() || seq >= count) {
+            return null;
+        }
+        int offset = (int) (seq % capacity) * RECORD_SIZE;
+        long nanos = buffer.getLong(offset);
+        long tid = buffer.getLong(offset + THREAD_OFFSET);
+        int mid = buffer.getInt(offset + METHOD_OFFSET);
+        int flags = buffer.getInt(offset + FLAGS_OFFSET);
+        long time = baseMillis + nanos / 1000000L;
+        return new Entry(seq, time, tid, threads.get(Long.valueOf(tid)),
+                methods.get(mid), (flags & FLAG_EXIT) != 0);
+    }
+
+    /**
+     * Returns the maximum number of records retained in the log.
+     *
+     * @return  log capacity.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the sequence number of the oldest record in the log.
+     *
+     * @return  first available sequence number.
+     */
+    public synchronized long getFirst() {
+        return Math.max(0, count - capacity);
+    }
+
+    /**
+     * Retrieve the TraceLog instance for the given Session, creating one
+     * if necessary.
+     *
+     * @param  session  Session for which to get TraceLog.
+     * @return  TraceLog instance.
+     */
+    public static TraceLog getInstance(Session session) {
+        synchronized (instanceMap) {
+            TraceLog inst = instanceMap.get(session);
+            if (inst == null) {
+                inst = new TraceLog(session, DEFAULT_CAPACITY);
+                instanceMap.put(session, inst);
+                session.addSessionListener(inst);
+            }
+            return inst;
+        }
+    }
+
+    /**
+     * Returns the sequence number that the next record will be given,
+     * which is also the number of records appended since the log was
+     * last cleared.
+     *
+     * @return  next sequence number.
+     */
+    public synchronized long getNext() {
+        return count;
+    }
+
+    @Override
+    public void opened(Session session) {
+    }
+
+    @Override
+    public void resuming(SessionEvent sevt) {
+    }
+
+    @Override
+    public void suspended(SessionEvent sevt) {
+    }
+
+    /**
+     * A single record of the trace log.
+     */
+    public static class Entry {
+        /** Sequence number of the record. */
+        private final long sequence;
+        /** Wall clock time of the event. */
+        private final long time;
+        /** Unique identifier of the thread. */
+        private final long threadId;
+        /** Thread in which the event occurred. */
+        private final ThreadReference thread;
+        /** Method that was entered or exited. */
+        private final Method method;
+        /** True if method was exited. */
+        private final boolean exit;
+
+        /**
+         * Constructs a new Entry.
+         *
+         * @param  sequence  sequence number.
+         * @param  time      time of event.
+         * @param  threadId  thread identifier.
+         * @param  thread    thread reference.
+         * @param  method    the method.
+         * @param  exit      true if exited, false if entered.
+         */
+        Entry(long sequence, long time, long threadId, ThreadReference thread,
+                Method method, boolean exit) {
+            this.sequence = sequence;
+            this.time = time;
+            this.threadId = threadId;
+            this.thread = thread;
+            this.method = method;
+            this.exit = exit;
+        }
+
+        /**
+         * Describe the event in the same manner as the trace breakpoint.
+         *
+         * @return  description of the event.
+         */
+        public String describe() {
+            String type = NbBundle.getMessage(DefaultTraceBreakpoint.class,
+                    exit ? "Trace.description.stop.exit"
+                    : "Trace.description.stop.enter");
+            MethodInfo info = MirrorCache.getMethodInfo(method);
+            String cname = MirrorCache.getTypeInfo(
+                    method.declaringType()).getName();
+            String[] params = new String[]{cname, info.getName(),
+                info.getArguments(), type, getThreadName()};
+            return NbBundle.getMessage(DefaultTraceBreakpoint.class,
+                    "Trace.description.stop", params);
+        }
+
+        /**
+         * Returns the method that was entered or exited.
+         *
+         * @return  method.
+         */
+        public Method getMethod() {
+            return method;
+        }
+
+        /**
+         * Returns the sequence number of this record.
+         *
+         * @return  sequence number.
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+        /**
+         * Returns the unique identifier of the thread.
+         *
+         * @return  thread identifier.
+         */
+        public long getThreadId() {
+            return threadId;
+        }
+
+        /**
+         * Returns the identifier of the thread, as from
+         * <code>Threads.getIdentifier()</code>.
+         *
+         * @return  thread name or identifier.
+         */
+        public String getThreadName() {
+            return thread == null ? String.valueOf(threadId)
+                    : Threads.getIdentifier(thread);
+        }
+
+        /**
+         * Returns the wall clock time of the event.
+         *
+         * @return  time in milliseconds.
+         */
+        public long getTime() {
+            return time;
+        }
+
+        /**
+         * Indicates if this record is for a method exit.
+         *
+         * @return  true if exited, false if entered.
+         */
+        public boolean isExit() {
+            return exit;
+        }
+    }
+}
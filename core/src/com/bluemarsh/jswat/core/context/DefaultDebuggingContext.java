@@ -23,6 +23,7 @@
 
 package com.bluemarsh.jswat.core.context;
 
+import com.bluemarsh.jswat.core.util.SuspendCache;
 import com.sun.jdi.IncompatibleThreadStateException;
 import com.sun.jdi.InvalidStackFrameException;
 import com.sun.jdi.Location;
@@ -61,7 +62,8 @@ public class DefaultDebuggingContext extends AbstractDebuggingContext {
             if (currentThread != null) {
                 // Always derive the location because Location and StackFrame
                 // objects can become stale after hotswap operations.
-                loc = currentThread.frame(currentFrame).location();
+                loc = SuspendCache.getFrame(currentThread,
+                        currentFrame).location();
             }
             //
             // Catch the specific exceptions that we know can occur, and
@@ -82,7 +84,7 @@ public class DefaultDebuggingContext extends AbstractDebuggingContext {
             IncompatibleThreadStateException, IndexOutOfBoundsException,
             ObjectCollectedException {
         if (currentThread != null) {
-            return currentThread.frame(currentFrame);
+            return SuspendCache.getFrame(currentThread, currentFrame);
         } else {
             return null;
         }
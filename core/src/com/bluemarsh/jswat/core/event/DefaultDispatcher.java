@@ -23,7 +23,11 @@
 
 package com.bluemarsh.jswat.core.event;
 
-import com.bluemarsh.jswat.core.util.Threads;
+import com.bluemarsh.jswat.core.CoreSettings;
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.session.SessionEvent;
+import com.bluemarsh.jswat.core.session.SessionListener;
+import com.bluemarsh.jswat.core.util.SuspendCache;
 import com.sun.jdi.VMDisconnectedException;
 import com.sun.jdi.event.Event;
 import com.sun.jdi.event.EventIterator;
@@ -32,6 +36,14 @@ import com.sun.jdi.event.EventSet;
 import com.sun.jdi.event.VMDisconnectEvent;
 import com.sun.jdi.event.VMStartEvent;
 import com.sun.jdi.request.EventRequest;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -40,14 +52,33 @@ import java.util.logging.Logger;
  * interface. Each event is delivered to the listener which was registered
  * with the event request which resulted in the event.
  *
+ * <p>If asynchronous dispatching is enabled in the core settings, the
+ * observe-only work given to <code>observe()</code> is placed on a bounded
+ * queue and performed by a separate thread, so that the event set may be
+ * resumed as soon as the listeners have decided whether to resume. If the
+ * queue remains full for too long, the work is dropped and counted.</p>
+ *
  * @author  Nathan Fiedler
  */
-public class DefaultDispatcher implements Dispatcher, Runnable {
+public class DefaultDispatcher
+        implements Dispatcher, Runnable, SessionListener {
     /** Logger for gracefully reporting unexpected errors. */
     private static final Logger logger = Logger.getLogger(
             DefaultDispatcher.class.getName());
     /** EventRequest property for the DispatcherListener. */
     private static final String PROP_LISTENER = "listener";
+    /** Maximum number of observe-only tasks awaiting execution. */
+    private static final int QUEUE_CAPACITY = 1024;
+    /** Milliseconds to wait for room in the queue before dropping a task. */
+    private static final long QUEUE_WAIT = 100;
+    /** Milliseconds to wait for the queued tasks to finish when stopping. */
+    private static final long STOP_WAIT = 5000;
+    /** Marks the end of the observe-only tasks. */
+    private static final Runnable STOP = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
     /** VM event queue. */
     private EventQueue eventQueue;
     /** Invoked when VMStartEvent is received. */
@@ -56,6 +87,18 @@ public class DefaultDispatcher implements Dispatcher, Runnable {
     private Runnable stoppedCallback;
     /** Invoked if the debuggee is suspended by an event. */
     private DispatcherListener suspendedCallback;
+    /** Queue of observe-only tasks, or null if dispatching serially. */
+    private volatile BlockingQueue<Runnable> observerQueue;
+    /** Result of the thread performing the observe-only tasks. */
+    private Future<?> observerFuture;
+    /** Number of observe-only tasks dropped because the queue was full. */
+    private final AtomicLong droppedCount = new AtomicLong();
+    /** Number of observe-only tasks given to this dispatcher. */
+    private final AtomicLong observedCount = new AtomicLong();
+    /** Cache of the session connected to the debuggee, if found. */
+    private SuspendCache suspendCache;
+    /** Identifier of our session, for naming the threads, if known. */
+    private volatile String sessionId;
 
     /**
      * Constructs a new instance of DefaultDispatcher.
@@ -63,6 +106,84 @@ public class DefaultDispatcher implements Dispatcher, Runnable {
     public DefaultDispatcher() {
     }
 
+    @Override
+    public void closing(SessionEvent sevt) {
+    }
+
+    @Override
+    public void connected(SessionEvent sevt) {
+    }
+
+    @Override
+    public void disconnected(SessionEvent sevt) {
+    }
+
+    /**
+     * Returns the number of observe-only tasks that were dropped because
+     * the queue remained full.
+     *
+     * @return  count of dropped tasks.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Returns the number of observe-only tasks given to this dispatcher,
+     * including those that were dropped.
+     *
+     * @return  count of observe-only tasks.
+     */
+    public long getObservedCount() {
+        return observedCount.get();
+    }
+
+    /**
+     * Invalidates the cache of the session connected to the debuggee,
+     * as threads in the debuggee have run, or are about to run.
+     */
+    private void invalidateCache() {
+        if (suspendCache == null) {
+            suspendCache = SuspendCache.getInstance(eventQueue.virtualMachine());
+        }
+        if (suspendCache != null) {
+            suspendCache.invalidate();
+        }
+    }
+
+    @Override
+    public void observe(Runnable task) {
+        observedCount.incrementAndGet();
+        BlockingQueue<Runnable> queue = observerQueue;
+        if (queue == null) {
+            task.run();
+            return;
+        }
+        boolean queued = false;
+        try {
+            // Wait a short while for room, slowing the event handling
+            // rather than letting the queue grow without bound.
+            queued = queue.offer(task, QUEUE_WAIT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ie) {
+            // Let the dispatching loop see the interrupt.
+            Thread.currentThread().interrupt();
+        }
+        if (!queued) {
+            long dropped = droppedCount.incrementAndGet();
+            if (dropped == 1) {
+                logger.warning("observer queue full, dropping events");
+            } else {
+                logger.log(Level.FINE, "observer queue full, {0} dropped",
+                        dropped);
+            }
+        }
+    }
+
+    @Override
+    public void opened(Session session) {
+        sessionId = session.getIdentifier();
+    }
+
     @Override
     public void register(DispatcherListener listener, EventRequest request) {
         request.putProperty(PROP_LISTENER, listener);
@@ -76,6 +197,10 @@ public class DefaultDispatcher implements Dispatcher, Runnable {
             try {
                 // Wait for JDI events to occur.
                 EventSet set = eventQueue.remove();
+                if (set.suspendPolicy() != EventRequest.SUSPEND_NONE) {
+                    // Threads have run since anything was last read.
+                    invalidateCache();
+                }
                 EventIterator iter = set.eventIterator();
                 boolean resume = true;
                 Event suspendEvent = null;
@@ -107,6 +232,9 @@ public class DefaultDispatcher implements Dispatcher, Runnable {
                 if (resume) {
                     // Resume only if everyone said it was okay to do so.
                     set.resume();
+                    if (set.suspendPolicy() != EventRequest.SUSPEND_NONE) {
+                        invalidateCache();
+                    }
                 } else if (suspendedCallback != null) {
                     suspendedCallback.eventOccurred(suspendEvent);
                 }
@@ -123,6 +251,7 @@ public class DefaultDispatcher implements Dispatcher, Runnable {
                 logger.log(Level.SEVERE, null, e);
             }
         }
+        stopObserver();
         if (stoppedCallback != null) {
             stoppedCallback.run();
         }
@@ -135,11 +264,115 @@ public class DefaultDispatcher implements Dispatcher, Runnable {
         stoppedCallback = stopped;
         suspendedCallback = suspended;
         eventQueue = queue;
-        Threads.getThreadPool().submit(this);
+        suspendCache = null;
+        if (CoreSettings.getDefault().getAsyncDispatch()) {
+            BlockingQueue<Runnable> tasks =
+                    new ArrayBlockingQueue<Runnable>(QUEUE_CAPACITY);
+            FutureTask<Object> observer =
+                    new FutureTask<Object>(new Observer(tasks), null);
+            observerFuture = observer;
+            observerQueue = tasks;
+            startThread(observer, "JSwat Event Observer");
+        }
+        // Each session has its own dispatcher thread, rather than one
+        // from the shared pool, so that the sessions run independently.
+        startThread(this, "JSwat Event Dispatcher");
+    }
+
+    @Override
+    public void resuming(SessionEvent sevt) {
+    }
+
+    /**
+     * Starts a daemon thread to run the given task, naming it after our
+     * session, so the threads of each session may be told apart.
+     *
+     * @param  task  task to be run.
+     * @param  name  name for the thread.
+     */
+    private void startThread(Runnable task, String name) {
+        String id = sessionId;
+        Thread th = new Thread(task, id == null ? name : name + ' ' + id);
+        th.setDaemon(true);
+        th.start();
+    }
+
+    /**
+     * Wait for the queued observe-only tasks to be performed, if
+     * dispatching asynchronously, and stop the observer thread.
+     */
+    private void stopObserver() {
+        BlockingQueue<Runnable> queue = observerQueue;
+        if (queue == null) {
+            return;
+        }
+        // Any further tasks are performed immediately.
+        observerQueue = null;
+        if (!queue.offer(STOP)) {
+            // Queue is full and time is short, give up on the tasks.
+            observerFuture.cancel(true);
+            return;
+        }
+        try {
+            observerFuture.get(STOP_WAIT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ie) {
+            observerFuture.cancel(true);
+        } catch (ExecutionException ee) {
+            logger.log(Level.SEVERE, null, ee);
+        } catch (TimeoutException te) {
+            logger.warning("observer thread did not finish in time");
+            observerFuture.cancel(true);
+        }
+    }
+
+    @Override
+    public void suspended(SessionEvent sevt) {
     }
 
     @Override
     public void unregister(EventRequest request) {
         request.putProperty(PROP_LISTENER, null);
     }
+
+    /**
+     * Performs the observe-only tasks in the order they were queued,
+     * until the STOP marker is reached.
+     */
+    private static class Observer implements Runnable {
+        /** Queue of observe-only tasks. */
+        private final BlockingQueue<Runnable> queue;
+
+        /**
+         * Constructs a new Observer for the given queue.
+         *
+         * @param  queue  queue of tasks to perform.
+         */
+        Observer(BlockingQueue<Runnable> queue) {
+            this.queue = queue;
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Runnable task;
+                try {
+                    task = queue.take();
+                } catch (InterruptedException ie) {
+                    break;
+                }
+                if (task == STOP) {
+                    break;
+                }
+                try {
+                    task.run();
+                } catch (VMDisconnectedException vmde) {
+                    // The debuggee went away after the event set was
+                    // resumed, nothing more to be learned from it.
+                } catch (Exception e) {
+                    // Keep going, the other tasks may well succeed.
+                    logger.log(Level.SEVERE, null, e);
+                }
+            }
+        }
+    }
 }
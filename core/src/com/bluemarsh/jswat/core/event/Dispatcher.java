@@ -45,6 +45,18 @@ public interface Dispatcher {
      */
     void register(DispatcherListener listener, EventRequest request);
 
+    /**
+     * Perform the given observe-only work on behalf of a listener. Such
+     * work has no bearing on whether the debuggee is resumed, and may be
+     * run at a later time on another thread, after the event set has been
+     * resumed. As such, the task must not depend on the debuggee remaining
+     * suspended. If asynchronous dispatching is not enabled, the task is
+     * run immediately.
+     *
+     * @param  task  observe-only work to be performed.
+     */
+    void observe(Runnable task);
+
     /**
      * Start the event handling thread to process JDI events. Optional
      * listeners may be provided, which are invoked in special cases for
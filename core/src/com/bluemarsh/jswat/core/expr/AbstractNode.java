@@ -38,13 +38,9 @@ abstract class AbstractNode implements Node {
     /** Place holder for a null type. */
     private static final String NULL_TYPE = "";
     /** Lexical token. */
-    private Token nodeToken;
+    private final Token nodeToken;
     /** Parent node. */
     private ParentNode parentNode;
-    /** The value from the call to eval(). */
-    private Object cachedValue;
-    /** The JNI style type signature of this node's value. */
-    private String cachedType;
 
     /**
      * Constructs a AbstractNode associated with the given token.
@@ -70,12 +66,16 @@ abstract class AbstractNode implements Node {
     public final Object evaluate(EvaluationContext context)
             throws EvaluationException {
 
+        // The value is remembered in the context rather than the node,
+        // so that the parsed tree may be evaluated again later.
+        Object cachedValue = context.getCachedValue(this);
         if (cachedValue == null) {
             // Call the eval() method to do the real work.
             cachedValue = eval(context);
             if (cachedValue == null) {
                 cachedValue = NULL_VALUE;
             }
+            context.setCachedValue(this, cachedValue);
         }
         if (cachedValue == NULL_VALUE) {
             return null;
@@ -98,12 +98,14 @@ abstract class AbstractNode implements Node {
     public final String getType(EvaluationContext context)
             throws EvaluationException {
 
+        String cachedType = context.getCachedType(this);
         if (cachedType == null) {
             // Call the type() method to do the real work.
             cachedType = type(context);
             if (cachedType == null) {
                 cachedType = NULL_TYPE;
             }
+            context.setCachedType(this, cachedType);
         }
         if (cachedType.equals(NULL_TYPE)) {
             return null;
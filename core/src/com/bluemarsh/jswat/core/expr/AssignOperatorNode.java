@@ -23,6 +23,7 @@
 package com.bluemarsh.jswat.core.expr;
 
 import com.bluemarsh.jswat.parser.node.Token;
+import com.bluemarsh.jswat.core.util.SuspendCache;
 import com.bluemarsh.jswat.core.util.Types;
 import com.sun.jdi.ArrayReference;
 import com.sun.jdi.ClassNotLoadedException;
@@ -159,6 +160,7 @@ class AssignOperatorNode extends BinaryOperatorNode {
             // Set the value to the identifier accordingly.
             if (vcon instanceof LocalVariable) {
                 frame.setValue((LocalVariable) vcon, mirror);
+                SuspendCache.invalidate(vm);
             } else if (vcon instanceof Field) {
                 // Prohibit assignment to final fields
                 if (((TypeComponent) vcon).isFinal()) {
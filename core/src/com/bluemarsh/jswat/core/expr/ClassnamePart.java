@@ -33,7 +33,7 @@ package com.bluemarsh.jswat.core.expr;
 class ClassnamePart {
 
     /** The name part. */
-    private String namepart;
+    private final String namepart;
 
     /**
      * Creates a new instance of ClassnamePart.
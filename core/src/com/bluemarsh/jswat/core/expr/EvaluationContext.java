@@ -22,10 +22,14 @@
  */
 package com.bluemarsh.jswat.core.expr;
 
+import com.bluemarsh.jswat.core.util.SuspendCache;
 import com.sun.jdi.IncompatibleThreadStateException;
 import com.sun.jdi.Location;
+import com.sun.jdi.Method;
 import com.sun.jdi.StackFrame;
 import com.sun.jdi.ThreadReference;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 /**
  * Class EvaluationContext encapsulates the information pertaining
@@ -33,18 +37,34 @@ import com.sun.jdi.ThreadReference;
  * original expression, parsed abstract syntax tree, and elements
  * needed for evaluation by some operators.
  *
+ * <p>All of the state resolved during an evaluation (node values and
+ * types, variable containers, invoked methods) is held here, rather than
+ * in the nodes themselves. As a result the parsed tree is never modified
+ * once built, and may be evaluated any number of times, by any number of
+ * threads at once, each with its own context.</p>
+ *
  * @author  Nathan Fiedler
  */
 class EvaluationContext {
 
     /** The original expression. */
-    private String expr;
+    private final String expr;
     /** Root of node tree. */
-    private RootNode root;
+    private final RootNode root;
     /** JDI thread. */
-    private ThreadReference thread;
+    private final ThreadReference thread;
     /** Thread stack frame index. */
-    private int frame;
+    private final int frame;
+    /** Values of the nodes evaluated so far. */
+    private final Map<Node, Object> values;
+    /** Type signatures of the nodes evaluated so far. */
+    private final Map<Node, String> types;
+    /** Local variables, fields, objects or classes the nodes refer to. */
+    private Map<Node, Object> valueContainers;
+    /** Objects or classes containing the fields the nodes refer to. */
+    private Map<Node, Object> fieldContainers;
+    /** Methods invoked by the method nodes. */
+    private Map<Node, Method> methods;
 
     /**
      * Constructs a EvaluationContext with the given information.
@@ -60,6 +80,28 @@ class EvaluationContext {
         this.root = root;
         this.thread = thread;
         this.frame = frame;
+        values = new IdentityHashMap<Node, Object>();
+        types = new IdentityHashMap<Node, String>();
+    }
+
+    /**
+     * Returns the type signature previously computed for the given node.
+     *
+     * @param  node  node for which to retrieve type.
+     * @return  type signature, or null if not yet computed.
+     */
+    String getCachedType(Node node) {
+        return types.get(node);
+    }
+
+    /**
+     * Returns the value previously computed for the given node.
+     *
+     * @param  node  node for which to retrieve value.
+     * @return  node value, or null if not yet computed.
+     */
+    Object getCachedValue(Node node) {
+        return values.get(node);
     }
 
     /**
@@ -71,6 +113,17 @@ class EvaluationContext {
         return expr;
     }
 
+    /**
+     * Returns the object or class containing the field to which the
+     * given node resolved during this evaluation.
+     *
+     * @param  node  variable node.
+     * @return  field container, or null if not a field.
+     */
+    Object getFieldContainer(Node node) {
+        return fieldContainers == null ? null : fieldContainers.get(node);
+    }
+
     /**
      * Returns the thread stack frame index.
      *
@@ -88,7 +141,18 @@ class EvaluationContext {
      *          if thread is not suspended properly.
      */
     public Location getLocation() throws IncompatibleThreadStateException {
-        return thread.frame(frame).location();
+        return SuspendCache.getFrame(thread, frame).location();
+    }
+
+    /**
+     * Returns the method that the given node invoked during this
+     * evaluation.
+     *
+     * @param  node  method node.
+     * @return  invoked method, or null if not yet invoked.
+     */
+    Method getMethod(Node node) {
+        return methods == null ? null : methods.get(node);
     }
 
     /**
@@ -108,7 +172,7 @@ class EvaluationContext {
      *          if thread is not suspended properly.
      */
     public StackFrame getStackFrame() throws IncompatibleThreadStateException {
-        return thread.frame(frame);
+        return SuspendCache.getFrame(thread, frame);
     }
 
     /**
@@ -119,4 +183,76 @@ class EvaluationContext {
     public ThreadReference getThread() {
         return thread;
     }
+
+    /**
+     * Returns the local variable, field, object or class to which the
+     * given node resolved during this evaluation.
+     *
+     * @param  node  variable node.
+     * @return  value container, or null if not resolved.
+     */
+    Object getValueContainer(Node node) {
+        return valueContainers == null ? null : valueContainers.get(node);
+    }
+
+    /**
+     * Remember the type signature computed for the given node.
+     *
+     * @param  node  node that was evaluated.
+     * @param  type  type signature of the node.
+     */
+    void setCachedType(Node node, String type) {
+        types.put(node, type);
+    }
+
+    /**
+     * Remember the value computed for the given node.
+     *
+     * @param  node   node that was evaluated.
+     * @param  value  value of the node.
+     */
+    void setCachedValue(Node node, Object value) {
+        values.put(node, value);
+    }
+
+    /**
+     * Remember the object or class containing the field to which the
+     * given node resolved.
+     *
+     * @param  node       variable node.
+     * @param  container  field container.
+     */
+    void setFieldContainer(Node node, Object container) {
+        if (fieldContainers == null) {
+            fieldContainers = new IdentityHashMap<Node, Object>();
+        }
+        fieldContainers.put(node, container);
+    }
+
+    /**
+     * Remember the method that the given node invoked.
+     *
+     * @param  node    method node.
+     * @param  method  invoked method.
+     */
+    void setMethod(Node node, Method method) {
+        if (methods == null) {
+            methods = new IdentityHashMap<Node, Method>();
+        }
+        methods.put(node, method);
+    }
+
+    /**
+     * Remember the local variable, field, object or class to which the
+     * given node resolved.
+     *
+     * @param  node       variable node.
+     * @param  container  value container.
+     */
+    void setValueContainer(Node node, Object container) {
+        if (valueContainers == null) {
+            valueContainers = new IdentityHashMap<Node, Object>();
+        }
+        valueContainers.put(node, container);
+    }
 }
@@ -51,6 +51,12 @@ import org.openide.util.NbBundle;
  * Method invocations and variable references are available only when the
  * current thread is set in the debuggee.
  *
+ * <p>The parsed form of the expression is shared with other evaluators
+ * of the same expression, by way of the <code>ExpressionCache</code>, and
+ * may be evaluated any number of times, concurrently by several threads
+ * if need be. Hence callers that evaluate the same expression repeatedly
+ * should hold onto the Evaluator instance.</p>
+ *
  * @author  Nathan Fiedler
  */
 public class Evaluator {
@@ -133,17 +139,21 @@ public class Evaluator {
      */
     public Object evaluate(ThreadReference thread, int frame)
             throws EvaluationException {
-        if (root == null) {
+        RootNode tree = root;
+        if (tree == null) {
             if (expression == null) {
                 // Simple base case: no expression whatsoever.
                 return null;
-            } else {
-                root = buildTree();
             }
+            tree = ExpressionCache.get(expression);
+            if (tree == null) {
+                tree = ExpressionCache.put(expression, buildTree());
+            }
+            root = tree;
         }
         EvaluationContext context = new EvaluationContext(
-                expression, root, thread, frame);
-        Object val = root.evaluate(context);
+                expression, tree, thread, frame);
+        Object val = tree.evaluate(context);
         // Check that the final result is not something erroneous.
         if (val instanceof ClassnamePart) {
             // This indicates a reference to a non-existent variable.
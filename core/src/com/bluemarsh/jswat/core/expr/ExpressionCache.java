@@ -0,0 +1,125 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.expr;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Class ExpressionCache holds the parsed syntax trees of the most recently
+ * used expressions, keyed by the expression text, so that an expression
+ * evaluated repeatedly (e.g. a breakpoint condition) is parsed only once.
+ * The cache is bounded, discarding the least recently used trees first.
+ *
+ * <p>The trees held here carry no evaluation state of their own, as the
+ * node values are kept in the <code>EvaluationContext</code>.</p>
+ *
+ * @author  Nathan Fiedler
+ */
+class ExpressionCache {
+
+    /** Maximum number of parsed trees to retain. */
+    private static final int MAX_ENTRIES = 256;
+    /** Parsed trees keyed by expression, in least recently used order. */
+    private static final Map<String, RootNode> trees;
+    /** Number of lookups that found a parsed tree. */
+    private static long hitCount;
+    /** Number of lookups that required parsing the expression. */
+    private static long missCount;
+
+    static {
+        trees = new LinkedHashMap<String, RootNode>(64, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RootNode> e) {
+                return size() > MAX_ENTRIES;
+            }
+        };
+    }
+
+    /**
+     * Creates a new instance of ExpressionCache.
+     */
+    private ExpressionCache() {
+    }
+
+    /**
+     * Retrieve the parsed tree for the given expression.
+     *
+     * @param  expr  expression text.
+     * @return  root of the parsed tree, or null if not cached.
+     */
+    static RootNode get(String expr) {
+        synchronized (trees) {
+            RootNode root = trees.get(expr);
+            if (root == null) {
+                missCount++;
+            } else {
+                hitCount++;
+            }
+            return root;
+        }
+    }
+
+    /**
+     * Returns the number of lookups that found a parsed tree.
+     *
+     * @return  cache hit count.
+     */
+    static long getHitCount() {
+        synchronized (trees) {
+            return hitCount;
+        }
+    }
+
+    /**
+     * Returns the number of lookups that did not find a parsed tree.
+     *
+     * @return  cache miss count.
+     */
+    static long getMissCount() {
+        synchronized (trees) {
+            return missCount;
+        }
+    }
+
+    /**
+     * Add the parsed tree for the given expression to the cache. If the
+     * expression was parsed concurrently by another thread, the tree
+     * already in the cache is returned instead, so that all callers
+     * share a single tree.
+     *
+     * @param  expr  expression text.
+     * @param  root  root of the parsed tree.
+     * @return  the tree now cached for the expression.
+     */
+    static RootNode put(String expr, RootNode root) {
+        synchronized (trees) {
+            RootNode prior = trees.get(expr);
+            if (prior != null) {
+                return prior;
+            }
+            trees.put(expr, root);
+            return root;
+        }
+    }
+}
@@ -22,17 +22,20 @@
  */
 package com.bluemarsh.jswat.core.expr;
 
+import com.bluemarsh.jswat.core.util.ClassIndex;
 import com.bluemarsh.jswat.parser.node.Token;
 import com.sun.jdi.AbsentInformationException;
 import com.sun.jdi.Field;
 import com.sun.jdi.IncompatibleThreadStateException;
 import com.sun.jdi.LocalVariable;
 import com.sun.jdi.Location;
+import com.sun.jdi.Method;
 import com.sun.jdi.ObjectReference;
 import com.sun.jdi.ReferenceType;
 import com.sun.jdi.StackFrame;
 import com.sun.jdi.ThreadReference;
 import com.sun.jdi.VirtualMachine;
+import java.util.Collections;
 import java.util.List;
 import org.openide.util.NbBundle;
 
@@ -45,11 +48,10 @@ import org.openide.util.NbBundle;
 class IdentifierNode extends AbstractNode implements JoinableNode, VariableNode {
 
     /** Identifier name of this identifier node. */
-    private String identifierName;
-    /** Reference to the local variable, field, object, or class. */
-    private Object valueContainer;
-    /** Reference to the object or class containing the field. */
-    private Object fieldContainer;
+    private final String identifierName;
+    /** Names resolved previously, keyed by the method in which they
+     * were evaluated. */
+    private final ResolutionCache<Method, Resolution> resolutions;
 
     /**
      * Constructs a IdentifierNode with the given identifier name.
@@ -60,6 +62,7 @@ class IdentifierNode extends AbstractNode implements JoinableNode, VariableNode
     IdentifierNode(Token node, String name) {
         super(node);
         identifierName = name;
+        resolutions = new ResolutionCache<Method, Resolution>();
     }
 
     @Override
@@ -93,41 +96,40 @@ class IdentifierNode extends AbstractNode implements JoinableNode, VariableNode
                 throw new UnknownReferenceException(NbBundle.getMessage(
                         IdentifierNode.class, "error.ident.this.none"));
             }
-            valueContainer = obj;
+            context.setValueContainer(this, obj);
             return obj;
         }
-        // Check if name is a visible local variable or a field.
+        // Check if name is a visible local variable or a field, using
+        // the names resolved previously in this method, if any.
+        Resolution res = resolve(location);
         ReferenceType clazz = location.declaringType();
-        Field field = clazz.fieldByName(identifierName);
+        Field field = res.field;
         LocalVariable localVar = null;
-        try {
-            localVar = frame.visibleVariableByName(identifierName);
-        } catch (AbsentInformationException aie) {
-            // Missing local variable info is not a fatal scenario.
+        for (LocalVariable lv : res.locals) {
+            // Mimic visibleVariableByName(): the innermost scope wins.
+            if (lv.isVisible(frame)) {
+                localVar = lv;
+            }
         }
         if (localVar == null && field == null) {
+            if (res.type != null) {
+                context.setValueContainer(this, res.type);
+                return res.type;
+            }
             // Maybe it is a classname, or part of one.
             VirtualMachine vm = th.virtualMachine();
-            List<ReferenceType> classes = vm.classesByName(identifierName);
-            if (classes.size() > 0) {
-                valueContainer = classes.get(0);
-                return valueContainer;
-            }
-            // It may be a 'core' package class.
-            classes = vm.classesByName("java.lang." + identifierName);
-            if (classes.size() > 0) {
-                valueContainer = classes.get(0);
-                return valueContainer;
-            }
-            valueContainer = checkUnqualifiedClassname(vm, identifierName);
-            if (valueContainer != null) {
-                return valueContainer;
+            ReferenceType type = findClass(vm);
+            if (type != null) {
+                // Only remember a match, the class may yet be loaded.
+                res.type = type;
+                context.setValueContainer(this, type);
+                return type;
             }
             // Possibly this is just a classname part.
             return new ClassnamePart(identifierName);
         } else if (localVar != null) {
             // Locals shadow fields so handle them first.
-            valueContainer = localVar;
+            context.setValueContainer(this, localVar);
             return frame.getValue(localVar);
 
         } else {
@@ -138,8 +140,8 @@ class IdentifierNode extends AbstractNode implements JoinableNode, VariableNode
                         "error.staticAccess", identifierName, mname);
                 throw new UnknownReferenceException(msg);
             }
-            fieldContainer = thiso == null ? clazz : thiso;
-            valueContainer = field;
+            context.setFieldContainer(this, thiso == null ? clazz : thiso);
+            context.setValueContainer(this, field);
             return thiso == null
                     ? clazz.getValue(field) : thiso.getValue(field);
         }
@@ -162,6 +164,11 @@ class IdentifierNode extends AbstractNode implements JoinableNode, VariableNode
      * by choosing the one that was imported.
      */
     private ReferenceType checkUnqualifiedClassname(VirtualMachine vm, String id) {
+        ClassIndex index = ClassIndex.getInstance(vm);
+        if (index != null) {
+            List<ReferenceType> types = index.findBySimpleName(id);
+            return types.size() == 1 ? types.get(0) : null;
+        }
         String tail = "." + id;
         ReferenceType result = null;
         for (ReferenceType rtype : vm.allClasses()) {
@@ -175,6 +182,27 @@ class IdentifierNode extends AbstractNode implements JoinableNode, VariableNode
         return result;
     }
 
+    /**
+     * Looks for a class with the name of this identifier, first as a
+     * fully-qualified name, then in the java.lang package, and finally
+     * as an unambiguous unqualified name.
+     *
+     * @param  vm  virtual machine in which to find the class.
+     * @return  matching class, or null if none.
+     */
+    private ReferenceType findClass(VirtualMachine vm) {
+        List<ReferenceType> classes = vm.classesByName(identifierName);
+        if (classes.size() > 0) {
+            return classes.get(0);
+        }
+        // It may be a 'core' package class.
+        classes = vm.classesByName("java.lang." + identifierName);
+        if (classes.size() > 0) {
+            return classes.get(0);
+        }
+        return checkUnqualifiedClassname(vm, identifierName);
+    }
+
     /**
      * Simply returns the name of the identifier, without evaluation.
      *
@@ -187,13 +215,13 @@ class IdentifierNode extends AbstractNode implements JoinableNode, VariableNode
     @Override
     public Object getFieldContainer(EvaluationContext context)
             throws EvaluationException {
+        // The container is set in the context by the evaluation.
+        evaluate(context);
+        Object fieldContainer = context.getFieldContainer(this);
         if (fieldContainer == null) {
-            evaluate(context);
-            if (fieldContainer == null) {
-                throw new UnknownReferenceException(
-                        NbBundle.getMessage(IdentifierNode.class,
-                        "error.var.notafield", identifierName));
-            }
+            throw new UnknownReferenceException(
+                    NbBundle.getMessage(IdentifierNode.class,
+                    "error.var.notafield", identifierName));
         }
         return fieldContainer;
     }
@@ -201,14 +229,64 @@ class IdentifierNode extends AbstractNode implements JoinableNode, VariableNode
     @Override
     public Object getValueContainer(EvaluationContext context)
             throws EvaluationException {
+        // The container is set in the context by the evaluation.
+        evaluate(context);
+        Object valueContainer = context.getValueContainer(this);
         if (valueContainer == null) {
-            evaluate(context);
-            if (valueContainer == null) {
-                throw new UnknownReferenceException(
-                        NbBundle.getMessage(IdentifierNode.class,
-                        "error.var.cnamepart", identifierName));
-            }
+            throw new UnknownReferenceException(
+                    NbBundle.getMessage(IdentifierNode.class,
+                    "error.var.cnamepart", identifierName));
         }
         return valueContainer;
     }
+
+    /**
+     * Finds the local variables and field that this identifier may refer
+     * to within the method of the given location. The result is cached
+     * so that subsequent evaluations in the same method need only check
+     * which of the local variables are visible at the current code index.
+     *
+     * @param  location  location in which the identifier is evaluated.
+     * @return  resolution of the identifier in that method.
+     */
+    private Resolution resolve(Location location) {
+        Method method = location.method();
+        Resolution res = resolutions.get(method);
+        if (res == null) {
+            List<LocalVariable> locals;
+            try {
+                locals = method.variablesByName(identifierName);
+            } catch (AbsentInformationException aie) {
+                // Missing local variable info is not a fatal scenario.
+                locals = Collections.emptyList();
+            }
+            Field field = location.declaringType().fieldByName(identifierName);
+            res = new Resolution(locals, field);
+            resolutions.put(method, res);
+        }
+        return res;
+    }
+
+    /**
+     * Holds what an identifier may refer to within a particular method.
+     */
+    private static class Resolution {
+        /** Local variables of the method with the identifier name. */
+        final List<LocalVariable> locals;
+        /** Field of the declaring type with the identifier name. */
+        final Field field;
+        /** Class named by the identifier, if neither local nor field. */
+        volatile ReferenceType type;
+
+        /**
+         * Constructs a Resolution for a method.
+         *
+         * @param  locals  local variables with the identifier name.
+         * @param  field   field with the identifier name, or null.
+         */
+        Resolution(List<LocalVariable> locals, Field field) {
+            this.locals = locals;
+            this.field = field;
+        }
+    }
 }
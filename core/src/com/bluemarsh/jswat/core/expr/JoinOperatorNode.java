@@ -40,10 +40,6 @@ import org.openide.util.NbBundle;
  */
 class JoinOperatorNode extends BinaryOperatorNode implements JoinableNode, VariableNode {
 
-    /** Reference to the local variable, field, object, or class. */
-    private Object valueContainer;
-    /** Reference to the object or class containing the field. */
-    private Object fieldContainer;
 
     /**
      * Constructs a JoinOperatorNode associated with the given token.
@@ -92,8 +88,8 @@ class JoinOperatorNode extends BinaryOperatorNode implements JoinableNode, Varia
                         n1.getToken().getText(), clazz.name());
                 throw new EvaluationException(msg);
             }
-            valueContainer = field;
-            fieldContainer = obj;
+            context.setValueContainer(this, field);
+            context.setFieldContainer(this, obj);
             result = obj.getValue(field);
         } else if (o1 instanceof ReferenceType) {
             // name must be a field reference
@@ -105,8 +101,8 @@ class JoinOperatorNode extends BinaryOperatorNode implements JoinableNode, Varia
                         n1.getToken().getText(), clazz.name());
                 throw new EvaluationException(msg);
             }
-            valueContainer = field;
-            fieldContainer = clazz;
+            context.setValueContainer(this, field);
+            context.setFieldContainer(this, clazz);
             result = clazz.getValue(field);
         } else if (o1 instanceof ClassnamePart) {
             // merge the classname parts together and evaluate
@@ -127,14 +123,14 @@ class JoinOperatorNode extends BinaryOperatorNode implements JoinableNode, Varia
     @Override
     public Object getFieldContainer(EvaluationContext context) throws
             EvaluationException {
+        // The container is set in the context by the evaluation.
+        evaluate(context);
+        Object fieldContainer = context.getFieldContainer(this);
         if (fieldContainer == null) {
-            evaluate(context);
-            if (fieldContainer == null) {
-                String name = getChild(1).getToken().getText();
-                throw new UnknownReferenceException(
-                        NbBundle.getMessage(JoinOperatorNode.class,
-                        "error.var.notafield", name));
-            }
+            String name = getChild(1).getToken().getText();
+            throw new UnknownReferenceException(
+                    NbBundle.getMessage(JoinOperatorNode.class,
+                    "error.var.notafield", name));
         }
         return fieldContainer;
     }
@@ -142,14 +138,14 @@ class JoinOperatorNode extends BinaryOperatorNode implements JoinableNode, Varia
     @Override
     public Object getValueContainer(EvaluationContext context) throws
             EvaluationException {
+        // The container is set in the context by the evaluation.
+        evaluate(context);
+        Object valueContainer = context.getValueContainer(this);
         if (valueContainer == null) {
-            evaluate(context);
-            if (valueContainer == null) {
-                String name = getChild(1).getToken().getText();
-                throw new UnknownReferenceException(
-                        NbBundle.getMessage(JoinOperatorNode.class,
-                        "error.var.cnamepart", name));
-            }
+            String name = getChild(1).getToken().getText();
+            throw new UnknownReferenceException(
+                    NbBundle.getMessage(JoinOperatorNode.class,
+                    "error.var.cnamepart", name));
         }
         return valueContainer;
     }
@@ -34,7 +34,7 @@ import com.bluemarsh.jswat.core.util.Types;
 class LiteralNode extends AbstractNode implements JoinableNode {
 
     /** Literal value of this literal node. */
-    private Object literalValue;
+    private final Object literalValue;
 
     /**
      * Constructs a LiteralNode with the given literal value.
@@ -53,11 +53,12 @@ import org.openide.util.NbBundle;
 class MethodNode extends OperatorNode implements JoinableNode {
 
     /** The name of the method. */
-    private String methodName;
+    private final String methodName;
     /** The class or object on which to invoke the method. */
-    private Node classOrObject;
-    /** The method that was invoked; used for determining this node's type. */
-    private Method method;
+    private final Node classOrObject;
+    /** Methods found previously, keyed by the receiver type and the
+     * argument types. */
+    private final ResolutionCache<List<Object>, Method> resolutions;
 
     /**
      * Constructs a MethodNode associated with the given token and name.
@@ -67,7 +68,9 @@ class MethodNode extends OperatorNode implements JoinableNode {
      */
     MethodNode(Token node, String name) {
         super(node);
+        classOrObject = null;
         methodName = name;
+        resolutions = new ResolutionCache<List<Object>, Method>();
     }
 
     /**
@@ -82,6 +85,7 @@ class MethodNode extends OperatorNode implements JoinableNode {
         super(node);
         classOrObject = object;
         methodName = name;
+        resolutions = new ResolutionCache<List<Object>, Method>();
     }
 
     @Override
@@ -168,10 +172,18 @@ class MethodNode extends OperatorNode implements JoinableNode {
             }
         }
 
-        // Locate the named method in the resolved class.
+        // Locate the named method in the resolved class, unless it was
+        // found previously for the same class and argument types.
+        List<Object> key = new ArrayList<Object>(count + 1);
+        key.add(clazz);
+        key.addAll(argumentTypes);
+        Method method = resolutions.get(key);
         try {
-            method = Classes.findMethod(
-                    clazz, methodName, argumentTypes, true, true);
+            if (method == null) {
+                method = Classes.findMethod(
+                        clazz, methodName, argumentTypes, true, true);
+                resolutions.put(key, method);
+            }
         } catch (AmbiguousMethodException ame) {
             throw new EvaluationException(NbBundle.getMessage(
                     MethodNode.class, "error.method.ambiguous", methodName,
@@ -185,6 +197,9 @@ class MethodNode extends OperatorNode implements JoinableNode {
                     Strings.listToString(argumentTypes)));
         }
 
+        // Remember the method for determining this node's type.
+        context.setMethod(this, method);
+
         // Convert the arguments to JDI objects.
         List<Value> arguments = new ArrayList<Value>(count);
         for (Object o : argumentObjects) {
@@ -219,6 +234,7 @@ class MethodNode extends OperatorNode implements JoinableNode {
         // Force the evaluation to happen, if it hasn't already, so we
         // get the method reference.
         evaluate(context);
+        Method method = context.getMethod(this);
         try {
             return method.returnType().signature();
         } catch (ClassNotLoadedException cnle) {
@@ -34,7 +34,7 @@ import java.util.List;
 class ParentNode extends AbstractNode {
 
     /** List of children nodes. */
-    private List<Node> children;
+    private final List<Node> children;
 
     /**
      * Constructs a ParentNode with no children.
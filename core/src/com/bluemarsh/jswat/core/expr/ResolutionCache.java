@@ -0,0 +1,95 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.expr;
+
+import com.bluemarsh.jswat.core.util.Classes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Class ResolutionCache is a small inline cache held by a node to remember
+ * what a name resolved to (e.g. a field, local variable, or method) in a
+ * particular location, so that repeated evaluations of the same tree, such
+ * as a breakpoint condition, avoid querying the debuggee each time.
+ *
+ * <p>All entries are discarded whenever a class has been redefined, as
+ * the cached mirrors may no longer reflect the loaded classes.</p>
+ *
+ * @author  Nathan Fiedler
+ */
+class ResolutionCache<K, V> {
+
+    /** Maximum number of entries to retain. */
+    private static final int MAX_ENTRIES = 16;
+    /** Cached entries, in least recently used order. */
+    private final Map<K, V> entries;
+    /** Class redefinition count at the time the entries were added. */
+    private long generation;
+
+    /**
+     * Creates a new instance of ResolutionCache.
+     */
+    ResolutionCache() {
+        entries = new LinkedHashMap<K, V>(4, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> e) {
+                return size() > MAX_ENTRIES;
+            }
+        };
+        generation = Classes.getRedefinitionCount();
+    }
+
+    /**
+     * Discards the entries if any class has been redefined since they
+     * were added. The caller must hold the lock on this cache.
+     */
+    private void checkGeneration() {
+        long current = Classes.getRedefinitionCount();
+        if (current != generation) {
+            entries.clear();
+            generation = current;
+        }
+    }
+
+    /**
+     * Retrieve the cached entry for the given key.
+     *
+     * @param  key  resolution key.
+     * @return  cached entry, or null if none.
+     */
+    synchronized V get(K key) {
+        checkGeneration();
+        return entries.get(key);
+    }
+
+    /**
+     * Add an entry to the cache, replacing any existing entry.
+     *
+     * @param  key    resolution key.
+     * @param  value  resolved entry.
+     */
+    synchronized void put(K key, V value) {
+        checkGeneration();
+        entries.put(key, value);
+    }
+}
@@ -49,7 +49,7 @@ import org.openide.util.NbBundle;
 class TypeCastOperatorNode extends UnaryOperatorNode {
 
     /** The type of the cast ("byte", "Boolean", "com.sun.jdi.Bootstrap"). */
-    private String typeName;
+    private final String typeName;
 
     /**
      * Constructs a TypeCastOperatorNode for the given type.
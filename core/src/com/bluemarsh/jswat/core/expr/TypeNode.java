@@ -34,7 +34,7 @@ import com.bluemarsh.jswat.parser.node.Token;
 class TypeNode extends AbstractNode {
 
     /** Type of the node. */
-    private String type;
+    private final String type;
 
     /**
      * Creates a new instance of PrimitiveNode.
@@ -26,6 +26,7 @@ package com.bluemarsh.jswat.core.path;
 import com.bluemarsh.jswat.core.session.Session;
 import com.bluemarsh.jswat.core.session.SessionEvent;
 import com.bluemarsh.jswat.core.session.SessionListener;
+import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.util.List;
@@ -59,7 +60,11 @@ public abstract class AbstractPathManager implements PathManager, SessionListene
 
     @Override
     public void closing(SessionEvent sevt) {
-        savePaths(sevt.getSession());
+        Session session = sevt.getSession();
+        // Paths that were never loaded must not overwrite those saved.
+        if (session.isActive()) {
+            savePaths(session);
+        }
     }
 
     @Override
@@ -99,15 +104,30 @@ public abstract class AbstractPathManager implements PathManager, SessionListene
     protected abstract List<String> getUserClassPath();
 
     /**
-     * Load the class and source path values from storage.
+     * Load the class and source path values from storage. This is not
+     * done until the session has been activated.
      *
      * @param  session  associated Session instance.
      */
     protected abstract void loadPaths(Session session);
 
     @Override
-    public void opened(Session session) {
-        loadPaths(session);
+    public void opened(final Session session) {
+        if (session.isActive()) {
+            loadPaths(session);
+        } else {
+            // Defer loading until the session is put to use.
+            session.addPropertyChangeListener(new PropertyChangeListener() {
+
+                @Override
+                public void propertyChange(PropertyChangeEvent event) {
+                    if (event.getPropertyName().equals(Session.PROP_ACTIVE)) {
+                        session.removePropertyChangeListener(this);
+                        loadPaths(session);
+                    }
+                }
+            });
+        }
     }
 
     @Override
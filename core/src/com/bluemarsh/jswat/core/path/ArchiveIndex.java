@@ -0,0 +1,479 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is the JSwat Core Module. The Initial Developer of the
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.path;
+
+import com.bluemarsh.jswat.core.CoreSettings;
+import com.bluemarsh.jswat.core.PlatformProvider;
+import com.bluemarsh.jswat.core.PlatformService;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Class ArchiveIndex maps the entries of each archive found in the class
+ * and source paths, so that locating a file within an archive does not
+ * require enumerating all of the archive entries. The archives are opened
+ * only as needed, with a limited number kept open at any one time. An
+ * archive that is evicted while streams of its entries are still open is
+ * closed once the last of those streams is closed.
+ *
+ * <p>An archive is indexed again whenever its modification time or size
+ * changes. The index may be saved to the userdir so that the archives
+ * need not be read again in the next session.</p>
+ *
+ * @author  Nathan Fiedler
+ */
+class ArchiveIndex {
+    /** Logger for gracefully reporting unexpected errors. */
+    private static final Logger logger = Logger.getLogger(
+            ArchiveIndex.class.getName());
+    /** Name of the file in which the index is persisted. */
+    private static final String INDEX_FILE = "archives.idx";
+    /** Identifies the format of the persisted index. */
+    private static final int INDEX_MAGIC = 0x4a535749;
+    /** Version of the format of the persisted index. */
+    private static final int INDEX_VERSION = 1;
+    /** Maximum number of archives to keep open. */
+    private static final int MAX_OPEN = 16;
+    /** Singleton instance. */
+    private static ArchiveIndex theInstance;
+    /** Indexed archives, keyed by absolute path. */
+    private final Map<String, Archive> archives;
+    /** Open archives, keyed by absolute path, in least recently used order. */
+    private final Map<String, ZipFile> openFiles;
+    /** Number of entry streams not yet closed, keyed by archive. */
+    private final Map<ZipFile, Integer> streamCounts;
+    /** Archives evicted while entry streams were open. */
+    private final Set<ZipFile> retired;
+    /** True if the persisted index has been read. */
+    private boolean loaded;
+    /** True if the index has changed since it was last saved. */
+    private boolean dirty;
+
+    /**
+     * Creates a new instance of ArchiveIndex.
+     */
+    ArchiveIndex() {
+        archives = new HashMap<String, Archive>();
+        streamCounts = new HashMap<ZipFile, Integer>();
+        retired = new HashSet<ZipFile>();
+        openFiles = new LinkedHashMap<String, ZipFile>(MAX_OPEN, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ZipFile> e) {
+                if (size() > MAX_OPEN) {
+                    retire(e.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Close the given archive, ignoring any errors.
+     *
+     * @param  zipFile  archive to close.
+     */
+    private static void close(ZipFile zipFile) {
+        try {
+            zipFile.close();
+        } catch (IOException ioe) {
+            // Nothing we can do about it.
+        }
+    }
+
+    /**
+     * Find the named file in the given archive.
+     *
+     * @param  file  archive file.
+     * @param  name  path and name of the file, in local file system form.
+     * @return  name of the archive entry, or null if not found or the
+     *          file is not an archive.
+     */
+    synchronized String findEntry(File file, String name) {
+        Archive archive = getArchive(file);
+        return archive.entries == null ? null : archive.entries.get(name);
+    }
+
+    /**
+     * Retrieve the index of the given archive, reading the archive if it
+     * has not been indexed or has changed since it was indexed.
+     *
+     * @param  file  archive file.
+     * @return  archive index.
+     */
+    private Archive getArchive(File file) {
+        if (!loaded) {
+            loaded = true;
+            if (CoreSettings.getDefault().getPersistPathIndex()) {
+                loadIndex();
+            }
+        }
+        String path = file.getAbsolutePath();
+        long modified = file.lastModified();
+        long length = file.length();
+        Archive archive = archives.get(path);
+        if (archive == null || archive.modified != modified
+                || archive.length != length) {
+            // The archive is new to us or has changed.
+            ZipFile zipFile = openFiles.remove(path);
+            if (zipFile != null) {
+                retire(zipFile);
+            }
+            try {
+                zipFile = new ZipFile(file);
+            } catch (IOException ioe) {
+                // Well maybe it wasn't an archive after all.
+                zipFile = null;
+            }
+            archive = new Archive(modified, length, zipFile != null);
+            if (zipFile != null) {
+                Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                while (entries.hasMoreElements()) {
+                    archive.add(entries.nextElement().getName());
+                }
+                openFiles.put(path, zipFile);
+            }
+            archives.put(path, archive);
+            dirty = true;
+        }
+        return archive;
+    }
+
+    /**
+     * Returns the single instance of this class.
+     *
+     * @return  the instance.
+     */
+    static synchronized ArchiveIndex getDefault() {
+        if (theInstance == null) {
+            theInstance = new ArchiveIndex();
+        }
+        return theInstance;
+    }
+
+    /**
+     * Retrieve the names of the top-level directories in the archive.
+     *
+     * @param  file  archive file.
+     * @return  directory names, or null if the file is not an archive.
+     */
+    synchronized Set<String> getRoots(File file) {
+        Archive archive = getArchive(file);
+        return archive.roots == null ? null : new HashSet<String>(archive.roots);
+    }
+
+    /**
+     * Opens the named entry of the given archive. The archive remains open
+     * until the stream is closed, even if it is evicted from the set of
+     * open archives in the meantime.
+     *
+     * @param  file       archive file.
+     * @param  entryName  name of the archive entry.
+     * @return  input stream of the entry.
+     * @throws  FileNotFoundException
+     *          if the archive has no such entry.
+     * @throws  IOException
+     *          if the archive could not be opened.
+     */
+    synchronized InputStream getInputStream(File file, String entryName)
+            throws IOException {
+        ZipFile zipFile = getZipFile(file);
+        ZipEntry entry = zipFile.getEntry(entryName);
+        if (entry == null) {
+            throw new FileNotFoundException(entryName);
+        }
+        InputStream is = zipFile.getInputStream(entry);
+        Integer count = streamCounts.get(zipFile);
+        streamCounts.put(zipFile, count == null ? 1 : count + 1);
+        return new EntryStream(is, zipFile);
+    }
+
+    /**
+     * Retrieve the opened archive for the given file, opening it if it is
+     * not already open.
+     *
+     * @param  file  archive file.
+     * @return  opened archive.
+     * @throws  IOException
+     *          if the archive could not be opened.
+     */
+    synchronized ZipFile getZipFile(File file) throws IOException {
+        String path = file.getAbsolutePath();
+        ZipFile zipFile = openFiles.get(path);
+        if (zipFile == null) {
+            zipFile = new ZipFile(file);
+            openFiles.put(path, zipFile);
+        }
+        return zipFile;
+    }
+
+    /**
+     * Read the persisted index from the given stream, replacing any
+     * archives already indexed.
+     *
+     * @param  is  input stream.
+     * @throws  IOException
+     *          if reading failed or the format is not recognized.
+     */
+    synchronized void load(InputStream is) throws IOException {
+        DataInputStream dis = new DataInputStream(new BufferedInputStream(is));
+        if (dis.readInt() != INDEX_MAGIC || dis.readInt() != INDEX_VERSION) {
+            throw new IOException("unrecognized index format");
+        }
+        Map<String, Archive> read = new HashMap<String, Archive>();
+        int count = dis.readInt();
+        for (int ii = 0; ii < count; ii++) {
+            String path = dis.readUTF();
+            long modified = dis.readLong();
+            long length = dis.readLong();
+            int size = dis.readInt();
+            // A negative size indicates the file is not an archive.
+            Archive archive = new Archive(modified, length, size >= 0);
+            for (int jj = 0; jj < size; jj++) {
+                archive.add(dis.readUTF());
+            }
+            read.put(path, archive);
+        }
+        archives.putAll(read);
+        dirty = false;
+    }
+
+    /**
+     * Read the persisted index from the userdir, if any.
+     */
+    private void loadIndex() {
+        PlatformService platform = PlatformProvider.getPlatformService();
+        InputStream is = null;
+        try {
+            is = platform.readFile(INDEX_FILE);
+            load(is);
+        } catch (FileNotFoundException fnfe) {
+            // Ignore this error, it's normal.
+        } catch (IOException ioe) {
+            // The index will simply be built again.
+            logger.log(Level.WARNING, null, ioe);
+        } finally {
+            if (is != null) {
+                try {
+                    is.close();
+                } catch (IOException ioe) {
+                    // ignored
+                }
+            }
+        }
+    }
+
+    /**
+     * An entry stream of the given archive has been closed, close the
+     * archive if it was evicted and this was the last of its streams.
+     *
+     * @param  zipFile  archive whose entry stream was closed.
+     */
+    private synchronized void released(ZipFile zipFile) {
+        Integer count = streamCounts.get(zipFile);
+        if (count == null) {
+            return;
+        }
+        if (count > 1) {
+            streamCounts.put(zipFile, count - 1);
+        } else {
+            streamCounts.remove(zipFile);
+            if (retired.remove(zipFile)) {
+                close(zipFile);
+            }
+        }
+    }
+
+    /**
+     * Close the given archive, which is no longer among the open archives,
+     * or if any of its entry streams are still open, arrange for it to be
+     * closed when the last of them is closed. The caller must hold the lock
+     * on this index.
+     *
+     * @param  zipFile  archive to be closed.
+     */
+    private void retire(ZipFile zipFile) {
+        if (streamCounts.containsKey(zipFile)) {
+            retired.add(zipFile);
+        } else {
+            close(zipFile);
+        }
+    }
+
+    /**
+     * Write the index to the given stream.
+     *
+     * @param  os  output stream.
+     * @throws  IOException
+     *          if writing failed.
+     */
+    synchronized void save(OutputStream os) throws IOException {
+        DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(os));
+        dos.writeInt(INDEX_MAGIC);
+        dos.writeInt(INDEX_VERSION);
+        dos.writeInt(archives.size());
+        for (Map.Entry<String, Archive> entry : archives.entrySet()) {
+            Archive archive = entry.getValue();
+            dos.writeUTF(entry.getKey());
+            dos.writeLong(archive.modified);
+            dos.writeLong(archive.length);
+            if (archive.entries == null) {
+                dos.writeInt(-1);
+            } else {
+                dos.writeInt(archive.entries.size());
+                for (String name : archive.entries.values()) {
+                    dos.writeUTF(name);
+                }
+            }
+        }
+        dos.flush();
+        dirty = false;
+    }
+
+    /**
+     * Save the index to the userdir, if it has changed and persisting the
+     * index is enabled.
+     */
+    synchronized void saveIndex() {
+        if (!dirty || !CoreSettings.getDefault().getPersistPathIndex()) {
+            return;
+        }
+        PlatformService platform = PlatformProvider.getPlatformService();
+        try {
+            OutputStream os = platform.writeFile(INDEX_FILE);
+            try {
+                save(os);
+            } finally {
+                os.close();
+            }
+        } catch (IOException ioe) {
+            logger.log(Level.SEVERE, null, ioe);
+        } finally {
+            platform.releaseLock(INDEX_FILE);
+        }
+    }
+
+    /**
+     * The index of a single archive.
+     */
+    private static class Archive {
+        /** Modification time of the archive when indexed. */
+        final long modified;
+        /** Size of the archive when indexed. */
+        final long length;
+        /** Entry names keyed by local file system form, or null if
+         * the file is not an archive. */
+        final Map<String, String> entries;
+        /** Names of the top-level directories, or null if the file is
+         * not an archive. */
+        final Set<String> roots;
+
+        /**
+         * Constructs an empty Archive index.
+         *
+         * @param  modified  modification time of archive.
+         * @param  length    size of archive.
+         * @param  valid     true if the file is an archive.
+         */
+        Archive(long modified, long length, boolean valid) {
+            this.modified = modified;
+            this.length = length;
+            if (valid) {
+                entries = new HashMap<String, String>();
+                roots = new HashSet<String>();
+            } else {
+                entries = null;
+                roots = null;
+            }
+        }
+
+        /**
+         * Add the named entry to the index.
+         *
+         * @param  name  archive entry name.
+         */
+        void add(String name) {
+            // Convert the name to the local file system form so we
+            // can compare it to the file names being sought.
+            entries.put(new File(name).getPath(), name);
+            // Zip file always uses slash as separator.
+            int si = name.indexOf('/');
+            if (si > 0) {
+                roots.add(name.substring(0, si));
+            }
+        }
+    }
+
+    /**
+     * Stream of an archive entry, which lets the index know when it has
+     * been closed, so the archive may then be closed if it was evicted.
+     */
+    private class EntryStream extends FilterInputStream {
+        /** Archive from which the entry is read. */
+        private final ZipFile zipFile;
+        /** True if the stream has been closed. */
+        private boolean closed;
+
+        /**
+         * Constructs an EntryStream for the given entry stream.
+         *
+         * @param  in       entry input stream.
+         * @param  zipFile  archive containing the entry.
+         */
+        EntryStream(InputStream in, ZipFile zipFile) {
+            super(in);
+            this.zipFile = zipFile;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                super.close();
+            } finally {
+                released(zipFile);
+            }
+        }
+    }
+}
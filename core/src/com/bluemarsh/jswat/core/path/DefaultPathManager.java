@@ -41,8 +41,6 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Enumeration;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
@@ -152,24 +150,20 @@ public class DefaultPathManager extends AbstractPathManager {
         File f = new File(zippath);
         if (f.isFile()) {
             // Chances are this is some form of archive, let's check.
-            ZipFile zipFile = null;
-            try {
-                zipFile = new ZipFile(zippath);
-            } catch (IOException ioe) {
-                // Well maybe it wasn't an archive after all.
-                return null;
-            }
             String queryName = prefix != null
                     ? prefix + File.separator + file : file;
-            Enumeration<? extends ZipEntry> entries = zipFile.entries();
-            while (entries.hasMoreElements()) {
-                ZipEntry zipEntry = entries.nextElement();
-                String entryName = zipEntry.getName();
-                // Convert the name to the local file system form so we
-                // can compare it to the filename argument.
-                entryName = new File(entryName).getPath();
-                if (entryName.equals(queryName)) {
-                    return new ZipPathEntry(zipFile, zipEntry);
+            ArchiveIndex index = ArchiveIndex.getDefault();
+            String entryName = index.findEntry(f, queryName);
+            if (entryName != null) {
+                try {
+                    ZipFile zipFile = index.getZipFile(f);
+                    ZipEntry zipEntry = zipFile.getEntry(entryName);
+                    if (zipEntry != null) {
+                        return new ZipPathEntry(zipFile, zipEntry);
+                    }
+                } catch (IOException ioe) {
+                    // The archive has gone missing or become unreadable.
+                    return null;
                 }
             }
         } else {
@@ -317,6 +311,9 @@ public class DefaultPathManager extends AbstractPathManager {
 
     @Override
     protected void savePaths(Session session) {
+        // Take this opportunity to persist the archive index.
+        ArchiveIndex.getDefault().saveIndex();
+
         // Save the classpath setting to the session properties.
         if (classPath == null || classPath.isEmpty()) {
             session.setProperty(PROP_CLASSPATH, null);
@@ -360,27 +357,14 @@ public class DefaultPathManager extends AbstractPathManager {
             for (int ii = 0; ii < temp.size(); ii++) {
                 String root = temp.get(ii);
                 if (new File(root).isFile()) {
-                    // Check if this is an archive or not.
-                    ZipFile zipFile = null;
-                    try {
-                        zipFile = new ZipFile(root);
-                    } catch (IOException ioe) {
-                        // Well maybe it wasn't an archive after all.
-                        continue;
-                    }
                     // See if there is a single directory at the top level,
                     // and if so, indicate that to make searching for archive
                     // entries accurate and fast.
-                    Set<String> ruuts = new HashSet<String>();
-                    Enumeration<? extends ZipEntry> entries = zipFile.entries();
-                    while (entries.hasMoreElements()) {
-                        ZipEntry zipEntry = entries.nextElement();
-                        String entryName = zipEntry.getName();
-                        // Zip file always uses slash as separator.
-                        int si = entryName.indexOf('/');
-                        if (si > 0) {
-                            ruuts.add(entryName.substring(0, si));
-                        }
+                    Set<String> ruuts = ArchiveIndex.getDefault().getRoots(
+                            new File(root));
+                    if (ruuts == null) {
+                        // Well maybe it wasn't an archive after all.
+                        continue;
                     }
                     // Not only must there be a single entry, but it must
                     // also be called "src", otherwise we clobber archives
@@ -431,6 +415,11 @@ public class DefaultPathManager extends AbstractPathManager {
             return false;
         }
 
+        @Override
+        public SourceContent getContent() throws IOException {
+            return SourceContent.forFile(fileSource);
+        }
+
         @Override
         public String getDisplayName() {
             return fileSource.getName();
@@ -496,9 +485,9 @@ public class DefaultPathManager extends AbstractPathManager {
     private class ZipPathEntry implements PathEntry {
 
         /** Zip file. */
-        private ZipFile zipFile;
+        private final ZipFile zipFile;
         /** Entry in zip file. */
-        private ZipEntry zipEntry;
+        private final ZipEntry zipEntry;
         /** The last part of the zip entry name. */
         private final String entryName;
         /** Used for getting just the name of the zip entry. */
@@ -534,6 +523,18 @@ public class DefaultPathManager extends AbstractPathManager {
             return false;
         }
 
+        @Override
+        public SourceContent getContent() throws IOException {
+            String archive = zipFile.getName();
+            long modified = new File(archive).lastModified();
+            String key = archive + '!' + zipEntry.getName();
+            SourceContent sc = SourceContent.getCached(key, modified);
+            if (sc == null) {
+                sc = SourceContent.forStream(key, modified, getInputStream());
+            }
+            return sc;
+        }
+
         @Override
         public String getDisplayName() {
             return entryName;
@@ -545,15 +546,10 @@ public class DefaultPathManager extends AbstractPathManager {
 
         @Override
         public InputStream getInputStream() throws IOException {
-            try {
-                return zipFile.getInputStream(zipEntry);
-            } catch (IllegalStateException ise) {
-                // Zip file was apparently closed.
-                // Try to reopen the zip file.
-                zipFile = new ZipFile(zipFile.getName());
-                zipEntry = zipFile.getEntry(zipEntry.getName());
-                return zipFile.getInputStream(zipEntry);
-            }
+            // Go through the index, which reopens the zip file if it was
+            // closed, and keeps it open until the stream is closed.
+            return ArchiveIndex.getDefault().getInputStream(
+                    new File(zipFile.getName()), zipEntry.getName());
         }
 
         @Override
@@ -43,6 +43,16 @@ public interface PathEntry {
      */
     InputStream getInputStream() throws IOException;
 
+    /**
+     * Get the content of the entry object, with each line of the content
+     * accessible by line number. The content is cached, such that it is
+     * read again only if the entry object has changed.
+     *
+     * @return  content of the entry object.
+     * @throws  IOException  if reading the content fails.
+     */
+    SourceContent getContent() throws IOException;
+
     /**
      * Returns the display name of the entry.
      *
@@ -0,0 +1,313 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is the JSwat Core Module. The Initial Developer of the
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.path;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Class SourceContent provides the content of a source file along with
+ * the offsets of each line, such that any line may be retrieved without
+ * reading the file again. Plain files are memory mapped, while the content
+ * of archive entries is inflated into memory.
+ *
+ * <p>The most recently used contents are cached, so retrieving the content
+ * of the same path entry repeatedly (e.g. with each change of the current
+ * location) costs no more than checking the file modification time.</p>
+ *
+ * <p>This serves the console commands that print source lines. The source
+ * shown in the graphical interface is opened in the NetBeans editor, which
+ * reads the file into a document of its own, and does not use this.</p>
+ *
+ * @author  Nathan Fiedler
+ */
+public class SourceContent {
+    /** Maximum number of contents to retain in the cache. */
+    private static final int MAX_ENTRIES = 32;
+    /** Files smaller than this are read rather than mapped. */
+    private static final int MAP_THRESHOLD = 16384;
+    /** Cached contents keyed by file path or entry name. */
+    private static final Map<String, SourceContent> cache;
+    /** Modification time of the source when it was read. */
+    private final long modified;
+    /** The encoded content of the source. */
+    private final ByteBuffer content;
+    /** The character set with which to decode the content. */
+    private final Charset charset;
+    /** Offsets of the start of each line, plus the end of the content. */
+    private final int[] lineOffsets;
+
+    static {
+        cache = new LinkedHashMap<String, SourceContent>(MAX_ENTRIES, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SourceContent> e) {
+                return size() > MAX_ENTRIES;
+            }
+        };
+    }
+
+    /**
+     * Creates a new instance of SourceContent.
+     *
+     * @param  content   encoded content of the source.
+     * @param  charset   character set of the encoded content.
+     * @param  modified  modification time of the source.
+     */
+    private SourceContent(ByteBuffer content, Charset charset, long modified) {
+        this.content = content;
+        this.charset = charset;
+        this.modified = modified;
+        lineOffsets = computeOffsets(content);
+    }
+
+    /**
+     * Find the offsets at which each line begins, treating a line feed,
+     * carriage return, or carriage return followed by a line feed as the
+     * end of a line, as does <code>BufferedReader</code>. The offset of
+     * the end of the content is appended to the result.
+     *
+     * @param  buffer  content to be scanned.
+     * @return  line offsets.
+     */
+    private static int[] computeOffsets(ByteBuffer buffer) {
+        int limit = buffer.limit();
+        int[] offsets = new int[Math.max(limit / 32, 16)];
+        int count = 0;
+        int ii = 0;
+        while (ii < limit) {
+            if (count + 1 >= offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[count++] = ii;
+            while (ii < limit) {
+                byte b = buffer.get(ii++);
+                if (b == '\n') {
+                    break;
+                } else if (b == '\r') {
+                    if (ii < limit && buffer.get(ii) == '\n') {
+                        ii++;
+                    }
+                    break;
+                }
+            }
+        }
+        offsets[count++] = limit;
+        return Arrays.copyOf(offsets, count);
+    }
+
+    /**
+     * Retrieve the content of the given file, memory mapping the file if
+     * it is of sufficient size.
+     *
+     * @param  file  source file.
+     * @return  content of the file.
+     * @throws  IOException
+     *          if the file could not be read.
+     */
+    public static SourceContent forFile(File file) throws IOException {
+        String key = file.getAbsolutePath();
+        long modified = file.lastModified();
+        SourceContent sc = getCached(key, modified);
+        if (sc == null) {
+            FileInputStream fis = new FileInputStream(file);
+            try {
+                FileChannel channel = fis.getChannel();
+                long size = channel.size();
+                if (size > Integer.MAX_VALUE) {
+                    throw new IOException("file too large: " + file);
+                }
+                if (size < MAP_THRESHOLD) {
+                    sc = read(fis, modified);
+                } else {
+                    ByteBuffer buffer = channel.map(
+                            FileChannel.MapMode.READ_ONLY, 0, size);
+                    sc = create(buffer, modified);
+                }
+            } finally {
+                fis.close();
+            }
+            store(key, sc);
+        }
+        return sc;
+    }
+
+    /**
+     * Retrieve the content read from the given stream, which is closed
+     * by this method. The content is added to the cache, such that it
+     * may be retrieved via <code>getCached()</code> without reading the
+     * stream again.
+     *
+     * @param  key       uniquely identifies the source.
+     * @param  modified  modification time of the source.
+     * @param  is        input stream providing the content.
+     * @return  content of the source.
+     * @throws  IOException
+     *          if the stream could not be read.
+     */
+    public static SourceContent forStream(String key, long modified,
+            InputStream is) throws IOException {
+        try {
+            SourceContent sc = read(is, modified);
+            store(key, sc);
+            return sc;
+        } finally {
+            is.close();
+        }
+    }
+
+    /**
+     * Construct the content from the given encoded buffer. If the default
+     * character set does not encode line terminators as single bytes, the
+     * content is converted to UTF-8 so the line offsets may be found.
+     *
+     * @param  buffer    content encoded in the default character set.
+     * @param  modified  modification time of the source.
+     * @return  new content instance.
+     */
+    private static SourceContent create(ByteBuffer buffer, long modified) {
+        Charset cs = Charset.defaultCharset();
+        byte[] nl = "\n".getBytes(cs);
+        byte[] cr = "\r".getBytes(cs);
+        if (nl.length != 1 || nl[0] != '\n' || cr.length != 1 || cr[0] != '\r') {
+            Charset utf8 = Charset.forName("UTF-8");
+            buffer = utf8.encode(cs.decode(buffer));
+            cs = utf8;
+        }
+        return new SourceContent(buffer, cs, modified);
+    }
+
+    /**
+     * Returns a read-only view of the encoded content.
+     *
+     * @return  encoded content.
+     */
+    public ByteBuffer getBuffer() {
+        return content.asReadOnlyBuffer();
+    }
+
+    /**
+     * Look for the cached content of the given source.
+     *
+     * @param  key       uniquely identifies the source.
+     * @param  modified  modification time of the source.
+     * @return  cached content, or null if not cached or out of date.
+     */
+    public static SourceContent getCached(String key, long modified) {
+        synchronized (cache) {
+            SourceContent sc = cache.get(key);
+            if (sc != null && sc.modified != modified) {
+                cache.remove(key);
+                sc = null;
+            }
+            return sc;
+        }
+    }
+
+    /**
+     * Returns the character set with which to decode the buffer returned
+     * from <code>getBuffer()</code>.
+     *
+     * @return  content character set.
+     */
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * Retrieve the text of the given line, without the line terminator.
+     *
+     * @param  line  line number, starting at one.
+     * @return  text of the line.
+     * @throws  IndexOutOfBoundsException
+     *          if the line is less than one or greater than the number
+     *          of lines.
+     */
+    public String getLine(int line) {
+        if (line < 1 || line > getLineCount()) {
+            throw new IndexOutOfBoundsException("no such line: " + line);
+        }
+        int start = lineOffsets[line - 1];
+        int end = lineOffsets[line];
+        if (end > start && content.get(end - 1) == '\n') {
+            end--;
+        }
+        if (end > start && content.get(end - 1) == '\r') {
+            end--;
+        }
+        ByteBuffer slice = content.duplicate();
+        slice.limit(end);
+        slice.position(start);
+        return charset.decode(slice).toString();
+    }
+
+    /**
+     * Returns the number of lines in the content.
+     *
+     * @return  line count.
+     */
+    public int getLineCount() {
+        return lineOffsets.length - 1;
+    }
+
+    /**
+     * Read the content of the given stream into memory.
+     *
+     * @param  is        input stream providing the content.
+     * @param  modified  modification time of the source.
+     * @return  new content instance.
+     * @throws  IOException
+     *          if the stream could not be read.
+     */
+    private static SourceContent read(InputStream is, long modified)
+            throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(8192);
+        byte[] buf = new byte[8192];
+        int n = is.read(buf);
+        while (n != -1) {
+            baos.write(buf, 0, n);
+            n = is.read(buf);
+        }
+        return create(ByteBuffer.wrap(baos.toByteArray()), modified);
+    }
+
+    /**
+     * Add the content to the cache.
+     *
+     * @param  key  uniquely identifies the source.
+     * @param  sc   content of the source.
+     */
+    private static void store(String key, SourceContent sc) {
+        synchronized (cache) {
+            cache.put(key, sc);
+        }
+    }
+}
@@ -24,13 +24,13 @@ package com.bluemarsh.jswat.core.runtime;
 
 import com.bluemarsh.jswat.core.PlatformProvider;
 import com.bluemarsh.jswat.core.PlatformService;
+import com.bluemarsh.jswat.core.util.BeanReader;
+import com.bluemarsh.jswat.core.util.BeanWriter;
 import java.beans.ExceptionListener;
 import java.beans.XMLDecoder;
-import java.beans.XMLEncoder;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -49,6 +49,12 @@ public class DefaultRuntimeManager extends AbstractRuntimeManager {
     /** Logger for gracefully reporting unexpected errors. */
     private static final Logger logger = Logger.getLogger(
             DefaultRuntimeManager.class.getName());
+    /** Name of the file to which the runtimes are saved. */
+    private static final String FILENAME = "runtimes.bin";
+    /** Name of the file written by the XMLEncoder in earlier releases. */
+    private static final String LEGACY_FILENAME = "runtimes.xml";
+    /** Identifies the kind of data in the runtimes file. */
+    private static final String STORE_KIND = "runtimes";
     /** List of the open runtimes. */
     private List<JavaRuntime> openRuntimes;
 
@@ -73,14 +79,18 @@ public class DefaultRuntimeManager extends AbstractRuntimeManager {
         return ro.iterator();
     }
 
-    @Override
+    /**
+     * Reads the runtimes file written by the XMLEncoder, as was done in
+     * earlier releases.
+     *
+     * @return  true if the runtimes were loaded, false otherwise.
+     */
     @SuppressWarnings("unchecked")
-    public void loadRuntimes(RuntimeFactory factory) {
+    private boolean loadLegacy() {
         XMLDecoder decoder = null;
         try {
             PlatformService platform = PlatformProvider.getPlatformService();
-            String name = "runtimes.xml";
-            InputStream is = platform.readFile(name);
+            InputStream is = platform.readFile(LEGACY_FILENAME);
             decoder = new XMLDecoder(is);
             decoder.setExceptionListener(new ExceptionListener() {
 
@@ -90,8 +100,7 @@ public class DefaultRuntimeManager extends AbstractRuntimeManager {
                 }
             });
             openRuntimes = (List<JavaRuntime>) decoder.readObject();
-            // Leave possibly invalid runtimes in the last, let user
-            // decide what to do with them.
+            return true;
         } catch (FileNotFoundException e) {
             // Ignore this error, it's normal.
         } catch (Exception e) {
@@ -103,6 +112,37 @@ public class DefaultRuntimeManager extends AbstractRuntimeManager {
                 decoder.close();
             }
         }
+        return false;
+    }
+
+    @Override
+    public void loadRuntimes(RuntimeFactory factory) {
+        try {
+            BeanReader reader = BeanReader.open(FILENAME, STORE_KIND);
+            int count = reader.readInt();
+            List<JavaRuntime> runtimes = new LinkedList<JavaRuntime>();
+            for (int ii = 0; ii < count; ii++) {
+                runtimes.add((JavaRuntime) reader.readBean());
+            }
+            // Leave possibly invalid runtimes in the last, let user
+            // decide what to do with them.
+            openRuntimes = runtimes;
+        } catch (FileNotFoundException e) {
+            // Perhaps there is an older file, which we then convert.
+            if (loadLegacy()) {
+                saveRuntimes();
+                try {
+                    PlatformService platform = PlatformProvider.getPlatformService();
+                    platform.deleteFile(LEGACY_FILENAME);
+                } catch (IOException ioe) {
+                    logger.log(Level.SEVERE, null, ioe);
+                }
+            }
+        } catch (Exception e) {
+            // I/O and various runtime exceptions may occur,
+            // need to report them and gracefully recover.
+            logger.log(Level.SEVERE, null, e);
+        }
     }
 
     @Override
@@ -113,17 +153,15 @@ public class DefaultRuntimeManager extends AbstractRuntimeManager {
 
     @Override
     public synchronized void saveRuntimes() {
-        PlatformService platform = PlatformProvider.getPlatformService();
-        String name = "runtimes.xml";
         try {
-            OutputStream os = platform.writeFile(name);
-            XMLEncoder encoder = new XMLEncoder(os);
-            encoder.writeObject(openRuntimes);
-            encoder.close();
+            BeanWriter writer = new BeanWriter(STORE_KIND);
+            writer.writeInt(openRuntimes.size());
+            for (JavaRuntime runtime : openRuntimes) {
+                writer.writeBean(runtime);
+            }
+            writer.save(FILENAME);
         } catch (IOException ioe) {
             logger.log(Level.SEVERE, null, ioe);
-        } finally {
-            platform.releaseLock(name);
         }
     }
 }
@@ -53,6 +53,10 @@ public abstract class AbstractSession implements Session {
      * Handles property change listeners and sending events.
      */
     private PropertyChangeSupport propSupport;
+    /**
+     * True if the session has been activated.
+     */
+    private volatile boolean active;
 
     /**
      * Creates a new instance of AbstractSession.
@@ -63,6 +67,18 @@ public abstract class AbstractSession implements Session {
         propSupport = new PropertyChangeSupport(this);
     }
 
+    @Override
+    public void activate() {
+        synchronized (this) {
+            if (active) {
+                return;
+            }
+            active = true;
+        }
+        // Let the managers load the session data before anyone uses it.
+        propSupport.firePropertyChange(PROP_ACTIVE, false, true);
+    }
+
     @Override
     public void addPropertyChangeListener(PropertyChangeListener listener) {
         propSupport.addPropertyChangeListener(listener);
@@ -150,6 +166,11 @@ public abstract class AbstractSession implements Session {
         return getIdentifier().hashCode();
     }
 
+    @Override
+    public boolean isActive() {
+        return active;
+    }
+
     @Override
     public Iterator<String> propertyNames() {
         return sessionProperties.keySet().iterator();
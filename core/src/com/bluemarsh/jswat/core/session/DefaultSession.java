@@ -28,7 +28,7 @@ import com.bluemarsh.jswat.core.context.ContextProvider;
 import com.bluemarsh.jswat.core.context.DebuggingContext;
 import com.bluemarsh.jswat.core.event.DispatcherProvider;
 import com.bluemarsh.jswat.core.event.DispatcherListener;
-import com.sun.jdi.ObjectCollectedException;
+import com.bluemarsh.jswat.core.util.SuspendCache;
 import com.sun.jdi.ThreadReference;
 import com.sun.jdi.VirtualMachine;
 import com.sun.jdi.VMDisconnectedException;
@@ -37,6 +37,7 @@ import com.sun.jdi.event.Event;
 import com.sun.jdi.event.LocatableEvent;
 import com.sun.jdi.event.ThreadDeathEvent;
 import com.sun.jdi.event.ThreadStartEvent;
+import com.sun.jdi.request.EventRequest;
 import java.util.List;
 import java.util.concurrent.Semaphore;
 
@@ -50,6 +51,8 @@ public class DefaultSession extends AbstractSession {
     private JvmConnection vmConnection;
     /** Used to synchronize the starting and resuming of the debuggee. */
     private Semaphore vmStartedLock;
+    /** Tracks whether any threads in the debuggee are suspended. */
+    private final SuspendStateTracker suspendState;
 
     /**
      * Creates a new instance of DefaultSession. The session starts off in an
@@ -59,6 +62,7 @@ public class DefaultSession extends AbstractSession {
     public DefaultSession() {
         super();
         vmStartedLock = new Semaphore(0);
+        suspendState = new SuspendStateTracker();
     }
 
     @Override
@@ -75,6 +79,8 @@ public class DefaultSession extends AbstractSession {
             throw new IllegalStateException("session not disconnected");
         }
         vmConnection = connection;
+        activate();
+        suspendState.connected(connection.getVM());
 
         // We are basically connected already, so notify the listeners.
         fireEvent(new SessionEvent(this, SessionEventType.CONNECTED));
@@ -123,6 +129,16 @@ public class DefaultSession extends AbstractSession {
                     ThreadReference th = ((ThreadDeathEvent) event).thread();
                     dc.setThread(th, true);
                 }
+                // Events that suspend nothing are dispatched all the same.
+                int policy = event == null || event.request() == null
+                        ? EventRequest.SUSPEND_ALL
+                        : event.request().suspendPolicy();
+                if (policy == EventRequest.SUSPEND_EVENT_THREAD
+                        && dc.getThread() != null) {
+                    suspendState.threadSuspended(dc.getThread());
+                } else if (policy != EventRequest.SUSPEND_NONE) {
+                    suspendState.setSuspended(true);
+                }
                 fireEvent(new SessionEvent(DefaultSession.this,
                         SessionEventType.SUSPENDED, event));
                 return false;
@@ -172,6 +188,7 @@ public class DefaultSession extends AbstractSession {
      */
     private void disconnected() {
         vmConnection.disconnect();
+        suspendState.disconnected();
         // Notify listeners in case we disconnected abruptly during launch.
         vmStartedLock.release();
         // Reset the context (without sending events).
@@ -197,17 +214,8 @@ public class DefaultSession extends AbstractSession {
         if (!isConnected()) {
             throw new IllegalStateException("session not connected");
         }
-        List<ThreadReference> threads = vmConnection.getVM().allThreads();
-        for (ThreadReference thread : threads) {
-            try {
-                if (thread.isSuspended()) {
-                    return true;
-                }
-            } catch (ObjectCollectedException oce) {
-                // Ignore dead threads.
-            }
-        }
-        return false;
+        // Tracked from events, rather than asking every thread.
+        return suspendState.isSuspended();
     }
 
     @Override
@@ -224,10 +232,21 @@ public class DefaultSession extends AbstractSession {
         ContextProvider.getContext(this).reset();
         // Avoid race conditions by resuming after clearing the context.
         fireEvent(new SessionEvent(this, SessionEventType.RESUMING));
+        // Clear the state first, lest it overwrite that of a new event.
+        suspendState.setSuspended(false);
         // Once the listeners have been notified, resume the debuggee.
         vmConnection.getVM().resume();
     }
 
+    @Override
+    public void suspendStateChanged(List<ThreadReference> threads,
+            boolean suspended) {
+        if (!suspended) {
+            SuspendCache.getInstance(this).invalidate();
+        }
+        suspendState.threadsChanged(threads, suspended);
+    }
+
     @Override
     public void suspendVM() {
         if (!isConnected()) {
@@ -237,6 +256,7 @@ public class DefaultSession extends AbstractSession {
         // suspended or not, because the VM suspend count is tracked
         // separately from the individual threads.
         vmConnection.getVM().suspend();
+        suspendState.setSuspended(true);
         // Once the debuggee is suspended, notify the listeners.
         fireEvent(new SessionEvent(this, SessionEventType.SUSPENDED));
     }
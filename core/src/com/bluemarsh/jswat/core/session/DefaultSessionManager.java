@@ -24,17 +24,22 @@ package com.bluemarsh.jswat.core.session;
 
 import com.bluemarsh.jswat.core.PlatformProvider;
 import com.bluemarsh.jswat.core.PlatformService;
+import com.bluemarsh.jswat.core.util.BeanReader;
+import com.bluemarsh.jswat.core.util.BeanWriter;
+import com.sun.jdi.VirtualMachine;
 import java.beans.ExceptionListener;
 import java.beans.XMLDecoder;
-import java.beans.XMLEncoder;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -51,30 +56,49 @@ public class DefaultSessionManager extends AbstractSessionManager {
             DefaultSessionManager.class.getName());
     /** The prefix for session identifiers. */
     private static final String ID_PREFIX = "SID_";
-    /** List of the open sessions. */
-    private List<Session> openSessions;
+    /** Name of the file to which the sessions are saved. */
+    private static final String FILENAME = "sessions.bin";
+    /** Name of the file written by the XMLEncoder in earlier releases. */
+    private static final String LEGACY_FILENAME = "sessions.xml";
+    /** Identifies the kind of data in the sessions file. */
+    private static final String STORE_KIND = "sessions";
+    /** List of the open sessions, which may be read without locking. */
+    private volatile List<Session> openSessions;
+    /** Connected sessions, keyed by the debuggee to which they connected. */
+    private final Map<VirtualMachine, Session> vmSessions;
+    /** Keeps the connected sessions map up to date. */
+    private final SessionListener vmTracker;
     /** The currently selected Session instance. */
     private Session currentSession;
+    /** Highest identifier suffix generated thus far. */
+    private int lastIdentifier;
 
     /**
      * Creates a new instance of SessionManager.
      */
     public DefaultSessionManager() {
         super();
-        openSessions = new LinkedList<Session>();
+        openSessions = new CopyOnWriteArrayList<Session>();
+        vmSessions = new ConcurrentHashMap<VirtualMachine, Session>();
+        vmTracker = new Tracker();
     }
 
     @Override
-    public synchronized void add(Session session) {
-        // Give the session a name, if it doesn't have one already.
-        String name = session.getProperty(Session.PROP_SESSION_NAME);
-        if (name == null || name.length() == 0) {
-            name = generateName();
-            session.setProperty(Session.PROP_SESSION_NAME, name);
-        }
+    public void add(Session session) {
+        boolean first;
+        synchronized (this) {
+            // Give the session a name, if it doesn't have one already.
+            String name = session.getProperty(Session.PROP_SESSION_NAME);
+            if (name == null || name.length() == 0) {
+                name = generateName();
+                session.setProperty(Session.PROP_SESSION_NAME, name);
+            }
 
-        openSessions.add(session);
-        if (currentSession == null) {
+            openSessions.add(session);
+            session.addSessionListener(vmTracker);
+            first = currentSession == null;
+        }
+        if (first) {
             setCurrent(session);
         }
         fireEvent(new SessionManagerEvent(this, session,
@@ -95,6 +119,7 @@ public class DefaultSessionManager extends AbstractSessionManager {
         String sessionName = name == null ? generateName() : name;
         copy.setProperty(Session.PROP_SESSION_NAME, sessionName);
         openSessions.add(copy);
+        copy.addSessionListener(vmTracker);
         fireEvent(new SessionManagerEvent(this, copy,
                 SessionManagerEventType.ADDED));
         return copy;
@@ -113,27 +138,44 @@ public class DefaultSessionManager extends AbstractSessionManager {
     }
 
     @Override
-    public String generateIdentifier() {
-        if (openSessions.isEmpty()) {
-            return ID_PREFIX + '1';
-        } else {
-            int max = 0;
-            for (Session session : openSessions) {
-                String id = session.getIdentifier();
-                id = id.substring(ID_PREFIX.length());
-                try {
-                    int i = Integer.parseInt(id);
-                    if (i > max) {
-                        max = i;
-                    }
-                } catch (NumberFormatException nfe) {
-                    // This cannot happen as we generate the identifier
-                    // and it will always have an integer suffix.
+    public Session findByVM(VirtualMachine vm) {
+        // Called for nearly every request made of the debuggee, so avoid
+        // taking the lock that guards the other session operations.
+        Session found = vmSessions.get(vm);
+        if (found != null) {
+            return found;
+        }
+        // The connected event may not have reached the tracker yet.
+        for (Session session : openSessions) {
+            if (session.isConnected() && session.getConnection().getVM() == vm) {
+                vmSessions.put(vm, session);
+                return session;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized String generateIdentifier() {
+        // Never reuse the identifier of a removed session, since the
+        // per-session services are found by the session identifier.
+        int max = lastIdentifier;
+        for (Session session : openSessions) {
+            String id = session.getIdentifier();
+            id = id.substring(ID_PREFIX.length());
+            try {
+                int i = Integer.parseInt(id);
+                if (i > max) {
+                    max = i;
                 }
+            } catch (NumberFormatException nfe) {
+                // This cannot happen as we generate the identifier
+                // and it will always have an integer suffix.
             }
-            max++;
-            return ID_PREFIX + max;
         }
+        max++;
+        lastIdentifier = max;
+        return ID_PREFIX + max;
     }
 
     @Override
@@ -142,14 +184,80 @@ public class DefaultSessionManager extends AbstractSessionManager {
     }
 
     @Override
-    @SuppressWarnings("unchecked")
-    public synchronized void loadSessions() {
+    public void loadSessions() {
+        Session current;
+        synchronized (this) {
+            current = readSessions();
+        }
+        if (current != null) {
+            // Activate the session without holding the lock.
+            setCurrent(current);
+        }
+    }
+
+    /**
+     * Reads the persisted sessions, converting an older file if that is
+     * all there is, and makes the saved current session the current one,
+     * without activating it.
+     *
+     * @return  the current session, or null if none was read.
+     */
+    private Session readSessions() {
         // Read the persisted Sessions from disk.
+        try {
+            BeanReader reader = BeanReader.open(FILENAME, STORE_KIND);
+            int count = reader.readInt();
+            List<Session> sessions = new LinkedList<Session>();
+            for (int ii = 0; ii < count; ii++) {
+                Session session = (Session) reader.readBean();
+                int n = reader.readInt();
+                for (int jj = 0; jj < n; jj++) {
+                    String key = reader.readString();
+                    session.setProperty(key, reader.readString());
+                }
+                sessions.add(session);
+            }
+            setSessions(sessions);
+            // Get the ID of the current session.
+            String id = reader.readString();
+            Session session = findById(id);
+            if (session != null) {
+                currentSession = session;
+                return session;
+            }
+        } catch (FileNotFoundException e) {
+            // Perhaps there is an older file, which we then convert.
+            if (loadLegacy()) {
+                saveSessions(false);
+                try {
+                    PlatformService platform = PlatformProvider.getPlatformService();
+                    platform.deleteFile(LEGACY_FILENAME);
+                } catch (IOException ioe) {
+                    logger.log(Level.SEVERE, null, ioe);
+                }
+                return currentSession;
+            }
+        } catch (Exception e) {
+            // I/O and various runtime exceptions may occur,
+            // need to report them and gracefully recover.
+            logger.log(Level.SEVERE, null, e);
+            // SessionProvider will ensure that a current session exists.
+        }
+        return null;
+    }
+
+    /**
+     * Reads the sessions file written by the XMLEncoder, as was done in
+     * earlier releases.
+     *
+     * @return  true if the sessions were loaded, false otherwise.
+     */
+    @SuppressWarnings("unchecked")
+    private boolean loadLegacy() {
         XMLDecoder decoder = null;
         try {
             PlatformService platform = PlatformProvider.getPlatformService();
-            String name = "sessions.xml";
-            InputStream is = platform.readFile(name);
+            InputStream is = platform.readFile(LEGACY_FILENAME);
             decoder = new XMLDecoder(is);
             decoder.setExceptionListener(new ExceptionListener() {
 
@@ -158,13 +266,14 @@ public class DefaultSessionManager extends AbstractSessionManager {
                     logger.log(Level.SEVERE, null, e);
                 }
             });
-            openSessions = (List<Session>) decoder.readObject();
+            setSessions((List<Session>) decoder.readObject());
             // Get the ID of the current session.
             String id = (String) decoder.readObject();
             Session session = findById(id);
             if (session != null) {
-                setCurrent(session);
+                currentSession = session;
             }
+            return currentSession != null;
         } catch (FileNotFoundException e) {
             // Do not report this error, it's normal.
         } catch (Exception e) {
@@ -177,12 +286,15 @@ public class DefaultSessionManager extends AbstractSessionManager {
                 decoder.close();
             }
         }
+        return false;
     }
 
     @Override
     public synchronized Iterator<Session> iterateSessions() {
-        // Make sure the caller cannot modify the list.
-        List<Session> ro = Collections.unmodifiableList(openSessions);
+        // Make sure the caller cannot modify the list, and that sessions
+        // may be added or removed while the caller is iterating.
+        List<Session> ro = Collections.unmodifiableList(
+                new ArrayList<Session>(openSessions));
         return ro.iterator();
     }
 
@@ -192,6 +304,8 @@ public class DefaultSessionManager extends AbstractSessionManager {
             throw new IllegalArgumentException("cannot delete current session");
         }
         openSessions.remove(session);
+        session.removeSessionListener(vmTracker);
+        vmSessions.values().remove(session);
         fireEvent(new SessionManagerEvent(this, session,
                 SessionManagerEventType.REMOVED));
     }
@@ -206,25 +320,91 @@ public class DefaultSessionManager extends AbstractSessionManager {
                 session.close();
             }
         }
-        String name = "sessions.xml";
-        PlatformService platform = PlatformProvider.getPlatformService();
         try {
-            OutputStream os = platform.writeFile(name);
-            XMLEncoder encoder = new XMLEncoder(os);
-            encoder.writeObject(openSessions);
-            encoder.writeObject(currentSession.getIdentifier());
-            encoder.close();
+            BeanWriter writer = new BeanWriter(STORE_KIND);
+            writer.writeInt(openSessions.size());
+            for (Session session : openSessions) {
+                writer.writeBean(session);
+                List<String> keys = new ArrayList<String>();
+                Iterator<String> iter = session.propertyNames();
+                while (iter.hasNext()) {
+                    keys.add(iter.next());
+                }
+                writer.writeInt(keys.size());
+                for (String key : keys) {
+                    writer.writeString(key);
+                    writer.writeString(session.getProperty(key));
+                }
+            }
+            writer.writeString(currentSession.getIdentifier());
+            writer.save(FILENAME);
         } catch (IOException ioe) {
             logger.log(Level.SEVERE, null, ioe);
-        } finally {
-            platform.releaseLock(name);
         }
     }
 
     @Override
-    public synchronized void setCurrent(Session session) {
-        currentSession = session;
+    public void setCurrent(Session session) {
+        synchronized (this) {
+            currentSession = session;
+        }
+        // Load the session data before the listeners go looking for it,
+        // without holding the lock, as that may take a while.
+        session.activate();
         fireEvent(new SessionManagerEvent(this, session,
                 SessionManagerEventType.CURRENT));
     }
+
+    /**
+     * Replaces the open sessions with those given, tracking the debuggee
+     * connections of the new sessions.
+     *
+     * @param  sessions  the new open sessions.
+     */
+    private void setSessions(List<Session> sessions) {
+        for (Session session : openSessions) {
+            session.removeSessionListener(vmTracker);
+        }
+        vmSessions.clear();
+        openSessions = new CopyOnWriteArrayList<Session>(sessions);
+        for (Session session : sessions) {
+            session.addSessionListener(vmTracker);
+        }
+    }
+
+    /**
+     * Maps each session to its debuggee when it connects, and removes the
+     * mapping when it disconnects.
+     *
+     * @author  Nathan Fiedler
+     */
+    private class Tracker implements SessionListener {
+
+        @Override
+        public void closing(SessionEvent sevt) {
+        }
+
+        @Override
+        public void connected(SessionEvent sevt) {
+            Session session = sevt.getSession();
+            vmSessions.put(session.getConnection().getVM(), session);
+        }
+
+        @Override
+        public void disconnected(SessionEvent sevt) {
+            vmSessions.values().remove(sevt.getSession());
+        }
+
+        @Override
+        public void opened(Session session) {
+        }
+
+        @Override
+        public void resuming(SessionEvent sevt) {
+        }
+
+        @Override
+        public void suspended(SessionEvent sevt) {
+        }
+    }
 }
@@ -23,8 +23,10 @@
 package com.bluemarsh.jswat.core.session;
 
 import com.bluemarsh.jswat.core.connect.JvmConnection;
+import com.sun.jdi.ThreadReference;
 import java.beans.PropertyChangeListener;
 import java.util.Iterator;
+import java.util.List;
 
 /**
  * A Session is responsible for managing the debugging session, as well
@@ -55,6 +57,8 @@ public interface Session {
     String PROP_SOCKET_PORT = "SocketPort";
     /** Name of the connector type property. */
     String PROP_CONNECTOR = "Connector";
+    /** Name of the bound property fired when the session is activated. */
+    String PROP_ACTIVE = "active";
     /** Property value for shared attaching connector. */
     String PREF_PROCESS = "Process";
     /** Property value for shared attaching connector. */
@@ -66,6 +70,17 @@ public interface Session {
     /** Property value for socket listening connector. */
     String PREF_SOCKET_LISTEN = "SocketListen";
 
+    /**
+     * Marks this session as being put to use, which happens when it is
+     * first made the current session, or connected to a debuggee. Until
+     * then, the session is merely a descriptor of its identifier and
+     * properties, and the managers associated with it may defer loading
+     * their persisted data. Anything that needs the data of a session that
+     * may not be active must call this method first. Activating a session
+     * that is already active has no effect.
+     */
+    void activate();
+
     /**
      * Add a PropertyChangeListener to the listener list.
      *
@@ -153,6 +168,14 @@ public interface Session {
      */
     String getStratum();
 
+    /**
+     * Indicates if this session has been activated.
+     *
+     * @return  true if active, false otherwise.
+     * @see #activate()
+     */
+    boolean isActive();
+
     /**
      * Returns true if this session is connected to a debuggee.
      *
@@ -213,6 +236,17 @@ public interface Session {
      */
     void setProperty(String name, String value);
 
+    /**
+     * Informs the session that one or more threads in the debuggee have
+     * been suspended or resumed individually, rather than by calling
+     * <code>suspendVM()</code> or <code>resumeVM()</code>, so that the
+     * value of <code>isSuspended()</code> remains accurate.
+     *
+     * @param  threads    the threads that were suspended or resumed.
+     * @param  suspended  true if threads were suspended, false if resumed.
+     */
+    void suspendStateChanged(List<ThreadReference> threads, boolean suspended);
+
     /**
      * Suspend execution of the debuggee VM.
      */
@@ -23,6 +23,7 @@
 
 package com.bluemarsh.jswat.core.session;
 
+import com.sun.jdi.VirtualMachine;
 import java.util.Iterator;
 
 /**
@@ -75,6 +76,14 @@ public interface SessionManager {
      */
     Session findById(String id);
 
+    /**
+     * Find the Session that is connected to the given debuggee.
+     *
+     * @param  vm  debuggee virtual machine.
+     * @return  matching Session, or null if not found.
+     */
+    Session findByVM(VirtualMachine vm);
+
     /**
      * Generates a new, unique session identifier.
      *
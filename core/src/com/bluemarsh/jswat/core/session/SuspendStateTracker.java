@@ -0,0 +1,316 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is the JSwat Core Module. The Initial Developer of the
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.session;
+
+import com.bluemarsh.jswat.core.CoreSettings;
+import com.sun.jdi.ObjectCollectedException;
+import com.sun.jdi.ThreadReference;
+import com.sun.jdi.VMDisconnectedException;
+import com.sun.jdi.VirtualMachine;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Class SuspendStateTracker keeps track of whether any threads in the
+ * debuggee are suspended, based on the events that suspend the debuggee
+ * and the calls to suspend and resume it, so that the state can be known
+ * without asking each thread in the debuggee. Because threads may also
+ * be suspended and resumed individually, and may be suspended more than
+ * once, the threads that were suspended on their own are remembered, and
+ * shortly after they are resumed, only those threads are asked whether
+ * they remain suspended. All of the threads are asked once upon
+ * connecting and, if enabled in the core settings, periodically
+ * thereafter.
+ *
+ * @author  Nathan Fiedler
+ */
+class SuspendStateTracker {
+    /** Logger for reporting corrections to the tracked state. */
+    private static final Logger logger = Logger.getLogger(
+            SuspendStateTracker.class.getName());
+    /** Milliseconds after a change before reconciling. */
+    private static final int CHANGE_DELAY = 500;
+    /** Milliseconds between periodic sweeps of all threads. */
+    private static final int PERIOD = 10000;
+    /** Reconciles the state of every session, one at a time. */
+    private static final RequestProcessor processor =
+            new RequestProcessor("JSwat Suspend State", 1);
+    /** Asks the remembered threads if they are suspended. */
+    private final RequestProcessor.Task reconciler;
+    /** Asks all of the threads if they are suspended. */
+    private final RequestProcessor.Task sweeper;
+    /** Threads that may be suspended apart from the debuggee as a whole. */
+    private final Set<ThreadReference> suspendedThreads;
+    /** The debuggee being tracked, or null if not connected. */
+    private VirtualMachine ourVM;
+    /** True if the sweep is repeated periodically while connected. */
+    private boolean periodic;
+    /** True if the debuggee as a whole is suspended. */
+    private boolean vmSuspended;
+    /** True if any threads are believed to be suspended. */
+    private volatile boolean suspended;
+    /** Incremented with each change, to detect stale reconciliations. */
+    private long changes;
+
+    /**
+     * Creates a new instance of SuspendStateTracker.
+     */
+    SuspendStateTracker() {
+        suspendedThreads = new HashSet<ThreadReference>();
+        reconciler = processor.create(new Runnable() {
+
+            @Override
+            public void run() {
+                reconcile();
+            }
+        });
+        sweeper = processor.create(new Runnable() {
+
+            @Override
+            public void run() {
+                sweep();
+            }
+        });
+    }
+
+    /**
+     * Start tracking the given debuggee, whose state is determined in
+     * the background right away.
+     *
+     * @param  vm  debuggee to track.
+     */
+    void connected(VirtualMachine vm) {
+        synchronized (this) {
+            ourVM = vm;
+            periodic = CoreSettings.getDefault().getSuspendStateSweep();
+            reset();
+        }
+        sweeper.schedule(0);
+    }
+
+    /**
+     * Stop tracking the debuggee.
+     */
+    void disconnected() {
+        synchronized (this) {
+            ourVM = null;
+            reset();
+        }
+        reconciler.cancel();
+        sweeper.cancel();
+    }
+
+    /**
+     * Indicates if any threads are believed to be suspended.
+     *
+     * @return  true if suspended, false otherwise.
+     */
+    boolean isSuspended() {
+        return suspended;
+    }
+
+    /**
+     * Asks the remembered threads if they are still suspended, and if no
+     * changes were made in the meantime, corrects the tracked state.
+     */
+    private void reconcile() {
+        VirtualMachine vm;
+        long start;
+        List<ThreadReference> threads;
+        synchronized (this) {
+            vm = ourVM;
+            start = changes;
+            threads = new ArrayList<ThreadReference>(suspendedThreads);
+        }
+        if (vm == null) {
+            return;
+        }
+        List<ThreadReference> actual = suspendedAmong(threads);
+        if (actual == null) {
+            return;
+        }
+        synchronized (this) {
+            if (vm == ourVM && start == changes) {
+                suspendedThreads.retainAll(actual);
+                update();
+            }
+        }
+    }
+
+    /**
+     * Forget the tracked state. The caller must hold the lock on this
+     * tracker.
+     */
+    private void reset() {
+        suspendedThreads.clear();
+        vmSuspended = false;
+        suspended = false;
+        changes++;
+    }
+
+    /**
+     * Sets the tracked state, following an event or operation that is
+     * known to have suspended or resumed the debuggee as a whole.
+     *
+     * @param  suspended  true if suspended, false if resumed.
+     */
+    void setSuspended(boolean suspended) {
+        boolean check;
+        synchronized (this) {
+            if (ourVM == null) {
+                return;
+            }
+            vmSuspended = suspended;
+            this.suspended = suspended;
+            changes++;
+            // Resuming the debuggee leaves suspended any threads that
+            // were suspended more than once.
+            check = !suspended && !suspendedThreads.isEmpty();
+        }
+        if (check) {
+            reconciler.schedule(CHANGE_DELAY);
+        }
+    }
+
+    /**
+     * Returns those of the given threads that are suspended.
+     *
+     * @param  threads  threads to be asked.
+     * @return  the suspended threads, or null if the debuggee is gone.
+     */
+    private static List<ThreadReference> suspendedAmong(
+            List<ThreadReference> threads) {
+        List<ThreadReference> result = new ArrayList<ThreadReference>();
+        try {
+            for (ThreadReference thread : threads) {
+                try {
+                    if (thread.isSuspended()) {
+                        result.add(thread);
+                    }
+                } catch (ObjectCollectedException oce) {
+                    // Ignore dead threads.
+                }
+            }
+        } catch (VMDisconnectedException vmde) {
+            return null;
+        }
+        return result;
+    }
+
+    /**
+     * Asks each thread of the debuggee if it is suspended, and if no
+     * changes were made in the meantime, corrects the tracked state.
+     */
+    private void sweep() {
+        VirtualMachine vm;
+        long start;
+        synchronized (this) {
+            vm = ourVM;
+            start = changes;
+        }
+        if (vm == null) {
+            return;
+        }
+        List<ThreadReference> actual;
+        try {
+            actual = suspendedAmong(vm.allThreads());
+        } catch (VMDisconnectedException vmde) {
+            return;
+        }
+        if (actual == null) {
+            return;
+        }
+        synchronized (this) {
+            if (vm != ourVM) {
+                return;
+            }
+            if (start == changes) {
+                suspendedThreads.clear();
+                suspendedThreads.addAll(actual);
+                if (actual.isEmpty()) {
+                    vmSuspended = false;
+                }
+                update();
+            }
+            if (!periodic) {
+                return;
+            }
+        }
+        sweeper.schedule(PERIOD);
+    }
+
+    /**
+     * Notes that the given thread alone was suspended by an event.
+     *
+     * @param  thread  the suspended thread.
+     */
+    void threadSuspended(ThreadReference thread) {
+        List<ThreadReference> threads = new ArrayList<ThreadReference>(1);
+        threads.add(thread);
+        threadsChanged(threads, true);
+    }
+
+    /**
+     * Notes that the given threads were suspended or resumed individually.
+     * After they are resumed, the threads are asked in the background if
+     * they remain suspended, since they may have been suspended more than
+     * once.
+     *
+     * @param  threads    the suspended or resumed threads.
+     * @param  suspended  true if suspended, false if resumed.
+     */
+    void threadsChanged(List<ThreadReference> threads, boolean suspended) {
+        synchronized (this) {
+            if (ourVM == null) {
+                return;
+            }
+            suspendedThreads.addAll(threads);
+            changes++;
+            if (suspended) {
+                this.suspended = true;
+                return;
+            }
+            if (vmSuspended) {
+                // The other threads remain suspended.
+                return;
+            }
+        }
+        reconciler.schedule(CHANGE_DELAY);
+    }
+
+    /**
+     * Sets the tracked state from the remembered threads. The caller must
+     * hold the lock on this tracker.
+     */
+    private void update() {
+        boolean actual = vmSuspended || !suspendedThreads.isEmpty();
+        if (suspended != actual) {
+            logger.log(Level.FINE, "corrected suspended state to {0}",
+                    actual);
+            suspended = actual;
+        }
+    }
+}
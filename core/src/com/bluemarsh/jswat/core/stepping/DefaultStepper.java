@@ -27,7 +27,8 @@ import com.bluemarsh.jswat.core.CoreSettings;
 import com.bluemarsh.jswat.core.event.DispatcherListener;
 import com.bluemarsh.jswat.core.output.OutputProvider;
 import com.bluemarsh.jswat.core.output.OutputWriter;
-import com.bluemarsh.jswat.core.util.Strings;
+import com.bluemarsh.jswat.core.util.MirrorCache;
+import com.bluemarsh.jswat.core.util.MirrorCache.MethodInfo;
 import com.sun.jdi.IncompatibleThreadStateException;
 import com.sun.jdi.ThreadReference;
 import com.sun.jdi.VMDisconnectedException;
@@ -89,9 +90,9 @@ public class DefaultStepper extends AbstractStepper implements DispatcherListene
             // otherwise we would not be here.
             MethodExitEvent mee = (MethodExitEvent) event;
             Value retval = mee.returnValue();
-            String name = mee.method().name();
-            String args = Strings.listToString(mee.method().
-                    argumentTypeNames());
+            MethodInfo info = MirrorCache.getMethodInfo(mee.method());
+            String name = info.getName();
+            String args = info.getArguments();
             OutputWriter writer = OutputProvider.getWriter();
             String msg = NbBundle.getMessage(DefaultStepper.class,
                     "CTL_DefaultStepper_Returned", name, args, retval);
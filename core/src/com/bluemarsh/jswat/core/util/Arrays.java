@@ -24,6 +24,8 @@
 package com.bluemarsh.jswat.core.util;
 
 import java.lang.reflect.Array;
+import java.util.Collections;
+import java.util.ListIterator;
 
 /**
  * Utility methods for arrays.
@@ -38,6 +40,22 @@ public class Arrays {
     private Arrays() {
     }
 
+    /**
+     * Returns a copy of the array with the given element appended. The
+     * original array is not modified, making this suitable for arrays
+     * that are read without locking and replaced when changed.
+     *
+     * @param  <T>   type of array elements.
+     * @param  arr   array to which to add.
+     * @param  elem  element to be added.
+     * @return  new array.
+     */
+    public static <T> T[] add(T[] arr, T elem) {
+        T[] copy = java.util.Arrays.copyOf(arr, arr.length + 1);
+        copy[arr.length] = elem;
+        return copy;
+    }
+
     /**
      * Joins two arrays of objects of the same type. If one is null, the other
      * is returned. If both are null, null is returned. Otherwise, a new array
@@ -62,4 +80,37 @@ public class Arrays {
             return arr;
         }
     }
+
+    /**
+     * Returns a read-only list iterator over the elements of the array.
+     *
+     * @param  <T>  type of array elements.
+     * @param  arr  array to iterate.
+     * @return  list iterator.
+     */
+    public static <T> ListIterator<T> listIterator(T[] arr) {
+        return Collections.unmodifiableList(
+                java.util.Arrays.asList(arr)).listIterator();
+    }
+
+    /**
+     * Returns a copy of the array without the first element that is equal
+     * to the given element. If there is no such element, the array itself
+     * is returned. The original array is not modified.
+     *
+     * @param  <T>   type of array elements.
+     * @param  arr   array from which to remove.
+     * @param  elem  element to be removed.
+     * @return  new array, or the original if the element was not found.
+     */
+    public static <T> T[] remove(T[] arr, Object elem) {
+        for (int ii = 0; ii < arr.length; ii++) {
+            if (arr[ii] == null ? elem == null : arr[ii].equals(elem)) {
+                T[] copy = java.util.Arrays.copyOf(arr, arr.length - 1);
+                System.arraycopy(arr, ii + 1, copy, ii, arr.length - ii - 1);
+                return copy;
+            }
+        }
+        return arr;
+    }
 }
@@ -0,0 +1,331 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is the JSwat Core Module. The Initial Developer of the
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.util;
+
+import com.bluemarsh.jswat.core.PlatformProvider;
+import com.bluemarsh.jswat.core.PlatformService;
+import java.beans.PropertyDescriptor;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Class BeanReader decodes the JavaBeans written by a {@link BeanWriter}.
+ * Beans are constructed using their public no-argument constructor, or if
+ * there is none, a public static {@code getInstance()} method (as is the
+ * case for singletons). The properties are then set via their setters,
+ * including those written as null, which clears them when reading into an
+ * existing bean. Properties that the bean no longer has are silently
+ * ignored, so that older files remain readable as the beans evolve.
+ *
+ * @author  Nathan Fiedler
+ */
+public class BeanReader {
+    /** Logger for gracefully reporting unexpected errors. */
+    private static final Logger logger = Logger.getLogger(
+            BeanReader.class.getName());
+    /** Input stream of the encoded data. */
+    private final DataInputStream input;
+    /** Strings that have been read, in order. */
+    private final List<String> strings;
+
+    /**
+     * Creates a new instance of BeanReader.
+     *
+     * @param  data  encoded data.
+     * @param  kind  the kind of data expected in the store.
+     * @throws  IOException
+     *          if the data is not a store of the expected kind.
+     */
+    public BeanReader(byte[] data, String kind) throws IOException {
+        input = new DataInputStream(new ByteArrayInputStream(data));
+        strings = new ArrayList<String>();
+        if (data.length < 5 || input.readInt() != BeanWriter.MAGIC) {
+            throw new IOException("not a bean store");
+        }
+        int version = input.readUnsignedByte();
+        if (version > BeanWriter.VERSION) {
+            throw new IOException("unsupported bean store version " + version);
+        }
+        String actual = readString();
+        if (!kind.equals(actual)) {
+            throw new IOException("expected " + kind + " but found " + actual);
+        }
+    }
+
+    /**
+     * Reads the named file via the platform service, remembering its
+     * checksum so that an unchanged store need not be written again.
+     *
+     * @param  name  name of file.
+     * @param  kind  the kind of data expected in the store.
+     * @return  reader for the file.
+     * @throws  FileNotFoundException
+     *          if the file does not exist.
+     * @throws  IOException
+     *          if reading fails, or the file is not of the expected kind.
+     */
+    public static BeanReader open(String name, String kind) throws IOException {
+        PlatformService platform = PlatformProvider.getPlatformService();
+        InputStream is = platform.readFile(name);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try {
+            byte[] buf = new byte[8192];
+            int len = is.read(buf);
+            while (len > 0) {
+                baos.write(buf, 0, len);
+                len = is.read(buf);
+            }
+        } finally {
+            is.close();
+        }
+        byte[] data = baos.toByteArray();
+        BeanReader reader = new BeanReader(data, kind);
+        BeanWriter.remember(name, data, data.length);
+        return reader;
+    }
+
+    /**
+     * Creates an instance of the named bean class.
+     *
+     * @param  name  name of bean class.
+     * @return  new bean.
+     * @throws  IOException
+     *          if the bean cannot be created.
+     */
+    private static Object instantiate(String name) throws IOException {
+        try {
+            ClassLoader loader = Thread.currentThread().getContextClassLoader();
+            if (loader == null) {
+                loader = BeanReader.class.getClassLoader();
+            }
+            Class<?> clazz = Class.forName(name, true, loader);
+            try {
+                Constructor<?> ctor = clazz.getConstructor();
+                return ctor.newInstance();
+            } catch (NoSuchMethodException nsme) {
+                // Perhaps a singleton, try the factory method.
+                Method m = clazz.getMethod("getInstance");
+                if (!Modifier.isStatic(m.getModifiers())) {
+                    throw nsme;
+                }
+                return m.invoke(null);
+            }
+        } catch (ClassNotFoundException cnfe) {
+            throw new IOException(cnfe);
+        } catch (NoSuchMethodException nsme) {
+            throw new IOException(nsme);
+        } catch (InstantiationException ie) {
+            throw new IOException(ie);
+        } catch (IllegalAccessException iae) {
+            throw new IOException(iae);
+        } catch (InvocationTargetException ite) {
+            throw new IOException(ite.getCause());
+        }
+    }
+
+    /**
+     * Reads a bean and sets its properties.
+     *
+     * @return  the bean.
+     * @throws  IOException
+     *          if reading fails, or the bean cannot be created.
+     */
+    public Object readBean() throws IOException {
+        return readBean(null);
+    }
+
+    /**
+     * Reads a bean and sets its properties on the given bean, if it is of
+     * the same class as was written, otherwise on a new bean.
+     *
+     * @param  bean  bean to be updated, may be null.
+     * @return  the bean that was updated or created.
+     * @throws  IOException
+     *          if reading fails, or the bean cannot be created.
+     */
+    public Object readBean(Object bean) throws IOException {
+        String cname = readString();
+        if (bean == null || !bean.getClass().getName().equals(cname)) {
+            bean = instantiate(cname);
+        }
+        Map<String, PropertyDescriptor> props =
+                BeanWriter.getProperties(bean.getClass());
+        int count = readInt();
+        for (int ii = 0; ii < count; ii++) {
+            String name = readString();
+            Object value = readValue();
+            PropertyDescriptor pd = props.get(name);
+            if (pd != null) {
+                try {
+                    if (value == null && pd.getReadMethod().invoke(bean) == null) {
+                        // Already clear, spare setters that reject null.
+                        continue;
+                    }
+                    pd.getWriteMethod().invoke(bean, value);
+                } catch (IllegalArgumentException iae) {
+                    // The property type has changed, ignore it.
+                } catch (IllegalAccessException iae) {
+                    throw new IOException(iae);
+                } catch (InvocationTargetException ite) {
+                    // Like the XMLDecoder, report the error and carry on,
+                    // rather than lose the rest of the data.
+                    logger.log(Level.WARNING, null, ite.getCause());
+                }
+            }
+        }
+        return bean;
+    }
+
+    /**
+     * Reads a boolean value.
+     *
+     * @return  the value.
+     * @throws  IOException
+     *          if reading fails.
+     */
+    public boolean readBoolean() throws IOException {
+        return input.readUnsignedByte() == BeanWriter.TAG_TRUE;
+    }
+
+    /**
+     * Reads a non-negative integer written by {@code writeInt()}.
+     *
+     * @return  the value.
+     * @throws  IOException
+     *          if reading fails.
+     */
+    public int readInt() throws IOException {
+        long n = readLong();
+        if (n > Integer.MAX_VALUE) {
+            throw new IOException("corrupt bean store");
+        }
+        return (int) n;
+    }
+
+    /**
+     * Reads an unsigned long written in the variable length form.
+     *
+     * @return  the value.
+     * @throws  IOException
+     *          if reading fails.
+     */
+    private long readLong() throws IOException {
+        long n = 0;
+        int shift = 0;
+        int b = input.readUnsignedByte();
+        while ((b & 0x80) != 0) {
+            n |= (long) (b & 0x7F) << shift;
+            shift += 7;
+            if (shift > 63) {
+                throw new IOException("corrupt bean store");
+            }
+            b = input.readUnsignedByte();
+        }
+        return n | ((long) b << shift);
+    }
+
+    /**
+     * Reads a string, which may be null.
+     *
+     * @return  the string.
+     * @throws  IOException
+     *          if reading fails.
+     */
+    public String readString() throws IOException {
+        int ref = readInt();
+        if (ref == 0) {
+            return null;
+        } else if (ref == 1) {
+            String s = input.readUTF();
+            strings.add(s);
+            return s;
+        } else if (ref - 2 < strings.size()) {
+            return strings.get(ref - 2);
+        }
+        throw new IOException("corrupt bean store");
+    }
+
+    /**
+     * Reads a simple value, preceded by its tag.
+     *
+     * @return  the value.
+     * @throws  IOException
+     *          if reading fails.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Object readValue() throws IOException {
+        int tag = input.readUnsignedByte();
+        switch (tag) {
+            case BeanWriter.TAG_NULL:
+                return null;
+            case BeanWriter.TAG_FALSE:
+                return Boolean.FALSE;
+            case BeanWriter.TAG_TRUE:
+                return Boolean.TRUE;
+            case BeanWriter.TAG_INT:
+                long i = readLong();
+                return Integer.valueOf((int) ((i >>> 1) ^ -(i & 1)));
+            case BeanWriter.TAG_LONG:
+                long l = readLong();
+                return Long.valueOf((l >>> 1) ^ -(l & 1));
+            case BeanWriter.TAG_STRING:
+                return readString();
+            case BeanWriter.TAG_ENUM:
+                String cname = readString();
+                String ename = readString();
+                try {
+                    ClassLoader loader = Thread.currentThread().getContextClassLoader();
+                    if (loader == null) {
+                        loader = BeanReader.class.getClassLoader();
+                    }
+                    Class clazz = Class.forName(cname, true, loader);
+                    return Enum.valueOf(clazz, ename);
+                } catch (ClassNotFoundException cnfe) {
+                    throw new IOException(cnfe);
+                } catch (IllegalArgumentException iae) {
+                    // The constant no longer exists.
+                    return null;
+                }
+            case BeanWriter.TAG_LIST:
+                int size = readInt();
+                List<Object> list = new ArrayList<Object>(size);
+                for (int ii = 0; ii < size; ii++) {
+                    list.add(readValue());
+                }
+                return list;
+            default:
+                throw new IOException("corrupt bean store");
+        }
+    }
+}
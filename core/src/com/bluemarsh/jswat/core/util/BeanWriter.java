@@ -0,0 +1,438 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is the JSwat Core Module. The Initial Developer of the
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.util;
+
+import com.bluemarsh.jswat.core.PlatformProvider;
+import com.bluemarsh.jswat.core.PlatformService;
+import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Class BeanWriter encodes JavaBeans in a compact, versioned binary form,
+ * for persisting sessions, breakpoints, watches, and runtimes. Each bean is
+ * written as its class name followed by its readable and writable properties,
+ * excluding those marked transient in the bean information, and those whose
+ * values are not simple (null, boolean, int, long, String, enum, or a list
+ * of such values). Null values are written, rather than skipped, so that
+ * reading the bean into an existing instance clears those properties. Any
+ * structure beyond the bean properties (such as the breakpoints within a
+ * group) is written explicitly by the caller.
+ *
+ * <p>Strings, including the class and property names, are written once and
+ * thereafter referred to by number, and integers are written in a variable
+ * length form, so the encoding is considerably smaller than that produced by
+ * the XMLEncoder. The bean properties are introspected once per class.</p>
+ *
+ * <p>The data is buffered in memory and written to the named file by the
+ * {@link #save(String)} method, which does nothing if the data is identical
+ * to what was last read from, or written to, that file.</p>
+ *
+ * @author  Nathan Fiedler
+ */
+public class BeanWriter {
+    /** Identifies the start of a bean store ("JSWB"). */
+    static final int MAGIC = 0x4A535742;
+    /** Current version of the encoding. */
+    static final int VERSION = 1;
+    /** Tag for a null value. */
+    static final int TAG_NULL = 0;
+    /** Tag for a false value. */
+    static final int TAG_FALSE = 1;
+    /** Tag for a true value. */
+    static final int TAG_TRUE = 2;
+    /** Tag for an Integer value. */
+    static final int TAG_INT = 3;
+    /** Tag for a Long value. */
+    static final int TAG_LONG = 4;
+    /** Tag for a String value. */
+    static final int TAG_STRING = 5;
+    /** Tag for an enum constant. */
+    static final int TAG_ENUM = 6;
+    /** Tag for a List of values. */
+    static final int TAG_LIST = 7;
+    /** Suffix of the temporary file written before replacing a file. */
+    private static final String TEMP_SUFFIX = ".tmp";
+    /** Persistent properties of each bean class, keyed by name. */
+    private static final Map<Class<?>, Map<String, PropertyDescriptor>> properties =
+            new HashMap<Class<?>, Map<String, PropertyDescriptor>>();
+    /** Checksums of the files last read or written, keyed by file name. */
+    private static final Map<String, Long> checksums =
+            new HashMap<String, Long>();
+    /** Buffer holding the encoded data. */
+    private final ByteArrayOutputStream buffer;
+    /** Output stream for the encoded data. */
+    private final DataOutputStream output;
+    /** Strings that have been written, mapped to their number. */
+    private final Map<String, Integer> strings;
+
+    /**
+     * Creates a new instance of BeanWriter.
+     *
+     * @param  kind  identifies the kind of data in the store, which the
+     *               reader must agree with.
+     */
+    public BeanWriter(String kind) {
+        buffer = new ByteArrayOutputStream();
+        output = new DataOutputStream(buffer);
+        strings = new HashMap<String, Integer>();
+        try {
+            output.writeInt(MAGIC);
+            output.writeByte(VERSION);
+            writeString(kind);
+        } catch (IOException ioe) {
+            // Cannot happen with a byte array.
+            throw new IllegalStateException(ioe);
+        }
+    }
+
+    /**
+     * Computes the checksum of the given data.
+     *
+     * @param  data  data to be checked.
+     * @param  len   number of bytes of data.
+     * @return  checksum of data.
+     */
+    private static long checksum(byte[] data, int len) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, len);
+        return crc.getValue();
+    }
+
+    /**
+     * Returns the checksum of the data last read from, or written to, the
+     * named file.
+     *
+     * @param  name  name of file.
+     * @return  checksum of file, or zero if unknown.
+     */
+    static long getChecksum(String name) {
+        synchronized (checksums) {
+            Long sum = checksums.get(name);
+            return sum == null ? 0 : sum.longValue();
+        }
+    }
+
+    /**
+     * Returns the persistent properties of the given class, introspecting
+     * the class if this has not already been done.
+     *
+     * @param  clazz  bean class.
+     * @return  persistent properties, keyed by name.
+     * @throws  IOException
+     *          if introspection fails.
+     */
+    static Map<String, PropertyDescriptor> getProperties(Class<?> clazz)
+            throws IOException {
+        synchronized (properties) {
+            Map<String, PropertyDescriptor> props = properties.get(clazz);
+            if (props == null) {
+                props = new LinkedHashMap<String, PropertyDescriptor>();
+                try {
+                    BeanInfo info = Introspector.getBeanInfo(clazz);
+                    for (PropertyDescriptor pd : info.getPropertyDescriptors()) {
+                        if (pd.getReadMethod() != null
+                                && pd.getWriteMethod() != null
+                                && !Boolean.TRUE.equals(pd.getValue("transient"))) {
+                            props.put(pd.getName(), pd);
+                        }
+                    }
+                } catch (IntrospectionException ie) {
+                    throw new IOException(ie);
+                }
+                props = Collections.unmodifiableMap(props);
+                properties.put(clazz, props);
+            }
+            return props;
+        }
+    }
+
+    /**
+     * Determines if the named property of the given class is one that
+     * would be written by {@link #writeBean(Object)}, provided its value
+     * is suitable.
+     *
+     * @param  clazz  bean class.
+     * @param  name   name of property.
+     * @return  true if property is persistent, false otherwise.
+     */
+    public static boolean isPersistent(Class<?> clazz, String name) {
+        try {
+            return getProperties(clazz).containsKey(name);
+        } catch (IOException ioe) {
+            return false;
+        }
+    }
+
+    /**
+     * Determines if the value is one that can be written as a property.
+     *
+     * @param  value  property value.
+     * @return  true if value is supported, false otherwise.
+     */
+    private static boolean isSimple(Object value) {
+        if (value == null || value instanceof Boolean
+                || value instanceof Integer || value instanceof Long
+                || value instanceof String || value instanceof Enum) {
+            return true;
+        }
+        if (value instanceof List) {
+            for (Object element : (List<?>) value) {
+                if (!isSimple(element)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records the checksum of the data read from, or written to, the
+     * named file.
+     *
+     * @param  name  name of file.
+     * @param  data  contents of file.
+     * @param  len   number of bytes of data.
+     */
+    static void remember(String name, byte[] data, int len) {
+        synchronized (checksums) {
+            checksums.put(name, checksum(data, len));
+        }
+    }
+
+    /**
+     * Writes the encoded data to the named file via the platform service,
+     * unless the data is identical to what the file is known to contain.
+     * The data is written to a temporary file, which is forced to disk and
+     * then renamed to the given name, such that a crash leaves either the
+     * old file or the new one, but never a partially written file.
+     *
+     * @param  name  name of file.
+     * @return  true if the file was written, false if unchanged.
+     * @throws  IOException
+     *          if writing fails.
+     */
+    public boolean save(String name) throws IOException {
+        output.flush();
+        byte[] data = buffer.toByteArray();
+        long sum = checksum(data, data.length);
+        synchronized (checksums) {
+            Long prior = checksums.get(name);
+            if (prior != null && prior.longValue() == sum) {
+                return false;
+            }
+        }
+        PlatformService platform = PlatformProvider.getPlatformService();
+        String temp = name + TEMP_SUFFIX;
+        try {
+            OutputStream os = platform.writeFile(temp);
+            try {
+                os.write(data);
+                os.flush();
+                if (os instanceof FileOutputStream) {
+                    ((FileOutputStream) os).getFD().sync();
+                }
+            } finally {
+                os.close();
+            }
+        } finally {
+            platform.releaseLock(temp);
+        }
+        platform.renameFile(temp, name);
+        synchronized (checksums) {
+            checksums.put(name, sum);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of bytes written thus far.
+     *
+     * @return  size of encoded data.
+     */
+    public int size() {
+        return output.size();
+    }
+
+    /**
+     * Returns a copy of the encoded data.
+     *
+     * @return  encoded data.
+     */
+    public byte[] toByteArray() {
+        try {
+            output.flush();
+        } catch (IOException ioe) {
+            // Cannot happen with a byte array.
+            throw new IllegalStateException(ioe);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Writes the bean and its persistent properties. Properties whose
+     * values are not simple values are not written.
+     *
+     * @param  bean  the bean to write.
+     * @throws  IOException
+     *          if the properties cannot be read.
+     */
+    public void writeBean(Object bean) throws IOException {
+        Class<?> clazz = bean.getClass();
+        writeString(clazz.getName());
+        Map<String, PropertyDescriptor> props = getProperties(clazz);
+        Map<String, Object> values = new LinkedHashMap<String, Object>();
+        for (PropertyDescriptor pd : props.values()) {
+            try {
+                Object value = pd.getReadMethod().invoke(bean);
+                if (isSimple(value)) {
+                    values.put(pd.getName(), value);
+                }
+            } catch (IllegalAccessException iae) {
+                throw new IOException(iae);
+            } catch (InvocationTargetException ite) {
+                throw new IOException(ite.getCause());
+            }
+        }
+        writeInt(values.size());
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            writeString(entry.getKey());
+            writeValue(entry.getValue());
+        }
+    }
+
+    /**
+     * Writes a boolean value.
+     *
+     * @param  b  value to write.
+     * @throws  IOException
+     *          if writing fails.
+     */
+    public void writeBoolean(boolean b) throws IOException {
+        output.writeByte(b ? TAG_TRUE : TAG_FALSE);
+    }
+
+    /**
+     * Writes a non-negative integer (such as a count) in a variable length
+     * form, seven bits at a time.
+     *
+     * @param  n  value to write (must not be negative).
+     * @throws  IOException
+     *          if writing fails.
+     */
+    public void writeInt(int n) throws IOException {
+        if (n < 0) {
+            throw new IllegalArgumentException("negative: " + n);
+        }
+        writeLong(n);
+    }
+
+    /**
+     * Writes an unsigned long in a variable length form.
+     *
+     * @param  n  value to write (treated as unsigned).
+     * @throws  IOException
+     *          if writing fails.
+     */
+    private void writeLong(long n) throws IOException {
+        while ((n & ~0x7FL) != 0) {
+            output.writeByte((int) ((n & 0x7F) | 0x80));
+            n >>>= 7;
+        }
+        output.writeByte((int) n);
+    }
+
+    /**
+     * Writes a string, which may be null. Each distinct string is written
+     * only once, thereafter it is referred to by number.
+     *
+     * @param  s  string to write.
+     * @throws  IOException
+     *          if writing fails.
+     */
+    public void writeString(String s) throws IOException {
+        if (s == null) {
+            writeInt(0);
+        } else {
+            Integer ref = strings.get(s);
+            if (ref == null) {
+                writeInt(1);
+                output.writeUTF(s);
+                strings.put(s, strings.size());
+            } else {
+                writeInt(ref.intValue() + 2);
+            }
+        }
+    }
+
+    /**
+     * Writes a simple value, preceded by its tag.
+     *
+     * @param  value  the value to write.
+     * @throws  IOException
+     *          if writing fails.
+     */
+    private void writeValue(Object value) throws IOException {
+        if (value == null) {
+            output.writeByte(TAG_NULL);
+        } else if (value instanceof Boolean) {
+            writeBoolean((Boolean) value);
+        } else if (value instanceof Integer) {
+            output.writeByte(TAG_INT);
+            // Zigzag encode so small negative numbers remain small.
+            int i = (Integer) value;
+            writeLong(((i << 1) ^ (i >> 31)) & 0xFFFFFFFFL);
+        } else if (value instanceof Long) {
+            output.writeByte(TAG_LONG);
+            long l = (Long) value;
+            writeLong((l << 1) ^ (l >> 63));
+        } else if (value instanceof String) {
+            output.writeByte(TAG_STRING);
+            writeString((String) value);
+        } else if (value instanceof Enum) {
+            output.writeByte(TAG_ENUM);
+            Enum<?> e = (Enum<?>) value;
+            writeString(e.getDeclaringClass().getName());
+            writeString(e.name());
+        } else {
+            output.writeByte(TAG_LIST);
+            List<?> list = (List<?>) value;
+            writeInt(list.size());
+            for (Object element : list) {
+                writeValue(element);
+            }
+        }
+    }
+}
@@ -0,0 +1,369 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is the JSwat Core Module. The Initial Developer of the
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.util;
+
+import com.bluemarsh.jswat.core.PlatformProvider;
+import com.bluemarsh.jswat.core.PlatformService;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Class ChangeJournal is an append-only log of the changes made to the
+ * data kept in a snapshot file written by a {@link BeanWriter}. Rather
+ * than rewriting the entire snapshot after every change, the owner of the
+ * data appends a small record describing the change, and only now and then
+ * writes a new snapshot, at which point the journal is discarded. When the
+ * snapshot is next loaded, the records in the journal are replayed to
+ * recover the changes made since the snapshot was written.
+ *
+ * <p>Records are written in the background, in batches, and the file is
+ * forced to disk after each batch. Each record carries a checksum, such
+ * that a record torn by a crash is detected and ignored. The journal
+ * header identifies the snapshot to which it applies, by its checksum, so
+ * that a journal left over from before the latest snapshot is ignored.</p>
+ *
+ * <p>The contents of the records are entirely up to the owner of the
+ * journal, which would typically encode them using a BeanWriter.</p>
+ *
+ * @author  Nathan Fiedler
+ */
+public class ChangeJournal {
+    /** Logger for gracefully reporting unexpected errors. */
+    private static final Logger logger = Logger.getLogger(
+            ChangeJournal.class.getName());
+    /** Identifies the start of a journal ("JSWJ"). */
+    private static final int MAGIC = 0x4A53574A;
+    /** Milliseconds to wait for more records before writing a batch. */
+    private static final int BATCH_DELAY = 250;
+    /** Writes the journals and snapshots, one at a time. */
+    private static final RequestProcessor processor =
+            new RequestProcessor("JSwat Change Journal", 1);
+    /** Name of the journal file. */
+    private final String name;
+    /** Name of the snapshot file. */
+    private final String snapshotName;
+    /** Number of records after which a new snapshot is warranted. */
+    private final int threshold;
+    /** Writes the pending records and snapshot in the background. */
+    private final RequestProcessor.Task writer;
+    /** Serializes the writing of the files. */
+    private final Object writeLock;
+    /** Records waiting to be written. */
+    private List<byte[]> pending;
+    /** Snapshot waiting to be written, if any. */
+    private BeanWriter snapshot;
+    /** Number of records since the last snapshot. */
+    private int count;
+    /** Checksum of the snapshot to which the journal file applies. */
+    private long base;
+    /** True if the journal file has been started for the current base. */
+    private boolean started;
+    /** True if the writer has been scheduled to run. */
+    private boolean scheduled;
+
+    /**
+     * Creates a new instance of ChangeJournal.
+     *
+     * @param  name          name of the journal file.
+     * @param  snapshotName  name of the snapshot file.
+     * @param  threshold     number of records after which the owner ought
+     *                       to write a new snapshot.
+     */
+    public ChangeJournal(String name, String snapshotName, int threshold) {
+        this.name = name;
+        this.snapshotName = snapshotName;
+        this.threshold = threshold;
+        pending = new ArrayList<byte[]>();
+        writeLock = new Object();
+        writer = processor.create(new Runnable() {
+
+            @Override
+            public void run() {
+                write();
+            }
+        });
+    }
+
+    /**
+     * Adds a record to the journal. The record is written in the
+     * background, shortly after this method returns.
+     *
+     * @param  record  the encoded change.
+     * @return  true if a new snapshot is warranted, false otherwise.
+     */
+    public boolean append(byte[] record) {
+        synchronized (this) {
+            pending.add(record);
+            count++;
+            if (!scheduled) {
+                // Let the records accumulate into a batch.
+                scheduled = true;
+                writer.schedule(BATCH_DELAY);
+            }
+            return count >= threshold;
+        }
+    }
+
+    /**
+     * Computes the checksum of a record.
+     *
+     * @param  record  the record.
+     * @return  record checksum.
+     */
+    private static int checksum(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Deletes the journal, discarding any records that have not yet
+     * been written.
+     */
+    public void delete() {
+        synchronized (this) {
+            pending.clear();
+            snapshot = null;
+            count = 0;
+        }
+        synchronized (writeLock) {
+            try {
+                PlatformService platform = PlatformProvider.getPlatformService();
+                platform.deleteFile(name);
+            } catch (IOException ioe) {
+                logger.log(Level.SEVERE, null, ioe);
+            }
+            synchronized (this) {
+                started = false;
+            }
+        }
+    }
+
+    /**
+     * Writes the pending records, if any, without waiting for the batch
+     * to fill, and waits for them to be written.
+     */
+    public void flush() {
+        write();
+    }
+
+    /**
+     * Reads the records from the journal file, if it applies to the
+     * snapshot as it was last read or written. Records that follow a
+     * damaged record are ignored. Subsequent records will be appended
+     * to the file if it was intact, otherwise a new file is started, so
+     * the owner ought to take a snapshot after applying the records.
+     *
+     * @return  the records to be replayed, possibly empty.
+     */
+    public List<byte[]> replay() {
+        List<byte[]> records = new ArrayList<byte[]>();
+        boolean intact = false;
+        long sum = BeanWriter.getChecksum(snapshotName);
+        synchronized (writeLock) {
+            try {
+                PlatformService platform = PlatformProvider.getPlatformService();
+                InputStream is = platform.readFile(name);
+                DataInputStream dis = new DataInputStream(is);
+                try {
+                    if (dis.readInt() == MAGIC && dis.readLong() == sum) {
+                        intact = readRecords(dis, records);
+                    }
+                } finally {
+                    dis.close();
+                }
+            } catch (FileNotFoundException fnfe) {
+                // Nothing has changed since the snapshot.
+            } catch (EOFException eofe) {
+                // The header is incomplete.
+            } catch (IOException ioe) {
+                logger.log(Level.SEVERE, null, ioe);
+            }
+            synchronized (this) {
+                base = sum;
+                started = intact;
+                count = records.size();
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Reads the records from the journal, stopping at the first that is
+     * incomplete or damaged.
+     *
+     * @param  dis      journal input stream, positioned after the header.
+     * @param  records  list to which records are added.
+     * @return  true if all of the records were read, false if damaged.
+     * @throws  IOException
+     *          if reading fails.
+     */
+    private static boolean readRecords(DataInputStream dis, List<byte[]> records)
+            throws IOException {
+        while (true) {
+            int len;
+            try {
+                len = dis.readInt();
+            } catch (EOFException eofe) {
+                return true;
+            }
+            try {
+                int sum = dis.readInt();
+                if (len < 0) {
+                    return false;
+                }
+                byte[] record = new byte[len];
+                dis.readFully(record);
+                if (checksum(record) != sum) {
+                    return false;
+                }
+                records.add(record);
+            } catch (EOFException eofe) {
+                // The record was torn by a crash.
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Arranges for the snapshot to be written, after which the journal is
+     * discarded. The snapshot must reflect every change that has been
+     * appended thus far.
+     *
+     * @param  data  the snapshot.
+     * @param  wait  true to wait for the snapshot to be written.
+     */
+    public void snapshot(BeanWriter data, boolean wait) {
+        synchronized (this) {
+            // The snapshot includes these changes.
+            pending.clear();
+            snapshot = data;
+            count = 0;
+        }
+        if (wait) {
+            write();
+        } else {
+            synchronized (this) {
+                scheduled = true;
+            }
+            writer.schedule(0);
+        }
+    }
+
+    /**
+     * Writes the pending snapshot and records, if any, forcing the journal
+     * to disk afterward. The snapshot is written to a temporary file, forced
+     * to disk, and renamed over the old snapshot (see BeanWriter.save()),
+     * and only then is the old journal removed, such that a crash in the
+     * middle leaves either the old snapshot with its journal, or the new
+     * snapshot with a journal that is ignored because it does not apply to
+     * the new snapshot.
+     */
+    private void write() {
+        synchronized (writeLock) {
+            BeanWriter data;
+            List<byte[]> records;
+            synchronized (this) {
+                data = snapshot;
+                snapshot = null;
+                records = pending;
+                pending = new ArrayList<byte[]>();
+                scheduled = false;
+            }
+            PlatformService platform = PlatformProvider.getPlatformService();
+            try {
+                if (data != null) {
+                    data.save(snapshotName);
+                    platform.deleteFile(name);
+                    synchronized (this) {
+                        base = BeanWriter.getChecksum(snapshotName);
+                        started = false;
+                    }
+                }
+                if (!records.isEmpty()) {
+                    writeRecords(platform, records);
+                }
+            } catch (IOException ioe) {
+                logger.log(Level.SEVERE, null, ioe);
+            }
+        }
+    }
+
+    /**
+     * Writes the records to the journal file, starting a new file if
+     * necessary, and forces the file to disk.
+     *
+     * @param  platform  platform service.
+     * @param  records   records to be written.
+     * @throws  IOException
+     *          if writing fails.
+     */
+    private void writeRecords(PlatformService platform, List<byte[]> records)
+            throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream dos = new DataOutputStream(baos);
+        boolean append;
+        synchronized (this) {
+            append = started;
+            if (!append) {
+                dos.writeInt(MAGIC);
+                dos.writeLong(base);
+            }
+        }
+        for (byte[] record : records) {
+            dos.writeInt(record.length);
+            dos.writeInt(checksum(record));
+            dos.write(record);
+        }
+        dos.flush();
+        try {
+            OutputStream os = append ? platform.appendFile(name)
+                    : platform.writeFile(name);
+            try {
+                baos.writeTo(os);
+                os.flush();
+                if (os instanceof FileOutputStream) {
+                    ((FileOutputStream) os).getFD().sync();
+                }
+            } finally {
+                os.close();
+            }
+        } finally {
+            platform.releaseLock(name);
+        }
+        synchronized (this) {
+            started = true;
+        }
+    }
+}
@@ -0,0 +1,429 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is the JSwat Core Module. The Initial Developer of the
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.util;
+
+import com.bluemarsh.jswat.core.event.Dispatcher;
+import com.bluemarsh.jswat.core.event.DispatcherListener;
+import com.bluemarsh.jswat.core.event.DispatcherProvider;
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.session.SessionEvent;
+import com.bluemarsh.jswat.core.session.SessionListener;
+import com.bluemarsh.jswat.core.session.SessionProvider;
+import com.sun.jdi.ReferenceType;
+import com.sun.jdi.VMDisconnectedException;
+import com.sun.jdi.VirtualMachine;
+import com.sun.jdi.event.ClassPrepareEvent;
+import com.sun.jdi.event.ClassUnloadEvent;
+import com.sun.jdi.event.Event;
+import com.sun.jdi.request.ClassPrepareRequest;
+import com.sun.jdi.request.ClassUnloadRequest;
+import com.sun.jdi.request.EventRequest;
+import com.sun.jdi.request.EventRequestManager;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Class ClassIndex maintains an index of the classes loaded in the debuggee
+ * of a session, so that queries by simple name, name prefix or suffix, or
+ * package do not require retrieving and scanning every loaded class, which
+ * can be very slow when many classes are loaded.
+ *
+ * <p>The index is seeded from <code>VirtualMachine.allClasses()</code> the
+ * first time it is queried after the session connects, and is then kept
+ * current using class prepare and unload events. Array types are included
+ * as of the time the index was seeded, since the debuggee does not report
+ * the creation of array types.</p>
+ *
+ * @author  Nathan Fiedler
+ */
+public class ClassIndex implements DispatcherListener, SessionListener {
+    /** ClassIndex instances, keyed by Session instance. */
+    private static final Map<Session, ClassIndex> instanceMap =
+            new HashMap<Session, ClassIndex>();
+    /** Session for which we index classes. */
+    private final Session session;
+    /** The debuggee for which the index was seeded. */
+    private VirtualMachine ourVM;
+    /** Requests for keeping the index current. */
+    private final List<EventRequest> requests;
+    /** All of the indexed classes. */
+    private final Set<ReferenceType> classes;
+    /** Classes keyed by fully-qualified name, in name order. */
+    private final TreeMap<String, List<ReferenceType>> byName;
+    /** Classes keyed by reversed fully-qualified name, in name order. */
+    private final TreeMap<String, List<ReferenceType>> byReversedName;
+    /** Classes keyed by the name following the last period. */
+    private final Map<String, List<ReferenceType>> bySimpleName;
+    /** Classes keyed by the name of their package. */
+    private final Map<String, List<ReferenceType>> byPackage;
+
+    /**
+     * Creates a new instance of ClassIndex.
+     *
+     * @param  session  session for which to index classes.
+     */
+    private ClassIndex(Session session) {
+        this.session = session;
+        requests = new ArrayList<EventRequest>(2);
+        classes = new LinkedHashSet<ReferenceType>();
+        byName = new TreeMap<String, List<ReferenceType>>();
+        byReversedName = new TreeMap<String, List<ReferenceType>>();
+        bySimpleName = new HashMap<String, List<ReferenceType>>();
+        byPackage = new HashMap<String, List<ReferenceType>>();
+    }
+
+    /**
+     * Add the given class to the index, if not already present.
+     *
+     * @param  clazz  class to be added.
+     */
+    private void add(ReferenceType clazz) {
+        if (classes.add(clazz)) {
+            String name = clazz.name();
+            put(byName, name, clazz);
+            put(byReversedName, reverse(name), clazz);
+            int dot = name.lastIndexOf('.');
+            put(bySimpleName, name.substring(dot + 1), clazz);
+            put(byPackage, dot < 0 ? "" : name.substring(0, dot), clazz);
+        }
+    }
+
+    /**
+     * Forget all of the indexed classes, deleting the event requests if
+     * the debuggee is still connected.
+     */
+    private void clear() {
+        if (ourVM != null) {
+            try {
+                EventRequestManager erm = ourVM.eventRequestManager();
+                erm.deleteEventRequests(requests);
+            } catch (VMDisconnectedException vmde) {
+                // This happens all the time.
+            }
+        }
+        requests.clear();
+        classes.clear();
+        byName.clear();
+        byReversedName.clear();
+        bySimpleName.clear();
+        byPackage.clear();
+        ourVM = null;
+    }
+
+    @Override
+    public void closing(SessionEvent sevt) {
+        synchronized (instanceMap) {
+            instanceMap.remove(session);
+        }
+    }
+
+    @Override
+    public void connected(SessionEvent sevt) {
+    }
+
+    @Override
+    public synchronized void disconnected(SessionEvent sevt) {
+        clear();
+    }
+
+    /**
+     * Make certain the index reflects the debuggee currently attached to
+     * the session, seeding it with the loaded classes if necessary. The
+     * caller must hold the lock on this index.
+     */
+    private void ensureSeeded() {
+        VirtualMachine vm = session.isConnected()
+                ? session.getConnection().getVM() : null;
+        if (vm == ourVM) {
+            return;
+        }
+        clear();
+        if (vm == null) {
+            return;
+        }
+        ourVM = vm;
+        // Create the requests before retrieving the classes, so that no
+        // class can slip through between the two.
+        EventRequestManager erm = vm.eventRequestManager();
+        Dispatcher dispatcher = DispatcherProvider.getDispatcher(session);
+        ClassPrepareRequest cpr = erm.createClassPrepareRequest();
+        cpr.setSuspendPolicy(EventRequest.SUSPEND_NONE);
+        dispatcher.register(this, cpr);
+        cpr.setEnabled(true);
+        requests.add(cpr);
+        ClassUnloadRequest cur = erm.createClassUnloadRequest();
+        cur.setSuspendPolicy(EventRequest.SUSPEND_NONE);
+        dispatcher.register(this, cur);
+        cur.setEnabled(true);
+        requests.add(cur);
+        long start = JdwpProfiler.start();
+        List<ReferenceType> classes = vm.allClasses();
+        JdwpProfiler.record(vm, JdwpProfiler.Category.CLASSES, start);
+        for (ReferenceType clazz : classes) {
+            add(clazz);
+        }
+    }
+
+    @Override
+    public synchronized boolean eventOccurred(Event event) {
+        if (event.virtualMachine() != ourVM) {
+            // Left over from an earlier connection.
+            return true;
+        }
+        if (event instanceof ClassPrepareEvent) {
+            add(((ClassPrepareEvent) event).referenceType());
+        } else if (event instanceof ClassUnloadEvent) {
+            // The event does not identify which of the classes by
+            // that name was unloaded, so ask for those that remain.
+            String name = ((ClassUnloadEvent) event).className();
+            List<ReferenceType> types = byName.get(name);
+            if (types != null) {
+                for (ReferenceType clazz : new ArrayList<ReferenceType>(types)) {
+                    remove(clazz, name);
+                }
+            }
+            long start = JdwpProfiler.start();
+            List<ReferenceType> classes = ourVM.classesByName(name);
+            JdwpProfiler.record(ourVM, JdwpProfiler.Category.CLASSES, start);
+            for (ReferenceType clazz : classes) {
+                add(clazz);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Find the classes with the given fully-qualified name.
+     *
+     * @param  name  fully-qualified class name.
+     * @return  matching classes, possibly empty.
+     */
+    public synchronized List<ReferenceType> findByName(String name) {
+        ensureSeeded();
+        return get(byName, name);
+    }
+
+    /**
+     * Find the classes in the named package, not including those in
+     * packages nested within it.
+     *
+     * @param  pkg  name of package, or empty string for default package.
+     * @return  matching classes, possibly empty.
+     */
+    public synchronized List<ReferenceType> findByPackage(String pkg) {
+        ensureSeeded();
+        return get(byPackage, pkg);
+    }
+
+    /**
+     * Find the classes whose fully-qualified names start with the given
+     * prefix.
+     *
+     * @param  prefix  class name prefix.
+     * @return  matching classes, in name order, possibly empty.
+     */
+    public synchronized List<ReferenceType> findByPrefix(String prefix) {
+        ensureSeeded();
+        return collect(byName, prefix);
+    }
+
+    /**
+     * Find the classes whose simple name (the part of the fully-qualified
+     * name following the last period) is the given name. Nested classes
+     * have a simple name of the form <code>Outer$Inner</code>.
+     *
+     * @param  name  simple class name.
+     * @return  matching classes, possibly empty.
+     */
+    public synchronized List<ReferenceType> findBySimpleName(String name) {
+        ensureSeeded();
+        return get(bySimpleName, name);
+    }
+
+    /**
+     * Find the classes whose fully-qualified names end with the given
+     * suffix.
+     *
+     * @param  suffix  class name suffix.
+     * @return  matching classes, possibly empty.
+     */
+    public synchronized List<ReferenceType> findBySuffix(String suffix) {
+        ensureSeeded();
+        return collect(byReversedName, reverse(suffix));
+    }
+
+    /**
+     * Collect the classes whose keys start with the given prefix.
+     *
+     * @param  map     sorted map of classes.
+     * @param  prefix  key prefix.
+     * @return  matching classes.
+     */
+    private static List<ReferenceType> collect(
+            TreeMap<String, List<ReferenceType>> map, String prefix) {
+        List<ReferenceType> result = new ArrayList<ReferenceType>();
+        for (Map.Entry<String, List<ReferenceType>> entry
+                : map.tailMap(prefix).entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            result.addAll(entry.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Retrieve a copy of the classes mapped to the given key.
+     *
+     * @param  map  map of classes.
+     * @param  key  key to look up.
+     * @return  matching classes.
+     */
+    private static List<ReferenceType> get(
+            Map<String, List<ReferenceType>> map, String key) {
+        List<ReferenceType> list = map.get(key);
+        if (list == null) {
+            return new ArrayList<ReferenceType>(0);
+        }
+        return new ArrayList<ReferenceType>(list);
+    }
+
+    /**
+     * Retrieve all of the classes loaded in the debuggee.
+     *
+     * @return  loaded classes, possibly empty.
+     */
+    public synchronized List<ReferenceType> getAllClasses() {
+        ensureSeeded();
+        return new ArrayList<ReferenceType>(classes);
+    }
+
+    /**
+     * Retrieve the ClassIndex instance for the given Session, creating
+     * one if necessary.
+     *
+     * @param  session  Session for which to get ClassIndex.
+     * @return  ClassIndex instance.
+     */
+    public static ClassIndex getInstance(Session session) {
+        synchronized (instanceMap) {
+            ClassIndex inst = instanceMap.get(session);
+            if (inst == null) {
+                inst = new ClassIndex(session);
+                instanceMap.put(session, inst);
+                session.addSessionListener(inst);
+            }
+            return inst;
+        }
+    }
+
+    /**
+     * Retrieve the ClassIndex instance for the Session that is connected
+     * to the given debuggee.
+     *
+     * @param  vm  debuggee virtual machine.
+     * @return  ClassIndex instance, or null if no session is connected
+     *          to the debuggee.
+     */
+    public static ClassIndex getInstance(VirtualMachine vm) {
+        Session session = SessionProvider.getSessionManager().findByVM(vm);
+        return session == null ? null : getInstance(session);
+    }
+
+    @Override
+    public void opened(Session session) {
+    }
+
+    /**
+     * Add the class to the list mapped to the given key.
+     *
+     * @param  map    map of classes.
+     * @param  key    key of class.
+     * @param  clazz  class to be added.
+     */
+    private static void put(Map<String, List<ReferenceType>> map, String key,
+            ReferenceType clazz) {
+        List<ReferenceType> list = map.get(key);
+        if (list == null) {
+            list = new ArrayList<ReferenceType>(1);
+            map.put(key, list);
+        }
+        list.add(clazz);
+    }
+
+    /**
+     * Remove the given class from the index. The name is provided as
+     * the class may no longer be accessible in the debuggee.
+     *
+     * @param  clazz  class to be removed.
+     * @param  name   fully-qualified name of the class.
+     */
+    private void remove(ReferenceType clazz, String name) {
+        if (classes.remove(clazz)) {
+            remove(byName, name, clazz);
+            remove(byReversedName, reverse(name), clazz);
+            int dot = name.lastIndexOf('.');
+            remove(bySimpleName, name.substring(dot + 1), clazz);
+            remove(byPackage, dot < 0 ? "" : name.substring(0, dot), clazz);
+        }
+    }
+
+    /**
+     * Remove the class from the list mapped to the given key.
+     *
+     * @param  map    map of classes.
+     * @param  key    key of class.
+     * @param  clazz  class to be removed.
+     */
+    private static void remove(Map<String, List<ReferenceType>> map,
+            String key, ReferenceType clazz) {
+        List<ReferenceType> list = map.get(key);
+        if (list != null) {
+            list.remove(clazz);
+            if (list.isEmpty()) {
+                map.remove(key);
+            }
+        }
+    }
+
+    @Override
+    public void resuming(SessionEvent sevt) {
+    }
+
+    /**
+     * Reverse the characters of the given string.
+     *
+     * @param  s  string to reverse.
+     * @return  reversed string.
+     */
+    private static String reverse(String s) {
+        return new StringBuilder(s).reverse().toString();
+    }
+
+    @Override
+    public void suspended(SessionEvent sevt) {
+    }
+}
@@ -23,11 +23,6 @@
 package com.bluemarsh.jswat.core.util;
 
 import com.bluemarsh.jswat.core.CoreSettings;
-import com.bluemarsh.jswat.core.breakpoint.BreakpointGroup;
-import com.bluemarsh.jswat.core.breakpoint.BreakpointManager;
-import com.bluemarsh.jswat.core.breakpoint.BreakpointProvider;
-import com.bluemarsh.jswat.core.session.Session;
-import com.bluemarsh.jswat.core.session.SessionProvider;
 import com.sun.jdi.ClassNotLoadedException;
 import com.sun.jdi.ClassType;
 import com.sun.jdi.InvalidTypeException;
@@ -47,9 +42,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Class Classes provides a set of utility functions for dealing with
@@ -58,6 +51,8 @@ import java.util.concurrent.TimeoutException;
  * @author  Nathan Fiedler
  */
 public class Classes {
+    /** Number of times classes have been redefined via hotswap. */
+    private static final AtomicLong redefinitionCount = new AtomicLong();
 
     /**
      * Creates a new instance of Classes.
@@ -82,7 +77,10 @@ public class Classes {
         String pattern = expr;
         if (pattern.indexOf('*') == -1) {
             // It's just a class name, try to find it.
-            return vm.classesByName(pattern);
+            long start = JdwpProfiler.start();
+            List<ReferenceType> classes = vm.classesByName(pattern);
+            JdwpProfiler.record(vm, JdwpProfiler.Category.CLASSES, start);
+            return classes;
         } else {
             // Wild card exists, have to search manually.
             List<ReferenceType> result = new ArrayList<ReferenceType>();
@@ -95,7 +93,14 @@ public class Classes {
             } else {
                 throw new IllegalArgumentException("embedded wildcard not allowed");
             }
+            ClassIndex index = ClassIndex.getInstance(vm);
+            if (index != null) {
+                return head ? index.findBySuffix(pattern)
+                        : index.findByPrefix(pattern);
+            }
+            long start = JdwpProfiler.start();
             List<ReferenceType> classes = vm.allClasses();
+            JdwpProfiler.record(vm, JdwpProfiler.Category.CLASSES, start);
             for (ReferenceType type : classes) {
                 if (head && type.name().endsWith(pattern)) {
                     result.add(type);
@@ -151,13 +156,15 @@ public class Classes {
                     // But the method has to be a constructor.
                     continue;
                 }
-            } else if (!methodName.equals(candidate.name())) {
+            } else if (!methodName.equals(
+                    MirrorCache.getMethodInfo(candidate).getName())) {
                 // Method name does not match. This will pass the <init>
                 // initializer methods, since they are not constructors
                 // and the user must specifically enter "<init>".
                 continue;
             }
-            List<String> candidateTypes = candidate.argumentTypeNames();
+            List<String> candidateTypes = MirrorCache.getMethodInfo(
+                    candidate).getArgumentTypeNames();
             if (candidateTypes.size() != argumentTypes.size()) {
                 continue;
             }
@@ -273,6 +280,18 @@ public class Classes {
         return superclass == null ? 0 : 1 + getClassDepth(superclass);
     }
 
+    /**
+     * Returns the number of times a class has been redefined by the
+     * {@link #hotswap} method. Callers that cache the results of looking
+     * up fields, methods, or variables may compare this value against
+     * the one seen when the entry was cached to detect stale entries.
+     *
+     * @return  class redefinition count.
+     */
+    public static long getRedefinitionCount() {
+        return redefinitionCount.get();
+    }
+
     /**
      * Perform the hotswap operation on the given class. If anything
      * goes wrong, it will be reported as an exception.
@@ -329,6 +348,8 @@ public class Classes {
         Map<ReferenceType, byte[]> map = new HashMap<ReferenceType, byte[]>();
         map.put(clazz, byteCode);
         vm.redefineClasses(map);
+        redefinitionCount.incrementAndGet();
+        SuspendCache.invalidate(vm);
     }
 
     /**
@@ -361,26 +382,14 @@ public class Classes {
         Invoker invoker = new Invoker(object, clazz, thread, method, arguments);
         CoreSettings cs = CoreSettings.getDefault();
         int timeout = cs.getInvocationTimeout();
-        Future<Value> future = Threads.getThreadPool().submit(invoker);
-        Value v = null;
-        // Disable all of the breakpoints to avoid hitting them while
-        // invoking the target method.
-        Session session = SessionProvider.getCurrentSession();
-        BreakpointManager bm = BreakpointProvider.getBreakpointManager(session);
-        BreakpointGroup bg = bm.getDefaultGroup();
-        boolean enabled = bg.isEnabled();
-        bg.setEnabled(false);
-        try {
-            v = future.get(timeout, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException ie) {
-            future.cancel(true);
-        } catch (TimeoutException te) {
-            future.cancel(true);
-        } finally {
-            // Re-enable all of the breakpoints, regardless if an
-            // exception has occurred or not.
-            bg.setEnabled(enabled);
+        // Use the session to which the thread belongs, which is not
+        // necessarily the current session.
+        InvocationExecutor executor = InvocationExecutor.getInstance(
+                thread.virtualMachine());
+        if (executor == null) {
+            throw new IllegalArgumentException("thread not in any session");
         }
+        Value v = executor.invoke(invoker, timeout);
         return v;
     }
 
@@ -425,6 +434,8 @@ public class Classes {
         public Value call() throws Exception {
             // It is not safe to invoke methods with the single-threaded
             // bit flag, so let JDI resume all of the threads normally.
+            // This renders the stack frames read thus far invalid.
+            SuspendCache.invalidate(thread.virtualMachine());
             if (object == null) {
                 return clazz.invokeMethod(thread, method, arguments, 0);
             } else {
@@ -0,0 +1,557 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is the JSwat Core Module. The Initial Developer of the
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.util;
+
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.session.SessionEvent;
+import com.bluemarsh.jswat.core.session.SessionListener;
+import com.bluemarsh.jswat.core.session.SessionProvider;
+import com.sun.jdi.ArrayReference;
+import com.sun.jdi.Field;
+import com.sun.jdi.IntegerValue;
+import com.sun.jdi.ObjectReference;
+import com.sun.jdi.ReferenceType;
+import com.sun.jdi.Value;
+import com.sun.jdi.VirtualMachine;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class ElementReader retrieves the elements of arrays and of the common
+ * collection classes, one page at a time. Rather than invoking methods
+ * in the debuggee (e.g. <code>iterator()</code>), the collections are read
+ * by examining the fields of the known JDK implementations, such as the
+ * <code>elementData</code> array of <code>ArrayList</code> and the
+ * <code>table</code> of <code>HashMap</code>. Only those elements that
+ * are requested are retrieved, so very large collections may be examined
+ * without undue delay.
+ *
+ * <p>The pages read from the debuggee are cached until the debuggee is
+ * resumed, at which point their contents can no longer be trusted. Note
+ * that hashed collections are read in the order of their hash table, and
+ * the elements of a hashed collection can only be reached by walking the
+ * table up to the desired position.</p>
+ *
+ * @author  Nathan Fiedler
+ */
+public class ElementReader implements SessionListener {
+    /** Number of elements in each page. */
+    public static final int PAGE_SIZE = 100;
+    /** Number of hash table buckets retrieved at one time. */
+    private static final int TABLE_CHUNK = 1024;
+    /** Known collection layouts, keyed by the name of the class. */
+    private static final Map<String, Layout> layouts;
+    /** ElementReader instances, keyed by Session instance. */
+    private static final Map<Session, ElementReader> instanceMap =
+            new HashMap<Session, ElementReader>();
+    /** Session for which we read elements, or null if none. */
+    private final Session session;
+    /** Contents of the collections read since the debuggee suspended. */
+    private final Map<ObjectReference, Contents> contents;
+    /** Fields of the hash table entry types, keyed by type. */
+    private final Map<ReferenceType, List<Field>> entryFields;
+    /** Number of pages retrieved from the debuggee. */
+    private long pageReads;
+
+    static {
+        layouts = new HashMap<String, Layout>();
+        Layout list = new Layout("elementData", "size", false, null);
+        layouts.put("java.util.ArrayList", list);
+        Layout vector = new Layout("elementData", "elementCount", false, null);
+        layouts.put("java.util.Vector", vector);
+        layouts.put("java.util.Stack", vector);
+        Layout map = new Layout("table", "size", true, null);
+        layouts.put("java.util.HashMap", map);
+        layouts.put("java.util.LinkedHashMap", map);
+        layouts.put("java.util.Hashtable", new Layout("table", "count", true, null));
+        Layout set = new Layout(null, null, true, "map");
+        layouts.put("java.util.HashSet", set);
+        layouts.put("java.util.LinkedHashSet", set);
+    }
+
+    /**
+     * Creates a new instance of ElementReader.
+     *
+     * @param  session  session for which elements are read (may be null).
+     */
+    ElementReader(Session session) {
+        this.session = session;
+        contents = new HashMap<ObjectReference, Contents>();
+        entryFields = new HashMap<ReferenceType, List<Field>>();
+    }
+
+    /**
+     * Indicates if the elements of the given object can be read without
+     * invoking methods in the debuggee.
+     *
+     * @param  object  object to be read.
+     * @return  true if object is an array or a supported collection.
+     */
+    public static boolean canRead(ObjectReference object) {
+        if (object instanceof ArrayReference) {
+            return true;
+        }
+        ReferenceType type = object.referenceType();
+        Layout layout = layouts.get(type.name());
+        if (layout == null) {
+            return false;
+        }
+        if (layout.delegate != null) {
+            return type.fieldByName(layout.delegate) != null;
+        }
+        return type.fieldByName(layout.data) != null
+                && type.fieldByName(layout.size) != null;
+    }
+
+    /**
+     * Discard all of the cached contents.
+     */
+    public synchronized void clear() {
+        contents.clear();
+    }
+
+    @Override
+    public void closing(SessionEvent sevt) {
+        synchronized (instanceMap) {
+            instanceMap.remove(session);
+        }
+    }
+
+    @Override
+    public void connected(SessionEvent sevt) {
+    }
+
+    @Override
+    public synchronized void disconnected(SessionEvent sevt) {
+        clear();
+        entryFields.clear();
+    }
+
+    /**
+     * Retrieve the contents of the given object, reading the size and
+     * data fields of the object if it has not been read already.
+     *
+     * @param  object  array or collection.
+     * @return  contents of the object.
+     * @throws  IllegalArgumentException
+     *          if the object cannot be read.
+     */
+    private Contents getContents(ObjectReference object) {
+        Contents c = contents.get(object);
+        if (c != null) {
+            return c;
+        }
+        if (object instanceof ArrayReference) {
+            ArrayReference array = (ArrayReference) object;
+            c = new Contents(array, array.length(), false, false);
+        } else {
+            ReferenceType type = object.referenceType();
+            Layout layout = layouts.get(type.name());
+            if (layout == null) {
+                throw new IllegalArgumentException("unsupported type: "
+                        + type.name());
+            }
+            if (layout.delegate != null) {
+                // The set is backed by a map, whose keys are the elements.
+                Field field = type.fieldByName(layout.delegate);
+                ObjectReference map = (ObjectReference) object.getValue(field);
+                Contents mc = getContents(map);
+                c = new Contents(mc.data, mc.size, true, true);
+            } else {
+                Field dataField = type.fieldByName(layout.data);
+                Field sizeField = type.fieldByName(layout.size);
+                List<Field> fields = new ArrayList<Field>(2);
+                fields.add(dataField);
+                fields.add(sizeField);
+                long start = JdwpProfiler.start();
+                Map<Field, Value> values = object.getValues(fields);
+                JdwpProfiler.record(object.virtualMachine(),
+                        JdwpProfiler.Category.VALUES, start);
+                ArrayReference data = (ArrayReference) values.get(dataField);
+                int size = ((IntegerValue) values.get(sizeField)).value();
+                if (data == null) {
+                    // Empty hash tables are allocated lazily.
+                    size = 0;
+                }
+                c = new Contents(data, size, layout.hashed, false);
+            }
+        }
+        contents.put(object, c);
+        return c;
+    }
+
+    /**
+     * Retrieve a range of the elements of the given array or collection.
+     * Fewer elements than requested are returned if the end of the
+     * collection is reached.
+     *
+     * @param  object  array or collection, for which <code>canRead()</code>
+     *                 returned true.
+     * @param  start   index of first element.
+     * @param  count   maximum number of elements to retrieve.
+     * @return  list of elements.
+     * @throws  IllegalArgumentException
+     *          if the object cannot be read.
+     */
+    public synchronized List<Element> getElements(ObjectReference object,
+            int start, int count) {
+        if (start < 0 || count < 0) {
+            throw new IndexOutOfBoundsException("start: " + start
+                    + ", count: " + count);
+        }
+        Contents c = getContents(object);
+        int end = (int) Math.min((long) start + count, c.size);
+        if (start >= end) {
+            return Collections.emptyList();
+        }
+        if (c.hashed) {
+            walk(c, end);
+            end = Math.min(end, c.walked.size());
+            if (start >= end) {
+                return Collections.emptyList();
+            }
+            return new ArrayList<Element>(c.walked.subList(start, end));
+        }
+        List<Element> results = new ArrayList<Element>(end - start);
+        int page = start / PAGE_SIZE;
+        while (page * PAGE_SIZE < end) {
+            List<Element> elements = getPage(c, page);
+            int first = Math.max(start - page * PAGE_SIZE, 0);
+            int last = Math.min(end - page * PAGE_SIZE, elements.size());
+            results.addAll(elements.subList(first, last));
+            page++;
+        }
+        return results;
+    }
+
+    /**
+     * Retrieve the fields of the given hash table entry type, in the order
+     * of key, value, and next.
+     *
+     * @param  type  hash table entry type.
+     * @return  list of entry fields.
+     */
+    private List<Field> getEntryFields(ReferenceType type) {
+        List<Field> fields = entryFields.get(type);
+        if (fields == null) {
+            fields = new ArrayList<Field>(3);
+            fields.add(type.fieldByName("key"));
+            fields.add(type.fieldByName("value"));
+            fields.add(type.fieldByName("next"));
+            if (fields.contains(null)) {
+                throw new IllegalArgumentException(
+                        "unsupported entry type: " + type.name());
+            }
+            entryFields.put(type, fields);
+        }
+        return fields;
+    }
+
+    /**
+     * Retrieve the ElementReader instance for the given Session, creating
+     * one if necessary.
+     *
+     * @param  session  Session for which to get ElementReader.
+     * @return  ElementReader instance.
+     */
+    public static ElementReader getInstance(Session session) {
+        synchronized (instanceMap) {
+            ElementReader inst = instanceMap.get(session);
+            if (inst == null) {
+                inst = new ElementReader(session);
+                instanceMap.put(session, inst);
+                session.addSessionListener(inst);
+            }
+            return inst;
+        }
+    }
+
+    /**
+     * Retrieve the ElementReader instance for the Session that is connected
+     * to the given debuggee. If there is no such session, a new instance is
+     * returned, which the caller may use for as long as the debuggee
+     * remains suspended.
+     *
+     * @param  vm  debuggee virtual machine.
+     * @return  ElementReader instance.
+     */
+    public static ElementReader getInstance(VirtualMachine vm) {
+        Session session = SessionProvider.getSessionManager().findByVM(vm);
+        return session == null ? new ElementReader(null) : getInstance(session);
+    }
+
+    /**
+     * Retrieve the given page of the array or list, from the cache if it
+     * has been read already.
+     *
+     * @param  c     contents of the array or list.
+     * @param  page  page number.
+     * @return  elements of the page.
+     */
+    private List<Element> getPage(Contents c, int page) {
+        Integer key = Integer.valueOf(page);
+        List<Element> elements = c.pages.get(key);
+        if (elements == null) {
+            int start = page * PAGE_SIZE;
+            int length = Math.min(PAGE_SIZE, c.size - start);
+            long begin = JdwpProfiler.start();
+            List<Value> values = c.data.getValues(start, length);
+            JdwpProfiler.record(c.data.virtualMachine(),
+                    JdwpProfiler.Category.VALUES, begin);
+            pageReads++;
+            elements = new ArrayList<Element>(length);
+            int index = start;
+            for (Value value : values) {
+                elements.add(new Element(index, null, value));
+                index++;
+            }
+            c.pages.put(key, elements);
+        }
+        return elements;
+    }
+
+    /**
+     * Returns the number of pages that have been retrieved from the
+     * debuggee, which does not include pages found in the cache.
+     *
+     * @return  number of page reads.
+     */
+    public synchronized long getPageReads() {
+        return pageReads;
+    }
+
+    /**
+     * Returns the number of elements in the given array or collection.
+     *
+     * @param  object  array or collection, for which <code>canRead()</code>
+     *                 returned true.
+     * @return  number of elements.
+     * @throws  IllegalArgumentException
+     *          if the object cannot be read.
+     */
+    public synchronized int getSize(ObjectReference object) {
+        return getContents(object).size;
+    }
+
+    /**
+     * Indicates if the given collection consists of key/value pairs.
+     *
+     * @param  object  array or collection, for which <code>canRead()</code>
+     *                 returned true.
+     * @return  true if object is a map, false otherwise.
+     */
+    public synchronized boolean isMap(ObjectReference object) {
+        Contents c = getContents(object);
+        return c.hashed && !c.keysOnly;
+    }
+
+    @Override
+    public void opened(Session session) {
+    }
+
+    @Override
+    public void resuming(SessionEvent sevt) {
+        // The contents of the debuggee are about to change.
+        clear();
+    }
+
+    @Override
+    public void suspended(SessionEvent sevt) {
+        clear();
+    }
+
+    /**
+     * Walk the hash table until the given number of elements have been
+     * read, or the end of the table is reached.
+     *
+     * @param  c      contents of the hashed collection.
+     * @param  limit  number of elements to be read.
+     */
+    private void walk(Contents c, int limit) {
+        int buckets = c.data.length();
+        while (c.walked.size() < limit) {
+            if (c.pending == null) {
+                if (c.bucket >= buckets) {
+                    break;
+                }
+                int offset = c.bucket - c.chunkStart;
+                if (c.chunk == null || offset >= c.chunk.size()) {
+                    int length = Math.min(TABLE_CHUNK, buckets - c.bucket);
+                    long start = JdwpProfiler.start();
+                    c.chunk = c.data.getValues(c.bucket, length);
+                    JdwpProfiler.record(c.data.virtualMachine(),
+                            JdwpProfiler.Category.VALUES, start);
+                    c.chunkStart = c.bucket;
+                    pageReads++;
+                    offset = 0;
+                }
+                c.pending = (ObjectReference) c.chunk.get(offset);
+                c.bucket++;
+            } else {
+                ObjectReference entry = c.pending;
+                List<Field> fields = getEntryFields(entry.referenceType());
+                long start = JdwpProfiler.start();
+                Map<Field, Value> values = entry.getValues(fields);
+                JdwpProfiler.record(entry.virtualMachine(),
+                        JdwpProfiler.Category.VALUES, start);
+                Value key = values.get(fields.get(0));
+                int index = c.walked.size();
+                if (c.keysOnly) {
+                    c.walked.add(new Element(index, null, key));
+                } else {
+                    Value value = values.get(fields.get(1));
+                    c.walked.add(new Element(index, key, value));
+                }
+                c.pending = (ObjectReference) values.get(fields.get(2));
+            }
+        }
+    }
+
+    /**
+     * A single element of an array or collection.
+     */
+    public static class Element {
+        /** Position of the element within the collection. */
+        private final int index;
+        /** Key of the map entry, or null if not a map. */
+        private final Value key;
+        /** Value of the element. */
+        private final Value value;
+
+        /**
+         * Constructs a new Element.
+         *
+         * @param  index  position of element.
+         * @param  key    map key, if any.
+         * @param  value  element value.
+         */
+        Element(int index, Value key, Value value) {
+            this.index = index;
+            this.key = key;
+            this.value = value;
+        }
+
+        /**
+         * Returns the position of the element within the collection.
+         *
+         * @return  element index.
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Returns the key of the map entry. Note that a map may have a
+         * null key, so use <code>ElementReader.isMap()</code> to determine
+         * if the collection is a map.
+         *
+         * @return  map key, or null if none.
+         */
+        public Value getKey() {
+            return key;
+        }
+
+        /**
+         * Returns the value of the element.
+         *
+         * @return  element value.
+         */
+        public Value getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * Contents of an array or collection that have been read so far.
+     */
+    private static class Contents {
+        /** Array holding the elements, or the hash table. */
+        private final ArrayReference data;
+        /** Number of elements. */
+        private final int size;
+        /** True if data is a hash table. */
+        private final boolean hashed;
+        /** True if only the keys of the hash table are of interest. */
+        private final boolean keysOnly;
+        /** Pages of the array or list that have been read. */
+        private final Map<Integer, List<Element>> pages;
+        /** Elements of the hash table that have been read so far. */
+        private final List<Element> walked;
+        /** Index of the next bucket of the hash table to be read. */
+        private int bucket;
+        /** Buckets most recently retrieved from the hash table. */
+        private List<Value> chunk;
+        /** Index of the first bucket in the chunk. */
+        private int chunkStart;
+        /** Next entry in the current bucket, or null if none. */
+        private ObjectReference pending;
+
+        /**
+         * Constructs a new Contents.
+         *
+         * @param  data      element array or hash table.
+         * @param  size      number of elements.
+         * @param  hashed    true if data is a hash table.
+         * @param  keysOnly  true if only the keys are of interest.
+         */
+        Contents(ArrayReference data, int size, boolean hashed,
+                boolean keysOnly) {
+            this.data = data;
+            this.size = size;
+            this.hashed = hashed;
+            this.keysOnly = keysOnly;
+            pages = new HashMap<Integer, List<Element>>();
+            walked = new ArrayList<Element>();
+        }
+    }
+
+    /**
+     * Describes the fields in which a collection class holds its elements.
+     */
+    private static class Layout {
+        /** Name of the field holding the element array or hash table. */
+        private final String data;
+        /** Name of the field holding the number of elements. */
+        private final String size;
+        /** True if the data field refers to a hash table. */
+        private final boolean hashed;
+        /** Name of the field holding the backing map, if any. */
+        private final String delegate;
+
+        /**
+         * Constructs a new Layout.
+         *
+         * @param  data      name of element array field.
+         * @param  size      name of element count field.
+         * @param  hashed    true if data is a hash table.
+         * @param  delegate  name of backing map field.
+         */
+        Layout(String data, String size, boolean hashed, String delegate) {
+            this.data = data;
+            this.size = size;
+            this.hashed = hashed;
+            this.delegate = delegate;
+        }
+    }
+}
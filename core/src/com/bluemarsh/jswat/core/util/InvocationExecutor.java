@@ -0,0 +1,226 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is the JSwat Core Module. The Initial Developer of the
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.util;
+
+import com.bluemarsh.jswat.core.breakpoint.BreakpointManager;
+import com.bluemarsh.jswat.core.breakpoint.BreakpointProvider;
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.session.SessionEvent;
+import com.bluemarsh.jswat.core.session.SessionListener;
+import com.bluemarsh.jswat.core.session.SessionProvider;
+import com.sun.jdi.VirtualMachine;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Class InvocationExecutor invokes methods in the debuggee of a session,
+ * using threads of its own, such that invocations in one session neither
+ * wait on nor disturb those of another session. The breakpoints of the
+ * session are suppressed for as long as any invocation is in progress, and
+ * restored when the last one finishes.
+ *
+ * @author  Nathan Fiedler
+ */
+public class InvocationExecutor implements SessionListener {
+    /** InvocationExecutor instances, keyed by Session instance. */
+    private static final Map<Session, InvocationExecutor> instanceMap =
+            new HashMap<Session, InvocationExecutor>();
+    /** Session whose debuggee is the subject of the invocations. */
+    private final Session session;
+    /** Runs the invocations, created when first needed. */
+    private ExecutorService executor;
+    /** Number of invocations in progress. */
+    private int activeCount;
+
+    /**
+     * Creates a new instance of InvocationExecutor.
+     *
+     * @param  session  session for which to invoke methods.
+     */
+    private InvocationExecutor(Session session) {
+        this.session = session;
+    }
+
+    @Override
+    public void closing(SessionEvent sevt) {
+        synchronized (instanceMap) {
+            instanceMap.remove(session);
+        }
+        shutdown();
+    }
+
+    @Override
+    public void connected(SessionEvent sevt) {
+    }
+
+    @Override
+    public void disconnected(SessionEvent sevt) {
+        // Invocations cannot outlive the debuggee.
+        shutdown();
+    }
+
+    /**
+     * Invocation has finished, restore the breakpoints if no other
+     * invocations are in progress.
+     *
+     * @param  bm  breakpoint manager of the session.
+     */
+    private synchronized void finished(BreakpointManager bm) {
+        activeCount--;
+        if (activeCount == 0) {
+            bm.setSuppressed(false);
+        }
+    }
+
+    /**
+     * Retrieve the InvocationExecutor instance for the given Session,
+     * creating one if necessary.
+     *
+     * @param  session  Session for which to get executor.
+     * @return  InvocationExecutor instance.
+     */
+    public static InvocationExecutor getInstance(Session session) {
+        synchronized (instanceMap) {
+            InvocationExecutor inst = instanceMap.get(session);
+            if (inst == null) {
+                inst = new InvocationExecutor(session);
+                instanceMap.put(session, inst);
+                session.addSessionListener(inst);
+            }
+            return inst;
+        }
+    }
+
+    /**
+     * Retrieve the InvocationExecutor for the session connected to the
+     * given debuggee.
+     *
+     * @param  vm  debuggee virtual machine.
+     * @return  InvocationExecutor instance, or null if no such session.
+     */
+    public static InvocationExecutor getInstance(VirtualMachine vm) {
+        Session session = SessionProvider.getSessionManager().findByVM(vm);
+        return session == null ? null : getInstance(session);
+    }
+
+    /**
+     * Performs the invocation on a thread of this session, waiting at most
+     * the given time for it to complete. The breakpoints of the session are
+     * suppressed while the invocation is in progress, to avoid hitting them
+     * while the debuggee runs the invoked method. This does not disable the
+     * breakpoint groups, which would be saved with the breakpoints.
+     *
+     * @param  <T>      type of the result.
+     * @param  task     performs the invocation.
+     * @param  timeout  milliseconds to wait for the invocation.
+     * @return  the result of the invocation, or null if timed out.
+     * @throws  ExecutionException
+     *          if the invocation threw an exception.
+     */
+    public <T> T invoke(Callable<T> task, long timeout)
+            throws ExecutionException {
+        BreakpointManager bm = BreakpointProvider.getBreakpointManager(session);
+        Future<T> future;
+        synchronized (this) {
+            if (activeCount == 0) {
+                bm.setSuppressed(true);
+            }
+            activeCount++;
+            if (executor == null) {
+                executor = Executors.newCachedThreadPool(new Factory(
+                        "JSwat Invoker " + session.getIdentifier()));
+            }
+            future = executor.submit(task);
+        }
+        T result = null;
+        long start = JdwpProfiler.start();
+        try {
+            result = future.get(timeout, TimeUnit.MILLISECONDS);
+            JdwpProfiler.getInstance(session).record(
+                    JdwpProfiler.Category.INVOCATIONS, start);
+        } catch (InterruptedException ie) {
+            future.cancel(true);
+        } catch (TimeoutException te) {
+            future.cancel(true);
+        } finally {
+            // Restore the breakpoints, regardless if an exception
+            // has occurred or not.
+            finished(bm);
+        }
+        return result;
+    }
+
+    @Override
+    public void opened(Session session) {
+    }
+
+    @Override
+    public void resuming(SessionEvent sevt) {
+    }
+
+    /**
+     * Stops the threads of this executor, if any.
+     */
+    private synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    @Override
+    public void suspended(SessionEvent sevt) {
+    }
+
+    /**
+     * Creates the daemon threads that perform the invocations.
+     *
+     * @author  Nathan Fiedler
+     */
+    private static class Factory implements ThreadFactory {
+        /** Name given to the threads. */
+        private final String name;
+
+        /**
+         * Constructs a Factory for threads of the given name.
+         *
+         * @param  name  name for the threads.
+         */
+        Factory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread th = new Thread(r, name);
+            th.setDaemon(true);
+            return th;
+        }
+    }
+}
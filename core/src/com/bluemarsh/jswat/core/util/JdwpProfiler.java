@@ -0,0 +1,468 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is the JSwat Core Module. The Initial Developer of the
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.util;
+
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.session.SessionEvent;
+import com.bluemarsh.jswat.core.session.SessionListener;
+import com.bluemarsh.jswat.core.session.SessionProvider;
+import com.sun.jdi.VirtualMachine;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class JdwpProfiler records the number, duration, and calling site of
+ * the calls made to the debuggee, by category, so that the operations
+ * which spend the most time waiting on the debuggee can be found. The
+ * calls are recorded at the points through which the debugger reads from
+ * the debuggee, such as the {@link SuspendCache}, and only while the
+ * profiler is enabled, as finding the calling site is not cheap. Each
+ * session has its own profiler, which is enabled separately and records
+ * only the calls made to the debuggee of that session.
+ *
+ * <p>To record a call, invoke <code>start()</code> before making the call
+ * and pass the result to <code>record()</code> after it returns. Calls
+ * that throw an exception are not recorded.</p>
+ *
+ * @author  Nathan Fiedler
+ */
+public class JdwpProfiler implements SessionListener {
+    /** Upper bounds of the latency histogram buckets, in nanoseconds;
+     * the last bucket holds the calls that exceed the last bound. */
+    private static final long[] BUCKET_LIMITS = {
+        1000000L, 10000000L, 100000000L, 1000000000L
+    };
+    /** Package prefixes of the frames skipped to find the calling site. */
+    private static final String[] SKIPPED_PACKAGES = {
+        "com.bluemarsh.jswat.core.util.", "com.sun.", "java.", "sun."
+    };
+    /** JdwpProfiler instances, keyed by Session instance. */
+    private static final Map<Session, JdwpProfiler> instanceMap =
+            new HashMap<Session, JdwpProfiler>();
+    /** Number of profilers that are enabled, such that the calls need
+     * not be timed when there are none. */
+    private static final AtomicInteger enabledCount = new AtomicInteger();
+    /** Session whose calls are recorded. */
+    private final Session session;
+    /** True if calls are being recorded. */
+    private boolean enabled;
+    /** Statistics for each category of call. */
+    private final Map<Category, Statistics> statsMap;
+
+    /**
+     * Category of call made to the debuggee.
+     */
+    public static enum Category {
+        /** Finding classes, and reading their names and line tables. */
+        CLASSES,
+        /** Reading the stack frames of threads. */
+        FRAMES,
+        /** Invoking methods in the debuggee. */
+        INVOCATIONS,
+        /** Listing the threads of the debuggee. */
+        THREADS,
+        /** Reading variables and their values. */
+        VALUES
+    }
+
+    /**
+     * Creates a new instance of JdwpProfiler.
+     *
+     * @param  session  session whose calls are recorded.
+     */
+    private JdwpProfiler(Session session) {
+        this.session = session;
+        statsMap = new EnumMap<Category, Statistics>(Category.class);
+    }
+
+    @Override
+    public void closing(SessionEvent sevt) {
+        synchronized (instanceMap) {
+            instanceMap.remove(session);
+        }
+        setEnabled(false);
+    }
+
+    @Override
+    public void connected(SessionEvent sevt) {
+    }
+
+    @Override
+    public void disconnected(SessionEvent sevt) {
+    }
+
+    /**
+     * Determines the site from which the debuggee was called, being the
+     * first frame that is not in the utility package or the JDI.
+     *
+     * @return  calling site, as class, method, and line number.
+     */
+    private static String findCaller() {
+        StackTraceElement[] stack = new Throwable().getStackTrace();
+        for (StackTraceElement elem : stack) {
+            String cname = elem.getClassName();
+            boolean skip = false;
+            for (String prefix : SKIPPED_PACKAGES) {
+                if (cname.startsWith(prefix)) {
+                    skip = true;
+                    break;
+                }
+            }
+            if (!skip) {
+                return cname + '.' + elem.getMethodName() + ':'
+                        + elem.getLineNumber();
+            }
+        }
+        return stack.length > 2 ? stack[2].toString() : "unknown";
+    }
+
+    /**
+     * Returns the upper bounds of the latency histogram buckets, such
+     * that the bucket at index <em>i</em> holds those calls whose duration
+     * is less than the bound at <em>i</em>, and the final bucket holds the
+     * calls that exceed every bound.
+     *
+     * @return  bucket bounds, in nanoseconds.
+     */
+    public static long[] getBucketLimits() {
+        return BUCKET_LIMITS.clone();
+    }
+
+    /**
+     * Retrieve the JdwpProfiler instance for the given Session, creating
+     * one if necessary.
+     *
+     * @param  session  Session for which to get profiler.
+     * @return  JdwpProfiler instance.
+     */
+    public static JdwpProfiler getInstance(Session session) {
+        synchronized (instanceMap) {
+            JdwpProfiler inst = instanceMap.get(session);
+            if (inst == null) {
+                inst = new JdwpProfiler(session);
+                instanceMap.put(session, inst);
+                session.addSessionListener(inst);
+            }
+            return inst;
+        }
+    }
+
+    /**
+     * Retrieve the JdwpProfiler for the session connected to the given
+     * debuggee.
+     *
+     * @param  vm  debuggee virtual machine.
+     * @return  JdwpProfiler instance, or null if no such session.
+     */
+    public static JdwpProfiler getInstance(VirtualMachine vm) {
+        Session s = SessionProvider.getSessionManager().findByVM(vm);
+        return s == null ? null : getInstance(s);
+    }
+
+    /**
+     * Returns a copy of the statistics recorded thus far, for those
+     * categories in which calls were recorded.
+     *
+     * @return  list of statistics, in category order.
+     */
+    public List<Statistics> getStatistics() {
+        List<Statistics> list = new ArrayList<Statistics>();
+        synchronized (statsMap) {
+            for (Statistics stats : statsMap.values()) {
+                list.add(new Statistics(stats));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Indicates if calls are being recorded.
+     *
+     * @return  true if enabled, false otherwise.
+     */
+    public synchronized boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void opened(Session session) {
+    }
+
+    /**
+     * Records a completed call to the debuggee.
+     *
+     * @param  category  category of the call.
+     * @param  start     value returned by <code>start()</code>.
+     */
+    public void record(Category category, long start) {
+        if (start == 0 || !isEnabled()) {
+            // Not enabled when the call began, or no longer.
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        String site = findCaller();
+        synchronized (statsMap) {
+            Statistics stats = statsMap.get(category);
+            if (stats == null) {
+                stats = new Statistics(category);
+                statsMap.put(category, stats);
+            }
+            stats.add(elapsed, site);
+        }
+    }
+
+    /**
+     * Records a completed call to the given debuggee, with the profiler
+     * of the session connected to that debuggee, if any.
+     *
+     * @param  vm        debuggee that was called.
+     * @param  category  category of the call.
+     * @param  start     value returned by <code>start()</code>.
+     */
+    public static void record(VirtualMachine vm, Category category, long start) {
+        if (start == 0) {
+            // Not enabled when the call began.
+            return;
+        }
+        JdwpProfiler inst = getInstance(vm);
+        if (inst != null) {
+            inst.record(category, start);
+        }
+    }
+
+    /**
+     * Discards the statistics recorded thus far.
+     */
+    public void reset() {
+        synchronized (statsMap) {
+            statsMap.clear();
+        }
+    }
+
+    @Override
+    public void resuming(SessionEvent sevt) {
+    }
+
+    /**
+     * Enables or disables the recording of calls.
+     *
+     * @param  enable  true to enable, false to disable.
+     */
+    public synchronized void setEnabled(boolean enable) {
+        if (enable != enabled) {
+            enabled = enable;
+            if (enable) {
+                enabledCount.incrementAndGet();
+            } else {
+                enabledCount.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Marks the start of a call to the debuggee.
+     *
+     * @return  value to be passed to <code>record()</code>.
+     */
+    public static long start() {
+        if (enabledCount.get() == 0) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        // Zero means "not recording", so avoid that value.
+        return now == 0 ? 1 : now;
+    }
+
+    @Override
+    public void suspended(SessionEvent sevt) {
+    }
+
+    /**
+     * Statistics for one category of call.
+     */
+    public static class Statistics {
+        /** Category of the calls. */
+        private final Category category;
+        /** Number of calls. */
+        private long count;
+        /** Total duration of the calls, in nanoseconds. */
+        private long totalTime;
+        /** Longest duration of any call, in nanoseconds. */
+        private long maxTime;
+        /** Number of calls in each latency bucket. */
+        private final long[] histogram;
+        /** Number of calls and total time for each calling site. */
+        private final Map<String, long[]> sites;
+
+        /**
+         * Constructs an empty Statistics.
+         *
+         * @param  category  category of the calls.
+         */
+        Statistics(Category category) {
+            this.category = category;
+            histogram = new long[BUCKET_LIMITS.length + 1];
+            sites = new HashMap<String, long[]>();
+        }
+
+        /**
+         * Constructs a copy of the given Statistics.
+         *
+         * @param  other  statistics to copy.
+         */
+        Statistics(Statistics other) {
+            category = other.category;
+            count = other.count;
+            totalTime = other.totalTime;
+            maxTime = other.maxTime;
+            histogram = other.histogram.clone();
+            sites = new HashMap<String, long[]>();
+            for (Map.Entry<String, long[]> entry : other.sites.entrySet()) {
+                sites.put(entry.getKey(), entry.getValue().clone());
+            }
+        }
+
+        /**
+         * Adds a call to the statistics.
+         *
+         * @param  elapsed  duration of the call, in nanoseconds.
+         * @param  site     calling site.
+         */
+        void add(long elapsed, String site) {
+            count++;
+            totalTime += elapsed;
+            if (elapsed > maxTime) {
+                maxTime = elapsed;
+            }
+            int bucket = 0;
+            while (bucket < BUCKET_LIMITS.length
+                    && elapsed >= BUCKET_LIMITS[bucket]) {
+                bucket++;
+            }
+            histogram[bucket]++;
+            long[] totals = sites.get(site);
+            if (totals == null) {
+                totals = new long[2];
+                sites.put(site, totals);
+            }
+            totals[0]++;
+            totals[1] += elapsed;
+        }
+
+        /**
+         * Returns the category of the calls.
+         *
+         * @return  call category.
+         */
+        public Category getCategory() {
+            return category;
+        }
+
+        /**
+         * Returns the number of calls.
+         *
+         * @return  call count.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the number of calls in each latency bucket, as bounded
+         * by the values from <code>JdwpProfiler.getBucketLimits()</code>.
+         *
+         * @return  histogram of call durations.
+         */
+        public long[] getHistogram() {
+            return histogram.clone();
+        }
+
+        /**
+         * Returns the longest duration of any call.
+         *
+         * @return  maximum duration, in nanoseconds.
+         */
+        public long getMaxTime() {
+            return maxTime;
+        }
+
+        /**
+         * Returns the calling sites, ordered by the total time spent in
+         * the calls made from them, longest first.
+         *
+         * @param  limit  maximum number of sites to return.
+         * @return  list of calling sites.
+         */
+        public List<String> getSites(int limit) {
+            List<String> list = new ArrayList<String>(sites.keySet());
+            Collections.sort(list, new Comparator<String>() {
+
+                @Override
+                public int compare(String o1, String o2) {
+                    long t1 = sites.get(o1)[1];
+                    long t2 = sites.get(o2)[1];
+                    return t1 < t2 ? 1 : (t1 > t2 ? -1 : o1.compareTo(o2));
+                }
+            });
+            if (list.size() > limit) {
+                list = list.subList(0, limit);
+            }
+            return list;
+        }
+
+        /**
+         * Returns the number of calls made from the given site.
+         *
+         * @param  site  calling site.
+         * @return  call count.
+         */
+        public long getSiteCount(String site) {
+            long[] totals = sites.get(site);
+            return totals == null ? 0 : totals[0];
+        }
+
+        /**
+         * Returns the total duration of the calls made from the given site.
+         *
+         * @param  site  calling site.
+         * @return  total duration, in nanoseconds.
+         */
+        public long getSiteTime(String site) {
+            long[] totals = sites.get(site);
+            return totals == null ? 0 : totals[1];
+        }
+
+        /**
+         * Returns the total duration of the calls.
+         *
+         * @return  total duration, in nanoseconds.
+         */
+        public long getTotalTime() {
+            return totalTime;
+        }
+    }
+}
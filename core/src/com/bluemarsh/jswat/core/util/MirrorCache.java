@@ -0,0 +1,635 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is the JSwat Core Module. The Initial Developer of the
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.util;
+
+import com.bluemarsh.jswat.core.event.Dispatcher;
+import com.bluemarsh.jswat.core.event.DispatcherListener;
+import com.bluemarsh.jswat.core.event.DispatcherProvider;
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.session.SessionEvent;
+import com.bluemarsh.jswat.core.session.SessionListener;
+import com.bluemarsh.jswat.core.session.SessionProvider;
+import com.sun.jdi.AbsentInformationException;
+import com.sun.jdi.ClassNotPreparedException;
+import com.sun.jdi.Location;
+import com.sun.jdi.Method;
+import com.sun.jdi.ReferenceType;
+import com.sun.jdi.VMDisconnectedException;
+import com.sun.jdi.VirtualMachine;
+import com.sun.jdi.event.ClassUnloadEvent;
+import com.sun.jdi.event.Event;
+import com.sun.jdi.request.ClassUnloadRequest;
+import com.sun.jdi.request.EventRequest;
+import com.sun.jdi.request.EventRequestManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class MirrorCache holds the commonly displayed attributes of methods
+ * and classes in the debuggee of a session, such as names, signatures,
+ * source names, and line tables. Each attribute is retrieved from the
+ * debuggee and formatted only once, after which every display and trace
+ * shares the same copy.
+ *
+ * <p>The cache is cleared when classes are redefined, and the entries for
+ * a class are discarded when that class is unloaded. Use the static
+ * <code>getMethodInfo()</code> and <code>getTypeInfo()</code> methods to
+ * retrieve the information for any mirror, whether or not it belongs to
+ * the debuggee of a session.</p>
+ *
+ * @author  Nathan Fiedler
+ */
+public class MirrorCache implements DispatcherListener, SessionListener {
+    /** MirrorCache instances, keyed by Session instance. */
+    private static final Map<Session, MirrorCache> instanceMap =
+            new HashMap<Session, MirrorCache>();
+    /** Session for which we cache information. */
+    private final Session session;
+    /** The debuggee for which the unload request was created. */
+    private VirtualMachine ourVM;
+    /** Request for learning of unloaded classes. */
+    private ClassUnloadRequest unloadRequest;
+    /** Value of the redefinition count when the cache was last cleared. */
+    private long redefinitions;
+    /** Cached type information, keyed by type. */
+    private final Map<ReferenceType, TypeInfo> types;
+
+    /**
+     * Creates a new instance of MirrorCache.
+     *
+     * @param  session  session for which to cache information.
+     */
+    private MirrorCache(Session session) {
+        this.session = session;
+        types = new HashMap<ReferenceType, TypeInfo>();
+    }
+
+    /**
+     * Forget all of the cached information, deleting the event request
+     * if the debuggee is still connected.
+     */
+    private void clear() {
+        if (unloadRequest != null) {
+            try {
+                EventRequestManager erm = ourVM.eventRequestManager();
+                erm.deleteEventRequest(unloadRequest);
+            } catch (VMDisconnectedException vmde) {
+                // This happens all the time.
+            }
+            unloadRequest = null;
+        }
+        types.clear();
+        ourVM = null;
+    }
+
+    @Override
+    public void closing(SessionEvent sevt) {
+        synchronized (instanceMap) {
+            instanceMap.remove(session);
+        }
+    }
+
+    @Override
+    public void connected(SessionEvent sevt) {
+    }
+
+    @Override
+    public synchronized void disconnected(SessionEvent sevt) {
+        clear();
+    }
+
+    /**
+     * Make certain the cache reflects the debuggee currently attached to
+     * the session, and that no classes have been redefined since the
+     * information was cached. The caller must hold the lock on this cache.
+     *
+     * @param  vm  debuggee of the mirror being sought.
+     * @return  true if the mirrors of the debuggee may be cached, false
+     *          if the session is not connected to the debuggee.
+     */
+    private boolean ensureCurrent(VirtualMachine vm) {
+        long count = Classes.getRedefinitionCount();
+        if (count != redefinitions) {
+            // Any of the cached methods may have been replaced.
+            redefinitions = count;
+            types.clear();
+        }
+        if (vm == ourVM) {
+            return true;
+        }
+        if (!session.isConnected() || session.getConnection().getVM() != vm) {
+            return false;
+        }
+        clear();
+        ourVM = vm;
+        EventRequestManager erm = vm.eventRequestManager();
+        Dispatcher dispatcher = DispatcherProvider.getDispatcher(session);
+        unloadRequest = erm.createClassUnloadRequest();
+        unloadRequest.setSuspendPolicy(EventRequest.SUSPEND_NONE);
+        dispatcher.register(this, unloadRequest);
+        unloadRequest.setEnabled(true);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean eventOccurred(Event event) {
+        if (event.virtualMachine() == ourVM && event instanceof ClassUnloadEvent) {
+            String name = ((ClassUnloadEvent) event).className();
+            Iterator<TypeInfo> iter = types.values().iterator();
+            while (iter.hasNext()) {
+                if (iter.next().getName().equals(name)) {
+                    iter.remove();
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Retrieve the cached information for the given method.
+     *
+     * @param  method  method for which to get information.
+     * @return  method information.
+     */
+    public synchronized MethodInfo getInfo(Method method) {
+        return getInfo(method.declaringType()).getInfo(method);
+    }
+
+    /**
+     * Retrieve the cached information for the given type. If the type does
+     * not belong to the debuggee of the session, the information is not
+     * cached.
+     *
+     * @param  type  type for which to get information.
+     * @return  type information.
+     */
+    public synchronized TypeInfo getInfo(ReferenceType type) {
+        if (!ensureCurrent(type.virtualMachine())) {
+            return new TypeInfo(type);
+        }
+        TypeInfo info = types.get(type);
+        if (info == null) {
+            info = new TypeInfo(type);
+            types.put(type, info);
+        }
+        return info;
+    }
+
+    /**
+     * Retrieve the MirrorCache instance for the given Session, creating
+     * one if necessary.
+     *
+     * @param  session  Session for which to get MirrorCache.
+     * @return  MirrorCache instance.
+     */
+    public static MirrorCache getInstance(Session session) {
+        synchronized (instanceMap) {
+            MirrorCache inst = instanceMap.get(session);
+            if (inst == null) {
+                inst = new MirrorCache(session);
+                instanceMap.put(session, inst);
+                session.addSessionListener(inst);
+            }
+            return inst;
+        }
+    }
+
+    /**
+     * Retrieve the MirrorCache instance for the Session that is connected
+     * to the given debuggee.
+     *
+     * @param  vm  debuggee virtual machine.
+     * @return  MirrorCache instance, or null if no session is connected
+     *          to the debuggee.
+     */
+    public static MirrorCache getInstance(VirtualMachine vm) {
+        Session session = SessionProvider.getSessionManager().findByVM(vm);
+        return session == null ? null : getInstance(session);
+    }
+
+    /**
+     * Retrieve the information for the given method, from the cache of
+     * the session connected to the debuggee, if any.
+     *
+     * @param  method  method for which to get information.
+     * @return  method information.
+     */
+    public static MethodInfo getMethodInfo(Method method) {
+        MirrorCache cache = getInstance(method.virtualMachine());
+        if (cache == null) {
+            return new TypeInfo(method.declaringType()).getInfo(method);
+        }
+        return cache.getInfo(method);
+    }
+
+    /**
+     * Retrieve the information for the given type, from the cache of
+     * the session connected to the debuggee, if any.
+     *
+     * @param  type  type for which to get information.
+     * @return  type information.
+     */
+    public static TypeInfo getTypeInfo(ReferenceType type) {
+        MirrorCache cache = getInstance(type.virtualMachine());
+        if (cache == null) {
+            return new TypeInfo(type);
+        }
+        return cache.getInfo(type);
+    }
+
+    @Override
+    public void opened(Session session) {
+    }
+
+    @Override
+    public void resuming(SessionEvent sevt) {
+    }
+
+    @Override
+    public void suspended(SessionEvent sevt) {
+    }
+
+    /**
+     * Index of the executable line locations of a type, including those
+     * of its nested types, keyed by line number. The nested types are
+     * those prepared at the time the index is built; any prepared later
+     * are expected to be resolved against on their own, as they are
+     * prepared.
+     */
+    public static class LineIndex {
+        /** Locations of the type itself, sorted by line number. */
+        private final List<Location> lines;
+        /** Locations of the type and its nested types, by line number. */
+        private final Map<Integer, List<Location>> lineMap;
+
+        /**
+         * Constructs a new LineIndex.
+         *
+         * @param  type   the type.
+         * @param  lines  line locations of the type.
+         */
+        LineIndex(ReferenceType type, List<Location> lines) {
+            List<Location> sorted = new ArrayList<Location>(lines);
+            Collections.sort(sorted, new Comparator<Location>() {
+
+                @Override
+                public int compare(Location o1, Location o2) {
+                    return o1.lineNumber() - o2.lineNumber();
+                }
+            });
+            this.lines = Collections.unmodifiableList(sorted);
+            lineMap = new HashMap<Integer, List<Location>>();
+            add(lines);
+            VirtualMachine vm = type.virtualMachine();
+            long start = JdwpProfiler.start();
+            List<ReferenceType> nestedTypes = type.nestedTypes();
+            JdwpProfiler.record(vm, JdwpProfiler.Category.CLASSES, start);
+            for (ReferenceType nested : nestedTypes) {
+                try {
+                    start = JdwpProfiler.start();
+                    List<Location> locations = nested.allLineLocations();
+                    JdwpProfiler.record(vm, JdwpProfiler.Category.CLASSES,
+                            start);
+                    add(locations);
+                } catch (AbsentInformationException aie) {
+                    // Nothing to add for this type.
+                } catch (ClassNotPreparedException cnpe) {
+                    // Will be resolved against when it is prepared.
+                }
+            }
+        }
+
+        /**
+         * Adds the given locations to the index, in order.
+         *
+         * @param  locations  locations to be added.
+         */
+        private void add(List<Location> locations) {
+            for (Location loc : locations) {
+                Integer line = Integer.valueOf(loc.lineNumber());
+                List<Location> list = lineMap.get(line);
+                if (list == null) {
+                    list = new ArrayList<Location>(1);
+                    lineMap.put(line, list);
+                }
+                list.add(loc);
+            }
+        }
+
+        /**
+         * Returns the locations of the executable lines of the type itself,
+         * as from <code>ReferenceType.allLineLocations()</code>, sorted by
+         * line number.
+         *
+         * @return  unmodifiable list of locations.
+         */
+        public List<Location> getLines() {
+            return lines;
+        }
+
+        /**
+         * Returns the locations of the given line, in the type or in its
+         * nested types, with those of the type first. Like
+         * <code>ReferenceType.locationsOfLine()</code>, but without asking
+         * the debuggee each time.
+         *
+         * @param  source  name of the source file, or null for any.
+         * @param  line    line number.
+         * @return  locations of the line, possibly empty.
+         */
+        public List<Location> locationsOfLine(String source, int line) {
+            List<Location> list = lineMap.get(Integer.valueOf(line));
+            if (list == null) {
+                return Collections.emptyList();
+            }
+            if (source == null) {
+                return Collections.unmodifiableList(list);
+            }
+            List<Location> result = new ArrayList<Location>(list.size());
+            for (Location loc : list) {
+                try {
+                    if (source.equals(loc.sourceName())) {
+                        result.add(loc);
+                    }
+                } catch (AbsentInformationException aie) {
+                    // Cannot be the source we are looking for.
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Cached information for a single method. Attributes other than the
+     * name and argument types are retrieved when first requested.
+     */
+    public static class MethodInfo {
+        /** The method. */
+        private final Method method;
+        /** Name of the method. */
+        private final String name;
+        /** Names of the argument types. */
+        private final List<String> argumentTypeNames;
+        /** Argument type names separated by commas. */
+        private String arguments;
+        /** Short form of the signature. */
+        private String shortSignature;
+        /** Executable line locations, or null if not yet retrieved. */
+        private List<Location> lines;
+        /** True if the method has no line information. */
+        private boolean absent;
+
+        /**
+         * Constructs a new MethodInfo.
+         *
+         * @param  method  the method.
+         */
+        MethodInfo(Method method) {
+            this.method = method;
+            long start = JdwpProfiler.start();
+            name = method.name();
+            argumentTypeNames = Collections.unmodifiableList(
+                    new ArrayList<String>(method.argumentTypeNames()));
+            JdwpProfiler.record(method.virtualMachine(),
+                    JdwpProfiler.Category.CLASSES, start);
+        }
+
+        /**
+         * Returns the argument type names, separated by a comma and space,
+         * as from <code>Strings.listToString()</code>.
+         *
+         * @return  argument type names.
+         */
+        public synchronized String getArguments() {
+            if (arguments == null) {
+                arguments = Strings.listToString(argumentTypeNames);
+            }
+            return arguments;
+        }
+
+        /**
+         * Returns the names of the argument types.
+         *
+         * @return  unmodifiable list of type names.
+         */
+        public List<String> getArgumentTypeNames() {
+            return argumentTypeNames;
+        }
+
+        /**
+         * Returns the locations of the executable lines of the method,
+         * as from <code>Method.allLineLocations()</code>.
+         *
+         * @return  unmodifiable list of locations.
+         * @throws  AbsentInformationException
+         *          if the method has no line information.
+         */
+        public synchronized List<Location> getLineLocations()
+                throws AbsentInformationException {
+            if (absent) {
+                throw new AbsentInformationException();
+            }
+            if (lines == null) {
+                try {
+                    long start = JdwpProfiler.start();
+                    lines = Collections.unmodifiableList(
+                            new ArrayList<Location>(method.allLineLocations()));
+                    JdwpProfiler.record(method.virtualMachine(),
+                            JdwpProfiler.Category.CLASSES, start);
+                } catch (AbsentInformationException aie) {
+                    absent = true;
+                    throw aie;
+                }
+            }
+            return lines;
+        }
+
+        /**
+         * Returns the name of the method.
+         *
+         * @return  method name.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the short form of the signature, with the argument types
+         * reduced to their simple names and followed by the return type,
+         * for example <code>(String,int):void</code>.
+         *
+         * @return  short signature.
+         */
+        public synchronized String getShortSignature() {
+            if (shortSignature == null) {
+                StringBuilder sb = new StringBuilder();
+                sb.append('(');
+                Iterator<String> iter = argumentTypeNames.iterator();
+                while (iter.hasNext()) {
+                    sb.append(Names.getShortClassName(iter.next()));
+                    if (iter.hasNext()) {
+                        sb.append(',');
+                    }
+                }
+                sb.append("):");
+                sb.append(method.returnTypeName());
+                shortSignature = sb.toString();
+            }
+            return shortSignature;
+        }
+    }
+
+    /**
+     * Cached information for a single type, including its methods.
+     */
+    public static class TypeInfo {
+        /** The type. */
+        private final ReferenceType type;
+        /** Fully-qualified name of the type. */
+        private final String name;
+        /** Cached method information, keyed by method. */
+        private final Map<Method, MethodInfo> methods;
+        /** Name of the source file, or null if not yet retrieved. */
+        private String sourceName;
+        /** True if the type has no source name. */
+        private boolean absent;
+        /** Executable line locations, or null if not yet retrieved. */
+        private List<Location> lines;
+        /** True if the type has no line information. */
+        private boolean linesAbsent;
+        /** Index of the line locations, or null if not yet built. */
+        private LineIndex lineIndex;
+
+        /**
+         * Constructs a new TypeInfo.
+         *
+         * @param  type  the type.
+         */
+        TypeInfo(ReferenceType type) {
+            this.type = type;
+            long start = JdwpProfiler.start();
+            name = type.name();
+            JdwpProfiler.record(type.virtualMachine(),
+                    JdwpProfiler.Category.CLASSES, start);
+            methods = new HashMap<Method, MethodInfo>();
+        }
+
+        /**
+         * Retrieve the information for the given method of this type.
+         *
+         * @param  method  method declared by this type.
+         * @return  method information.
+         */
+        synchronized MethodInfo getInfo(Method method) {
+            MethodInfo info = methods.get(method);
+            if (info == null) {
+                info = new MethodInfo(method);
+                methods.put(method, info);
+            }
+            return info;
+        }
+
+        /**
+         * Returns the index of the executable lines of the type and its
+         * nested types, built when first requested.
+         *
+         * @return  line index.
+         * @throws  AbsentInformationException
+         *          if the type has no line information.
+         */
+        public synchronized LineIndex getLineIndex()
+                throws AbsentInformationException {
+            if (lineIndex == null) {
+                lineIndex = new LineIndex(type, getLineLocations());
+            }
+            return lineIndex;
+        }
+
+        /**
+         * Returns the locations of the executable lines of the type, as
+         * from <code>ReferenceType.allLineLocations()</code>.
+         *
+         * @return  unmodifiable list of locations.
+         * @throws  AbsentInformationException
+         *          if the type has no line information.
+         */
+        public synchronized List<Location> getLineLocations()
+                throws AbsentInformationException {
+            if (linesAbsent) {
+                throw new AbsentInformationException();
+            }
+            if (lines == null) {
+                try {
+                    long start = JdwpProfiler.start();
+                    lines = Collections.unmodifiableList(
+                            new ArrayList<Location>(type.allLineLocations()));
+                    JdwpProfiler.record(type.virtualMachine(),
+                            JdwpProfiler.Category.CLASSES, start);
+                } catch (AbsentInformationException aie) {
+                    linesAbsent = true;
+                    throw aie;
+                }
+            }
+            return lines;
+        }
+
+        /**
+         * Returns the fully-qualified name of the type.
+         *
+         * @return  type name.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the name of the source file of the type, as from
+         * <code>ReferenceType.sourceName()</code>.
+         *
+         * @return  source name.
+         * @throws  AbsentInformationException
+         *          if the source name is not known.
+         */
+        public synchronized String getSourceName()
+                throws AbsentInformationException {
+            if (absent) {
+                throw new AbsentInformationException();
+            }
+            if (sourceName == null) {
+                try {
+                    long start = JdwpProfiler.start();
+                    sourceName = type.sourceName();
+                    JdwpProfiler.record(type.virtualMachine(),
+                            JdwpProfiler.Category.CLASSES, start);
+                } catch (AbsentInformationException aie) {
+                    absent = true;
+                    throw aie;
+                }
+            }
+            return sourceName;
+        }
+    }
+}
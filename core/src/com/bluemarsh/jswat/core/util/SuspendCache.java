@@ -0,0 +1,527 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is the JSwat Core Module. The Initial Developer of the
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.util;
+
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.session.SessionEvent;
+import com.bluemarsh.jswat.core.session.SessionListener;
+import com.bluemarsh.jswat.core.session.SessionProvider;
+import com.sun.jdi.AbsentInformationException;
+import com.sun.jdi.IncompatibleThreadStateException;
+import com.sun.jdi.LocalVariable;
+import com.sun.jdi.ObjectReference;
+import com.sun.jdi.StackFrame;
+import com.sun.jdi.ThreadReference;
+import com.sun.jdi.Value;
+import com.sun.jdi.VirtualMachine;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Class SuspendCache holds the threads, stack frames, and variables read
+ * from the debuggee of a session while it is suspended, so that the many
+ * displays and commands that show them during a single suspension share
+ * one set of reads from the debuggee. The cache is valid for only the
+ * current suspension, and is cleared whenever the debuggee resumes, as
+ * it does when stepping, and whenever a method is invoked in the
+ * debuggee, since either renders the frames invalid.
+ *
+ * <p>Anything that resumes threads in the debuggee other than by way of
+ * the session must call <code>invalidate()</code> on the cache of that
+ * session, leaving the caches of other sessions intact. Use the static
+ * <code>getFrame()</code>, <code>getFrames()</code>, and
+ * <code>getThreads()</code> methods to read the debuggee through the
+ * cache of whichever session is connected to it, if any.</p>
+ *
+ * @author  Nathan Fiedler
+ */
+public class SuspendCache implements SessionListener {
+    /** Logger for reporting the cache statistics. */
+    private static final Logger logger = Logger.getLogger(
+            SuspendCache.class.getName());
+    /** SuspendCache instances, keyed by Session instance. */
+    private static final Map<Session, SuspendCache> instanceMap =
+            new HashMap<Session, SuspendCache>();
+    /** Session for which we cache information. */
+    private final Session session;
+    /** Incremented each time threads in the debuggee may have resumed. */
+    private final AtomicLong resumptions;
+    /** Value of the resumption count when the cache was last cleared. */
+    private long epoch;
+    /** All threads of the debuggee, if read. */
+    private List<ThreadReference> threads;
+    /** Stack frames, keyed by thread. */
+    private final Map<ThreadReference, List<StackFrame>> frames;
+    /** The "this" objects, keyed by stack frame. */
+    private final Map<StackFrame, ObjectReference> thisObjects;
+    /** Visible variables, keyed by stack frame. */
+    private final Map<StackFrame, List<LocalVariable>> variables;
+    /** Values of the visible variables, keyed by stack frame. */
+    private final Map<StackFrame, Map<LocalVariable, Value>> values;
+    /** Number of reads satisfied by the cache. */
+    private long hitCount;
+    /** Number of reads that went to the debuggee. */
+    private long missCount;
+
+    /**
+     * Creates a new instance of SuspendCache.
+     *
+     * @param  session  session for which to cache information.
+     */
+    private SuspendCache(Session session) {
+        this.session = session;
+        frames = new HashMap<ThreadReference, List<StackFrame>>();
+        thisObjects = new HashMap<StackFrame, ObjectReference>();
+        variables = new HashMap<StackFrame, List<LocalVariable>>();
+        values = new HashMap<StackFrame, Map<LocalVariable, Value>>();
+        resumptions = new AtomicLong();
+    }
+
+    /**
+     * Retrieve all of the threads in the debuggee.
+     *
+     * @param  vm  debuggee virtual machine.
+     * @return  list of threads.
+     */
+    public synchronized List<ThreadReference> allThreads(VirtualMachine vm) {
+        if (!ensureCurrent(vm)) {
+            return readThreads(vm);
+        }
+        if (threads != null) {
+            hitCount++;
+            return threads;
+        }
+        missCount++;
+        List<ThreadReference> list = readThreads(vm);
+        if (resumptions.get() == epoch) {
+            threads = list;
+        }
+        return list;
+    }
+
+    /**
+     * Forget all of the cached information.
+     */
+    private void clear() {
+        threads = null;
+        frames.clear();
+        thisObjects.clear();
+        variables.clear();
+        values.clear();
+    }
+
+    @Override
+    public void closing(SessionEvent sevt) {
+        synchronized (instanceMap) {
+            instanceMap.remove(session);
+        }
+    }
+
+    @Override
+    public void connected(SessionEvent sevt) {
+    }
+
+    @Override
+    public synchronized void disconnected(SessionEvent sevt) {
+        clear();
+    }
+
+    /**
+     * Make certain the cache reflects the current suspension of the
+     * debuggee attached to the session. The caller must hold the lock on
+     * this cache.
+     *
+     * @param  vm  debuggee of the mirror being read.
+     * @return  true if the mirrors of the debuggee may be cached, false
+     *          if the session is not connected to the debuggee, or the
+     *          debuggee is running.
+     */
+    private boolean ensureCurrent(VirtualMachine vm) {
+        long count = resumptions.get();
+        if (count != epoch) {
+            if (logger.isLoggable(Level.FINE)) {
+                logger.log(Level.FINE, "suspend cache hits: {0}, misses: {1}",
+                        new Object[]{hitCount, missCount});
+            }
+            epoch = count;
+            clear();
+        }
+        return session.isConnected() && session.getConnection().getVM() == vm
+                && session.isSuspended();
+    }
+
+    /**
+     * Retrieve the stack frame of the given thread.
+     *
+     * @param  thread  suspended thread.
+     * @param  index   zero-based index of the frame.
+     * @return  stack frame.
+     * @throws  IncompatibleThreadStateException
+     *          if the thread is not suspended.
+     * @throws  IndexOutOfBoundsException
+     *          if the index is outside the thread stack.
+     */
+    public synchronized StackFrame frame(ThreadReference thread, int index)
+            throws IncompatibleThreadStateException {
+        List<StackFrame> list = frames(thread);
+        if (index < 0 || index >= list.size()) {
+            throw new IndexOutOfBoundsException("frame index " + index);
+        }
+        return list.get(index);
+    }
+
+    /**
+     * Retrieve all of the stack frames of the given thread.
+     *
+     * @param  thread  suspended thread.
+     * @return  list of stack frames.
+     * @throws  IncompatibleThreadStateException
+     *          if the thread is not suspended.
+     */
+    public synchronized List<StackFrame> frames(ThreadReference thread)
+            throws IncompatibleThreadStateException {
+        if (!ensureCurrent(thread.virtualMachine())) {
+            return readFrames(thread);
+        }
+        List<StackFrame> list = frames.get(thread);
+        if (list != null) {
+            hitCount++;
+            return list;
+        }
+        missCount++;
+        list = Collections.unmodifiableList(readFrames(thread));
+        if (resumptions.get() == epoch) {
+            frames.put(thread, list);
+        }
+        return list;
+    }
+
+    /**
+     * Retrieve the stack frame of the given thread, from the cache of the
+     * session connected to the debuggee, if any.
+     *
+     * @param  thread  suspended thread.
+     * @param  index   zero-based index of the frame.
+     * @return  stack frame.
+     * @throws  IncompatibleThreadStateException
+     *          if the thread is not suspended.
+     * @throws  IndexOutOfBoundsException
+     *          if the index is outside the thread stack.
+     */
+    public static StackFrame getFrame(ThreadReference thread, int index)
+            throws IncompatibleThreadStateException {
+        SuspendCache cache = getInstance(thread.virtualMachine());
+        if (cache == null) {
+            long start = JdwpProfiler.start();
+            StackFrame frame = thread.frame(index);
+            JdwpProfiler.record(thread.virtualMachine(),
+                    JdwpProfiler.Category.FRAMES, start);
+            return frame;
+        }
+        return cache.frame(thread, index);
+    }
+
+    /**
+     * Retrieve all of the stack frames of the given thread, from the cache
+     * of the session connected to the debuggee, if any.
+     *
+     * @param  thread  suspended thread.
+     * @return  list of stack frames.
+     * @throws  IncompatibleThreadStateException
+     *          if the thread is not suspended.
+     */
+    public static List<StackFrame> getFrames(ThreadReference thread)
+            throws IncompatibleThreadStateException {
+        SuspendCache cache = getInstance(thread.virtualMachine());
+        if (cache == null) {
+            return readFrames(thread);
+        }
+        return cache.frames(thread);
+    }
+
+    /**
+     * Returns the number of reads that were satisfied by the cache.
+     *
+     * @return  cache hit count.
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Retrieve the SuspendCache instance for the given Session, creating
+     * one if necessary.
+     *
+     * @param  session  Session for which to get SuspendCache.
+     * @return  SuspendCache instance.
+     */
+    public static SuspendCache getInstance(Session session) {
+        synchronized (instanceMap) {
+            SuspendCache inst = instanceMap.get(session);
+            if (inst == null) {
+                inst = new SuspendCache(session);
+                instanceMap.put(session, inst);
+                session.addSessionListener(inst);
+            }
+            return inst;
+        }
+    }
+
+    /**
+     * Retrieve the SuspendCache instance for the Session that is connected
+     * to the given debuggee.
+     *
+     * @param  vm  debuggee virtual machine.
+     * @return  SuspendCache instance, or null if no session is connected
+     *          to the debuggee.
+     */
+    public static SuspendCache getInstance(VirtualMachine vm) {
+        Session session = SessionProvider.getSessionManager().findByVM(vm);
+        return session == null ? null : getInstance(session);
+    }
+
+    /**
+     * Returns the number of reads that went to the debuggee.
+     *
+     * @return  cache miss count.
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Retrieve all of the threads in the debuggee, from the cache of the
+     * session connected to the debuggee, if any.
+     *
+     * @param  vm  debuggee virtual machine.
+     * @return  list of threads.
+     */
+    public static List<ThreadReference> getThreads(VirtualMachine vm) {
+        SuspendCache cache = getInstance(vm);
+        if (cache == null) {
+            return readThreads(vm);
+        }
+        return cache.allThreads(vm);
+    }
+
+    /**
+     * Retrieve the values of the given variables in the stack frame. The
+     * values of all of the visible variables are read together, the first
+     * time the values of any of them are sought.
+     *
+     * @param  frame  stack frame from this cache.
+     * @param  vars   variables visible in the frame.
+     * @return  map of variables to values.
+     */
+    public synchronized Map<LocalVariable, Value> getValues(StackFrame frame,
+            List<LocalVariable> vars) {
+        if (!ensureCurrent(frame.virtualMachine())) {
+            return readValues(frame, vars);
+        }
+        Map<LocalVariable, Value> map = values.get(frame);
+        if (map != null && map.keySet().containsAll(vars)) {
+            hitCount++;
+        } else {
+            missCount++;
+            List<LocalVariable> all = variables.get(frame);
+            if (all == null || !all.containsAll(vars)) {
+                all = vars;
+            }
+            map = Collections.unmodifiableMap(readValues(frame, all));
+            if (resumptions.get() == epoch) {
+                values.put(frame, map);
+            }
+        }
+        if (map.size() == vars.size()) {
+            return map;
+        }
+        Map<LocalVariable, Value> subset = new HashMap<LocalVariable, Value>();
+        for (LocalVariable var : vars) {
+            subset.put(var, map.get(var));
+        }
+        return subset;
+    }
+
+    /**
+     * Invalidates this cache, as threads in the debuggee may have been
+     * resumed, rendering the stack frames invalid. The caches of other
+     * sessions are not affected.
+     */
+    public void invalidate() {
+        resumptions.incrementAndGet();
+    }
+
+    /**
+     * Invalidates the cache of the session connected to the given
+     * debuggee, if any, as threads in the debuggee may have been resumed.
+     *
+     * @param  vm  debuggee virtual machine.
+     */
+    public static void invalidate(VirtualMachine vm) {
+        SuspendCache cache = getInstance(vm);
+        if (cache != null) {
+            cache.invalidate();
+        }
+    }
+
+    @Override
+    public void opened(Session session) {
+    }
+
+    /**
+     * Reads the stack frames of the given thread from the debuggee.
+     *
+     * @param  thread  suspended thread.
+     * @return  list of stack frames.
+     * @throws  IncompatibleThreadStateException
+     *          if the thread is not suspended.
+     */
+    private static List<StackFrame> readFrames(ThreadReference thread)
+            throws IncompatibleThreadStateException {
+        long start = JdwpProfiler.start();
+        List<StackFrame> list = thread.frames();
+        JdwpProfiler.record(thread.virtualMachine(),
+                JdwpProfiler.Category.FRAMES, start);
+        return list;
+    }
+
+    /**
+     * Reads the "this" object of the given stack frame from the debuggee.
+     *
+     * @param  frame  stack frame.
+     * @return  the object, or null if the frame is static or native.
+     */
+    private static ObjectReference readThis(StackFrame frame) {
+        long start = JdwpProfiler.start();
+        ObjectReference obj = frame.thisObject();
+        JdwpProfiler.record(frame.virtualMachine(),
+                JdwpProfiler.Category.VALUES, start);
+        return obj;
+    }
+
+    /**
+     * Reads the threads of the debuggee.
+     *
+     * @param  vm  debuggee virtual machine.
+     * @return  list of threads.
+     */
+    private static List<ThreadReference> readThreads(VirtualMachine vm) {
+        long start = JdwpProfiler.start();
+        List<ThreadReference> list = vm.allThreads();
+        JdwpProfiler.record(vm, JdwpProfiler.Category.THREADS, start);
+        return list;
+    }
+
+    /**
+     * Reads the values of the given variables from the debuggee.
+     *
+     * @param  frame  stack frame.
+     * @param  vars   variables visible in the frame.
+     * @return  map of variables to values.
+     */
+    private static Map<LocalVariable, Value> readValues(StackFrame frame,
+            List<LocalVariable> vars) {
+        long start = JdwpProfiler.start();
+        Map<LocalVariable, Value> map = frame.getValues(vars);
+        JdwpProfiler.record(frame.virtualMachine(),
+                JdwpProfiler.Category.VALUES, start);
+        return map;
+    }
+
+    /**
+     * Reads the variables visible in the given stack frame.
+     *
+     * @param  frame  stack frame.
+     * @return  list of visible variables.
+     * @throws  AbsentInformationException
+     *          if there is no local variable information.
+     */
+    private static List<LocalVariable> readVariables(StackFrame frame)
+            throws AbsentInformationException {
+        long start = JdwpProfiler.start();
+        List<LocalVariable> list = frame.visibleVariables();
+        JdwpProfiler.record(frame.virtualMachine(),
+                JdwpProfiler.Category.VALUES, start);
+        return list;
+    }
+
+    @Override
+    public synchronized void resuming(SessionEvent sevt) {
+        clear();
+    }
+
+    @Override
+    public void suspended(SessionEvent sevt) {
+    }
+
+    /**
+     * Retrieve the "this" object of the given stack frame.
+     *
+     * @param  frame  stack frame from this cache.
+     * @return  the object, or null if the frame is static or native.
+     */
+    public synchronized ObjectReference thisObject(StackFrame frame) {
+        if (!ensureCurrent(frame.virtualMachine())) {
+            return readThis(frame);
+        }
+        if (thisObjects.containsKey(frame)) {
+            hitCount++;
+            return thisObjects.get(frame);
+        }
+        missCount++;
+        ObjectReference obj = readThis(frame);
+        if (resumptions.get() == epoch) {
+            thisObjects.put(frame, obj);
+        }
+        return obj;
+    }
+
+    /**
+     * Retrieve the variables visible in the given stack frame.
+     *
+     * @param  frame  stack frame from this cache.
+     * @return  list of visible variables.
+     * @throws  AbsentInformationException
+     *          if there is no local variable information.
+     */
+    public synchronized List<LocalVariable> visibleVariables(StackFrame frame)
+            throws AbsentInformationException {
+        if (!ensureCurrent(frame.virtualMachine())) {
+            return readVariables(frame);
+        }
+        List<LocalVariable> list = variables.get(frame);
+        if (list != null) {
+            hitCount++;
+            return list;
+        }
+        missCount++;
+        list = Collections.unmodifiableList(readVariables(frame));
+        if (resumptions.get() == epoch) {
+            variables.put(frame, list);
+        }
+        return list;
+    }
+}
@@ -59,7 +59,7 @@ public class Threads {
      * @return  ThreadReference, or null if not found.
      */
     public static ThreadReference findThread(VirtualMachine vm, String id) {
-        List<ThreadReference> threads = vm.allThreads();
+        List<ThreadReference> threads = SuspendCache.getThreads(vm);
         Iterator<ThreadReference> iter = threads.iterator();
         ThreadReference thread = null;
         try {
@@ -23,6 +23,8 @@ package com.bluemarsh.jswat.core.watch;
 import com.bluemarsh.jswat.core.session.Session;
 import com.bluemarsh.jswat.core.session.SessionEvent;
 import com.bluemarsh.jswat.core.session.SessionListener;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 
 /**
  * AbstractWatchManager provides an abstract WatchManager implementation for
@@ -76,15 +78,30 @@ public abstract class AbstractWatchManager implements WatchManager, SessionListe
     }
 
     /**
-     * Load the persisted watches from storage.
+     * Load the persisted watches from storage. This is not done until the
+     * session has been activated.
      *
      * @param session associated Session instance.
      */
     protected abstract void loadWatches(Session session);
 
     @Override
-    public void opened(Session session) {
-        loadWatches(session);
+    public void opened(final Session session) {
+        if (session.isActive()) {
+            loadWatches(session);
+        } else {
+            // Defer loading until the session is put to use.
+            session.addPropertyChangeListener(new PropertyChangeListener() {
+
+                @Override
+                public void propertyChange(PropertyChangeEvent event) {
+                    if (event.getPropertyName().equals(Session.PROP_ACTIVE)) {
+                        session.removePropertyChangeListener(this);
+                        loadWatches(session);
+                    }
+                }
+            });
+        }
     }
 
     @Override
@@ -26,13 +26,16 @@ import com.bluemarsh.jswat.core.PlatformProvider;
 import com.bluemarsh.jswat.core.PlatformService;
 import com.bluemarsh.jswat.core.session.Session;
 import com.bluemarsh.jswat.core.session.SessionEvent;
+import com.bluemarsh.jswat.core.util.BeanReader;
+import com.bluemarsh.jswat.core.util.BeanWriter;
+import com.bluemarsh.jswat.core.util.ChangeJournal;
 import java.beans.ExceptionListener;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 import java.beans.XMLDecoder;
-import java.beans.XMLEncoder;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -44,13 +47,34 @@ import java.util.logging.Logger;
  *
  * @author Nathan Fiedler
  */
-public class DefaultWatchManager extends AbstractWatchManager {
+public class DefaultWatchManager extends AbstractWatchManager
+        implements PropertyChangeListener {
 
     /** Logger for gracefully reporting unexpected errors. */
     private static final Logger logger = Logger.getLogger(
             DefaultWatchManager.class.getName());
+    /** Name of the file to which the watches are saved. */
+    private static final String FILENAME = "watches.bin";
+    /** Name of the file written by the XMLEncoder in earlier releases. */
+    private static final String LEGACY_FILENAME = "watches.xml";
+    /** Suffix for the session journal file names. */
+    private static final String JOURNAL_SUFFIX = "-watches.journal";
+    /** Identifies the kind of data in the watches file. */
+    private static final String STORE_KIND = "watches";
+    /** Identifies the kind of data in the journal records. */
+    private static final String CHANGE_KIND = "watch-change";
+    /** Journal record for a watch that was added. */
+    private static final int CHANGE_ADD = 0;
+    /** Journal record for a watch that was removed. */
+    private static final int CHANGE_REMOVE = 1;
+    /** Journal record for a watch that was changed. */
+    private static final int CHANGE_SET = 2;
+    /** Number of journal records after which a snapshot is taken. */
+    private static final int JOURNAL_THRESHOLD = 64;
     /** List of all defined watches. */
     private List<Watch> watchList;
+    /** Records the changes to the watches between snapshots. */
+    private ChangeJournal journal;
 
     /**
      * Creates a new instance of DefaultWatchManager.
@@ -61,7 +85,11 @@ public class DefaultWatchManager extends AbstractWatchManager {
 
     @Override
     public void addWatch(Watch watch) {
+        // Make sure the existing watches are loaded first.
+        WatchProvider.getSession(this).activate();
         watchList.add(watch);
+        watch.addPropertyChangeListener(this);
+        journalChange(watch, CHANGE_ADD);
         fireEvent(new WatchEvent(watch, WatchEventType.ADDED));
     }
 
@@ -71,14 +99,65 @@ public class DefaultWatchManager extends AbstractWatchManager {
         removeFixedWatches();
     }
 
-    @Override
+    /**
+     * Computes the position of the watch among those that are persisted.
+     *
+     * @param  watch  the watch.
+     * @return  position of the watch, or -1 if not found.
+     */
+    private int indexOf(Watch watch) {
+        int index = 0;
+        for (Watch w : watchList) {
+            if (w == watch) {
+                return index;
+            } else if (!(w instanceof FixedWatch)) {
+                index++;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Appends a record of the change to the watch to the journal, taking
+     * a snapshot if the journal has grown large.
+     *
+     * @param  watch  watch that changed.
+     * @param  type   one of the CHANGE_ constants.
+     */
+    private void journalChange(Watch watch, int type) {
+        if (journal == null || watch instanceof FixedWatch) {
+            // Not yet loaded, or not persisted anyway.
+            return;
+        }
+        try {
+            BeanWriter writer = new BeanWriter(CHANGE_KIND);
+            writer.writeInt(type);
+            if (type != CHANGE_ADD) {
+                writer.writeInt(indexOf(watch));
+            }
+            if (type != CHANGE_REMOVE) {
+                writer.writeBean(watch);
+            }
+            if (journal.append(writer.toByteArray())) {
+                takeSnapshot(false);
+            }
+        } catch (IOException ioe) {
+            logger.log(Level.SEVERE, null, ioe);
+        }
+    }
+
+    /**
+     * Reads the watches file written by the XMLEncoder, as was done in
+     * earlier releases.
+     *
+     * @return  true if the watches were loaded, false otherwise.
+     */
     @SuppressWarnings("unchecked")
-    protected void loadWatches(Session session) {
+    private boolean loadLegacy() {
         XMLDecoder decoder = null;
         try {
             PlatformService platform = PlatformProvider.getPlatformService();
-            String name = "watches.xml";
-            InputStream is = platform.readFile(name);
+            InputStream is = platform.readFile(LEGACY_FILENAME);
             decoder = new XMLDecoder(is);
             decoder.setExceptionListener(new ExceptionListener() {
 
@@ -88,6 +167,7 @@ public class DefaultWatchManager extends AbstractWatchManager {
                 }
             });
             watchList = (List<Watch>) decoder.readObject();
+            return true;
         } catch (FileNotFoundException e) {
             // Do not report this error, it's normal.
         } catch (Exception e) {
@@ -99,6 +179,63 @@ public class DefaultWatchManager extends AbstractWatchManager {
                 decoder.close();
             }
         }
+        return false;
+    }
+
+    @Override
+    protected void loadWatches(Session session) {
+        boolean migrate = false;
+        try {
+            BeanReader reader = BeanReader.open(FILENAME, STORE_KIND);
+            int count = reader.readInt();
+            List<Watch> watches = new LinkedList<Watch>();
+            for (int ii = 0; ii < count; ii++) {
+                watches.add((Watch) reader.readBean());
+            }
+            watchList = watches;
+        } catch (FileNotFoundException e) {
+            // Perhaps there is an older file, which we then convert.
+            migrate = loadLegacy();
+        } catch (Exception e) {
+            // I/O and various runtime exceptions may occur,
+            // need to report them and gracefully recover.
+            logger.log(Level.SEVERE, null, e);
+        }
+        journal = new ChangeJournal(session.getIdentifier() + JOURNAL_SUFFIX,
+                FILENAME, JOURNAL_THRESHOLD);
+        // Recover the changes made since the snapshot was written.
+        List<byte[]> changes = journal.replay();
+        for (byte[] change : changes) {
+            try {
+                replayChange(new BeanReader(change, CHANGE_KIND));
+            } catch (Exception e) {
+                logger.log(Level.SEVERE, null, e);
+            }
+        }
+        for (Watch watch : watchList) {
+            watch.addPropertyChangeListener(this);
+        }
+        if (migrate) {
+            takeSnapshot(true);
+            try {
+                PlatformService platform = PlatformProvider.getPlatformService();
+                platform.deleteFile(LEGACY_FILENAME);
+            } catch (IOException ioe) {
+                logger.log(Level.SEVERE, null, ioe);
+            }
+        } else if (!changes.isEmpty()) {
+            // Fold the recovered changes into a new snapshot.
+            takeSnapshot(false);
+        }
+    }
+
+    @Override
+    public void propertyChange(PropertyChangeEvent event) {
+        Object src = event.getSource();
+        if (src instanceof Watch && BeanWriter.isPersistent(
+                src.getClass(), event.getPropertyName())) {
+            journalChange((Watch) src, CHANGE_SET);
+        }
     }
 
     /**
@@ -118,26 +255,72 @@ public class DefaultWatchManager extends AbstractWatchManager {
 
     @Override
     public void removeWatch(Watch watch) {
+        journalChange(watch, CHANGE_REMOVE);
         watchList.remove(watch);
+        watch.removePropertyChangeListener(this);
         fireEvent(new WatchEvent(watch, WatchEventType.REMOVED));
     }
 
+    /**
+     * Applies a change recorded in the journal to the watches.
+     *
+     * @param  reader  journal record reader.
+     * @throws  IOException
+     *          if reading fails.
+     */
+    private void replayChange(BeanReader reader) throws IOException {
+        int type = reader.readInt();
+        if (type == CHANGE_ADD) {
+            watchList.add((Watch) reader.readBean());
+            return;
+        }
+        int index = reader.readInt();
+        if (index < 0 || index >= watchList.size()) {
+            // The snapshot and journal disagree, ignore the change.
+            return;
+        }
+        if (type == CHANGE_REMOVE) {
+            watchList.remove(index);
+        } else {
+            Watch watch = watchList.get(index);
+            watchList.set(index, (Watch) reader.readBean(watch));
+        }
+    }
+
     @Override
     protected void saveWatches(Session session) {
         // The fixed watches cannot be persisted.
         removeFixedWatches();
         // Save the remaining watches to storage.
-        String name = "watches.xml";
-        PlatformService platform = PlatformProvider.getPlatformService();
+        takeSnapshot(true);
+    }
+
+    /**
+     * Writes all of the persistent watches to a snapshot, which replaces
+     * the journal of changes.
+     *
+     * @param  wait  true to wait for the snapshot to be written to disk.
+     */
+    private void takeSnapshot(boolean wait) {
+        if (journal == null) {
+            // Not yet loaded, nothing to save.
+            return;
+        }
+        List<Watch> watches = new LinkedList<Watch>();
+        for (Watch watch : watchList) {
+            if (!(watch instanceof FixedWatch)) {
+                watches.add(watch);
+            }
+        }
         try {
-            OutputStream os = platform.writeFile(name);
-            XMLEncoder encoder = new XMLEncoder(os);
-            encoder.writeObject(watchList);
-            encoder.close();
+            BeanWriter writer = new BeanWriter(STORE_KIND);
+            writer.writeInt(watches.size());
+            for (Watch watch : watches) {
+                writer.writeBean(watch);
+            }
+            journal.snapshot(writer, wait);
         } catch (IOException ioe) {
             logger.log(Level.SEVERE, null, ioe);
-        } finally {
-            platform.releaseLock(name);
         }
     }
 
@@ -71,11 +71,16 @@ public class DeepStack {
     /**
      * Invoked by the Java virtual machine.
      *
-     * @param  args  the command line arguments
+     * @param  args  the command line arguments; an optional number of
+     *               times to descend the stack (the default is once).
      */
     public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1;
         DeepStack ds = new DeepStack();
-        int a = ds.subroutine_1();
+        int a = 0;
+        for (int ii = 0; ii < count; ii++) {
+            a = ds.subroutine_1();
+        }
         System.out.println("a = " + a);
     }
 }
@@ -0,0 +1,59 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Test code for the ElementReaderTest.
+ *
+ * @author  Nathan Fiedler
+ */
+public class ElementReaderTestCode {
+    private static int[] array;
+    private static List<Integer> list;
+    private static Map<String, Integer> map;
+    private static Set<String> set;
+    private static List<String> linked;
+
+    public static void main(String[] args) {
+        array = new int[1000];
+        list = new ArrayList<Integer>();
+        map = new HashMap<String, Integer>();
+        set = new HashSet<String>();
+        linked = new LinkedList<String>();
+        for (int ii = 0; ii < array.length; ii++) {
+            array[ii] = ii * 2;
+        }
+        for (int ii = 0; ii < 250; ii++) {
+            list.add(Integer.valueOf(ii));
+            map.put("key" + ii, Integer.valueOf(ii));
+            set.add("item" + ii);
+        }
+        linked.add("one");
+        System.out.println(list.size()); // breakpoint, line 57
+    }
+}
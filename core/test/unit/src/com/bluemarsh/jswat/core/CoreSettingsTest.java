@@ -34,6 +34,14 @@ import static org.junit.Assert.*;
  */
 public class CoreSettingsTest {
 
+    @Test
+    public void testAsyncDispatch() {
+        CoreSettings instance = CoreSettings.getDefault();
+        boolean result = instance.getAsyncDispatch();
+        instance.setAsyncDispatch(result);
+        assertEquals(result, instance.getAsyncDispatch());
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testInvalidConnectionTimeout() {
         CoreSettings instance = CoreSettings.getDefault();
@@ -62,6 +70,14 @@ public class CoreSettingsTest {
         assertEquals(result, instance.getInvocationTimeout());
     }
 
+    @Test
+    public void testPersistPathIndex() {
+        CoreSettings instance = CoreSettings.getDefault();
+        boolean result = instance.getPersistPathIndex();
+        instance.setPersistPathIndex(result);
+        assertEquals(result, instance.getPersistPathIndex());
+    }
+
     @Test
     public void testShowAllThreads() {
         CoreSettings instance = CoreSettings.getDefault();
@@ -119,4 +135,12 @@ public class CoreSettingsTest {
         instance.setSteppingExcludes(result);
         assertEquals(result, instance.getSteppingExcludes());
     }
+
+    @Test
+    public void testSuspendStateSweep() {
+        CoreSettings instance = CoreSettings.getDefault();
+        boolean result = instance.getSuspendStateSweep();
+        instance.setSuspendStateSweep(result);
+        assertEquals(result, instance.getSuspendStateSweep());
+    }
 }
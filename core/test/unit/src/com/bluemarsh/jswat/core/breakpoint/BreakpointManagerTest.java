@@ -0,0 +1,186 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+
+package com.bluemarsh.jswat.core.breakpoint;
+
+import com.bluemarsh.jswat.core.PlatformProvider;
+import com.bluemarsh.jswat.core.PlatformService;
+import com.bluemarsh.jswat.core.session.DummySession;
+import java.beans.XMLEncoder;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the loading and saving of breakpoints by the
+ * DefaultBreakpointManager class.
+ *
+ * @author Nathan Fiedler
+ */
+public class BreakpointManagerTest {
+    private static final String ID = "BreakpointManagerTest";
+    private static final String URL = "file:/src/com/example/Foo.java";
+
+    /**
+     * Creates a breakpoint manager for a new, active session with the test
+     * identifier, which loads the breakpoints saved by any earlier manager
+     * for that identifier. The manager is created directly, rather than
+     * retrieved from the BreakpointProvider, which would return the same
+     * manager for every session with the same identifier.
+     *
+     * @return  the new breakpoint manager.
+     */
+    private static DefaultBreakpointManager createManager() {
+        DummySession session = new DummySession();
+        session.setIdentifier(ID);
+        session.activate();
+        DefaultBreakpointManager bm = new DefaultBreakpointManager();
+        bm.opened(session);
+        return bm;
+    }
+
+    @Before
+    @After
+    public void deleteFiles() throws IOException {
+        PlatformService platform = PlatformProvider.getPlatformService();
+        platform.deleteFile(ID + "-breakpoints.bin");
+        platform.deleteFile(ID + "-breakpoints.xml");
+        platform.deleteFile(ID + "-breakpoints.journal");
+    }
+
+    /**
+     * Finds the line breakpoint in the given group, failing if there is
+     * not exactly one.
+     *
+     * @param  group  group to search, including subgroups.
+     * @return  the line breakpoint.
+     */
+    private static LineBreakpoint findLineBreakpoint(BreakpointGroup group) {
+        LineBreakpoint found = null;
+        Iterator<Breakpoint> iter = group.breakpoints(true);
+        while (iter.hasNext()) {
+            Breakpoint bp = iter.next();
+            if (bp instanceof LineBreakpoint) {
+                assertNull("more than one line breakpoint", found);
+                found = (LineBreakpoint) bp;
+            }
+        }
+        assertNotNull("line breakpoint missing", found);
+        return found;
+    }
+
+    @Test
+    public void testLoadAndSave() throws Exception {
+        DefaultBreakpointManager bm = createManager();
+        BreakpointFactory bf = BreakpointProvider.getBreakpointFactory();
+        BreakpointGroup group = bf.createBreakpointGroup("subgroup");
+        bm.addBreakpointGroup(group, bm.getDefaultGroup());
+        Breakpoint bp = bf.createLineBreakpoint(URL, null, 42);
+        bp.setThreadFilter("main");
+        bp.setEnabled(false);
+        bm.addBreakpoint(bp);
+        bm.saveBreakpoints(bm.getSession());
+
+        // A new session of the same name loads what was saved.
+        bm = createManager();
+        BreakpointGroup root = bm.getDefaultGroup();
+        // The line breakpoint and the uncaught exception breakpoint.
+        assertEquals(2, root.breakpointCount(true));
+        assertEquals(1, root.groupCount(false));
+        assertEquals("subgroup", root.groups(false).next().getName());
+        LineBreakpoint lbp = findLineBreakpoint(root);
+        assertEquals(URL, lbp.getURL());
+        assertEquals(42, lbp.getLineNumber());
+        assertEquals("main", lbp.getThreadFilter());
+        assertFalse(lbp.isEnabled());
+        assertSame(root, lbp.getBreakpointGroup());
+    }
+
+    @Test
+    public void testSuppressed() throws Exception {
+        // Suppressing requires the manager be known to the provider.
+        DummySession session = new DummySession();
+        session.setIdentifier(ID);
+        session.activate();
+        BreakpointManager bm = BreakpointProvider.getBreakpointManager(session);
+        BreakpointFactory bf = BreakpointProvider.getBreakpointFactory();
+        Breakpoint bp = bf.createLineBreakpoint(URL, null, 42);
+        bm.addBreakpoint(bp);
+        BreakpointGroup root = bm.getDefaultGroup();
+        assertTrue(bp.isEnabled());
+
+        bm.setSuppressed(true);
+        assertTrue(bm.isSuppressed());
+        // The settings of the group and breakpoint are left as they were.
+        assertTrue(root.isEnabled());
+        assertTrue(bp.isEnabled());
+        ((DefaultBreakpointManager) bm).saveBreakpoints(session);
+        DefaultBreakpointManager saved = createManager();
+        assertTrue(saved.getDefaultGroup().isEnabled());
+        assertTrue(findLineBreakpoint(saved.getDefaultGroup()).isEnabled());
+
+        bm.setSuppressed(false);
+        assertFalse(bm.isSuppressed());
+        bm.removeBreakpoint(bp);
+    }
+
+    @Test
+    public void testMigrate() throws Exception {
+        // Write the breakpoints as earlier releases did.
+        DefaultBreakpointGroup group = new DefaultBreakpointGroup();
+        group.setName("Default");
+        DefaultLineBreakpoint bp = new DefaultLineBreakpoint();
+        bp.setURL(URL);
+        bp.setLineNumber(42);
+        group.addBreakpoint(bp);
+        PlatformService platform = PlatformProvider.getPlatformService();
+        String legacy = ID + "-breakpoints.xml";
+        OutputStream os = platform.writeFile(legacy);
+        XMLEncoder encoder = new XMLEncoder(os);
+        encoder.writeObject(group);
+        encoder.close();
+        platform.releaseLock(legacy);
+
+        BreakpointManager bm = createManager();
+        LineBreakpoint lbp = findLineBreakpoint(bm.getDefaultGroup());
+        assertEquals(URL, lbp.getURL());
+        assertEquals(42, lbp.getLineNumber());
+
+        // The breakpoints are now in the binary store, and only there.
+        try {
+            platform.readFile(legacy).close();
+            fail("legacy file should have been deleted");
+        } catch (FileNotFoundException fnfe) {
+            // expected
+        }
+        InputStream is = platform.readFile(ID + "-breakpoints.bin");
+        is.close();
+        bm = createManager();
+        lbp = findLineBreakpoint(bm.getDefaultGroup());
+        assertEquals(42, lbp.getLineNumber());
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is the JSwat Core Module. The Initial Developer of the
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.breakpoint;
+
+import com.bluemarsh.jswat.core.SessionHelper;
+import com.bluemarsh.jswat.core.session.Session;
+import com.sun.jdi.Location;
+import com.sun.jdi.VirtualMachine;
+import com.sun.jdi.request.EventRequestManager;
+import java.util.Collections;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test the ClassPrepareMultiplexer class.
+ *
+ * @author Nathan Fiedler
+ */
+public class ClassPrepareMultiplexerTest {
+
+    /**
+     * Create a method breakpoint and add it to the session. Unlike the
+     * breakpoints of the other tests, these are not deleted when hit, so
+     * they remain registered with the multiplexer.
+     *
+     * @param  session  session to which the breakpoint is added.
+     * @param  cname    class name pattern.
+     * @param  method   name of the method.
+     * @return  new breakpoint.
+     */
+    private static Breakpoint create(Session session, String cname,
+            String method) {
+        BreakpointFactory bf = BreakpointProvider.getBreakpointFactory();
+        Breakpoint bp = null;
+        try {
+            bp = bf.createMethodBreakpoint(cname, method,
+                    Collections.<String>emptyList());
+        } catch (MalformedMemberNameException mmne) {
+            fail(mmne.toString());
+        } catch (MalformedClassNameException mcne) {
+            fail(mcne.toString());
+        }
+        BreakpointProvider.getBreakpointManager(session).addBreakpoint(bp);
+        return bp;
+    }
+
+    /**
+     * Resume the debuggee and verify that it stopped in the given method.
+     *
+     * @param  session  session to resume.
+     * @param  method   name of the expected method.
+     */
+    private static void resumeTo(Session session, String method) {
+        SessionHelper.resumeAndWait(session);
+        Location loc = BreakpointHelper.getLocation(session);
+        assertNotNull("no location for method " + method, loc);
+        assertEquals(method, loc.method().name());
+    }
+
+    @Test
+    public void test_ClassPrepareMultiplexer() {
+        Session session = SessionHelper.getSession();
+        BreakpointHelper.deleteAll(session);
+        SessionHelper.launchDebuggee(session, "jswat.test.MethodBreakpointTestCode");
+        VirtualMachine vm = session.getConnection().getVM();
+        EventRequestManager erm = vm.eventRequestManager();
+        ClassPrepareMultiplexer cpm =
+                BreakpointProvider.getClassPrepareMultiplexer(session);
+        int breakpoints = cpm.getBreakpointCount();
+        int requests = cpm.getRequestCount();
+
+        // Two breakpoints with the same exact pattern share one request,
+        // the suffix and prefix patterns have one each.
+        Breakpoint exact1 = create(session,
+                "jswat.test.MethodBreakpointTestCode", "method_MBTC");
+        Breakpoint exact2 = create(session,
+                "jswat.test.MethodBreakpointTestCode", "method_params");
+        Breakpoint suffix = create(session, "*.MBSecond", "method_MBS");
+        Breakpoint prefix = create(session, "jswat.test.*", "method_I");
+        assertEquals(breakpoints + 4, cpm.getBreakpointCount());
+        assertEquals(requests + 3, cpm.getRequestCount());
+
+        // Each breakpoint resolves as its class is prepared.
+        resumeTo(session, "method_MBTC");
+        assertTrue(((ResolvableBreakpoint) exact1).isResolved());
+        assertTrue(((ResolvableBreakpoint) exact2).isResolved());
+        resumeTo(session, "method_I");
+        assertTrue(((ResolvableBreakpoint) prefix).isResolved());
+        resumeTo(session, "method_MBS");
+        assertTrue(((ResolvableBreakpoint) suffix).isResolved());
+
+        // The shared request remains until the last of its breakpoints
+        // is removed. Other parts of the debugger create class prepare
+        // requests of their own, so count the requests in the debuggee
+        // only once it is well under way.
+        BreakpointManager bm = BreakpointProvider.getBreakpointManager(session);
+        int prepares = erm.classPrepareRequests().size();
+        bm.removeBreakpoint(exact1);
+        assertEquals(breakpoints + 3, cpm.getBreakpointCount());
+        assertEquals(requests + 3, cpm.getRequestCount());
+        assertEquals(prepares, erm.classPrepareRequests().size());
+        bm.removeBreakpoint(exact2);
+        assertEquals(breakpoints + 2, cpm.getBreakpointCount());
+        assertEquals(requests + 2, cpm.getRequestCount());
+        assertEquals(prepares - 1, erm.classPrepareRequests().size());
+        bm.removeBreakpoint(suffix);
+        bm.removeBreakpoint(prefix);
+        assertEquals(breakpoints, cpm.getBreakpointCount());
+        assertEquals(requests, cpm.getRequestCount());
+        assertEquals(prepares - 3, erm.classPrepareRequests().size());
+
+        // Resume once more to let the program exit.
+        SessionHelper.resumeAndWait(session);
+        // The debuggee will have exited now and the session is inactive.
+    }
+}
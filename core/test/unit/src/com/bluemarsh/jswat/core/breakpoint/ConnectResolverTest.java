@@ -0,0 +1,129 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is the JSwat Core Module. The Initial Developer of the
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.breakpoint;
+
+import com.bluemarsh.jswat.core.SessionHelper;
+import com.bluemarsh.jswat.core.session.Session;
+import com.sun.jdi.AbsentInformationException;
+import com.sun.jdi.Location;
+import com.sun.jdi.ReferenceType;
+import com.sun.jdi.VirtualMachine;
+import java.io.File;
+import java.net.MalformedURLException;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test the ConnectResolver class.
+ *
+ * @author Nathan Fiedler
+ */
+public class ConnectResolverTest {
+    /** Name of the source file in which the breakpoints are set. */
+    private static final String SOURCE = "LineBreakpointTestCode.java";
+
+    /**
+     * Counts the prepared classes defined in the test source file, which
+     * are the candidates whose line tables the resolver retrieves.
+     *
+     * @param  vm  debuggee in which to look for classes.
+     * @return  number of candidate classes.
+     */
+    private static int countCandidates(VirtualMachine vm) {
+        int count = 0;
+        for (ReferenceType clazz : vm.allClasses()) {
+            if (clazz.isPrepared()) {
+                try {
+                    if (SOURCE.equals(clazz.sourceName())) {
+                        count++;
+                    }
+                } catch (AbsentInformationException aie) {
+                    // Not a candidate, then.
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Verify the statistics of the most recent resolution.
+     *
+     * @param  resolver     the resolver to check.
+     * @param  breakpoints  expected number of breakpoints.
+     * @param  candidates   expected number of line tables.
+     */
+    private static void verify(ConnectResolver resolver, int breakpoints,
+            int candidates) {
+        assertEquals(breakpoints, resolver.getBreakpointCount());
+        // The breakpoints share a class name specification.
+        assertEquals(1, resolver.getClassLookupCount());
+        // Each candidate class line table is retrieved just once.
+        assertEquals(candidates, resolver.getLineTableCount());
+        assertEquals(resolver.getBreakpointCount(),
+                resolver.getResolvedCount() + resolver.getDeferredCount());
+    }
+
+    @Test
+    public void test_ConnectResolver() {
+        Session session = SessionHelper.getSession();
+        BreakpointHelper.deleteAll(session);
+        BreakpointFactory bf = BreakpointProvider.getBreakpointFactory();
+        int[] lines = new int[]{33, 34, 35};
+        String srcpath = System.getProperty("test.src.dir");
+        File srcfile = new File(srcpath, SOURCE);
+        try {
+            String url = srcfile.toURI().toURL().toString();
+            for (int line : lines) {
+                Breakpoint bp = bf.createLineBreakpoint(url, null, line);
+                BreakpointHelper.prepareBreakpoint(bp, session);
+            }
+        } catch (MalformedClassNameException mcne) {
+            fail(mcne.toString());
+        } catch (MalformedURLException mue) {
+            fail(mue.toString());
+        }
+
+        // The breakpoints were resolved together upon connecting, before
+        // the class was loaded.
+        SessionHelper.launchDebuggee(session, "LineBreakpointTestCode");
+        VirtualMachine vm = session.getConnection().getVM();
+        ConnectResolver resolver = BreakpointProvider.getConnectResolver(session);
+        verify(resolver, lines.length, countCandidates(vm));
+
+        // Stop at the first line, so the class is now prepared, and
+        // resolve the remaining breakpoints once more.
+        SessionHelper.resumeAndWait(session);
+        Location loc = BreakpointHelper.getLocation(session);
+        assertNotNull("no location for line 33", loc);
+        assertEquals(33, loc.lineNumber());
+        BreakpointManager bm = BreakpointProvider.getBreakpointManager(session);
+        resolver.resolve(vm, bm.getDefaultGroup());
+        int candidates = countCandidates(vm);
+        assertTrue(candidates > 0);
+        verify(resolver, lines.length - 1, candidates);
+        assertEquals(lines.length - 1, resolver.getResolvedCount());
+
+        // Remove the breakpoints and let the program exit.
+        BreakpointHelper.deleteAll(session);
+        SessionHelper.resumeAndWait(session);
+        // The debuggee will have exited now and the session is inactive.
+    }
+}
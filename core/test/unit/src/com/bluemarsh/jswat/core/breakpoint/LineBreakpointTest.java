@@ -180,4 +180,38 @@ public class LineBreakpointTest {
         // The debuggee will have exited now and the session is inactive.
         assertFalse(session.isConnected());
     }
+
+    @Test
+    public void test_Breakpoint_Suppressed() {
+        Session session = SessionHelper.getSession();
+        BreakpointManager bm = BreakpointProvider.getBreakpointManager(session);
+        BreakpointFactory bf = BreakpointProvider.getBreakpointFactory();
+        String srcpath = System.getProperty("test.src.dir");
+        File srcfile = new File(srcpath, "LineBreakpointTestCode.java");
+        Breakpoint bp = null;
+        try {
+            String url = srcfile.toURI().toURL().toString();
+            bp = bf.createLineBreakpoint(url, null, 33);
+            BreakpointHelper.prepareBreakpoint(bp, session);
+        } catch (MalformedClassNameException mcne) {
+            fail(mcne.toString());
+        } catch (MalformedURLException mue) {
+            fail(mue.toString());
+        }
+
+        // A suppressed breakpoint does not stop the debuggee, which runs
+        // to completion, yet the breakpoint itself remains enabled.
+        bm.setSuppressed(true);
+        try {
+            SessionHelper.launchDebuggee(session, "LineBreakpointTestCode");
+            assertTrue(session.isConnected());
+            SessionHelper.resumeAndWait(session);
+            assertFalse(session.isConnected());
+            assertTrue(bp.isEnabled());
+            assertTrue(bm.getDefaultGroup().isEnabled());
+        } finally {
+            bm.setSuppressed(false);
+            BreakpointHelper.deleteAll(session);
+        }
+    }
 }
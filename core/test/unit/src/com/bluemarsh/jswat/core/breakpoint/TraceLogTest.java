@@ -0,0 +1,110 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is the JSwat Core Module. The Initial Developer of the
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.breakpoint;
+
+import com.sun.jdi.Method;
+import com.sun.jdi.ThreadReference;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the TraceLog class.
+ *
+ * @author Nathan Fiedler
+ */
+public class TraceLogTest {
+
+    /**
+     * Create a stand-in for a JDI mirror, which answers only the
+     * methods of Object and the given unique identifier.
+     *
+     * @param  type  mirror interface.
+     * @param  id    value for the uniqueID() method.
+     * @return  new mirror.
+     */
+    private static <T> T createMirror(Class<T> type, final long id) {
+        InvocationHandler handler = new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, java.lang.reflect.Method m,
+                    Object[] args) {
+                String name = m.getName();
+                if (name.equals("equals")) {
+                    return proxy == args[0];
+                } else if (name.equals("hashCode")) {
+                    return System.identityHashCode(proxy);
+                } else if (name.equals("uniqueID")) {
+                    return id;
+                } else if (name.equals("toString")) {
+                    return "mirror " + id;
+                }
+                throw new UnsupportedOperationException(name);
+            }
+        };
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(),
+                new Class<?>[]{type}, handler));
+    }
+
+    @Test
+    public void testAppend() {
+        TraceLog log = new TraceLog(null, 4);
+        Method m1 = createMirror(Method.class, 0);
+        Method m2 = createMirror(Method.class, 0);
+        ThreadReference t1 = createMirror(ThreadReference.class, 10);
+        ThreadReference t2 = createMirror(ThreadReference.class, 20);
+        assertEquals(0, log.getFirst());
+        assertEquals(0, log.getNext());
+        assertNull(log.get(0));
+
+        log.append(m1, t1, false);
+        log.append(m2, t2, false);
+        log.append(m2, t2, true);
+        assertEquals(0, log.getFirst());
+        assertEquals(3, log.getNext());
+        TraceLog.Entry entry = log.get(0);
+        assertSame(m1, entry.getMethod());
+        assertEquals(10, entry.getThreadId());
+        assertFalse(entry.isExit());
+        entry = log.get(2);
+        assertSame(m2, entry.getMethod());
+        assertEquals(20, entry.getThreadId());
+        assertTrue(entry.isExit());
+        assertTrue(entry.getTime() >= log.get(0).getTime());
+
+        // Wrap around, overwriting the oldest records.
+        log.append(m1, t2, false);
+        log.append(m1, t1, true);
+        log.append(m2, t1, false);
+        assertEquals(2, log.getFirst());
+        assertEquals(6, log.getNext());
+        assertNull(log.get(1));
+        assertNull(log.get(6));
+        entry = log.get(5);
+        assertEquals(5, entry.getSequence());
+        assertSame(m2, entry.getMethod());
+        assertEquals(10, entry.getThreadId());
+
+        log.clear();
+        assertEquals(0, log.getNext());
+        assertNull(log.get(5));
+    }
+}
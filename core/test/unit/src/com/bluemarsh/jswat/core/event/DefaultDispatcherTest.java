@@ -0,0 +1,126 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is the JSwat Core Module. The Initial Developer of the
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.event;
+
+import com.bluemarsh.jswat.core.CoreSettings;
+import com.sun.jdi.VMDisconnectedException;
+import com.sun.jdi.VirtualMachine;
+import com.sun.jdi.event.EventQueue;
+import com.sun.jdi.event.EventSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the DefaultDispatcher class.
+ *
+ * @author Nathan Fiedler
+ */
+public class DefaultDispatcherTest {
+
+    @Test
+    public void testObserveSerial() {
+        DefaultDispatcher dispatcher = new DefaultDispatcher();
+        final AtomicInteger count = new AtomicInteger();
+        dispatcher.observe(new Runnable() {
+            @Override
+            public void run() {
+                count.incrementAndGet();
+            }
+        });
+        // Without starting asynchronously, the work is done immediately.
+        assertEquals(1, count.get());
+        assertEquals(1, dispatcher.getObservedCount());
+        assertEquals(0, dispatcher.getDroppedCount());
+    }
+
+    @Test
+    public void testObserveAsync() throws InterruptedException {
+        CoreSettings settings = CoreSettings.getDefault();
+        boolean async = settings.getAsyncDispatch();
+        settings.setAsyncDispatch(true);
+        try {
+            final CountDownLatch release = new CountDownLatch(1);
+            final CountDownLatch stopped = new CountDownLatch(1);
+            final AtomicInteger count = new AtomicInteger();
+            final AtomicInteger countAtStop = new AtomicInteger(-1);
+            DefaultDispatcher dispatcher = new DefaultDispatcher();
+            dispatcher.start(new TestEventQueue(release), null, new Runnable() {
+                @Override
+                public void run() {
+                    countAtStop.set(count.get());
+                    stopped.countDown();
+                }
+            }, null);
+            for (int ii = 0; ii < 100; ii++) {
+                dispatcher.observe(new Runnable() {
+                    @Override
+                    public void run() {
+                        count.incrementAndGet();
+                    }
+                });
+            }
+            release.countDown();
+            assertTrue(stopped.await(10, TimeUnit.SECONDS));
+            // All of the queued work is done before the stopped callback.
+            assertEquals(100, countAtStop.get());
+            assertEquals(100, dispatcher.getObservedCount());
+            assertEquals(0, dispatcher.getDroppedCount());
+        } finally {
+            settings.setAsyncDispatch(async);
+        }
+    }
+
+    /**
+     * An event queue that disconnects once released.
+     */
+    private static class TestEventQueue implements EventQueue {
+        /** Released when the queue should disconnect. */
+        private final CountDownLatch release;
+
+        /**
+         * Constructs a new TestEventQueue.
+         *
+         * @param  release  released when the queue should disconnect.
+         */
+        TestEventQueue(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public EventSet remove() throws InterruptedException {
+            release.await();
+            throw new VMDisconnectedException();
+        }
+
+        @Override
+        public EventSet remove(long timeout) throws InterruptedException {
+            return remove();
+        }
+
+        @Override
+        public VirtualMachine virtualMachine() {
+            return null;
+        }
+    }
+}
@@ -22,6 +22,7 @@
 package com.bluemarsh.jswat.core.expr;
 
 import org.junit.Test;
+import static org.junit.Assert.*;
 
 /**
  * Tests the Evaluator class.
@@ -201,4 +202,46 @@ public class BasicEvaluatorTest {
         EvaluatorHelper helper = new EvaluatorHelper();
         helper.performTests(testDatum, null, 0);
     }
+
+    @Test
+    public void test_Evaluator_Reuse() throws EvaluationException {
+        // The same evaluator must produce a fresh result each time.
+        Evaluator eval = new Evaluator("(1 + 2) * 3");
+        assertEquals(new Integer(9), eval.evaluate(null, 0));
+        assertEquals(new Integer(9), eval.evaluate(null, 0));
+        // A new evaluator of the same expression uses the cached tree.
+        long hits = ExpressionCache.getHitCount();
+        eval = new Evaluator("(1 + 2) * 3");
+        assertEquals(new Integer(9), eval.evaluate(null, 0));
+        assertEquals(hits + 1, ExpressionCache.getHitCount());
+    }
+
+    @Test
+    public void test_Evaluator_Concurrent() throws Exception {
+        // The cached tree must be safe to evaluate from many threads.
+        final String expr = "10 * (2 + 3)";
+        Thread[] threads = new Thread[8];
+        final Throwable[] errors = new Throwable[threads.length];
+        for (int ii = 0; ii < threads.length; ii++) {
+            final int index = ii;
+            threads[ii] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        Evaluator local = new Evaluator(expr);
+                        for (int jj = 0; jj < 1000; jj++) {
+                            assertEquals(new Integer(50), local.evaluate(null, 0));
+                        }
+                    } catch (Throwable t) {
+                        errors[index] = t;
+                    }
+                }
+            };
+            threads[ii].start();
+        }
+        for (int ii = 0; ii < threads.length; ii++) {
+            threads[ii].join();
+            assertNull(errors[ii]);
+        }
+    }
 }
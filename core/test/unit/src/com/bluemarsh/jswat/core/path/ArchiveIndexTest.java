@@ -0,0 +1,156 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is the JSwat Core Module. The Initial Developer of the
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.path;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the ArchiveIndex class.
+ *
+ * @author Nathan Fiedler
+ */
+public class ArchiveIndexTest {
+
+    /**
+     * Create an archive containing the named (empty) entries.
+     *
+     * @param  file   archive file to create.
+     * @param  names  entry names.
+     * @throws  IOException  if writing fails.
+     */
+    private static void createArchive(File file, String... names)
+            throws IOException {
+        ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(file));
+        for (String name : names) {
+            zos.putNextEntry(new ZipEntry(name));
+            zos.closeEntry();
+        }
+        zos.close();
+    }
+
+    @Test
+    public void testFindEntry() throws IOException {
+        File file = File.createTempFile("archive", ".zip");
+        file.deleteOnExit();
+        createArchive(file, "src/com/foo/Bar.java", "src/com/foo/Baz.java");
+        ArchiveIndex index = new ArchiveIndex();
+        String query = "src" + File.separator + "com" + File.separator
+                + "foo" + File.separator + "Bar.java";
+        assertEquals("src/com/foo/Bar.java", index.findEntry(file, query));
+        assertNull(index.findEntry(file, "Bar.java"));
+        Set<String> roots = index.getRoots(file);
+        assertEquals(1, roots.size());
+        assertTrue(roots.contains("src"));
+        ZipFile zipFile = index.getZipFile(file);
+        assertSame(zipFile, index.getZipFile(file));
+        assertNotNull(zipFile.getEntry("src/com/foo/Baz.java"));
+
+        // Changing the archive causes it to be indexed again.
+        createArchive(file, "com/foo/Bar.java");
+        file.setLastModified(file.lastModified() + 2000);
+        assertNull(index.findEntry(file, query));
+        query = "com" + File.separator + "foo" + File.separator + "Bar.java";
+        assertEquals("com/foo/Bar.java", index.findEntry(file, query));
+        file.delete();
+    }
+
+    @Test
+    public void testEvictedWhileReading() throws IOException {
+        File file = File.createTempFile("archive", ".zip");
+        file.deleteOnExit();
+        ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(file));
+        zos.putNextEntry(new ZipEntry("com/foo/Bar.java"));
+        zos.write("class Bar {}".getBytes());
+        zos.closeEntry();
+        zos.close();
+        ArchiveIndex index = new ArchiveIndex();
+        InputStream is = index.getInputStream(file, "com/foo/Bar.java");
+        assertEquals('c', is.read());
+
+        // Open enough other archives to evict the first one.
+        for (int ii = 0; ii < 20; ii++) {
+            File other = File.createTempFile("archive", ".zip");
+            other.deleteOnExit();
+            createArchive(other, "com/foo/Baz.java");
+            index.getZipFile(other);
+            other.delete();
+        }
+
+        // The stream remains readable until it is closed.
+        assertEquals('l', is.read());
+        is.close();
+        is.close();
+        try {
+            index.getInputStream(file, "com/foo/Baz.java");
+            fail("should have thrown FileNotFoundException");
+        } catch (FileNotFoundException fnfe) {
+            // expected
+        }
+        file.delete();
+    }
+
+    @Test
+    public void testNotAnArchive() throws IOException {
+        File file = File.createTempFile("archive", ".txt");
+        file.deleteOnExit();
+        FileOutputStream fos = new FileOutputStream(file);
+        fos.write("not a zip file".getBytes());
+        fos.close();
+        ArchiveIndex index = new ArchiveIndex();
+        assertNull(index.findEntry(file, "Bar.java"));
+        assertNull(index.getRoots(file));
+        file.delete();
+    }
+
+    @Test
+    public void testSaveLoad() throws IOException {
+        File file = File.createTempFile("archive", ".zip");
+        file.deleteOnExit();
+        createArchive(file, "com/foo/Bar.java");
+        String query = "com" + File.separator + "foo" + File.separator + "Bar.java";
+        ArchiveIndex index = new ArchiveIndex();
+        assertEquals("com/foo/Bar.java", index.findEntry(file, query));
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        index.save(baos);
+
+        // Remove the entry without changing the size or time stamp, so
+        // the loaded index is taken as is and not read again.
+        long modified = file.lastModified();
+        createArchive(file, "com/foo/Baz.java");
+        file.setLastModified(modified);
+        index = new ArchiveIndex();
+        index.load(new ByteArrayInputStream(baos.toByteArray()));
+        assertEquals("com/foo/Bar.java", index.findEntry(file, query));
+        file.delete();
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is the JSwat Core Module. The Initial Developer of the
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.path;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the SourceContent class.
+ *
+ * @author Nathan Fiedler
+ */
+public class SourceContentTest {
+
+    @Test
+    public void testLines() throws IOException {
+        String text = "first\nsecond\r\nthird\r\rfifth";
+        InputStream is = new ByteArrayInputStream(text.getBytes());
+        SourceContent sc = SourceContent.forStream("testLines", 1L, is);
+        assertEquals(5, sc.getLineCount());
+        assertEquals("first", sc.getLine(1));
+        assertEquals("second", sc.getLine(2));
+        assertEquals("third", sc.getLine(3));
+        assertEquals("", sc.getLine(4));
+        assertEquals("fifth", sc.getLine(5));
+        try {
+            sc.getLine(6);
+            fail("should have failed");
+        } catch (IndexOutOfBoundsException ioobe) {
+            // expected
+        }
+        assertSame(sc, SourceContent.getCached("testLines", 1L));
+        assertNull(SourceContent.getCached("testLines", 2L));
+
+        is = new ByteArrayInputStream(new byte[0]);
+        sc = SourceContent.forStream("testEmpty", 1L, is);
+        assertEquals(0, sc.getLineCount());
+        is = new ByteArrayInputStream("one\n".getBytes());
+        sc = SourceContent.forStream("testOne", 1L, is);
+        assertEquals(1, sc.getLineCount());
+        assertEquals("one", sc.getLine(1));
+    }
+
+    @Test
+    public void testMappedFile() throws IOException {
+        File file = File.createTempFile("source", ".java");
+        file.deleteOnExit();
+        FileOutputStream fos = new FileOutputStream(file);
+        for (int ii = 1; ii <= 5000; ii++) {
+            fos.write(("line " + ii + "\n").getBytes());
+        }
+        fos.close();
+        SourceContent sc = SourceContent.forFile(file);
+        assertEquals(5000, sc.getLineCount());
+        assertEquals("line 1", sc.getLine(1));
+        assertEquals("line 2500", sc.getLine(2500));
+        assertEquals("line 5000", sc.getLine(5000));
+        assertSame(sc, SourceContent.forFile(file));
+
+        // Changing the file results in new content.
+        fos = new FileOutputStream(file);
+        fos.write("changed\n".getBytes());
+        fos.close();
+        file.setLastModified(file.lastModified() + 2000);
+        sc = SourceContent.forFile(file);
+        assertEquals(1, sc.getLineCount());
+        assertEquals("changed", sc.getLine(1));
+        file.delete();
+    }
+}
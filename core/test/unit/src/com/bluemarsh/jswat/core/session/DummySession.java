@@ -24,6 +24,8 @@
 package com.bluemarsh.jswat.core.session;
 
 import com.bluemarsh.jswat.core.connect.JvmConnection;
+import com.sun.jdi.ThreadReference;
+import java.util.List;
 
 /**
  * A Session implementation that is only good for testing.
@@ -63,6 +65,10 @@ public class DummySession extends AbstractSession {
     public void resumeVM() {
     }
 
+    public void suspendStateChanged(List<ThreadReference> threads,
+            boolean suspended) {
+    }
+
     public void suspendVM() {
     }
 }
@@ -23,6 +23,15 @@
 
 package com.bluemarsh.jswat.core.session;
 
+import com.bluemarsh.jswat.core.PlatformProvider;
+import com.bluemarsh.jswat.core.PlatformService;
+import com.bluemarsh.jswat.core.breakpoint.BreakpointGroup;
+import com.bluemarsh.jswat.core.breakpoint.BreakpointManager;
+import com.bluemarsh.jswat.core.breakpoint.BreakpointProvider;
+import java.beans.XMLEncoder;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -55,6 +64,27 @@ public class SessionManagerTest {
         sm.saveSessions(false);
     }
 
+    @Test
+    public void activate() {
+        SessionManager sm = SessionProvider.getSessionManager();
+        Session current = sm.getCurrent();
+        Session session = new DummySession();
+        session.setIdentifier("unitTestActivate");
+        sm.add(session);
+        assertFalse(session.isActive());
+        // The breakpoints are not loaded until the session is activated.
+        BreakpointManager bm = BreakpointProvider.getBreakpointManager(session);
+        BreakpointGroup group = bm.getDefaultGroup();
+        assertEquals(0, group.breakpointCount(true));
+        sm.setCurrent(session);
+        assertTrue(session.isActive());
+        assertSame(group, bm.getDefaultGroup());
+        // Loading creates the uncaught exception breakpoint.
+        assertEquals(1, group.breakpointCount(true));
+        sm.setCurrent(current);
+        sm.remove(session);
+    }
+
     @Test
     public void addRemoveListener() {
         SessionManager sm = SessionProvider.getSessionManager();
@@ -87,6 +117,19 @@ public class SessionManagerTest {
         // Do not call SessionManager.close() as other tests will need it.
     }
 
+    @Test
+    public void generateIdentifier() {
+        SessionManager sm = SessionProvider.getSessionManager();
+        String id = sm.generateIdentifier();
+        assertNull(sm.findById(id));
+        Session session = new DummySession();
+        session.setIdentifier(id);
+        sm.add(session);
+        sm.remove(session);
+        // The identifier of a removed session is not given out again.
+        assertFalse(id.equals(sm.generateIdentifier()));
+    }
+
     @Test
     public void iterate() {
         SessionManager sm = SessionProvider.getSessionManager();
@@ -113,6 +156,52 @@ public class SessionManagerTest {
         // Do not call SessionManager.close() as other tests will need it.
     }
 
+    @Test
+    public void migrate() throws IOException {
+        // Write the sessions as earlier releases did.
+        List<Session> legacy = new ArrayList<Session>();
+        Session session1 = new DummySession();
+        session1.setIdentifier("legacy1");
+        session1.setProperty(Session.PROP_SESSION_NAME, "Legacy 1");
+        legacy.add(session1);
+        Session session2 = new DummySession();
+        session2.setIdentifier("legacy2");
+        session2.setProperty(Session.PROP_SESSION_NAME, "Legacy 2");
+        legacy.add(session2);
+        PlatformService platform = PlatformProvider.getPlatformService();
+        platform.deleteFile("sessions.bin");
+        OutputStream os = platform.writeFile("sessions.xml");
+        XMLEncoder encoder = new XMLEncoder(os);
+        encoder.writeObject(legacy);
+        encoder.writeObject("legacy2");
+        encoder.close();
+        platform.releaseLock("sessions.xml");
+
+        SessionManager sm = SessionProvider.getSessionManager();
+        sm.loadSessions();
+        Session found = sm.findById("legacy1");
+        assertNotNull(found);
+        assertEquals("Legacy 1", found.getProperty(Session.PROP_SESSION_NAME));
+        assertEquals("legacy2", sm.getCurrent().getIdentifier());
+
+        // The sessions are now in the binary store, and only there.
+        try {
+            platform.readFile("sessions.xml").close();
+            fail("legacy file should have been deleted");
+        } catch (FileNotFoundException fnfe) {
+            // expected
+        }
+        sm.loadSessions();
+        found = sm.findById("legacy1");
+        assertNotNull(found);
+        assertEquals("Legacy 1", found.getProperty(Session.PROP_SESSION_NAME));
+        assertEquals("legacy2", sm.getCurrent().getIdentifier());
+        Iterator<Session> iter = sm.iterateSessions();
+        iter.next();
+        iter.next();
+        assertFalse(iter.hasNext());
+    }
+
     @Test
     public void properties() {
         SessionManager sm = SessionProvider.getSessionManager();
@@ -32,10 +32,13 @@ import com.bluemarsh.jswat.core.context.ContextProvider;
 import com.bluemarsh.jswat.core.expr.EvaluationException;
 import com.bluemarsh.jswat.core.expr.Evaluator;
 import com.sun.jdi.ThreadReference;
+import com.sun.jdi.VirtualMachine;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.io.File;
 import java.net.MalformedURLException;
+import java.util.Collections;
+import java.util.List;
 import com.bluemarsh.jswat.core.context.DebuggingContext;
 import org.junit.Test;
 import static org.junit.Assert.*;
@@ -142,6 +145,34 @@ public class SessionTest {
         assertFalse(session.isConnected());
     }
 
+    @Test
+    public void findByVM() {
+        // Use a session of our own, leaving the current one untouched.
+        SessionManager sm = SessionProvider.getSessionManager();
+        SessionFactory factory = SessionProvider.getSessionFactory();
+        Session session = factory.createSession(sm.generateIdentifier());
+        sm.add(session);
+        try {
+            SessionHelper.launchDebuggee(session, "SessionTestCode");
+            VirtualMachine vm = session.getConnection().getVM();
+            assertSame(session, sm.findByVM(vm));
+            // The dispatcher thread is named for the session it serves.
+            String name = "JSwat Event Dispatcher " + session.getIdentifier();
+            boolean found = false;
+            for (Thread th : Thread.getAllStackTraces().keySet()) {
+                if (th.getName().equals(name)) {
+                    found = true;
+                }
+            }
+            assertTrue("missing thread " + name, found);
+            session.disconnect(true);
+            assertFalse(session.isConnected());
+            assertNull(sm.findByVM(vm));
+        } finally {
+            sm.remove(session);
+        }
+    }
+
     @Test
     public void resume_suspend() {
         Session session = SessionHelper.getSession();
@@ -188,6 +219,40 @@ public class SessionTest {
         assertFalse(session.isConnected());
     }
 
+    @Test
+    public void suspendThreads() throws InterruptedException {
+        Session session = SessionHelper.getSession();
+        SessionHelper.launchDebuggee(session, "SessionTestCode");
+        session.resumeVM();
+        assertFalse(session.isSuspended());
+        ThreadReference thread = null;
+        for (ThreadReference th : session.getConnection().getVM().allThreads()) {
+            if (th.name().equals("main")) {
+                thread = th;
+            }
+        }
+        assertNotNull(thread);
+        List<ThreadReference> threads = Collections.singletonList(thread);
+
+        // Suspend the thread twice, so it remains suspended after the
+        // first resume, which only the debuggee can tell us.
+        thread.suspend();
+        session.suspendStateChanged(threads, true);
+        assertTrue(session.isSuspended());
+        thread.suspend();
+        session.suspendStateChanged(threads, true);
+        thread.resume();
+        session.suspendStateChanged(threads, false);
+        Thread.sleep(2000);
+        assertTrue(session.isSuspended());
+        thread.resume();
+        session.suspendStateChanged(threads, false);
+        Thread.sleep(2000);
+        assertFalse(session.isSuspended());
+        session.disconnect(true);
+        assertFalse(session.isConnected());
+    }
+
     private static class TestListener implements SessionListener {
 
         public boolean wasAdded;
@@ -51,6 +51,31 @@ public class ArraysTest {
         assertEquals(arr[3], Integer.valueOf(100));
     }
 
+    @Test
+    public void test_Arrays_addRemove() {
+        String[] arr = new String[0];
+        arr = Arrays.add(arr, "a");
+        arr = Arrays.add(arr, "b");
+        String[] before = arr;
+        arr = Arrays.add(arr, "c");
+        assertEquals(2, before.length);
+        assertEqual(new String[] { "a", "b", "c" }, arr);
+        assertSame(arr, Arrays.remove(arr, "z"));
+        arr = Arrays.remove(arr, "b");
+        assertEqual(new String[] { "a", "c" }, arr);
+        arr = Arrays.remove(arr, "a");
+        arr = Arrays.remove(arr, "c");
+        assertEquals(0, arr.length);
+        arr = Arrays.add(arr, "d");
+        assertTrue(Arrays.listIterator(arr).hasNext());
+        try {
+            Arrays.listIterator(arr).set("e");
+            fail("iterator should be read-only");
+        } catch (UnsupportedOperationException uoe) {
+            // expected
+        }
+    }
+
     private static void assertEqual(Object[] a, Object[] b) {
         assertEquals(a.length, b.length);
         for (int ii = 0; ii < a.length; ii++) {
@@ -0,0 +1,163 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+
+package com.bluemarsh.jswat.core.util;
+
+import com.bluemarsh.jswat.core.breakpoint.Breakpoint;
+import com.bluemarsh.jswat.core.breakpoint.DefaultBreakpointGroup;
+import com.bluemarsh.jswat.core.breakpoint.DefaultLineBreakpoint;
+import com.bluemarsh.jswat.core.breakpoint.ExpressionCondition;
+import com.bluemarsh.jswat.core.breakpoint.HitCountCondition;
+import com.bluemarsh.jswat.core.breakpoint.HitCountConditionType;
+import com.bluemarsh.jswat.core.runtime.DefaultRuntime;
+import java.beans.XMLEncoder;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the BeanWriter and BeanReader classes.
+ *
+ * @author Nathan Fiedler
+ */
+public class BeanWriterTest {
+
+    /**
+     * Creates a breakpoint group containing the given number of line
+     * breakpoints, each with a condition.
+     *
+     * @param  count  number of breakpoints.
+     * @return  new breakpoint group.
+     */
+    private static DefaultBreakpointGroup createGroup(int count) {
+        DefaultBreakpointGroup group = new DefaultBreakpointGroup();
+        group.setName("Default");
+        for (int ii = 0; ii < count; ii++) {
+            DefaultLineBreakpoint bp = new DefaultLineBreakpoint();
+            bp.setPackageName("com.example.pkg" + (ii % 10));
+            bp.setSourceName("Source" + (ii % 50) + ".java");
+            bp.setURL("file:/src/com/example/pkg" + (ii % 10)
+                    + "/Source" + (ii % 50) + ".java");
+            bp.setLineNumber(ii + 1);
+            ExpressionCondition cond = new ExpressionCondition();
+            cond.setExpression("i > " + ii);
+            bp.addCondition(cond);
+            group.addBreakpoint(bp);
+        }
+        return group;
+    }
+
+    @Test
+    public void testBeans() throws IOException {
+        BeanWriter writer = new BeanWriter("test");
+        HitCountCondition hcc = new HitCountCondition();
+        hcc.setCount(-12);
+        hcc.setType(HitCountConditionType.MULTIPLE);
+        writer.writeBean(hcc);
+        DefaultRuntime rt = new DefaultRuntime();
+        rt.setIdentifier("JRE_1");
+        rt.setBase("/usr/java");
+        List<String> sources = new ArrayList<String>();
+        sources.add("/usr/java/src.zip");
+        sources.add("/usr/java/other.zip");
+        rt.setSources(sources);
+        writer.writeBean(rt);
+        writer.writeString("/usr/java");
+        writer.writeString(null);
+        writer.writeBoolean(true);
+        writer.writeInt(300);
+
+        BeanReader reader = new BeanReader(writer.toByteArray(), "test");
+        HitCountCondition hcc2 = (HitCountCondition) reader.readBean();
+        assertEquals(-12, hcc2.getCount());
+        assertEquals(HitCountConditionType.MULTIPLE, hcc2.getType());
+        DefaultRuntime rt2 = (DefaultRuntime) reader.readBean();
+        assertEquals("JRE_1", rt2.getIdentifier());
+        assertEquals("/usr/java", rt2.getBase());
+        assertEquals(sources, rt2.getSources());
+        assertEquals("/usr/java", reader.readString());
+        assertNull(reader.readString());
+        assertTrue(reader.readBoolean());
+        assertEquals(300, reader.readInt());
+    }
+
+    @Test
+    public void testKind() throws IOException {
+        BeanWriter writer = new BeanWriter("watches");
+        try {
+            new BeanReader(writer.toByteArray(), "sessions");
+            fail("should have rejected wrong kind");
+        } catch (IOException ioe) {
+            // expected
+        }
+        try {
+            new BeanReader("<?xml version=\"1.0\"?>".getBytes(), "sessions");
+            fail("should have rejected non-store");
+        } catch (IOException ioe) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testSize() throws IOException {
+        // Compare with the XMLEncoder which this replaces; the timing
+        // of the two is measured by the StoreBenchmark in the bench module.
+        DefaultBreakpointGroup group = createGroup(2000);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        XMLEncoder encoder = new XMLEncoder(baos);
+        encoder.writeObject(group);
+        encoder.close();
+        byte[] xml = baos.toByteArray();
+
+        BeanWriter writer = new BeanWriter("test");
+        writer.writeInt(group.breakpointCount(false));
+        Iterator<Breakpoint> iter = group.breakpoints(false);
+        while (iter.hasNext()) {
+            DefaultLineBreakpoint bp = (DefaultLineBreakpoint) iter.next();
+            writer.writeBean(bp);
+            writer.writeBean(bp.conditions().next());
+        }
+        byte[] bin = writer.toByteArray();
+        assertTrue(bin.length * 4 < xml.length);
+
+        // Everything that was written is read back the same.
+        BeanReader reader = new BeanReader(bin, "test");
+        int count = reader.readInt();
+        assertEquals(2000, count);
+        iter = group.breakpoints(false);
+        for (int ii = 0; ii < count; ii++) {
+            DefaultLineBreakpoint expected = (DefaultLineBreakpoint) iter.next();
+            DefaultLineBreakpoint bp = (DefaultLineBreakpoint) reader.readBean();
+            assertEquals(expected.getPackageName(), bp.getPackageName());
+            assertEquals(expected.getSourceName(), bp.getSourceName());
+            assertEquals(expected.getURL(), bp.getURL());
+            assertEquals(expected.getLineNumber(), bp.getLineNumber());
+            ExpressionCondition cond = (ExpressionCondition) reader.readBean();
+            assertEquals(((ExpressionCondition) expected.conditions().next())
+                    .getExpression(), cond.getExpression());
+        }
+        assertFalse(iter.hasNext());
+    }
+}
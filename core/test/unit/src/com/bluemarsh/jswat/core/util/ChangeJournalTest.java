@@ -0,0 +1,159 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+
+package com.bluemarsh.jswat.core.util;
+
+import com.bluemarsh.jswat.core.PlatformProvider;
+import com.bluemarsh.jswat.core.PlatformService;
+import com.bluemarsh.jswat.core.breakpoint.DefaultLineBreakpoint;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the ChangeJournal class.
+ *
+ * @author Nathan Fiedler
+ */
+public class ChangeJournalTest {
+    private static final String JOURNAL = "ChangeJournalTest.journal";
+    private static final String SNAPSHOT = "ChangeJournalTest.bin";
+
+    @Before
+    @After
+    public void deleteFiles() throws IOException {
+        PlatformService platform = PlatformProvider.getPlatformService();
+        platform.deleteFile(JOURNAL);
+        platform.deleteFile(SNAPSHOT);
+    }
+
+    @Test
+    public void testClearedProperty() throws IOException {
+        ChangeJournal journal = new ChangeJournal(JOURNAL, SNAPSHOT, 10);
+        journal.replay();
+        DefaultLineBreakpoint bp = new DefaultLineBreakpoint();
+        bp.setLineNumber(10);
+        bp.setThreadFilter("worker");
+        BeanWriter writer = new BeanWriter("test");
+        writer.writeBean(bp);
+        journal.append(writer.toByteArray());
+        bp.setThreadFilter(null);
+        writer = new BeanWriter("test");
+        writer.writeBean(bp);
+        journal.append(writer.toByteArray());
+        journal.flush();
+
+        // Replay the records over an existing breakpoint, as the
+        // breakpoint manager does, which must end up without a thread filter.
+        journal = new ChangeJournal(JOURNAL, SNAPSHOT, 10);
+        DefaultLineBreakpoint live = new DefaultLineBreakpoint();
+        live.setThreadFilter("main");
+        List<byte[]> records = journal.replay();
+        assertEquals(2, records.size());
+        BeanReader reader = new BeanReader(records.get(0), "test");
+        assertSame(live, reader.readBean(live));
+        assertEquals("worker", live.getThreadFilter());
+        reader = new BeanReader(records.get(1), "test");
+        assertSame(live, reader.readBean(live));
+        assertNull(live.getThreadFilter());
+        assertEquals(10, live.getLineNumber());
+    }
+
+    @Test
+    public void testReplay() {
+        ChangeJournal journal = new ChangeJournal(JOURNAL, SNAPSHOT, 3);
+        assertTrue(journal.replay().isEmpty());
+        assertFalse(journal.append(new byte[]{1}));
+        assertFalse(journal.append(new byte[]{2, 2}));
+        journal.flush();
+        assertTrue(journal.append(new byte[0]));
+        journal.flush();
+
+        // As if the application had crashed and restarted.
+        journal = new ChangeJournal(JOURNAL, SNAPSHOT, 3);
+        List<byte[]> records = journal.replay();
+        assertEquals(3, records.size());
+        assertArrayEquals(new byte[]{1}, records.get(0));
+        assertArrayEquals(new byte[]{2, 2}, records.get(1));
+        assertEquals(0, records.get(2).length);
+        // Further records are appended to the same journal.
+        journal.append(new byte[]{4});
+        journal.flush();
+        journal = new ChangeJournal(JOURNAL, SNAPSHOT, 3);
+        assertEquals(4, journal.replay().size());
+    }
+
+    @Test
+    public void testSnapshot() throws IOException {
+        ChangeJournal journal = new ChangeJournal(JOURNAL, SNAPSHOT, 10);
+        journal.replay();
+        journal.append(new byte[]{1});
+        journal.flush();
+        BeanWriter writer = new BeanWriter("test");
+        writer.writeString("snapshot");
+        journal.snapshot(writer, true);
+        journal.append(new byte[]{2});
+        journal.flush();
+
+        journal = new ChangeJournal(JOURNAL, SNAPSHOT, 10);
+        BeanReader reader = BeanReader.open(SNAPSHOT, "test");
+        assertEquals("snapshot", reader.readString());
+        List<byte[]> records = journal.replay();
+        assertEquals(1, records.size());
+        assertArrayEquals(new byte[]{2}, records.get(0));
+
+        // A journal for an older snapshot is ignored.
+        writer = new BeanWriter("test");
+        writer.writeString("different");
+        writer.save(SNAPSHOT);
+        journal = new ChangeJournal(JOURNAL, SNAPSHOT, 10);
+        assertTrue(journal.replay().isEmpty());
+    }
+
+    @Test
+    public void testTornRecord() throws IOException {
+        ChangeJournal journal = new ChangeJournal(JOURNAL, SNAPSHOT, 10);
+        journal.replay();
+        journal.append(new byte[]{1, 2, 3});
+        journal.flush();
+        // Simulate a crash in the middle of writing a record.
+        PlatformService platform = PlatformProvider.getPlatformService();
+        OutputStream os = platform.appendFile(JOURNAL);
+        os.write(new byte[]{0, 0, 0, 9, 1, 2});
+        os.close();
+        platform.releaseLock(JOURNAL);
+
+        journal = new ChangeJournal(JOURNAL, SNAPSHOT, 10);
+        List<byte[]> records = journal.replay();
+        assertEquals(1, records.size());
+        // The damaged journal is replaced rather than appended to.
+        journal.append(new byte[]{4});
+        journal.flush();
+        journal = new ChangeJournal(JOURNAL, SNAPSHOT, 10);
+        records = journal.replay();
+        assertEquals(1, records.size());
+        assertArrayEquals(new byte[]{4}, records.get(0));
+    }
+}
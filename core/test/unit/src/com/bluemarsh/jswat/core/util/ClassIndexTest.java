@@ -0,0 +1,84 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is the JSwat Core Module. The Initial Developer of the
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.util;
+
+import com.bluemarsh.jswat.core.SessionHelper;
+import com.bluemarsh.jswat.core.session.Session;
+import com.sun.jdi.ReferenceType;
+import com.sun.jdi.VirtualMachine;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the ClassIndex class.
+ *
+ * @author Nathan Fiedler
+ */
+public class ClassIndexTest {
+
+    @Test
+    public void testQueries() {
+        SessionHelper.launchDebuggee("LineBreakpointTestCode",
+                "LineBreakpointTestCode:53");
+        Session session = SessionHelper.getSession();
+        VirtualMachine vm = session.getConnection().getVM();
+        ClassIndex index = ClassIndex.getInstance(vm);
+        assertNotNull(index);
+        assertSame(index, ClassIndex.getInstance(session));
+
+        // The index must agree with the debuggee.
+        Set<ReferenceType> expected = new HashSet<ReferenceType>(vm.allClasses());
+        Set<ReferenceType> actual = new HashSet<ReferenceType>(index.getAllClasses());
+        assertEquals(expected, actual);
+
+        List<ReferenceType> result = index.findByName("java.lang.String");
+        assertEquals(1, result.size());
+        assertEquals("java.lang.String", result.get(0).name());
+
+        result = index.findBySimpleName("LineBreakpointTestCode");
+        assertEquals(1, result.size());
+        assertEquals("LineBreakpointTestCode", result.get(0).name());
+
+        result = index.findByPackage("java.lang");
+        assertTrue(result.contains(vm.classesByName("java.lang.String").get(0)));
+        for (ReferenceType type : result) {
+            assertEquals("java.lang.", type.name().substring(0, 10));
+            assertEquals(-1, type.name().indexOf('.', 10));
+        }
+
+        result = index.findByPrefix("java.lang.String");
+        for (ReferenceType type : result) {
+            assertTrue(type.name().startsWith("java.lang.String"));
+        }
+        assertTrue(result.size() > 1);
+
+        result = index.findBySuffix(".lang.String");
+        assertEquals(1, result.size());
+        assertEquals("java.lang.String", result.get(0).name());
+
+        assertTrue(index.findBySimpleName("NoSuchClassHere").isEmpty());
+        SessionHelper.resumeAndWait(session);
+        assertTrue(index.getAllClasses().isEmpty());
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is the JSwat Core Module. The Initial Developer of the
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.util;
+
+import com.bluemarsh.jswat.core.SessionHelper;
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.util.ElementReader.Element;
+import com.sun.jdi.IntegerValue;
+import com.sun.jdi.ObjectReference;
+import com.sun.jdi.ReferenceType;
+import com.sun.jdi.StringReference;
+import com.sun.jdi.VirtualMachine;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the ElementReader class.
+ *
+ * @author Nathan Fiedler
+ */
+public class ElementReaderTest {
+
+    /**
+     * Retrieve the value of the named static field.
+     *
+     * @param  type  class containing the field.
+     * @param  name  name of the field.
+     * @return  field value.
+     */
+    private static ObjectReference getField(ReferenceType type, String name) {
+        return (ObjectReference) type.getValue(type.fieldByName(name));
+    }
+
+    /**
+     * Retrieve the value of the given boxed integer.
+     *
+     * @param  obj  Integer instance.
+     * @return  integer value.
+     */
+    private static int intValue(ObjectReference obj) {
+        ReferenceType type = obj.referenceType();
+        return ((IntegerValue) obj.getValue(type.fieldByName("value"))).value();
+    }
+
+    @Test
+    public void testElements() {
+        SessionHelper.launchDebuggee("ElementReaderTestCode",
+                "ElementReaderTestCode:57");
+        Session session = SessionHelper.getSession();
+        VirtualMachine vm = session.getConnection().getVM();
+        ElementReader reader = ElementReader.getInstance(session);
+        assertSame(reader, ElementReader.getInstance(vm));
+        ReferenceType clazz = vm.classesByName("ElementReaderTestCode").get(0);
+
+        // Arrays are read a page at a time and cached.
+        ObjectReference array = getField(clazz, "array");
+        assertTrue(ElementReader.canRead(array));
+        assertEquals(1000, reader.getSize(array));
+        assertFalse(reader.isMap(array));
+        long reads = reader.getPageReads();
+        List<Element> elements = reader.getElements(array, 95, 10);
+        assertEquals(10, elements.size());
+        assertEquals(95, elements.get(0).getIndex());
+        assertEquals(190, ((IntegerValue) elements.get(0).getValue()).value());
+        assertEquals(208, ((IntegerValue) elements.get(9).getValue()).value());
+        assertEquals(reads + 2, reader.getPageReads());
+        reader.getElements(array, 98, 5);
+        assertEquals(reads + 2, reader.getPageReads());
+        assertEquals(0, reader.getElements(array, 1000, 10).size());
+        assertEquals(3, reader.getElements(array, 997, 10).size());
+
+        ObjectReference list = getField(clazz, "list");
+        assertTrue(ElementReader.canRead(list));
+        assertEquals(250, reader.getSize(list));
+        elements = reader.getElements(list, 240, 100);
+        assertEquals(10, elements.size());
+        assertEquals(240, intValue((ObjectReference) elements.get(0).getValue()));
+        assertEquals(249, intValue((ObjectReference) elements.get(9).getValue()));
+
+        // Hashed collections are walked in table order.
+        ObjectReference map = getField(clazz, "map");
+        assertTrue(ElementReader.canRead(map));
+        assertTrue(reader.isMap(map));
+        assertEquals(250, reader.getSize(map));
+        Set<String> keys = new HashSet<String>();
+        for (int ii = 0; ii < 250; ii += 50) {
+            elements = reader.getElements(map, ii, 50);
+            assertEquals(50, elements.size());
+            for (Element element : elements) {
+                String key = ((StringReference) element.getKey()).value();
+                int value = intValue((ObjectReference) element.getValue());
+                assertEquals("key" + value, key);
+                keys.add(key);
+            }
+        }
+        assertEquals(250, keys.size());
+
+        ObjectReference set = getField(clazz, "set");
+        assertTrue(ElementReader.canRead(set));
+        assertFalse(reader.isMap(set));
+        assertEquals(250, reader.getSize(set));
+        elements = reader.getElements(set, 0, 300);
+        assertEquals(250, elements.size());
+        assertTrue(((StringReference) elements.get(0).getValue()).value().startsWith("item"));
+
+        // Other collections are left to the caller.
+        assertFalse(ElementReader.canRead(getField(clazz, "linked")));
+
+        // Clearing the cache forces the pages to be read again.
+        reads = reader.getPageReads();
+        reader.getElements(array, 0, 10);
+        assertEquals(reads, reader.getPageReads());
+        reader.clear();
+        reader.getElements(array, 0, 10);
+        assertEquals(reads + 1, reader.getPageReads());
+        SessionHelper.resumeAndWait(session);
+    }
+}
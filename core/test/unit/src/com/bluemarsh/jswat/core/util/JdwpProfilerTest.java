@@ -0,0 +1,136 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is the JSwat Core Module. The Initial Developer of the
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.util;
+
+import com.bluemarsh.jswat.core.session.DummySession;
+import com.bluemarsh.jswat.core.session.Session;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the JdwpProfiler class.
+ *
+ * @author Nathan Fiedler
+ */
+public class JdwpProfilerTest {
+
+    @Test
+    public void testBuckets() {
+        long[] limits = JdwpProfiler.getBucketLimits();
+        JdwpProfiler.Statistics stats =
+                new JdwpProfiler.Statistics(JdwpProfiler.Category.VALUES);
+        // Each bound belongs to the bucket above it.
+        stats.add(0, "site");
+        for (long limit : limits) {
+            stats.add(limit - 1, "site");
+            stats.add(limit, "site");
+        }
+        long[] histogram = stats.getHistogram();
+        assertEquals(limits.length + 1, histogram.length);
+        assertEquals(2, histogram[0]);
+        for (int ii = 1; ii < limits.length; ii++) {
+            assertEquals("bucket " + ii, 2, histogram[ii]);
+        }
+        assertEquals(1, histogram[limits.length]);
+
+        long total = 0;
+        for (long limit : limits) {
+            total += limit - 1 + limit;
+        }
+        assertEquals(JdwpProfiler.Category.VALUES, stats.getCategory());
+        assertEquals(limits.length * 2 + 1, stats.getCount());
+        assertEquals(total, stats.getTotalTime());
+        assertEquals(limits[limits.length - 1], stats.getMaxTime());
+
+        // The copy is independent of the original.
+        JdwpProfiler.Statistics copy = new JdwpProfiler.Statistics(stats);
+        stats.add(0, "site");
+        assertEquals(limits.length * 2 + 1, copy.getCount());
+        assertEquals(2, copy.getHistogram()[0]);
+        assertEquals(limits.length * 2 + 1, copy.getSiteCount("site"));
+    }
+
+    @Test
+    public void testEnabled() {
+        Session session = new DummySession();
+        session.setIdentifier("JdwpProfilerTest");
+        JdwpProfiler profiler = JdwpProfiler.getInstance(session);
+        assertSame(profiler, JdwpProfiler.getInstance(session));
+        assertFalse(profiler.isEnabled());
+        try {
+            // Nothing is recorded while disabled.
+            assertEquals(0, JdwpProfiler.start());
+            profiler.record(JdwpProfiler.Category.THREADS, 0);
+            profiler.record(JdwpProfiler.Category.THREADS, System.nanoTime());
+            assertTrue(profiler.getStatistics().isEmpty());
+
+            profiler.setEnabled(true);
+            assertTrue(profiler.isEnabled());
+            long start = JdwpProfiler.start();
+            assertTrue(start != 0);
+            profiler.record(JdwpProfiler.Category.THREADS, start);
+            profiler.record(JdwpProfiler.Category.FRAMES, JdwpProfiler.start());
+            profiler.record(JdwpProfiler.Category.THREADS, JdwpProfiler.start());
+            // A call begun while disabled is not recorded.
+            profiler.record(JdwpProfiler.Category.THREADS, 0);
+            List<JdwpProfiler.Statistics> list = profiler.getStatistics();
+            assertEquals(2, list.size());
+            assertEquals(JdwpProfiler.Category.FRAMES, list.get(0).getCategory());
+            assertEquals(1, list.get(0).getCount());
+            assertEquals(JdwpProfiler.Category.THREADS, list.get(1).getCategory());
+            assertEquals(2, list.get(1).getCount());
+
+            // Nor is a call that completes once disabled.
+            start = JdwpProfiler.start();
+            profiler.setEnabled(false);
+            profiler.record(JdwpProfiler.Category.THREADS, start);
+            list = profiler.getStatistics();
+            assertEquals(2, list.get(1).getCount());
+
+            profiler.reset();
+            assertTrue(profiler.getStatistics().isEmpty());
+        } finally {
+            profiler.setEnabled(false);
+            profiler.reset();
+        }
+    }
+
+    @Test
+    public void testSites() {
+        JdwpProfiler.Statistics stats =
+                new JdwpProfiler.Statistics(JdwpProfiler.Category.FRAMES);
+        stats.add(30, "a");
+        stats.add(50, "b");
+        stats.add(20, "c");
+        stats.add(30, "c");
+        stats.add(10, "d");
+        stats.add(5, "d");
+        // Ordered by total time, longest first, then by name.
+        assertEquals(Arrays.asList("b", "c", "a", "d"), stats.getSites(10));
+        assertEquals(Arrays.asList("b", "c"), stats.getSites(2));
+        assertEquals(2, stats.getSiteCount("c"));
+        assertEquals(50, stats.getSiteTime("c"));
+        assertEquals(0, stats.getSiteCount("e"));
+        assertEquals(0, stats.getSiteTime("e"));
+    }
+}
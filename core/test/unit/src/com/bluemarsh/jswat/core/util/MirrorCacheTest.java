@@ -0,0 +1,95 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is the JSwat Core Module. The Initial Developer of the
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.util;
+
+import com.bluemarsh.jswat.core.SessionHelper;
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.util.MirrorCache.LineIndex;
+import com.bluemarsh.jswat.core.util.MirrorCache.MethodInfo;
+import com.bluemarsh.jswat.core.util.MirrorCache.TypeInfo;
+import com.sun.jdi.AbsentInformationException;
+import com.sun.jdi.Location;
+import com.sun.jdi.Method;
+import com.sun.jdi.ReferenceType;
+import com.sun.jdi.VirtualMachine;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the MirrorCache class.
+ *
+ * @author Nathan Fiedler
+ */
+public class MirrorCacheTest {
+
+    @Test
+    public void testInfo() throws AbsentInformationException {
+        SessionHelper.launchDebuggee("LineBreakpointTestCode",
+                "LineBreakpointTestCode:53");
+        Session session = SessionHelper.getSession();
+        VirtualMachine vm = session.getConnection().getVM();
+        MirrorCache cache = MirrorCache.getInstance(vm);
+        assertNotNull(cache);
+        assertSame(cache, MirrorCache.getInstance(session));
+
+        ReferenceType string = vm.classesByName("java.lang.String").get(0);
+        ReferenceType clazz = string;
+        TypeInfo type = MirrorCache.getTypeInfo(clazz);
+        assertSame(type, cache.getInfo(clazz));
+        assertEquals("java.lang.String", type.getName());
+        assertEquals(clazz.sourceName(), type.getSourceName());
+
+        Method method = clazz.methodsByName("indexOf", "(Ljava/lang/String;I)I").get(0);
+        MethodInfo info = MirrorCache.getMethodInfo(method);
+        assertSame(info, cache.getInfo(method));
+        assertEquals("indexOf", info.getName());
+        assertEquals(method.argumentTypeNames(), info.getArgumentTypeNames());
+        assertEquals("java.lang.String, int", info.getArguments());
+        assertEquals("(String,int):int", info.getShortSignature());
+
+        clazz = vm.classesByName("LineBreakpointTestCode").get(0);
+        method = clazz.methodsByName("main").get(0);
+        List<?> lines = MirrorCache.getMethodInfo(method).getLineLocations();
+        assertEquals(method.allLineLocations(), lines);
+        lines = MirrorCache.getTypeInfo(clazz).getLineLocations();
+        assertEquals(clazz.allLineLocations(), lines);
+
+        LineIndex index = MirrorCache.getTypeInfo(clazz).getLineIndex();
+        assertSame(index, MirrorCache.getTypeInfo(clazz).getLineIndex());
+        assertEquals(clazz.allLineLocations().size(), index.getLines().size());
+        assertEquals(clazz.locationsOfLine(33),
+                index.locationsOfLine("LineBreakpointTestCode.java", 33));
+        assertTrue(index.locationsOfLine("Other.java", 33).isEmpty());
+        assertTrue(index.locationsOfLine(null, 1).isEmpty());
+        // The lines of the (prepared) nested types are included.
+        List<Location> locs = index.locationsOfLine(null, 46);
+        assertFalse(locs.isEmpty());
+        assertEquals("LineBreakpointTestCode$Inner1",
+                locs.get(0).declaringType().name());
+
+        SessionHelper.resumeAndWait(session);
+        // Disconnecting clears the cache.
+        TypeInfo after = MirrorCache.getInstance(session).getInfo(string);
+        assertNotSame(type, after);
+        assertEquals("java.lang.String", after.getName());
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is the JSwat Core Module. The Initial Developer of the
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.util;
+
+import com.bluemarsh.jswat.core.SessionHelper;
+import com.bluemarsh.jswat.core.context.ContextProvider;
+import com.bluemarsh.jswat.core.session.DummySession;
+import com.bluemarsh.jswat.core.session.Session;
+import com.sun.jdi.AbsentInformationException;
+import com.sun.jdi.IncompatibleThreadStateException;
+import com.sun.jdi.LocalVariable;
+import com.sun.jdi.StackFrame;
+import com.sun.jdi.ThreadReference;
+import com.sun.jdi.Value;
+import com.sun.jdi.VirtualMachine;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the SuspendCache class.
+ *
+ * @author Nathan Fiedler
+ */
+public class SuspendCacheTest {
+
+    @Test
+    public void testCache() throws AbsentInformationException,
+            IncompatibleThreadStateException {
+        SessionHelper.launchDebuggee("LineBreakpointTestCode",
+                "LineBreakpointTestCode:53");
+        Session session = SessionHelper.getSession();
+        VirtualMachine vm = session.getConnection().getVM();
+        SuspendCache cache = SuspendCache.getInstance(vm);
+        assertNotNull(cache);
+        assertSame(cache, SuspendCache.getInstance(session));
+
+        ThreadReference thread = ContextProvider.getContext(session).getThread();
+        List<StackFrame> frames = cache.frames(thread);
+        assertEquals(thread.frameCount(), frames.size());
+        long hits = cache.getHitCount();
+        long misses = cache.getMissCount();
+        assertSame(frames, SuspendCache.getFrames(thread));
+        assertSame(frames.get(2), SuspendCache.getFrame(thread, 2));
+        assertSame(SuspendCache.getThreads(vm), cache.allThreads(vm));
+        assertEquals(hits + 3, cache.getHitCount());
+        assertEquals(misses + 1, cache.getMissCount());
+
+        StackFrame frame = frames.get(0);
+        assertNotNull(cache.thisObject(frame));
+        assertEquals(frame.thisObject(), cache.thisObject(frame));
+        frame = frames.get(2);
+        assertNull(cache.thisObject(frame));
+        List<LocalVariable> vars = cache.visibleVariables(frame);
+        assertSame(vars, cache.visibleVariables(frame));
+        Map<LocalVariable, Value> values = cache.getValues(frame, vars);
+        assertEquals(frame.getValues(vars), values);
+        LocalVariable s = frame.visibleVariableByName("s");
+        assertEquals(frame.getValue(s), cache.getValues(frame,
+                Collections.singletonList(s)).get(s));
+
+        // Resuming the threads of another debuggee changes nothing.
+        Session other = new DummySession();
+        other.setIdentifier("SuspendCacheTest");
+        SuspendCache.getInstance(other).invalidate();
+        assertSame(frames, cache.frames(thread));
+
+        // Resuming any threads renders the frames invalid.
+        cache.invalidate();
+        assertNotSame(frames, cache.frames(thread));
+
+        SessionHelper.resumeAndWait(session);
+    }
+}
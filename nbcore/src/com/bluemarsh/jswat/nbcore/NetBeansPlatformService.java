@@ -21,7 +21,10 @@
 package com.bluemarsh.jswat.nbcore;
 
 import com.bluemarsh.jswat.core.PlatformService;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -57,6 +60,31 @@ public class NetBeansPlatformService implements PlatformService {
         locks = new HashMap<String, FileLock>();
     }
 
+    @Override
+    public OutputStream appendFile(String name) throws IOException {
+        FileObject fo = FileUtil.getConfigFile(name);
+        if (fo == null) {
+            fo = FileUtil.getConfigRoot().createData(name);
+        }
+        File file = FileUtil.toFile(fo);
+        if (file != null) {
+            return new FileOutputStream(file, true);
+        }
+        // Not a local file, append by rewriting the existing content.
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        InputStream is = fo.getInputStream();
+        try {
+            FileUtil.copy(is, content);
+        } finally {
+            is.close();
+        }
+        FileLock lock = fo.lock();
+        locks.put(name, lock);
+        OutputStream os = fo.getOutputStream(lock);
+        content.writeTo(os);
+        return os;
+    }
+
     @Override
     public void deleteFile(String name) throws IOException {
         FileObject fo = FileUtil.getConfigFile(name);
@@ -98,6 +126,43 @@ public class NetBeansPlatformService implements PlatformService {
         }
     }
 
+    @Override
+    public void renameFile(String name, String newName) throws IOException {
+        FileObject fo = FileUtil.getConfigFile(name);
+        if (fo == null || !fo.isData()) {
+            throw new FileNotFoundException(name);
+        }
+        File file = FileUtil.toFile(fo);
+        File root = FileUtil.toFile(FileUtil.getConfigRoot());
+        if (file != null && root != null) {
+            File target = new File(root, newName);
+            if (!file.renameTo(target)) {
+                // Some platforms will not rename over an existing file.
+                target.delete();
+                if (!file.renameTo(target)) {
+                    throw new IOException("cannot rename " + file + " to " + target);
+                }
+            }
+            // Let the filesystem notice the change made behind its back.
+            fo.getParent().refresh();
+            return;
+        }
+        // Not a local file, rename by copying the content.
+        InputStream is = fo.getInputStream();
+        try {
+            OutputStream os = writeFile(newName);
+            try {
+                FileUtil.copy(is, os);
+            } finally {
+                os.close();
+            }
+        } finally {
+            releaseLock(newName);
+            is.close();
+        }
+        fo.delete();
+    }
+
     @Override
     public Object startProgress(String label, Cancellable callback) {
         ProgressHandle ph = ProgressHandleFactory.createHandle(label, callback);
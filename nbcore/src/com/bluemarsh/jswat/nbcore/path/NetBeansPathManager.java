@@ -26,6 +26,7 @@ import com.bluemarsh.jswat.core.connect.JvmConnection;
 import com.bluemarsh.jswat.core.path.AbstractPathManager;
 import com.bluemarsh.jswat.core.path.PathEntry;
 import com.bluemarsh.jswat.core.path.PathProvider;
+import com.bluemarsh.jswat.core.path.SourceContent;
 import com.bluemarsh.jswat.core.session.Session;
 import com.bluemarsh.jswat.core.util.Names;
 import com.bluemarsh.jswat.core.util.Strings;
@@ -433,6 +434,22 @@ public class NetBeansPathManager extends AbstractPathManager {
             return fileObject.getInputStream();
         }
 
+        @Override
+        public SourceContent getContent() throws IOException {
+            File file = FileUtil.toFile(fileObject);
+            if (file != null) {
+                return SourceContent.forFile(file);
+            }
+            // Probably an entry in an archive.
+            String key = fileObject.toURL().toString();
+            long modified = fileObject.lastModified().getTime();
+            SourceContent sc = SourceContent.getCached(key, modified);
+            if (sc == null) {
+                sc = SourceContent.forStream(key, modified, getInputStream());
+            }
+            return sc;
+        }
+
         @Override
         public String getDisplayName() {
             return FileUtil.getFileDisplayName(fileObject);
@@ -0,0 +1,202 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.nodes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.openide.nodes.Children;
+import org.openide.nodes.Node;
+
+/**
+ * Children that are identified by keys, such that the node tree may be
+ * refreshed incrementally. When the children are refreshed, the new set of
+ * keys is compared with the previous set; nodes whose keys are unchanged
+ * are retained (along with their expanded state), while nodes are created
+ * only for the new keys. The retained nodes are then given the opportunity
+ * to refresh their own children, and so on down the tree.
+ *
+ * <p>The keys are computed, and the new nodes created, on a background
+ * thread by the {@link SnapshotLoader}, and the keys are then set on the
+ * AWT event dispatching thread. As such, the children are initially empty,
+ * and are filled in once the debuggee has responded. The keys are computed
+ * when the children are first needed, and are discarded when the children
+ * are no longer in use. Refreshing children that have never been shown
+ * does nothing.</p>
+ *
+ * @param  <K>  type of the keys.
+ * @author  Nathan Fiedler
+ */
+public abstract class KeyedChildren<K> extends Children.Keys<K> {
+    /** True if the children are in use. */
+    private volatile boolean active;
+    /** Nodes created in the background, waiting for their keys to be set. */
+    private final Map<K, Node> prepared;
+    /** Nodes that have been created for the current keys. */
+    private final Map<K, Node> current;
+    /** Callbacks to run once the next load has been published. */
+    private final List<Runnable> waiting;
+
+    /**
+     * Creates a new instance of KeyedChildren.
+     */
+    protected KeyedChildren() {
+        prepared = new ConcurrentHashMap<K, Node>();
+        current = new ConcurrentHashMap<K, Node>();
+        waiting = new ArrayList<Runnable>();
+    }
+
+    @Override
+    protected void addNotify() {
+        super.addNotify();
+        active = true;
+        load(null);
+    }
+
+    /**
+     * Computes the keys for the current state of the debuggee, in the order
+     * in which the nodes are to be shown. Keys should be equal to those
+     * computed previously only if the node created for the earlier key can
+     * continue to represent the new key. This is called on a background
+     * thread.
+     *
+     * @return  list of keys (never null).
+     */
+    protected abstract List<K> computeKeys();
+
+    /**
+     * Creates the node for the given key. This is usually called on a
+     * background thread, while the keys are being loaded.
+     *
+     * @param  key  key for which to create node.
+     * @return  new node, or null if none.
+     */
+    protected abstract Node createNode(K key);
+
+    @Override
+    protected Node[] createNodes(K key) {
+        Node node = prepared.remove(key);
+        if (node == null) {
+            node = createNode(key);
+        }
+        if (node == null) {
+            return null;
+        }
+        current.put(key, node);
+        return new Node[]{node};
+    }
+
+    /**
+     * Brings the children up to date with the state of the debuggee, in
+     * the background, regardless of whether the children are in use. Once
+     * the new keys have been set, the given callback is run on the event
+     * dispatching thread. If another load is requested before this one is
+     * finished, this load is abandoned and the callback is run when the
+     * later load is finished.
+     *
+     * @param  done  run once the keys have been set (may be null).
+     */
+    public void load(Runnable done) {
+        if (done != null) {
+            synchronized (waiting) {
+                waiting.add(done);
+            }
+        }
+        SnapshotLoader.getDefault().load(this, new SnapshotLoader.Snapshot<List<K>>() {
+
+            @Override
+            public List<K> gather() {
+                List<K> keys = computeKeys();
+                for (K key : keys) {
+                    Node node = current.get(key);
+                    if (node != null) {
+                        // Retained node, bring it up to date.
+                        refreshNode(node);
+                    } else if (!prepared.containsKey(key)) {
+                        // New key, create the node while still in the
+                        // background, rather than on the event thread.
+                        node = createNode(key);
+                        if (node != null) {
+                            prepared.put(key, node);
+                        }
+                    }
+                }
+                return keys;
+            }
+
+            @Override
+            public void publish(List<K> keys) {
+                current.keySet().retainAll(keys);
+                prepared.keySet().retainAll(keys);
+                setKeys(keys);
+                List<Runnable> callbacks;
+                synchronized (waiting) {
+                    callbacks = new ArrayList<Runnable>(waiting);
+                    waiting.clear();
+                }
+                for (Runnable callback : callbacks) {
+                    callback.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * Brings the children up to date with the state of the debuggee, if
+     * they are in use, creating nodes only for those keys that were not
+     * present previously. The work is done in the background.
+     */
+    public void refresh() {
+        if (active) {
+            load(null);
+        }
+    }
+
+    /**
+     * Refresh the given node, which was retained from the previous set of
+     * keys. By default this refreshes the children of the node, if they
+     * are keyed children. This is called on a background thread.
+     *
+     * @param  node  node to be refreshed.
+     */
+    protected void refreshNode(Node node) {
+        Children kids = node.getChildren();
+        if (kids instanceof KeyedChildren) {
+            ((KeyedChildren<?>) kids).refresh();
+        }
+    }
+
+    @Override
+    protected void removeNotify() {
+        active = false;
+        SnapshotLoader.getDefault().cancel(this);
+        synchronized (waiting) {
+            waiting.clear();
+        }
+        List<K> empty = Collections.emptyList();
+        setKeys(empty);
+        current.clear();
+        prepared.clear();
+        super.removeNotify();
+    }
+}
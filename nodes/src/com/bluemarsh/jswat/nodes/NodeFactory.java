@@ -53,7 +53,6 @@ import com.sun.jdi.StackFrame;
 import com.sun.jdi.ThreadGroupReference;
 import com.sun.jdi.ThreadReference;
 import com.sun.jdi.VirtualMachine;
-import java.awt.EventQueue;
 import org.openide.nodes.Children;
 
 /**
@@ -170,29 +169,13 @@ public abstract class NodeFactory {
         @Override
         public ClassLoaderNode createClassLoaderNode(VirtualMachine vm,
                 ClassLoaderReference loader) {
-            final Children.SortedArray ch = new PackageChildren(vm);
-            // Set the comparator later to avoid NB issue 10778.
-            EventQueue.invokeLater(new Runnable() {
-
-                @Override
-                public void run() {
-                    ch.setComparator(ch.getComparator());
-                }
-            });
+            Children ch = new PackageChildren(vm);
             return new DefaultClassLoaderNode(ch, loader);
         }
 
         @Override
         public ClassNode createClassNode(ReferenceType type) {
-            final Children.SortedArray ch = new ClassChildren(type);
-            // Set the comparator later to avoid NB issue 10778.
-            EventQueue.invokeLater(new Runnable() {
-
-                @Override
-                public void run() {
-                    ch.setComparator(ch.getComparator());
-                }
-            });
+            Children ch = new ClassChildren(type);
             return new DefaultClassNode(ch, type);
         }
 
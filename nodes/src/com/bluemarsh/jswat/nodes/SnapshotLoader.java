@@ -0,0 +1,224 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.nodes;
+
+import com.sun.jdi.ObjectCollectedException;
+import com.sun.jdi.VMDisconnectedException;
+import java.awt.EventQueue;
+import java.util.HashMap;
+import java.util.Map;
+import org.openide.ErrorManager;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Class SnapshotLoader gathers data from the debuggee on a background
+ * thread, and publishes the results on the AWT event dispatching thread.
+ * This keeps JDWP round trips off of the event thread, so a slow debuggee
+ * does not freeze the user interface.
+ *
+ * <p>Each load is made on behalf of an owner, such as a view or a set of
+ * node children. If a new load is requested for an owner before its
+ * previous load has been published, the previous load is cancelled (or,
+ * if it is already running, its results are discarded). The loads are
+ * performed one at a time, in the order they were requested.</p>
+ *
+ * @author  Nathan Fiedler
+ */
+public class SnapshotLoader {
+    /** The singleton instance of this class. */
+    private static SnapshotLoader theInstance;
+    /** Runs the loads, one at a time. */
+    private final RequestProcessor processor;
+    /** The most recent load for each owner, until it is published. */
+    private final Map<Object, Request<?>> requests;
+
+    /**
+     * Creates a new instance of SnapshotLoader.
+     */
+    private SnapshotLoader() {
+        // Do not interrupt running loads, JDI does not take kindly to it.
+        processor = new RequestProcessor("JSwat Snapshot Loader", 1);
+        requests = new HashMap<Object, Request<?>>();
+    }
+
+    /**
+     * Cancels the pending load for the given owner, if any.
+     *
+     * @param  owner  the owner of the load.
+     */
+    public void cancel(Object owner) {
+        Request<?> prior;
+        synchronized (requests) {
+            prior = requests.remove(owner);
+        }
+        if (prior != null) {
+            prior.cancel();
+        }
+    }
+
+    /**
+     * Returns the single instance of this class.
+     *
+     * @return  the snapshot loader.
+     */
+    public static synchronized SnapshotLoader getDefault() {
+        if (theInstance == null) {
+            theInstance = new SnapshotLoader();
+        }
+        return theInstance;
+    }
+
+    /**
+     * Schedules the snapshot to be gathered in the background, replacing
+     * any load that is pending for the same owner.
+     *
+     * @param  <T>       type of the snapshot data.
+     * @param  owner     on whose behalf the snapshot is loaded.
+     * @param  snapshot  gathers and publishes the data.
+     */
+    public <T> void load(Object owner, Snapshot<T> snapshot) {
+        Request<T> request = new Request<T>(owner, snapshot);
+        Request<?> prior;
+        synchronized (requests) {
+            prior = requests.put(owner, request);
+        }
+        if (prior != null) {
+            prior.cancel();
+        }
+        request.task = processor.post(request);
+    }
+
+    /**
+     * Indicates if the given request is the current one for its owner,
+     * and if so, forgets about it, as it is about to be published.
+     *
+     * @param  request  the request to be published.
+     * @return  true if request is current, false if it is stale.
+     */
+    private boolean retire(Request<?> request) {
+        synchronized (requests) {
+            if (requests.get(request.owner) == request) {
+                requests.remove(request.owner);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A Snapshot gathers data from the debuggee in the background, and
+     * then publishes it on the event dispatching thread. The data should
+     * be immutable, or at least not modified once it has been gathered.
+     *
+     * @param  <T>  type of the snapshot data.
+     */
+    public interface Snapshot<T> {
+
+        /**
+         * Gathers the data from the debuggee. This is called on a
+         * background thread, and may make any JDI calls.
+         *
+         * @return  the snapshot data.
+         */
+        T gather();
+
+        /**
+         * Publishes the data to the user interface. This is called on the
+         * event dispatching thread, and only if no other load has been
+         * requested for the owner since this snapshot was gathered.
+         *
+         * @param  data  the snapshot data.
+         */
+        void publish(T data);
+    }
+
+    /**
+     * A request to load a snapshot.
+     *
+     * @param  <T>  type of the snapshot data.
+     */
+    private class Request<T> implements Runnable {
+        /** On whose behalf the snapshot is loaded. */
+        private final Object owner;
+        /** Gathers and publishes the data. */
+        private final Snapshot<T> snapshot;
+        /** The scheduled task, used to cancel the request. */
+        private volatile RequestProcessor.Task task;
+        /** True if the request has been superseded. */
+        private volatile boolean cancelled;
+        /** The data gathered by the snapshot. */
+        private T data;
+
+        /**
+         * Creates a new instance of Request.
+         *
+         * @param  owner     on whose behalf the snapshot is loaded.
+         * @param  snapshot  gathers and publishes the data.
+         */
+        Request(Object owner, Snapshot<T> snapshot) {
+            this.owner = owner;
+            this.snapshot = snapshot;
+        }
+
+        /**
+         * Cancel the request, if it has not already been published.
+         */
+        void cancel() {
+            cancelled = true;
+            RequestProcessor.Task t = task;
+            if (t != null) {
+                t.cancel();
+            }
+        }
+
+        @Override
+        public void run() {
+            if (EventQueue.isDispatchThread()) {
+                // Second half of the request: publish the data.
+                if (!cancelled && retire(this)) {
+                    snapshot.publish(data);
+                }
+                return;
+            }
+            if (cancelled) {
+                return;
+            }
+            try {
+                data = snapshot.gather();
+            } catch (VMDisconnectedException vmde) {
+                // The session is over, nothing to show.
+                retire(this);
+                return;
+            } catch (ObjectCollectedException oce) {
+                // The debuggee has resumed and the objects are gone.
+                retire(this);
+                return;
+            } catch (RuntimeException re) {
+                retire(this);
+                ErrorManager.getDefault().notify(ErrorManager.INFORMATIONAL, re);
+                return;
+            }
+            if (!cancelled) {
+                EventQueue.invokeLater(this);
+            }
+        }
+    }
+}
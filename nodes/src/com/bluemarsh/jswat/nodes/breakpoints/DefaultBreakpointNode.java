@@ -200,7 +200,8 @@ public class DefaultBreakpointNode extends BreakpointNode implements
     @Override
     public void propertyChange(PropertyChangeEvent evt) {
         String name = evt.getPropertyName();
-        if (name.equals("annotation") || name.equals("breakpointGroup")) {
+        if (name.equals("annotation") || name.equals("breakpointGroup")
+                || name.equals("conditions") || name.equals("monitors")) {
             // Need to ignore properties that are not in our defined set.
             return;
         }
@@ -27,8 +27,9 @@ import com.bluemarsh.jswat.core.path.PathManager;
 import com.bluemarsh.jswat.core.path.PathProvider;
 import com.bluemarsh.jswat.core.session.Session;
 import com.bluemarsh.jswat.core.session.SessionProvider;
-import com.bluemarsh.jswat.core.util.Names;
-import com.bluemarsh.jswat.core.util.Strings;
+import com.bluemarsh.jswat.core.util.MirrorCache;
+import com.bluemarsh.jswat.core.util.MirrorCache.MethodInfo;
+import com.bluemarsh.jswat.nodes.KeyedChildren;
 import com.bluemarsh.jswat.nodes.ReadOnlyProperty;
 import com.bluemarsh.jswat.nodes.ShowSourceAction;
 import com.bluemarsh.jswat.nodes.ShowSourceCookie;
@@ -36,13 +37,14 @@ import com.bluemarsh.jswat.ui.editor.EditorSupport;
 import com.sun.jdi.Method;
 import com.sun.jdi.ReferenceType;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.ListIterator;
+import java.util.Map;
 import javax.swing.Action;
 import org.openide.DialogDisplayer;
 import org.openide.NotifyDescriptor;
-import org.openide.nodes.Children;
 import org.openide.nodes.Node;
 import org.openide.nodes.Sheet;
 import org.openide.util.NbBundle;
@@ -53,7 +55,7 @@ import org.openide.util.actions.SystemAction;
  *
  * @author Nathan Fiedler
  */
-public class ClassChildren extends Children.SortedArray {
+public class ClassChildren extends KeyedChildren<Method> {
 
     /** The reference type from which to get class members. */
     private ReferenceType type;
@@ -69,29 +71,26 @@ public class ClassChildren extends Children.SortedArray {
     }
 
     @Override
-    protected void addNotify() {
-        super.addNotify();
-        List<Method> methods = type.methods();
-        Node[] kids = new Node[methods.size()];
-        int ii = 0;
-        for (Method method : methods) {
-            Node node = new DefaultMethodNode(method);
-            kids[ii++] = node;
+    protected List<Method> computeKeys() {
+        // Sort the methods by their descriptive names, as displayed.
+        final Map<Method, String> names = new HashMap<Method, String>();
+        for (Method method : type.methods()) {
+            names.put(method, DefaultMethodNode.getLongName(method));
         }
-        add(kids);
-    }
-
-    @Override
-    public Comparator<? super Node> getComparator() {
-        return new Comparator<Node>() {
+        List<Method> methods = new ArrayList<Method>(names.keySet());
+        Collections.sort(methods, new Comparator<Method>() {
 
             @Override
-            public int compare(Node o1, Node o2) {
-                String n1 = o1.getDisplayName();
-                String n2 = o2.getDisplayName();
-                return n1.compareTo(n2);
+            public int compare(Method o1, Method o2) {
+                return names.get(o1).compareTo(names.get(o2));
             }
-        };
+        });
+        return methods;
+    }
+
+    @Override
+    protected Node createNode(Method key) {
+        return new DefaultMethodNode(key);
     }
 
     /**
@@ -146,29 +145,7 @@ public class ClassChildren extends Children.SortedArray {
             this.method = method;
             getCookieSet().add(this);
 
-            // Build out the long description of this method.
-            StringBuilder sb = new StringBuilder();
-            if (method.isConstructor()) {
-                // The instance initializer appears as a constructor in JDI.
-                sb.append(method.declaringType().name());
-            } else if (method.isStaticInitializer()) {
-                sb.append(NbBundle.getMessage(DefaultMethodNode.class,
-                        "LBL_MethodNode_staticinit"));
-            } else {
-                sb.append(method.name());
-            }
-            sb.append('(');
-            List<String> typeNames = new ArrayList<String>(
-                    method.argumentTypeNames());
-            ListIterator<String> tniter = typeNames.listIterator();
-            while (tniter.hasNext()) {
-                tniter.set(Names.getShortClassName(tniter.next()));
-            }
-            String args = Strings.listToString(typeNames, ",");
-            sb.append(args);
-            sb.append("):");
-            sb.append(method.returnTypeName());
-            longName = sb.toString();
+            longName = getLongName(method);
 
             // Define the icon for this method.
             if (method.isStaticInitializer()) {
@@ -206,6 +183,30 @@ public class ClassChildren extends Children.SortedArray {
             }
         }
 
+        /**
+         * Builds the long description of the given method, as displayed
+         * in the node.
+         *
+         * @param  method  the class method.
+         * @return  method name and signature.
+         */
+        static String getLongName(Method method) {
+            MethodInfo info = MirrorCache.getMethodInfo(method);
+            StringBuilder sb = new StringBuilder();
+            if (method.isConstructor()) {
+                // The instance initializer appears as a constructor in JDI.
+                sb.append(MirrorCache.getTypeInfo(
+                        method.declaringType()).getName());
+            } else if (method.isStaticInitializer()) {
+                sb.append(NbBundle.getMessage(DefaultMethodNode.class,
+                        "LBL_MethodNode_staticinit"));
+            } else {
+                sb.append(info.getName());
+            }
+            sb.append(info.getShortSignature());
+            return sb.toString();
+        }
+
         /**
          * Creates a node property of the given key (same as the column keys).
          *
@@ -23,31 +23,37 @@
 
 package com.bluemarsh.jswat.nodes.classes;
 
+import com.bluemarsh.jswat.core.util.JdwpProfiler;
 import com.bluemarsh.jswat.core.util.Names;
 import com.bluemarsh.jswat.nodes.BaseNode;
+import com.bluemarsh.jswat.nodes.KeyedChildren;
 import com.bluemarsh.jswat.nodes.NodeFactory;
 import com.bluemarsh.jswat.nodes.ReadOnlyProperty;
 import com.sun.jdi.ArrayType;
 import com.sun.jdi.ClassLoaderReference;
 import com.sun.jdi.ReferenceType;
+import com.sun.jdi.VMDisconnectedException;
 import com.sun.jdi.VirtualMachine;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
 import javax.swing.Action;
-import org.openide.nodes.Children;
 import org.openide.nodes.Node;
 import org.openide.nodes.Sheet;
 import org.openide.util.NbBundle;
 
 /**
  * Contains the children for a ClassLoaderNode, representing the packages
- * containing classes in the debuggee.
+ * containing classes in the debuggee. The children are keyed by the package
+ * names and the classes, such that refreshing the children retains the nodes
+ * for the packages and classes that were already present.
  *
  * @author  Nathan Fiedler
  */
-public class PackageChildren extends Children.SortedArray {
+public class PackageChildren extends KeyedChildren<Object> {
     /** The virtual machine we are associated with. */
     private VirtualMachine vm;
 
@@ -62,19 +68,21 @@ public class PackageChildren extends Children.SortedArray {
     }
 
     @Override
-    protected void addNotify() {
-        super.addNotify();
+    protected List<Object> computeKeys() {
+        ClassLoaderReference clr = getClassLoader();
         Node parent = getNode();
-        ClassLoaderReference clr = null;
-        String prefix = null;
-        if (parent instanceof ClassLoaderNode) {
-            clr = ((ClassLoaderNode) parent).getClassLoader();
-            prefix = "";
-        } else if (parent instanceof PackageNode) {
-            clr = ((PackageNode) parent).getClassLoader();
+        String prefix = "";
+        if (parent instanceof PackageNode) {
             prefix = ((PackageNode) parent).getFullName()  + '.';
         }
-        List<ReferenceType> classes = vm.allClasses();
+        List<ReferenceType> classes;
+        try {
+            long start = JdwpProfiler.start();
+            classes = vm.allClasses();
+            JdwpProfiler.record(vm, JdwpProfiler.Category.CLASSES, start);
+        } catch (VMDisconnectedException vmde) {
+            return Collections.emptyList();
+        }
         Set<String> packages = new TreeSet<String>();
         Set<ReferenceType> types = new TreeSet<ReferenceType>(
                 new ClassComparator());
@@ -96,19 +104,37 @@ public class PackageChildren extends Children.SortedArray {
                 }
             }
         }
+        // Construct the keys, with packages before classes.
+        List<Object> keys = new ArrayList<Object>(
+                packages.size() + types.size());
+        keys.addAll(packages);
+        keys.addAll(types);
+        return keys;
+    }
 
-        // Construct the children, with packages before classes.
-        Node[] kids = new Node[packages.size() + types.size()];
-        NodeFactory factory = NodeFactory.getDefault();
-        int ii = 0;
-        for (String name : packages) {
-            kids[ii++] = new PackageNode(name, vm, clr);
+    @Override
+    protected Node createNode(Object key) {
+        if (key instanceof String) {
+            return new PackageNode((String) key, vm, getClassLoader());
+        } else {
+            NodeFactory factory = NodeFactory.getDefault();
+            return factory.createClassNode((ReferenceType) key);
         }
-        for (ReferenceType type : types) {
-            Node node = factory.createClassNode(type);
-            kids[ii++] = node;
+    }
+
+    /**
+     * Returns the class loader of the parent node.
+     *
+     * @return  class loader (null is boot classloader).
+     */
+    private ClassLoaderReference getClassLoader() {
+        Node parent = getNode();
+        if (parent instanceof ClassLoaderNode) {
+            return ((ClassLoaderNode) parent).getClassLoader();
+        } else if (parent instanceof PackageNode) {
+            return ((PackageNode) parent).getClassLoader();
         }
-        super.add(kids);
+        return null;
     }
 
     /**
@@ -126,26 +152,6 @@ public class PackageChildren extends Children.SortedArray {
         }
     }
 
-    @Override
-    public Comparator<? super Node> getComparator() {
-        return new Comparator<Node>() {
-
-            @Override
-            public int compare(Node o1, Node o2) {
-                // Sort package nodes before class nodes.
-                if (o1 instanceof PackageNode && o2 instanceof ClassNode) {
-                    return -1;
-                } else if (o1 instanceof ClassNode && o2 instanceof PackageNode) {
-                    return 1;
-                }
-                // Else sort by name alone.
-                String n1 = o1.getDisplayName();
-                String n2 = o2.getDisplayName();
-                return n1.compareTo(n2);
-            }
-        };
-    }
-
     /**
      * Represents a package in the classes view.
      *
@@ -73,7 +73,10 @@ public class CopySessionAction extends NodeAction {
                 Session session = sessionNode.getSession();
                 // Copy the session, giving it a generated name.
                 Session copy = sm.copy(session, null);
-                // Copy the source/class paths to the copy.
+                // Copy the source/class paths to the copy, which requires
+                // that both sessions be active.
+                session.activate();
+                copy.activate();
                 PathManager pm = PathProvider.getPathManager(session);
                 List<String> cpath = pm.getClassPath();
                 List<String> spath = pm.getSourcePath();
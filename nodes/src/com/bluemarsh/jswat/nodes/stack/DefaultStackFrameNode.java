@@ -33,6 +33,7 @@ import com.bluemarsh.jswat.core.session.SessionListener;
 import com.bluemarsh.jswat.core.session.SessionManager;
 import com.bluemarsh.jswat.core.session.SessionProvider;
 import com.bluemarsh.jswat.core.util.Names;
+import com.bluemarsh.jswat.core.util.SuspendCache;
 import com.bluemarsh.jswat.nodes.Nodes;
 import com.bluemarsh.jswat.nodes.ReadOnlyProperty;
 import com.bluemarsh.jswat.nodes.ShowSourceAction;
@@ -226,7 +227,8 @@ public class DefaultStackFrameNode extends StackFrameNode
         DebuggingContext dc = ContextProvider.getContext(session);
         ThreadReference tr = dc.getThread();
         try {
-            StackFrame frame = tr.frame(frameIndex);
+            SuspendCache cache = SuspendCache.getInstance(session);
+            StackFrame frame = cache.frame(tr, frameIndex);
             Location location = frame.location();
             PathManager pm = PathProvider.getPathManager(session);
             PathEntry pe = pm.findSource(location);
@@ -252,5 +254,8 @@ public class DefaultStackFrameNode extends StackFrameNode
 
     @Override
     public void suspended(SessionEvent sevt) {
+        // The view may retain this node if the frame is unchanged, in
+        // which case the source can be shown once again.
+        getCookieSet().add(this);
     }
 }
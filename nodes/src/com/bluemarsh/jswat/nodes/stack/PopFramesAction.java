@@ -25,6 +25,7 @@ import com.bluemarsh.jswat.core.context.DebuggingContext;
 import com.bluemarsh.jswat.core.session.Session;
 import com.bluemarsh.jswat.core.session.SessionManager;
 import com.bluemarsh.jswat.core.session.SessionProvider;
+import com.bluemarsh.jswat.core.util.SuspendCache;
 import com.sun.jdi.IncompatibleThreadStateException;
 import com.sun.jdi.InvalidStackFrameException;
 import com.sun.jdi.NativeMethodException;
@@ -118,6 +119,8 @@ public class PopFramesAction extends NodeAction {
                     // This happens if user tries to pop all of the frames.
                     ErrorManager.getDefault().notify(isfe);
                 } finally {
+                    // The frames read thus far are no longer valid.
+                    SuspendCache.getInstance(session).invalidate();
                     // Cause the context to be reset no matter what happens.
                     dc.setThread(thread, false);
                 }
@@ -31,6 +31,7 @@ import com.bluemarsh.jswat.core.context.ContextProvider;
 import com.bluemarsh.jswat.core.context.DebuggingContext;
 import com.bluemarsh.jswat.core.session.Session;
 import com.bluemarsh.jswat.core.session.SessionProvider;
+import com.bluemarsh.jswat.core.util.SuspendCache;
 import com.sun.jdi.IncompatibleThreadStateException;
 import com.sun.jdi.Location;
 import com.sun.jdi.StackFrame;
@@ -88,7 +89,8 @@ public class SetBreakpointAction extends NodeAction {
                 ThreadReference tr = dc.getThread();
                 int index = fn.getFrameIndex();
                 try {
-                    StackFrame frame = tr.frame(index);
+                    SuspendCache cache = SuspendCache.getInstance(session);
+                    StackFrame frame = cache.frame(tr, index);
                     Location location = frame.location();
                     Breakpoint bp = bf.createLocationBreakpoint(location);
                     bm.addBreakpoint(bp);
@@ -26,6 +26,7 @@ package com.bluemarsh.jswat.nodes.threads;
 import com.bluemarsh.jswat.core.context.ContextEvent;
 import com.bluemarsh.jswat.core.context.ContextListener;
 import com.bluemarsh.jswat.core.context.DebuggingContext;
+import com.bluemarsh.jswat.core.util.JdwpProfiler;
 import com.bluemarsh.jswat.nodes.Nodes;
 import com.bluemarsh.jswat.nodes.ReadOnlyProperty;
 import com.sun.jdi.ThreadReference;
@@ -62,7 +63,10 @@ public class DefaultThreadNode extends ThreadNode
      */
     public DefaultThreadNode(ThreadReference thread, DebuggingContext context) {
         threadReference = thread;
+        long start = JdwpProfiler.start();
         threadName = thread.name();
+        JdwpProfiler.record(thread.virtualMachine(),
+                JdwpProfiler.Category.THREADS, start);
         debugContext = context;
         context.addContextListener(WeakListeners.create(
                 ContextListener.class, this, context));
@@ -111,7 +115,10 @@ public class DefaultThreadNode extends ThreadNode
         set.put(createProperty(Node.PROP_NAME, String.class, threadName));
         int status;
         try {
+            long start = JdwpProfiler.start();
             status = threadReference.status();
+            JdwpProfiler.record(threadReference.virtualMachine(),
+                    JdwpProfiler.Category.THREADS, start);
         } catch (VMDisconnectedException vmde) {
             status = ThreadReference.THREAD_STATUS_ZOMBIE;
         }
@@ -169,7 +176,7 @@ public class DefaultThreadNode extends ThreadNode
         if (threadReference.equals(debugContext.getThread())) {
             url = NbBundle.getMessage(ThreadNode.class,
                     "IMG_CurrentThreadNode");
-        } else if (threadReference.isSuspended()) {
+        } else if (isSuspended()) {
             url = NbBundle.getMessage(ThreadNode.class,
                     "IMG_SuspendedThreadNode");
         } else {
@@ -199,4 +206,26 @@ public class DefaultThreadNode extends ThreadNode
     public ThreadReference getThread() {
         return threadReference;
     }
+
+    /**
+     * Indicates if the thread is suspended, recording the call with the
+     * profiler, as this is asked of every thread with each refresh.
+     *
+     * @return  true if suspended, false otherwise.
+     */
+    private boolean isSuspended() {
+        long start = JdwpProfiler.start();
+        boolean suspended = threadReference.isSuspended();
+        JdwpProfiler.record(threadReference.virtualMachine(),
+                JdwpProfiler.Category.THREADS, start);
+        return suspended;
+    }
+
+    @Override
+    public void refresh() {
+        // Rebuild the properties to show the new thread status.
+        setSheet(createSheet());
+        fireDisplayNameChange(null, null);
+        fireIconChange();
+    }
 }
@@ -23,8 +23,19 @@
 
 package com.bluemarsh.jswat.nodes.threads;
 
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.session.SessionManager;
+import com.bluemarsh.jswat.core.session.SessionProvider;
+import com.bluemarsh.jswat.core.util.Threads;
 import com.sun.jdi.ThreadGroupReference;
 import com.sun.jdi.ThreadReference;
+import com.sun.jdi.VirtualMachine;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import org.openide.nodes.Node;
 import org.openide.util.HelpCtx;
 import org.openide.util.NbBundle;
@@ -39,6 +50,24 @@ public class ResumeAction extends NodeAction {
     /** silence the compiler warnings */
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Adds the given threads to those of their debuggee.
+     *
+     * @param  changed  threads keyed by debuggee.
+     * @param  vm       debuggee of the threads.
+     * @param  threads  threads to be added.
+     */
+    private static void addThreads(
+            Map<VirtualMachine, List<ThreadReference>> changed,
+            VirtualMachine vm, List<ThreadReference> threads) {
+        List<ThreadReference> list = changed.get(vm);
+        if (list == null) {
+            list = new ArrayList<ThreadReference>();
+            changed.put(vm, list);
+        }
+        list.addAll(threads);
+    }
+
     protected boolean asynchronous() {
         return false;
     }
@@ -58,13 +87,33 @@ public class ResumeAction extends NodeAction {
 
     protected void performAction(Node[] activatedNodes) {
         if (activatedNodes != null) {
+            // Collect the affected threads by debuggee, as the nodes may
+            // belong to any session, not necessarily the current one.
+            Map<VirtualMachine, List<ThreadReference>> changed =
+                    new HashMap<VirtualMachine, List<ThreadReference>>();
             for (Node n : activatedNodes) {
                 if (n instanceof ThreadNode) {
                     ThreadReference tr = ((ThreadNode) n).getThread();
                     tr.resume();
+                    addThreads(changed, tr.virtualMachine(),
+                            Collections.singletonList(tr));
                 } else if (n instanceof ThreadGroupNode) {
                     ThreadGroupReference tgr = ((ThreadGroupNode) n).getThreadGroup();
                     tgr.resume();
+                    Iterator<ThreadGroupReference> iter = Threads.iterateGroups(
+                            Collections.singletonList(tgr));
+                    while (iter.hasNext()) {
+                        addThreads(changed, tgr.virtualMachine(),
+                                iter.next().threads());
+                    }
+                }
+            }
+            SessionManager sm = SessionProvider.getSessionManager();
+            for (Map.Entry<VirtualMachine, List<ThreadReference>> entry
+                    : changed.entrySet()) {
+                Session session = sm.findByVM(entry.getKey());
+                if (session != null) {
+                    session.suspendStateChanged(entry.getValue(), false);
                 }
             }
         }
@@ -25,20 +25,26 @@ package com.bluemarsh.jswat.nodes.threads;
 
 import com.bluemarsh.jswat.core.CoreSettings;
 import com.bluemarsh.jswat.core.context.DebuggingContext;
+import com.bluemarsh.jswat.core.util.JdwpProfiler;
+import com.bluemarsh.jswat.nodes.KeyedChildren;
 import com.bluemarsh.jswat.nodes.NodeFactory;
+import com.sun.jdi.ObjectReference;
 import com.sun.jdi.ThreadGroupReference;
 import com.sun.jdi.ThreadReference;
-import java.util.LinkedList;
+import com.sun.jdi.VirtualMachine;
+import java.util.ArrayList;
 import java.util.List;
-import org.openide.nodes.Children;
 import org.openide.nodes.Node;
 
 /**
  * Contains a set of nodes that represent the constituents of a thread group.
+ * The children are keyed by the thread groups and threads, which are equal
+ * if their unique identifiers are the same, such that refreshing the
+ * children retains the nodes for the existing groups and threads.
  *
  * @author Nathan Fiedler
  */
-public class ThreadGroupChildren extends Children.Array {
+public class ThreadGroupChildren extends KeyedChildren<ObjectReference> {
     /** The thread group we represent. */
     private ThreadGroupReference threadGroup;
     /** The debugging context for our threads. */
@@ -55,35 +61,53 @@ public class ThreadGroupChildren extends Children.Array {
         debugContext = dc;
     }
 
-    protected void addNotify() {
-        super.addNotify();
+    @Override
+    protected List<ObjectReference> computeKeys() {
         CoreSettings cs = CoreSettings.getDefault();
         boolean showAll = cs.getShowAllThreads();
 
         // Iterate over the thread groups.
+        VirtualMachine vm = threadGroup.virtualMachine();
+        long start = JdwpProfiler.start();
         List<ThreadGroupReference> groups = threadGroup.threadGroups();
-        List<Node> newKids = new LinkedList<Node>();
-        NodeFactory factory = NodeFactory.getDefault();
-        for (ThreadGroupReference group : groups) {
-            newKids.add(factory.createThreadGroupNode(group, debugContext));
-        }
+        List<ThreadReference> threads = threadGroup.threads();
+        JdwpProfiler.record(vm, JdwpProfiler.Category.THREADS, start);
+        List<ObjectReference> keys = new ArrayList<ObjectReference>(
+                groups.size() + threads.size());
+        keys.addAll(groups);
 
         // Iterate over the threads.
-        List<ThreadReference> threads = threadGroup.threads();
         for (ThreadReference thread : threads) {
+            start = JdwpProfiler.start();
             int status = thread.status();
+            JdwpProfiler.record(vm, JdwpProfiler.Category.THREADS, start);
             // Ignore threads that haven't started or have already finished,
             // unless user wants to see them all anyway.
             if (showAll || (status != ThreadReference.THREAD_STATUS_NOT_STARTED &&
                     status != ThreadReference.THREAD_STATUS_ZOMBIE)) {
-                newKids.add(factory.createThreadNode(thread, debugContext));
+                keys.add(thread);
             }
         }
+        return keys;
+    }
+
+    @Override
+    protected Node createNode(ObjectReference key) {
+        NodeFactory factory = NodeFactory.getDefault();
+        if (key instanceof ThreadGroupReference) {
+            return factory.createThreadGroupNode(
+                    (ThreadGroupReference) key, debugContext);
+        } else {
+            return factory.createThreadNode((ThreadReference) key, debugContext);
+        }
+    }
 
-        int size = newKids.size();
-        if (size > 0) {
-            Node[] nodes = newKids.toArray(new Node[size]);
-            super.add(nodes);
+    @Override
+    protected void refreshNode(Node node) {
+        if (node instanceof ThreadNode) {
+            ((ThreadNode) node).refresh();
+        } else {
+            super.refreshNode(node);
         }
     }
 }
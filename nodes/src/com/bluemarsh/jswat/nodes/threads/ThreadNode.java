@@ -34,4 +34,11 @@ public abstract class ThreadNode extends BaseNode implements GetThreadCookie {
 
     @Override
     public abstract ThreadReference getThread();
+
+    /**
+     * Update the node to reflect the current status of the thread, as when
+     * the node is retained after the debuggee has been resumed and then
+     * suspended again.
+     */
+    public abstract void refresh();
 }
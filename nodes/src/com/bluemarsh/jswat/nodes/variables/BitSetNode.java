@@ -23,6 +23,7 @@
 
 package com.bluemarsh.jswat.nodes.variables;
 
+import com.bluemarsh.jswat.core.util.JdwpProfiler;
 import com.sun.jdi.ArrayReference;
 import com.sun.jdi.ArrayType;
 import com.sun.jdi.ClassNotLoadedException;
@@ -32,7 +33,9 @@ import com.sun.jdi.LongValue;
 import com.sun.jdi.ObjectReference;
 import com.sun.jdi.ReferenceType;
 import com.sun.jdi.Type;
+import com.sun.jdi.Value;
 import java.util.Arrays;
+import java.util.List;
 import org.openide.nodes.Children;
 import org.openide.nodes.Sheet;
 
@@ -94,10 +97,14 @@ public class BitSetNode extends VariableNode {
             // The strategy is to avoid invoking methods and to get the
             // elements of the long array up to the unitsInUse value.
             Field field = clazz.fieldByName("bits");
+            long start = JdwpProfiler.start();
             ArrayReference array = (ArrayReference) oref.getValue(field);
+            List<Value> bits = array.getValues();
+            JdwpProfiler.record(oref.virtualMachine(),
+                    JdwpProfiler.Category.VALUES, start);
             StringBuilder sb = new StringBuilder();
-            for (int index = 0; index < array.length(); index++) {
-                LongValue v = (LongValue) array.getValue(index);
+            for (Value value : bits) {
+                LongValue v = (LongValue) value;
                 String s = Long.toBinaryString(v.value());
                 sb.insert(0, s);
                 if (s.length() < 64) {
@@ -114,4 +121,10 @@ public class BitSetNode extends VariableNode {
 //        set.put(createProperty(PROP_STRING, oref.toString()));
         return sheet;
     }
+
+    @Override
+    public void refresh() {
+        // The contents may have changed, even if the object has not.
+        setSheet(createSheet());
+    }
 }
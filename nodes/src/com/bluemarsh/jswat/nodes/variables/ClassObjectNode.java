@@ -23,14 +23,15 @@
 
 package com.bluemarsh.jswat.nodes.variables;
 
+import com.bluemarsh.jswat.nodes.KeyedChildren;
 import com.sun.jdi.ClassObjectReference;
 import com.sun.jdi.Field;
 import com.sun.jdi.ReferenceType;
 import com.sun.jdi.Value;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Set;
-import org.openide.nodes.Children;
+import java.util.Map;
 import org.openide.nodes.Node;
 import org.openide.nodes.Sheet;
 
@@ -66,13 +67,16 @@ public class ClassObjectNode extends VariableNode {
     }
 
     /**
-     * Represents the children of an ObjectNode.
+     * Represents the children of a ClassObjectNode, keyed by the static
+     * fields of the class and their values.
      *
      * @author  Nathan Fiedler
      */
-    private static class ClassObjectChildren extends Children.SortedArray {
+    private static class ClassObjectChildren extends KeyedChildren<FieldKey> {
         /** The object reference. */
         private ClassObjectReference cref;
+        /** Used to retrieve values while computing keys. */
+        private ValueFetcher fetcher;
 
         /**
          * Creates a new instance of ClassObjectChildren.
@@ -83,31 +87,45 @@ public class ClassObjectNode extends VariableNode {
             this.cref = cref;
         }
 
-        protected void addNotify() {
-            super.addNotify();
+        @Override
+        protected List<FieldKey> computeKeys() {
+            List<FieldKey> keys = new ArrayList<FieldKey>();
             try {
-                VariableFactory vf = VariableFactory.getDefault();
-                Set<Node> kids = new HashSet<Node>();
+                fetcher = new ValueFetcher();
 
                 // This could be an interface or a class.
                 ReferenceType type = cref.reflectedType();
-                // Find the set of static fields and convert them to nodes.
-                List<Field> fields = type.fields();
-                for (Field field : fields) {
+                // Find the set of static fields, sorted by name.
+                List<Field> fields = new ArrayList<Field>();
+                for (Field field : type.fields()) {
                     if (field.isStatic()) {
-                        Value value = type.getValue(field);
-                        VariableNode vn = vf.create(field, value, null);
-                        vn.setObjectReference(cref);
-                        kids.add(vn);
+                        fields.add(field);
                     }
                 }
-
-                // Add the children to our own set (which should be empty).
-                Node[] kidsArray = kids.toArray(new Node[kids.size()]);
-                super.add(kidsArray);
+                if (!fields.isEmpty()) {
+                    Collections.sort(fields, FieldKey.NAME_ORDER);
+                    Map<Field, Value> values = fetcher.getValues(type, fields);
+                    for (Field field : fields) {
+                        keys.add(new FieldKey(field, values.get(field)));
+                    }
+                }
+                fetcher.finish(cref.toString());
             } catch (Exception e) {
                 // In most cases, debuggee has resumed, just do nothing.
             }
+            return keys;
+        }
+
+        @Override
+        protected Node createNode(FieldKey key) {
+            VariableNode vn = fetcher.create(key.field, key.value);
+            vn.setObjectReference(cref);
+            return vn;
+        }
+
+        @Override
+        protected void refreshNode(Node node) {
+            ((VariableNode) node).refresh();
         }
     }
 }
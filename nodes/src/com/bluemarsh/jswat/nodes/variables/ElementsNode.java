@@ -0,0 +1,87 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.nodes.variables;
+
+import com.sun.jdi.ObjectReference;
+import java.awt.Image;
+import org.openide.nodes.AbstractNode;
+import org.openide.nodes.Node;
+import org.openide.util.ImageUtilities;
+import org.openide.util.NbBundle;
+
+/**
+ * Class ElementsNode represents the elements of a collection, such as a
+ * list or map, which are read directly from the fields of the collection
+ * and shown a page at a time.
+ *
+ * @author  Nathan Fiedler
+ */
+public class ElementsNode extends AbstractNode implements Comparable<Node> {
+    /** Name of this type of node, for sorting purposes. */
+    public static final String NAME = "elements";
+    /** Number of elements in the collection. */
+    private int size;
+
+    /**
+     * Creates a new instance of ElementsNode.
+     *
+     * @param  object  the collection, readable by ElementReader.
+     * @param  type    name of the collection type.
+     * @param  size    number of elements in the collection.
+     * @param  map     true if the collection is a map.
+     */
+    public ElementsNode(ObjectReference object, String type, int size,
+            boolean map) {
+        super(new PageChildren(object, type, "java.lang.Object", map, 0, size));
+        this.size = size;
+    }
+
+    public int compareTo(Node o) {
+        // Try to keep this node before all others, except 'this'.
+        if (o.getName().equals("this")) {
+            return 1;
+        }
+        return -1;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return NbBundle.getMessage(ElementsNode.class,
+                "LBL_ElementsNode_Name", size);
+    }
+
+    @Override
+    public Image getIcon(int type) {
+        String url = NbBundle.getMessage(VariableNode.class,
+                        "IMG_VariableNode_FieldNode");
+        return ImageUtilities.loadImage(url);
+    }
+
+    @Override
+    public Image getOpenedIcon(int type) {
+        return getIcon(type);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.nodes.variables;
+
+import com.sun.jdi.Field;
+import com.sun.jdi.Value;
+import java.util.Comparator;
+
+/**
+ * Identifies a field of an object or class, and its value, for use as the
+ * key of keyed children.
+ *
+ * @author  Nathan Fiedler
+ */
+class FieldKey {
+    /** Sorts fields by their name. */
+    static final Comparator<Field> NAME_ORDER = new Comparator<Field>() {
+        @Override
+        public int compare(Field o1, Field o2) {
+            return o1.name().compareTo(o2.name());
+        }
+    };
+    /** The field. */
+    final Field field;
+    /** Value of the field (may be null). */
+    final Value value;
+
+    /**
+     * Creates a new instance of FieldKey.
+     *
+     * @param  field  the field.
+     * @param  value  value of the field.
+     */
+    FieldKey(Field field, Value value) {
+        this.field = field;
+        this.value = value;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof FieldKey) {
+            FieldKey other = (FieldKey) obj;
+            return field.equals(other.field) && (value == null
+                    ? other.value == null : value.equals(other.value));
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return field.hashCode();
+    }
+}
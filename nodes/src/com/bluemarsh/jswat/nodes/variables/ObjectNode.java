@@ -23,13 +23,15 @@
 
 package com.bluemarsh.jswat.nodes.variables;
 
+import com.bluemarsh.jswat.core.util.ElementReader;
+import com.bluemarsh.jswat.nodes.KeyedChildren;
 import com.sun.jdi.Field;
 import com.sun.jdi.ObjectReference;
 import com.sun.jdi.Value;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Set;
-import org.openide.nodes.Children;
+import java.util.Map;
 import org.openide.nodes.Node;
 import org.openide.nodes.Sheet;
 
@@ -65,13 +67,17 @@ public class ObjectNode extends VariableNode {
     }
 
     /**
-     * Represents the children of an ObjectNode.
+     * Represents the children of an ObjectNode. The children are keyed by
+     * the field and its value, such that only those fields whose values
+     * have changed are replaced when the children are refreshed.
      *
      * @author  Nathan Fiedler
      */
-    private static class ObjectChildren extends Children.SortedArray {
+    private static class ObjectChildren extends KeyedChildren<Object> {
         /** The object reference. */
         private ObjectReference oref;
+        /** Used to retrieve values while computing keys. */
+        private ValueFetcher fetcher;
 
         /**
          * Creates a new instance of ObjectChildren.
@@ -82,32 +88,64 @@ public class ObjectNode extends VariableNode {
             this.oref = oref;
         }
 
-        protected void addNotify() {
-            super.addNotify();
+        @Override
+        protected List<Object> computeKeys() {
+            List<Object> keys = new ArrayList<Object>();
             try {
-                VariableFactory vf = VariableFactory.getDefault();
+                fetcher = new ValueFetcher();
 
-                // Find the set of fields and convert them to nodes.
-                Set<Node> kids = new HashSet<Node>();
-                List<Field> fields = oref.referenceType().visibleFields();
+                // Add the elements node for the common collections, keyed
+                // by the size of the collection.
+                if (ElementReader.canRead(oref)) {
+                    ElementReader reader = ElementReader.getInstance(
+                            oref.virtualMachine());
+                    keys.add(Integer.valueOf(reader.getSize(oref)));
+                }
+
+                // Find the set of fields and their values, sorted by name.
+                List<Field> fields = new ArrayList<Field>(
+                        oref.referenceType().visibleFields());
+                Collections.sort(fields, FieldKey.NAME_ORDER);
+                Map<Field, Value> values = fetcher.getValues(oref, fields);
                 for (Field field : fields) {
-                    Value value = oref.getValue(field);
-                    VariableNode vn = vf.create(field, value, null);
-                    vn.setObjectReference(oref);
-                    kids.add(vn);
+                    keys.add(new FieldKey(field, values.get(field)));
                 }
+                fetcher.finish(oref.toString());
 
                 // Add the referents node.
                 if (oref.virtualMachine().canGetInstanceInfo()) {
-                    kids.add(new ReferentsNode(oref));
+                    keys.add(ReferentsNode.NAME);
                 }
-
-                // Add the children to our own set (which should be empty).
-                Node[] kidsArray = kids.toArray(new Node[kids.size()]);
-                super.add(kidsArray);
             } catch (Exception e) {
                 // In most cases, debuggee has resumed, just do nothing.
             }
+            return keys;
+        }
+
+        @Override
+        protected Node createNode(Object key) {
+            if (key instanceof FieldKey) {
+                FieldKey fk = (FieldKey) key;
+                VariableNode vn = fetcher.create(fk.field, fk.value);
+                vn.setObjectReference(oref);
+                return vn;
+            } else if (key instanceof Integer) {
+                ElementReader reader = ElementReader.getInstance(
+                        oref.virtualMachine());
+                return new ElementsNode(oref, oref.referenceType().name(),
+                        ((Integer) key).intValue(), reader.isMap(oref));
+            } else {
+                return new ReferentsNode(oref);
+            }
+        }
+
+        @Override
+        protected void refreshNode(Node node) {
+            if (node instanceof VariableNode) {
+                ((VariableNode) node).refresh();
+            } else {
+                super.refreshNode(node);
+            }
         }
     }
 }
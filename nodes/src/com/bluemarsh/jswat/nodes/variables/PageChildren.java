@@ -0,0 +1,282 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.nodes.variables;
+
+import com.bluemarsh.jswat.core.util.ElementReader.Element;
+import com.bluemarsh.jswat.nodes.KeyedChildren;
+import com.sun.jdi.ArrayType;
+import com.sun.jdi.ObjectReference;
+import com.sun.jdi.Value;
+import java.util.ArrayList;
+import java.util.List;
+import org.openide.nodes.Children;
+import org.openide.nodes.Node;
+import org.openide.util.NbBundle;
+
+/**
+ * Represents a range of the elements of an array or collection. If the
+ * range is small, the elements are retrieved, one page at a time, when the
+ * children are first shown. Otherwise the range is divided into groups,
+ * each of which is itself a range that is expanded only when requested,
+ * such that no node has more than a page worth of children, regardless of
+ * the size of the collection. The elements are keyed by their position and
+ * value, such that only the changed elements are replaced when the children
+ * are refreshed.
+ *
+ * @author  Nathan Fiedler
+ */
+class PageChildren extends KeyedChildren<Object> {
+    /** The size of the element groups. */
+    private static final int GROUPING_SIZE = 100;
+    /** The array or collection. */
+    private ObjectReference object;
+    /** Name of the array or collection type. */
+    private String type;
+    /** Declared type of the elements, or null to use the array type. */
+    private String elementType;
+    /** True if the elements are map entries. */
+    private boolean entries;
+    /** Index of the first element. */
+    private int offset;
+    /** Number of elements in the range. */
+    private int length;
+    /** Used to retrieve values while computing keys. */
+    private ValueFetcher fetcher;
+
+    /**
+     * Creates a new instance of PageChildren.
+     *
+     * @param  object       array or collection, readable by ElementReader.
+     * @param  type         name of the array or collection type.
+     * @param  elementType  declared type of the elements, or null if the
+     *                      object is an array.
+     * @param  entries      true if the elements are map entries.
+     * @param  offset       index of the first element.
+     * @param  length       number of elements in the range.
+     */
+    PageChildren(ObjectReference object, String type, String elementType,
+            boolean entries, int offset, int length) {
+        this.object = object;
+        this.type = type;
+        this.elementType = elementType;
+        this.entries = entries;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    protected List<Object> computeKeys() {
+        List<Object> keys = new ArrayList<Object>();
+        try {
+            if (length > GROUPING_SIZE) {
+                // Build groups to contain a subset of the elements,
+                // keyed by the index of their first element.
+                long span = getSpan();
+                for (long first = offset; first < offset + length; first += span) {
+                    keys.add(Integer.valueOf((int) first));
+                }
+            } else if (length > 0) {
+                // No need to make subgroups, fetch the elements at once.
+                fetcher = new ValueFetcher();
+                if (elementType == null) {
+                    ArrayType atype = (ArrayType) object.referenceType();
+                    elementType = atype.componentTypeName();
+                }
+                List<Element> elements = fetcher.getElements(
+                        object, offset, length);
+                for (Element element : elements) {
+                    keys.add(new ElementKey(element));
+                }
+                fetcher.finish(object.toString());
+            }
+        } catch (Exception e) {
+            // In most cases, debuggee has resumed, just do nothing.
+        }
+        return keys;
+    }
+
+    @Override
+    protected Node createNode(Object key) {
+        if (key instanceof Integer) {
+            int first = ((Integer) key).intValue();
+            int size = (int) Math.min(offset + length - first, getSpan());
+            return new PageNode(new PageChildren(object, type, elementType,
+                    entries, first, size), type, first, size);
+        }
+        Element element = ((ElementKey) key).element;
+        String name = "[" + element.getIndex() + "]";
+        if (entries) {
+            return new EntryNode(name, fetcher, element);
+        }
+        // Show the actual element type, if available, otherwise the
+        // declared element type.
+        String etype = fetcher.getTypeName(element.getValue(), elementType);
+        VariableFactory vf = VariableFactory.getDefault();
+        return vf.create(name, etype, element.getValue(),
+                VariableNode.Kind.FIELD, null);
+    }
+
+    /**
+     * Determine the smallest group size that keeps the number of groups
+     * within the grouping size.
+     *
+     * @return  number of elements in each group.
+     */
+    private long getSpan() {
+        long span = GROUPING_SIZE;
+        while ((length + span - 1) / span > GROUPING_SIZE) {
+            span *= GROUPING_SIZE;
+        }
+        return span;
+    }
+
+    @Override
+    protected void refreshNode(Node node) {
+        if (node instanceof VariableNode) {
+            ((VariableNode) node).refresh();
+        } else {
+            super.refreshNode(node);
+        }
+    }
+
+    /**
+     * Identifies an element by its position, key, and value.
+     */
+    private static class ElementKey {
+        /** The element. */
+        private final Element element;
+
+        /**
+         * Creates a new instance of ElementKey.
+         *
+         * @param  element  the element.
+         */
+        ElementKey(Element element) {
+            this.element = element;
+        }
+
+        /**
+         * Compares the two values, either of which may be null.
+         *
+         * @param  v1  first value.
+         * @param  v2  second value.
+         * @return  true if equal, false otherwise.
+         */
+        private static boolean same(Value v1, Value v2) {
+            return v1 == null ? v2 == null : v1.equals(v2);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof ElementKey) {
+                Element other = ((ElementKey) obj).element;
+                return element.getIndex() == other.getIndex()
+                        && same(element.getKey(), other.getKey())
+                        && same(element.getValue(), other.getValue());
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return element.getIndex();
+        }
+    }
+
+    /**
+     * Represents a single entry of a map, with the key and value as its
+     * children.
+     *
+     * @author  Nathan Fiedler
+     */
+    private static class EntryNode extends VariableNode {
+
+        /**
+         * Creates a new instance of EntryNode.
+         *
+         * @param  name     name of the node.
+         * @param  fetcher  used to find the element types.
+         * @param  element  the map entry.
+         */
+        EntryNode(String name, ValueFetcher fetcher, Element element) {
+            super(new Children.Array(), name, "java.util.Map.Entry",
+                    VariableNode.Kind.FIELD);
+            VariableFactory vf = VariableFactory.getDefault();
+            String kname = NbBundle.getMessage(PageChildren.class,
+                    "LBL_PageChildren_Key");
+            String ktype = fetcher.getTypeName(element.getKey(),
+                    "java.lang.Object");
+            String vname = NbBundle.getMessage(PageChildren.class,
+                    "LBL_PageChildren_Value");
+            String vtype = fetcher.getTypeName(element.getValue(),
+                    "java.lang.Object");
+            getChildren().add(new Node[]{
+                vf.create(kname, ktype, element.getKey(),
+                        VariableNode.Kind.FIELD, null),
+                vf.create(vname, vtype, element.getValue(),
+                        VariableNode.Kind.FIELD, null)
+            });
+        }
+
+        @Override
+        public void refresh() {
+            for (Node node : getChildren().getNodes()) {
+                ((VariableNode) node).refresh();
+            }
+        }
+    }
+
+    /**
+     * Contains a subset of the element nodes, for the sake of reducing
+     * the number of nodes created at any one time.
+     *
+     * @author  Nathan Fiedler
+     */
+    private static class PageNode extends VariableNode {
+        /** The generated name for this node. */
+        private String displayName;
+
+        /**
+         * Creates a new instance of PageNode.
+         *
+         * @param  kids    children of this node.
+         * @param  type    name of the array or collection type.
+         * @param  offset  index of the first element.
+         * @param  length  number of elements in the range.
+         */
+        PageNode(PageChildren kids, String type, int offset, int length) {
+            // Create a unique name for this node.
+            super(kids, String.valueOf(offset), type, VariableNode.Kind.FIELD);
+            if (length > 1) {
+                // Minus one for conversion to relative indexing.
+                displayName = offset + " - " + (offset + length - 1);
+            } else {
+                // One node does not make a range.
+                displayName = String.valueOf(offset);
+            }
+        }
+
+        @Override
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+}
@@ -23,6 +23,7 @@
 
 package com.bluemarsh.jswat.nodes.variables;
 
+import com.bluemarsh.jswat.core.util.JdwpProfiler;
 import com.sun.jdi.ClassNotLoadedException;
 import com.sun.jdi.Field;
 import com.sun.jdi.ObjectReference;
@@ -91,7 +92,10 @@ public class PrimitiveWrapperNode extends VariableNode {
         try {
             // The strategy is to avoid invoking methods to get the value.
             Field field = clazz.fieldByName("value");
+            long start = JdwpProfiler.start();
             Value value = oref.getValue(field);
+            JdwpProfiler.record(oref.virtualMachine(),
+                    JdwpProfiler.Category.VALUES, start);
             set.put(createProperty(PROP_VALUE, value.toString()));
         } catch (RuntimeException re) {
             // Fall back to the safest possible operation.
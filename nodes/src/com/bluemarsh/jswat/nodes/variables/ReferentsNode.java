@@ -23,13 +23,12 @@
 
 package com.bluemarsh.jswat.nodes.variables;
 
+import com.bluemarsh.jswat.nodes.KeyedChildren;
 import com.sun.jdi.ObjectReference;
 import java.awt.Image;
-import java.util.HashSet;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
 import org.openide.nodes.AbstractNode;
-import org.openide.nodes.Children;
 import org.openide.nodes.Node;
 import org.openide.util.ImageUtilities;
 import org.openide.util.NbBundle;
@@ -84,9 +83,9 @@ public class ReferentsNode extends AbstractNode implements Comparable<Node> {
 
     /**
      * Children of the ReferentsNode, dynamically builds out the set of
-     * referring objects.
+     * referring objects, keyed by their position and the object.
      */
-    private static class ReferentsChildren extends Children.Array {
+    private static class ReferentsChildren extends KeyedChildren<Referer> {
         /** The object reference. */
         private ObjectReference reference;
 
@@ -100,27 +99,68 @@ public class ReferentsNode extends AbstractNode implements Comparable<Node> {
         }
 
         @Override
-        protected void addNotify() {
-            super.addNotify();
+        protected List<Referer> computeKeys() {
+            List<Referer> keys = new ArrayList<Referer>();
             try {
-                // Find the referents and convert them to nodes.
-                Set<VariableNode> kids = new HashSet<VariableNode>();
                 // Limit the number to 100 for the time being.
                 List<ObjectReference> referers = reference.referringObjects(100);
-                VariableFactory vf = VariableFactory.getDefault();
                 int count = 1;
-                String prefix = NbBundle.getMessage(ReferentsNode.class,
-                        "LBL_ReferentsNode_Referer");
                 for (ObjectReference referer : referers) {
-                    VariableNode vn = vf.create(prefix + count, referer);
-                    kids.add(vn);
+                    keys.add(new Referer(count, referer));
                     count++;
                 }
-                Node[] kidsArray = kids.toArray(new Node[kids.size()]);
-                super.add(kidsArray);
             } catch (Exception e) {
                 // In most cases, debuggee has resumed, just do nothing.
             }
+            return keys;
+        }
+
+        @Override
+        protected Node createNode(Referer key) {
+            VariableFactory vf = VariableFactory.getDefault();
+            String prefix = NbBundle.getMessage(ReferentsNode.class,
+                    "LBL_ReferentsNode_Referer");
+            return vf.create(prefix + key.number, key.object);
+        }
+
+        @Override
+        protected void refreshNode(Node node) {
+            ((VariableNode) node).refresh();
+        }
+    }
+
+    /**
+     * Identifies a referring object by its position and the object.
+     */
+    private static class Referer {
+        /** Position of the referring object (one-based). */
+        private final int number;
+        /** The referring object. */
+        private final ObjectReference object;
+
+        /**
+         * Creates a new instance of Referer.
+         *
+         * @param  number  position of the referring object.
+         * @param  object  the referring object.
+         */
+        Referer(int number, ObjectReference object) {
+            this.number = number;
+            this.object = object;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof Referer) {
+                Referer other = (Referer) obj;
+                return number == other.number && object.equals(other.object);
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return object.hashCode();
         }
     }
 }
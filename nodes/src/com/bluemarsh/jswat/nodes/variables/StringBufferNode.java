@@ -23,6 +23,7 @@
 
 package com.bluemarsh.jswat.nodes.variables;
 
+import com.bluemarsh.jswat.core.util.JdwpProfiler;
 import com.sun.jdi.ArrayReference;
 import com.sun.jdi.ArrayType;
 import com.sun.jdi.ClassNotLoadedException;
@@ -33,6 +34,10 @@ import com.sun.jdi.ObjectReference;
 import com.sun.jdi.ReferenceType;
 import com.sun.jdi.Type;
 import com.sun.jdi.Value;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import org.openide.nodes.Children;
 import org.openide.nodes.Sheet;
 
@@ -95,13 +100,20 @@ public class StringBufferNode extends VariableNode {
             // The strategy is to avoid invoking methods and to get the
             // elements of the character array up to the count value.
             // This should work for StringBuilder as well.
-            Field field = clazz.fieldByName("value");
-            ArrayReference array = (ArrayReference) oref.getValue(field);
-            field = clazz.fieldByName("count");
-            IntegerValue count = (IntegerValue) oref.getValue(field);
+            Field vfield = clazz.fieldByName("value");
+            Field cfield = clazz.fieldByName("count");
+            long start = JdwpProfiler.start();
+            Map<Field, Value> values = oref.getValues(Arrays.asList(vfield, cfield));
+            ArrayReference array = (ArrayReference) values.get(vfield);
+            IntegerValue count = (IntegerValue) values.get(cfield);
+            List<Value> chars = Collections.emptyList();
+            if (count.value() > 0) {
+                chars = array.getValues(0, count.value());
+            }
+            JdwpProfiler.record(oref.virtualMachine(),
+                    JdwpProfiler.Category.VALUES, start);
             StringBuilder sb = new StringBuilder();
-            for (int index = 0; index < count.value(); index++) {
-                Value v = array.getValue(index);
+            for (Value v : chars) {
                 sb.append(v.toString());
             }
             set.put(createProperty(PROP_VALUE, "\"" + sb.toString() + "\""));
@@ -112,4 +124,10 @@ public class StringBufferNode extends VariableNode {
 //        set.put(createProperty(PROP_STRING, oref.toString()));
         return sheet;
     }
+
+    @Override
+    public void refresh() {
+        // The contents may have changed, even if the object has not.
+        setSheet(createSheet());
+    }
 }
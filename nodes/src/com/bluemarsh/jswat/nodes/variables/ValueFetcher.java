@@ -0,0 +1,173 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.nodes.variables;
+
+import com.bluemarsh.jswat.core.util.ElementReader;
+import com.bluemarsh.jswat.core.util.ElementReader.Element;
+import com.bluemarsh.jswat.core.util.JdwpProfiler;
+import com.sun.jdi.Field;
+import com.sun.jdi.ObjectReference;
+import com.sun.jdi.ReferenceType;
+import com.sun.jdi.Value;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Class ValueFetcher retrieves the values needed to expand a variable node,
+ * fetching the values of elements and fields in bulk, and caching
+ * the names of the types encountered. A new instance is used for each
+ * expansion, such that the number of requests made of the debuggee for
+ * that expansion may be counted and logged.
+ *
+ * @author Nathan Fiedler
+ */
+class ValueFetcher {
+    /** Logger for reporting the cost of each expansion. */
+    private static final Logger logger = Logger.getLogger(
+            ValueFetcher.class.getName());
+    /** Names of the types seen during this expansion. */
+    private final Map<ReferenceType, String> typeNames;
+    /** Number of requests made of the debuggee. */
+    private int requests;
+
+    /**
+     * Creates a new instance of ValueFetcher.
+     */
+    ValueFetcher() {
+        typeNames = new HashMap<ReferenceType, String>();
+    }
+
+    /**
+     * Create a node to represent the given field and its value, by way
+     * of the variable factory, which determines the actual type of the
+     * value if it is not null.
+     *
+     * @param  field  the field.
+     * @param  value  value of the field.
+     * @return  new variable node.
+     */
+    VariableNode create(Field field, Value value) {
+        if (value instanceof ObjectReference) {
+            // The factory asks the debuggee for the type of the object.
+            requests++;
+        }
+        return VariableFactory.getDefault().create(field, value, null);
+    }
+
+    /**
+     * Report the number of requests made of the debuggee for the
+     * expansion of the given node.
+     *
+     * @param  name  name of the node that was expanded.
+     */
+    void finish(String name) {
+        if (logger.isLoggable(Level.FINE)) {
+            logger.log(Level.FINE, "expanded {0} with {1} requests",
+                    new Object[]{name, requests});
+        }
+    }
+
+    /**
+     * Retrieve a range of the elements of the array or collection, by way
+     * of the ElementReader, which caches the pages it has read until the
+     * debuggee resumes.
+     *
+     * @param  object  array or collection.
+     * @param  index   index of first element.
+     * @param  length  number of elements.
+     * @return  list of elements.
+     */
+    List<Element> getElements(ObjectReference object, int index, int length) {
+        requests++;
+        ElementReader reader = ElementReader.getInstance(
+                object.virtualMachine());
+        return reader.getElements(object, index, length);
+    }
+
+    /**
+     * Retrieve the name of the given type.
+     *
+     * @param  type  the type.
+     * @return  name of type.
+     */
+    String getTypeName(ReferenceType type) {
+        String name = typeNames.get(type);
+        if (name == null) {
+            requests++;
+            name = type.name();
+            typeNames.put(type, name);
+        }
+        return name;
+    }
+
+    /**
+     * Retrieve the name of the actual type of the given value.
+     *
+     * @param  value     the value, possibly null.
+     * @param  declared  declared type name, returned if value is null.
+     * @return  name of type.
+     */
+    String getTypeName(Value value, String declared) {
+        if (value instanceof ObjectReference) {
+            requests++;
+            return getTypeName(((ObjectReference) value).referenceType());
+        } else if (value != null) {
+            // Primitive types are known without asking the debuggee.
+            return value.type().name();
+        }
+        return declared;
+    }
+
+    /**
+     * Retrieve the values of the given fields of the object.
+     *
+     * @param  object  the object.
+     * @param  fields  fields of the object (static or otherwise).
+     * @return  field values.
+     */
+    Map<Field, Value> getValues(ObjectReference object, List<Field> fields) {
+        requests++;
+        long start = JdwpProfiler.start();
+        Map<Field, Value> values = object.getValues(fields);
+        JdwpProfiler.record(object.virtualMachine(),
+                JdwpProfiler.Category.VALUES, start);
+        return values;
+    }
+
+    /**
+     * Retrieve the values of the given static fields of the type.
+     *
+     * @param  type    the type.
+     * @param  fields  static fields of the type.
+     * @return  field values.
+     */
+    Map<Field, Value> getValues(ReferenceType type, List<Field> fields) {
+        requests++;
+        long start = JdwpProfiler.start();
+        Map<Field, Value> values = type.getValues(fields);
+        JdwpProfiler.record(type.virtualMachine(),
+                JdwpProfiler.Category.VALUES, start);
+        return values;
+    }
+}
@@ -24,6 +24,7 @@ package com.bluemarsh.jswat.nodes.variables;
 
 import com.bluemarsh.jswat.core.util.Arrays;
 import com.bluemarsh.jswat.core.util.Names;
+import com.bluemarsh.jswat.nodes.KeyedChildren;
 import com.bluemarsh.jswat.nodes.ReadOnlyProperty;
 import com.sun.jdi.Field;
 import com.sun.jdi.ObjectReference;
@@ -130,6 +131,11 @@ public class VariableNode extends AbstractNode implements
             // But also have the long name for the properties sheet.
             set.put(createProperty(PROP_FULL_TYPE, type));
         }
+        if (field != null) {
+            // Sheet is being rebuilt after setField() was called.
+            set.put(createProperty(PROP_DECLARING_TYPE,
+                    field.declaringType().name()));
+        }
         return sheet;
     }
 
@@ -199,6 +205,18 @@ public class VariableNode extends AbstractNode implements
         return getIcon(type);
     }
 
+    /**
+     * Brings this node up to date with the debuggee, after the node has
+     * been retained by an incremental refresh of the view. By default this
+     * refreshes the children of the node, if they are keyed children.
+     */
+    public void refresh() {
+        Children kids = getChildren();
+        if (kids instanceof KeyedChildren) {
+            ((KeyedChildren<?>) kids).refresh();
+        }
+    }
+
     /**
      * Sets the field that this node represents.
      *
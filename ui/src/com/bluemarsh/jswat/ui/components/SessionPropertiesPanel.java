@@ -166,7 +166,8 @@ public class SessionPropertiesPanel extends JPanel implements
             classpathEditor.setWritable(false);
         }
 
-        // Load the classpath setting.
+        // Load the classpath setting, which requires an active session.
+        session.activate();
         PathManager pm = PathProvider.getPathManager(session);
         List<String> classpath = pm.getClassPath();
         if (classpath != null && classpath.size() > 0) {
@@ -212,6 +213,7 @@ public class SessionPropertiesPanel extends JPanel implements
         session.setProperty(Session.PROP_SESSION_NAME, name);
 
         // Save the classpath setting.
+        session.activate();
         PathManager pm = PathProvider.getPathManager(session);
         if (!session.isConnected()) {
             // Okay to save classpath if session is inactive.
@@ -28,6 +28,8 @@ import com.bluemarsh.jswat.core.session.SessionManager;
 import com.bluemarsh.jswat.core.session.SessionManagerEvent;
 import com.bluemarsh.jswat.core.session.SessionManagerListener;
 import com.bluemarsh.jswat.core.session.SessionProvider;
+import com.bluemarsh.jswat.core.util.JdwpProfiler;
+import com.bluemarsh.jswat.nodes.KeyedChildren;
 import com.bluemarsh.jswat.nodes.NodeFactory;
 import com.bluemarsh.jswat.ui.components.FindPanel;
 import com.bluemarsh.jswat.ui.components.Findable;
@@ -38,19 +40,18 @@ import com.sun.jdi.ReferenceType;
 import com.sun.jdi.VMDisconnectedException;
 import com.sun.jdi.VirtualMachine;
 import java.awt.BorderLayout;
-import java.awt.EventQueue;
 import java.awt.event.ActionEvent;
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.swing.AbstractAction;
 import javax.swing.Action;
 import javax.swing.ActionMap;
@@ -108,6 +109,10 @@ public class ClassesView extends AbstractView
      * Lists of classes, keyed by the VirtualMachine.
      */
     private Map<VirtualMachine, WeakReference<List<ReferenceType>>> classesCache;
+    /**
+     * Coalesces requests to rebuild the tree.
+     */
+    private transient RefreshCoalescer refresher;
 
     /**
      * Constructs a new instance of ClassesView. Clients should not construct
@@ -115,8 +120,11 @@ public class ClassesView extends AbstractView
      * instance from the window system.
      */
     public ClassesView() {
-        classesCache = new HashMap<VirtualMachine, WeakReference<List<ReferenceType>>>();
+        // The cache is filled by the background loader, and read by the
+        // find action on the event thread.
+        classesCache = new ConcurrentHashMap<VirtualMachine, WeakReference<List<ReferenceType>>>();
         explorerManager = new ExplorerManager();
+        refresher = new RefreshCoalescer(this);
         ActionMap map = getActionMap();
         CallbackSystemAction globalFindAction =
                 (CallbackSystemAction) SystemAction.get(FindAction.class);
@@ -172,80 +180,12 @@ public class ClassesView extends AbstractView
     }
 
     /**
-     * Builds the node tree for the current session.
+     * Builds the node tree for the current session. Any number of calls
+     * made before the tree is next built result in a single build, which
+     * runs on the AWT event dispatching thread.
      */
     private void buildTree() {
-        // Ensure that this method runs on the AWT thread to avoid slowing
-        // the event dispatching thread, and the session connect process.
-        if (!EventQueue.isDispatchThread()) {
-            EventQueue.invokeLater(this);
-            return;
-        }
-
-        SessionManager sm = SessionProvider.getSessionManager();
-        Session session = sm.getCurrent();
-        List<Node> list = new LinkedList<Node>();
-        Node rootNode = explorerManager.getRootContext();
-        final List<String[]> expanded = getExpanded(nodeView, rootNode);
-        if (session.isConnected()) {
-            VirtualMachine vm = session.getConnection().getVM();
-            // Remove any previously fetched list in order to get the latest.
-            classesCache.remove(vm);
-            // Now fetch the class list and cache it in case our inner
-            // classes need access to them for building out the tree.
-            List<ReferenceType> classes = getClasses(vm);
-
-            // Build the set of class loaders.
-            Set<ClassLoaderReference> loaders =
-                    new TreeSet<ClassLoaderReference>(new LoaderComparator());
-            for (ReferenceType clazz : classes) {
-                try {
-                    ClassLoaderReference clr = clazz.classLoader();
-                    if (clr == null) {
-                        // Boot classloader is null for some unknown reason.
-                        loaders.add(null);
-                    } else if (clr.referenceType().name().equals(
-                            "sun.reflect.DelegatingClassLoader")) {
-                        // This one is not interesting.
-                        continue;
-                    } else {
-                        loaders.add(clr);
-                    }
-                } catch (ObjectCollectedException oce) {
-                    // Yes, this can happen with a fresh list of classes.
-                    // Just ignore that particular class and keep going.
-                } catch (VMDisconnectedException vmde) {
-                    // Likely to happen since we are running asynchronously.
-                    loaders.clear();
-                    break;
-                }
-            }
-
-            // Build the nodes for the class loaders.
-            NodeFactory factory = NodeFactory.getDefault();
-            for (ClassLoaderReference clr : loaders) {
-                Node node = factory.createClassLoaderNode(vm, clr);
-                list.add(node);
-            }
-        }
-        if (list.size() > 0) {
-            Children children = new Children.Array();
-            Node[] nodes = list.toArray(new Node[list.size()]);
-            children.add(nodes);
-            buildRoot(children);
-        } else {
-            buildRoot(Children.LEAF);
-        }
-
-        // Must expand the nodes on the AWT event thread.
-        EventQueue.invokeLater(new Runnable() {
-            @Override
-            public void run() {
-                // Need to refetch the root in case it was replaced.
-                Node rootNode = explorerManager.getRootContext();
-                expandPaths(expanded, nodeView, rootNode);
-            }
-        });
+        refresher.request();
     }
 
     @Override
@@ -332,7 +272,9 @@ public class ClassesView extends AbstractView
         List<ReferenceType> classes = ref == null ? null : ref.get();
         if (classes == null) {
             try {
+                long start = JdwpProfiler.start();
                 classes = vm.allClasses();
+                JdwpProfiler.record(vm, JdwpProfiler.Category.CLASSES, start);
                 classesCache.put(vm, new WeakReference<List<ReferenceType>>(classes));
             } catch (VMDisconnectedException vmde) {
                 classes = Collections.emptyList();
@@ -402,7 +344,25 @@ public class ClassesView extends AbstractView
 
     @Override
     public void run() {
-        buildTree();
+        // Build the tree; if it already represents the session, it is
+        // updated incrementally, such that nodes are created only for the
+        // class loaders, packages, and classes that are new.
+        SessionManager sm = SessionProvider.getSessionManager();
+        Session session = sm.getCurrent();
+        if (session.isConnected()) {
+            VirtualMachine vm = session.getConnection().getVM();
+            // Remove any previously fetched list in order to get the latest.
+            classesCache.remove(vm);
+            Children kids = explorerManager.getRootContext().getChildren();
+            if (kids instanceof LoaderChildren
+                    && ((LoaderChildren) kids).represents(vm)) {
+                ((LoaderChildren) kids).refresh();
+            } else {
+                buildRoot(new LoaderChildren(vm));
+            }
+        } else {
+            buildRoot(Children.LEAF);
+        }
     }
 
     @Override
@@ -478,6 +438,121 @@ public class ClassesView extends AbstractView
         }
     }
 
+    /**
+     * The class loaders of the debuggee, keyed by the loader, such that
+     * nodes are retained for the loaders that were already present.
+     *
+     * @author Nathan Fiedler
+     */
+    private class LoaderChildren extends KeyedChildren<LoaderKey> {
+
+        /**
+         * The virtual machine we are associated with.
+         */
+        private final VirtualMachine vm;
+
+        /**
+         * Creates a new instance of LoaderChildren.
+         *
+         * @param vm virtual machine.
+         */
+        LoaderChildren(VirtualMachine vm) {
+            this.vm = vm;
+        }
+
+        @Override
+        protected List<LoaderKey> computeKeys() {
+            // Fetch the class list and cache it in case our inner
+            // classes need access to them for building out the tree.
+            List<ReferenceType> classes = getClasses(vm);
+
+            // Build the set of class loaders.
+            Set<ClassLoaderReference> loaders =
+                    new TreeSet<ClassLoaderReference>(new LoaderComparator());
+            for (ReferenceType clazz : classes) {
+                try {
+                    ClassLoaderReference clr = clazz.classLoader();
+                    if (clr == null) {
+                        // Boot classloader is null for some unknown reason.
+                        loaders.add(null);
+                    } else if (clr.referenceType().name().equals(
+                            "sun.reflect.DelegatingClassLoader")) {
+                        // This one is not interesting.
+                        continue;
+                    } else {
+                        loaders.add(clr);
+                    }
+                } catch (ObjectCollectedException oce) {
+                    // Yes, this can happen with a fresh list of classes.
+                    // Just ignore that particular class and keep going.
+                } catch (VMDisconnectedException vmde) {
+                    // Likely to happen since we are running asynchronously.
+                    loaders.clear();
+                    break;
+                }
+            }
+
+            List<LoaderKey> keys = new ArrayList<LoaderKey>(loaders.size());
+            for (ClassLoaderReference clr : loaders) {
+                keys.add(new LoaderKey(clr));
+            }
+            return keys;
+        }
+
+        @Override
+        protected Node createNode(LoaderKey key) {
+            NodeFactory factory = NodeFactory.getDefault();
+            return factory.createClassLoaderNode(vm, key.loader);
+        }
+
+        /**
+         * Indicates if these children represent the given virtual machine.
+         *
+         * @param vm virtual machine.
+         * @return true if these children represent the virtual machine.
+         */
+        boolean represents(VirtualMachine vm) {
+            return this.vm == vm;
+        }
+    }
+
+    /**
+     * Identifies a class loader, including the boot class loader, which
+     * is represented by null.
+     *
+     * @author Nathan Fiedler
+     */
+    private static class LoaderKey {
+
+        /**
+         * The class loader, or null for the boot class loader.
+         */
+        private final ClassLoaderReference loader;
+
+        /**
+         * Creates a new instance of LoaderKey.
+         *
+         * @param loader class loader, or null for the boot class loader.
+         */
+        LoaderKey(ClassLoaderReference loader) {
+            this.loader = loader;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof LoaderKey) {
+                ClassLoaderReference other = ((LoaderKey) obj).loader;
+                return loader == null ? other == null : loader.equals(other);
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return loader == null ? 0 : loader.hashCode();
+        }
+    }
+
     /**
      * Implements the action of finding a class by substring.
      *
@@ -0,0 +1,363 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.ui.views;
+
+import com.bluemarsh.jswat.core.session.SessionProvider;
+import com.bluemarsh.jswat.core.util.JdwpProfiler;
+import com.bluemarsh.jswat.core.util.JdwpProfiler.Statistics;
+import java.awt.BorderLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.swing.JButton;
+import javax.swing.JScrollPane;
+import javax.swing.JSplitPane;
+import javax.swing.JTable;
+import javax.swing.JToggleButton;
+import javax.swing.JToolBar;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+import org.openide.util.HelpCtx;
+import org.openide.util.NbBundle;
+
+/**
+ * Class JdwpStatsView shows the calls made to the debuggee, as recorded
+ * by the {@link JdwpProfiler}: the count, durations, and histogram of the
+ * calls in each category, and the sites from which the most time was
+ * spent waiting on the debuggee. The statistics are those of the current
+ * session, and the tables are refreshed periodically while the view is
+ * showing.
+ * <p/>
+ * @author Nathan Fiedler
+ */
+public class JdwpStatsView extends AbstractView {
+
+    /**
+     * silence the compiler warnings
+     */
+    private static final long serialVersionUID = 1L;
+    /**
+     * Milliseconds between refreshes of the tables.
+     */
+    private static final int REFRESH_DELAY = 1000;
+    /**
+     * Number of calling sites to show for each category.
+     */
+    private static final int SITE_LIMIT = 10;
+    /**
+     * Model of the category table.
+     */
+    private final CategoryModel categoryModel;
+    /**
+     * Model of the calling site table.
+     */
+    private final SiteModel siteModel;
+    /**
+     * Toggles the recording of calls.
+     */
+    private final JToggleButton recordButton;
+    /**
+     * Refreshes the tables while the view is showing.
+     */
+    private final Timer refreshTimer;
+
+    /**
+     * Creates a new instance of JdwpStatsView.
+     */
+    public JdwpStatsView() {
+        categoryModel = new CategoryModel();
+        siteModel = new SiteModel();
+        JTable categoryTable = new JTable(categoryModel);
+        JTable siteTable = new JTable(siteModel);
+        JSplitPane splitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT,
+                new JScrollPane(categoryTable), new JScrollPane(siteTable));
+        splitPane.setResizeWeight(0.3);
+
+        JToolBar toolbar = new JToolBar();
+        toolbar.setFloatable(false);
+        recordButton = new JToggleButton(NbBundle.getMessage(
+                JdwpStatsView.class, "LBL_JdwpStatsView_Record"));
+        recordButton.setToolTipText(NbBundle.getMessage(
+                JdwpStatsView.class, "HINT_JdwpStatsView_Record"));
+        recordButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                getProfiler().setEnabled(recordButton.isSelected());
+            }
+        });
+        toolbar.add(recordButton);
+        JButton resetButton = new JButton(NbBundle.getMessage(
+                JdwpStatsView.class, "LBL_JdwpStatsView_Reset"));
+        resetButton.setToolTipText(NbBundle.getMessage(
+                JdwpStatsView.class, "HINT_JdwpStatsView_Reset"));
+        resetButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                getProfiler().reset();
+                refresh();
+            }
+        });
+        toolbar.add(resetButton);
+
+        setLayout(new BorderLayout());
+        add(toolbar, BorderLayout.NORTH);
+        add(splitPane, BorderLayout.CENTER);
+
+        refreshTimer = new Timer(REFRESH_DELAY, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                refresh();
+            }
+        });
+    }
+
+    @Override
+    protected void componentHidden() {
+        super.componentHidden();
+        refreshTimer.stop();
+    }
+
+    @Override
+    protected void componentShowing() {
+        super.componentShowing();
+        refresh();
+        refreshTimer.start();
+    }
+
+    /**
+     * Formats the nanosecond duration in milliseconds.
+     * <p/>
+     * @param nanos duration in nanoseconds.
+     * @return formatted duration.
+     */
+    private static String format(double nanos) {
+        return String.format("%.2f", nanos / 1000000.0);
+    }
+
+    @Override
+    public String getDisplayName() {
+        return NbBundle.getMessage(JdwpStatsView.class, "CTL_JdwpStatsView_Name");
+    }
+
+    @Override
+    public HelpCtx getHelpCtx() {
+        return new HelpCtx("jswat-jdwpstats-view");
+    }
+
+    @Override
+    public int getPersistenceType() {
+        return PERSISTENCE_ALWAYS;
+    }
+
+    /**
+     * Returns the profiler of the current session.
+     * <p/>
+     * @return profiler of the current session.
+     */
+    private static JdwpProfiler getProfiler() {
+        return JdwpProfiler.getInstance(SessionProvider.getCurrentSession());
+    }
+
+    @Override
+    public String getToolTipText() {
+        return NbBundle.getMessage(JdwpStatsView.class, "CTL_JdwpStatsView_Tooltip");
+    }
+
+    @Override
+    protected String preferredID() {
+        return getClass().getName();
+    }
+
+    /**
+     * Updates the tables with the latest statistics.
+     */
+    private void refresh() {
+        JdwpProfiler profiler = getProfiler();
+        recordButton.setSelected(profiler.isEnabled());
+        List<Statistics> stats = profiler.getStatistics();
+        categoryModel.setStatistics(stats);
+        siteModel.setStatistics(stats);
+    }
+
+    /**
+     * Table model showing the calls in each category.
+     */
+    private static class CategoryModel extends AbstractTableModel {
+
+        /**
+         * silence the compiler warnings
+         */
+        private static final long serialVersionUID = 1L;
+        /**
+         * Number of columns before the histogram columns.
+         */
+        private static final int FIXED_COLUMNS = 5;
+        /**
+         * Upper bounds of the histogram buckets.
+         */
+        private final long[] limits;
+        /**
+         * Statistics being shown.
+         */
+        private List<Statistics> statistics;
+
+        /**
+         * Creates a new instance of CategoryModel.
+         */
+        CategoryModel() {
+            limits = JdwpProfiler.getBucketLimits();
+            statistics = Collections.emptyList();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return FIXED_COLUMNS + limits.length + 1;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            if (column < FIXED_COLUMNS) {
+                return NbBundle.getMessage(JdwpStatsView.class,
+                        "CTL_JdwpStatsView_Column_" + column);
+            } else if (column - FIXED_COLUMNS < limits.length) {
+                return NbBundle.getMessage(JdwpStatsView.class,
+                        "CTL_JdwpStatsView_Column_Below",
+                        format(limits[column - FIXED_COLUMNS]));
+            } else {
+                return NbBundle.getMessage(JdwpStatsView.class,
+                        "CTL_JdwpStatsView_Column_Above",
+                        format(limits[limits.length - 1]));
+            }
+        }
+
+        @Override
+        public int getRowCount() {
+            return statistics.size();
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            Statistics stats = statistics.get(row);
+            switch (column) {
+                case 0:
+                    return stats.getCategory();
+                case 1:
+                    return stats.getCount();
+                case 2:
+                    return format(stats.getTotalTime());
+                case 3:
+                    return format((double) stats.getTotalTime() / stats.getCount());
+                case 4:
+                    return format(stats.getMaxTime());
+                default:
+                    return stats.getHistogram()[column - FIXED_COLUMNS];
+            }
+        }
+
+        /**
+         * Sets the statistics to be shown.
+         * <p/>
+         * @param stats statistics to show.
+         */
+        void setStatistics(List<Statistics> stats) {
+            statistics = stats;
+            fireTableDataChanged();
+        }
+    }
+
+    /**
+     * Table model showing the sites from which the debuggee was called.
+     */
+    private static class SiteModel extends AbstractTableModel {
+
+        /**
+         * silence the compiler warnings
+         */
+        private static final long serialVersionUID = 1L;
+        /**
+         * Statistics of each row.
+         */
+        private final List<Statistics> rowStats;
+        /**
+         * Calling site of each row.
+         */
+        private final List<String> rowSites;
+
+        /**
+         * Creates a new instance of SiteModel.
+         */
+        SiteModel() {
+            rowStats = new ArrayList<Statistics>();
+            rowSites = new ArrayList<String>();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return 4;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return NbBundle.getMessage(JdwpStatsView.class,
+                    "CTL_JdwpStatsView_SiteColumn_" + column);
+        }
+
+        @Override
+        public int getRowCount() {
+            return rowSites.size();
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            Statistics stats = rowStats.get(row);
+            String site = rowSites.get(row);
+            switch (column) {
+                case 0:
+                    return stats.getCategory();
+                case 1:
+                    return site;
+                case 2:
+                    return stats.getSiteCount(site);
+                default:
+                    return format(stats.getSiteTime(site));
+            }
+        }
+
+        /**
+         * Sets the statistics to be shown.
+         * <p/>
+         * @param stats statistics to show.
+         */
+        void setStatistics(List<Statistics> stats) {
+            rowStats.clear();
+            rowSites.clear();
+            for (Statistics stat : stats) {
+                for (String site : stat.getSites(SITE_LIMIT)) {
+                    rowStats.add(stat);
+                    rowSites.add(site);
+                }
+            }
+            fireTableDataChanged();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2012. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.ui.views;
+
+import java.awt.EventQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Class RefreshCoalescer runs a view refresh on the AWT event dispatching
+ * thread, combining any number of requests that arrive before the refresh
+ * is run into a single refresh. This way a burst of events, such as those
+ * caused by rapid single-stepping, results in one refresh of the view per
+ * pass of the event queue, rather than one for each event.
+ *
+ * @author Nathan Fiedler
+ */
+class RefreshCoalescer implements Runnable {
+    /** The refresh to be performed. */
+    private final Runnable refresh;
+    /** True if a refresh has been posted but has not yet run. */
+    private final AtomicBoolean pending;
+
+    /**
+     * Creates a new instance of RefreshCoalescer.
+     *
+     * @param  refresh  performs the refresh of the view.
+     */
+    RefreshCoalescer(Runnable refresh) {
+        this.refresh = refresh;
+        pending = new AtomicBoolean();
+    }
+
+    /**
+     * Request that the view be refreshed. If a refresh is already pending,
+     * this request is satisfied by that refresh.
+     */
+    public void request() {
+        if (pending.compareAndSet(false, true)) {
+            EventQueue.invokeLater(this);
+        }
+    }
+
+    @Override
+    public void run() {
+        // Clear the flag first so that any request made during the
+        // refresh results in another refresh.
+        pending.set(false);
+        refresh.run();
+    }
+}
@@ -31,17 +31,19 @@ import com.bluemarsh.jswat.core.session.SessionManager;
 import com.bluemarsh.jswat.core.session.SessionManagerEvent;
 import com.bluemarsh.jswat.core.session.SessionManagerListener;
 import com.bluemarsh.jswat.core.session.SessionProvider;
+import com.bluemarsh.jswat.core.util.SuspendCache;
+import com.bluemarsh.jswat.nodes.KeyedChildren;
 import com.bluemarsh.jswat.nodes.NodeFactory;
 import com.bluemarsh.jswat.nodes.stack.StackFrameNode;
 import com.sun.jdi.IncompatibleThreadStateException;
 import com.sun.jdi.InvalidStackFrameException;
+import com.sun.jdi.Location;
 import com.sun.jdi.StackFrame;
 import com.sun.jdi.ThreadReference;
 import com.sun.jdi.VMDisconnectedException;
 import java.awt.BorderLayout;
-import java.awt.EventQueue;
+import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import javax.swing.JScrollPane;
 import org.openide.explorer.ExplorerManager;
@@ -77,6 +79,14 @@ public class StackView extends AbstractView
      * Columns for the tree-table view.
      */
     private transient Node.Property[] columns;
+    /**
+     * Coalesces requests to rebuild the tree.
+     */
+    private transient RefreshCoalescer refresher;
+    /**
+     * Name of the current thread, as of the most recent load.
+     */
+    private transient volatile String threadName;
 
     /**
      * Constructs a StackView instance.
@@ -85,6 +95,12 @@ public class StackView extends AbstractView
         explorerManager = new ExplorerManager();
         buildRoot(Children.LEAF);
         addSelectionListener(explorerManager);
+        refresher = new RefreshCoalescer(new Runnable() {
+            @Override
+            public void run() {
+                buildTreeInAWTThread();
+            }
+        });
 
         // Create the view.
         String columnLabel = NbBundle.getMessage(
@@ -138,66 +154,53 @@ public class StackView extends AbstractView
     }
 
     /**
-     * Builds the node tree for the current session.
+     * Builds the node tree for the current session. Any number of calls
+     * made before the tree is next built result in a single build.
      */
     private void buildTree() {
-        // Populate the root node with FrameNode children.
-        List<Node> list = new LinkedList<Node>();
-        Node currentNode = null;
+        refresher.request();
+    }
+
+    /**
+     * Builds the node tree for the current session on the AWT event
+     * dispatching thread. If the tree already represents the session, it
+     * is updated incrementally, such that nodes are created only for the
+     * frames that have changed. The frames are loaded in the background,
+     * after which the current frame is selected.
+     */
+    private void buildTreeInAWTThread() {
         SessionManager sm = SessionProvider.getSessionManager();
         Session session = sm.getCurrent();
         if (session.isConnected()) {
-            DebuggingContext dc = ContextProvider.getContext(session);
-            ThreadReference thread = dc.getThread();
-            int currentFrame = dc.getFrame();
-            if (thread != null) {
-                try {
-                    List<StackFrame> frames = thread.frames();
-                    int index = 0;
-                    NodeFactory factory = NodeFactory.getDefault();
-                    for (StackFrame frame : frames) {
-                        StackFrameNode node = factory.createStackFrameNode(
-                                index, frame);
-                        list.add(node);
-                        if (index == currentFrame) {
-                            currentNode = node;
-                        }
-                        index++;
-                    }
-                } catch (IncompatibleThreadStateException itse) {
-                    // Do nothing and leave the node list empty.
-                } catch (InvalidStackFrameException isfe) {
-                    // Do nothing and leave the node list empty.
-                } catch (VMDisconnectedException vmde) {
-                    // Do nothing and leave the node list empty.
-                }
+            final DebuggingContext dc = ContextProvider.getContext(session);
+            Children kids = explorerManager.getRootContext().getChildren();
+            final FrameChildren frames;
+            if (kids instanceof FrameChildren
+                    && ((FrameChildren) kids).represents(dc)) {
+                frames = (FrameChildren) kids;
+            } else {
+                frames = new FrameChildren(dc);
+                buildRoot(frames);
             }
-        }
-        if (list.size() > 0) {
-            Children children = new Children.Array();
-            Node[] nodes = list.toArray(new Node[list.size()]);
-            children.add(nodes);
-            buildRoot(children);
-            if (currentNode != null) {
-                final PersistentOutlineView view = nodeView;
-                final Node node = currentNode;
-                EventQueue.invokeLater(new Runnable() {
-                    @Override
-                    public void run() {
-                        view.scrollAndSelectNode(node);
+            frames.load(new Runnable() {
+                @Override
+                public void run() {
+                    threadName = frames.getThreadName();
+                    // Force the window title to be updated.
+                    setDisplayName(getDisplayName());
+                    Node[] nodes = frames.getNodes();
+                    int currentFrame = dc.getFrame();
+                    if (currentFrame >= 0 && currentFrame < nodes.length) {
+                        nodeView.scrollAndSelectNode(nodes[currentFrame]);
                     }
-                });
-            }
+                }
+            });
         } else {
             buildRoot(Children.LEAF);
+            threadName = null;
+            // Force the window title to be updated.
+            setDisplayName(getDisplayName());
         }
-        EventQueue.invokeLater(new Runnable() {
-            @Override
-            public void run() {
-                // Force the window title to be updated.
-                setDisplayName(getDisplayName());
-            }
-        });
     }
 
     @Override
@@ -272,20 +275,12 @@ public class StackView extends AbstractView
 
     @Override
     public String getDisplayName() {
-        // Incorporate the thread name into the window title.
-        String threadName = "";
-        SessionManager sm = SessionProvider.getSessionManager();
-        Session session = sm.getCurrent();
-        if (session.isConnected()) {
-            DebuggingContext dc = ContextProvider.getContext(session);
-            ThreadReference thread = dc.getThread();
-            if (thread != null) {
-                threadName = thread.name();
-            }
-        }
+        // Incorporate the thread name into the window title, as found
+        // when the frames were last loaded.
         String nm = NbBundle.getMessage(StackView.class, "CTL_StackView_Name");
-        if (threadName.length() > 0) {
-            return nm + " - " + threadName;
+        String name = threadName;
+        if (name != null && name.length() > 0) {
+            return nm + " - " + name;
         } else {
             return nm;
         }
@@ -367,4 +362,140 @@ public class StackView extends AbstractView
         p.setProperty("version", "1.0");
         nodeView.writeSettings(p, "Stack");
     }
+
+    /**
+     * The frames of the current thread, keyed by the thread, the frame
+     * index, and the frame location, such that nodes are retained for the
+     * frames that are unchanged since the last refresh.
+     * <p/>
+     * @author Nathan Fiedler
+     */
+    private static class FrameChildren extends KeyedChildren<FrameKey> {
+
+        /**
+         * The debugging context providing the current thread.
+         */
+        private final DebuggingContext context;
+        /**
+         * Name of the current thread, as of the most recent load.
+         */
+        private volatile String threadName;
+
+        /**
+         * Creates a new instance of FrameChildren.
+         * <p/>
+         * @param context debugging context.
+         */
+        FrameChildren(DebuggingContext context) {
+            this.context = context;
+        }
+
+        @Override
+        protected List<FrameKey> computeKeys() {
+            List<FrameKey> keys = new ArrayList<FrameKey>();
+            ThreadReference thread = context.getThread();
+            threadName = null;
+            if (thread != null) {
+                try {
+                    threadName = thread.name();
+                    List<StackFrame> frames = SuspendCache.getFrames(thread);
+                    int index = 0;
+                    for (StackFrame frame : frames) {
+                        keys.add(new FrameKey(thread, index, frame));
+                        index++;
+                    }
+                } catch (IncompatibleThreadStateException itse) {
+                    // Do nothing and leave the node list empty.
+                    keys.clear();
+                } catch (InvalidStackFrameException isfe) {
+                    // Do nothing and leave the node list empty.
+                    keys.clear();
+                } catch (VMDisconnectedException vmde) {
+                    // Do nothing and leave the node list empty.
+                    keys.clear();
+                }
+            }
+            return keys;
+        }
+
+        @Override
+        protected Node createNode(FrameKey key) {
+            NodeFactory factory = NodeFactory.getDefault();
+            return factory.createStackFrameNode(key.index, key.frame);
+        }
+
+        /**
+         * Returns the name of the current thread, as of the most recent
+         * load of the frames.
+         * <p/>
+         * @return thread name, or null if no current thread.
+         */
+        String getThreadName() {
+            return threadName;
+        }
+
+        /**
+         * Indicates if these children represent the given context.
+         * <p/>
+         * @param context debugging context.
+         * @return true if these children represent the context.
+         */
+        boolean represents(DebuggingContext context) {
+            return this.context == context;
+        }
+    }
+
+    /**
+     * Identifies a stack frame by its thread, index, and location.
+     * <p/>
+     * @author Nathan Fiedler
+     */
+    private static class FrameKey {
+
+        /**
+         * Thread to which the frame belongs.
+         */
+        private final ThreadReference thread;
+        /**
+         * Index of the frame (zero-based).
+         */
+        private final int index;
+        /**
+         * Location of the frame.
+         */
+        private final Location location;
+        /**
+         * The frame itself, valid only until the thread is resumed.
+         */
+        private final StackFrame frame;
+
+        /**
+         * Creates a new instance of FrameKey.
+         * <p/>
+         * @param thread thread to which the frame belongs.
+         * @param index  index of the frame.
+         * @param frame  the stack frame.
+         */
+        FrameKey(ThreadReference thread, int index, StackFrame frame) {
+            this.thread = thread;
+            this.index = index;
+            this.frame = frame;
+            location = frame.location();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof FrameKey) {
+                FrameKey other = (FrameKey) obj;
+                return index == other.index && thread.equals(other.thread)
+                        && location.equals(other.location);
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return location.hashCode() + index;
+        }
+    }
 }
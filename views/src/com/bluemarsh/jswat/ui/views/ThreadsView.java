@@ -29,19 +29,20 @@ import com.bluemarsh.jswat.core.session.SessionManager;
 import com.bluemarsh.jswat.core.session.SessionManagerEvent;
 import com.bluemarsh.jswat.core.session.SessionManagerListener;
 import com.bluemarsh.jswat.core.session.SessionProvider;
+import com.bluemarsh.jswat.core.util.JdwpProfiler;
+import com.bluemarsh.jswat.nodes.KeyedChildren;
 import com.bluemarsh.jswat.nodes.NodeFactory;
 import com.bluemarsh.jswat.nodes.threads.ThreadConstants;
-import com.bluemarsh.jswat.nodes.threads.ThreadNode;
+import com.bluemarsh.jswat.nodes.threads.ThreadGroupNode;
 import com.sun.jdi.ThreadGroupReference;
 import com.sun.jdi.ThreadReference;
+import com.sun.jdi.VMDisconnectedException;
 import com.sun.jdi.VirtualMachine;
 import java.awt.BorderLayout;
-import java.awt.EventQueue;
-import java.util.Enumeration;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
 import javax.swing.Action;
 import javax.swing.JScrollPane;
 import org.openide.ErrorManager;
@@ -86,6 +87,10 @@ public class ThreadsView extends AbstractView
      * Component showing our nodes.
      */
     private PersistentOutlineView nodeView;
+    /**
+     * Coalesces requests to rebuild the tree.
+     */
+    private transient RefreshCoalescer refresher;
 
     /**
      * Constructs a new instance of ThreadsView. Clients should not construct
@@ -96,6 +101,12 @@ public class ThreadsView extends AbstractView
         explorerManager = new ExplorerManager();
         buildRoot(Children.LEAF);
         addSelectionListener(explorerManager);
+        refresher = new RefreshCoalescer(new Runnable() {
+            @Override
+            public void run() {
+                buildTreeInAWTThread();
+            }
+        });
 
         // Create the threads view.
         String columnLabel = NbBundle.getMessage(
@@ -151,58 +162,45 @@ public class ThreadsView extends AbstractView
     }
 
     /**
-     * Builds the group/thread node tree for the current session.
+     * Builds the group/thread node tree for the current session. Any number
+     * of calls made before the tree is next built result in a single build.
      */
     private void buildTree() {
         // Ensure that the tree is built on the AWT thread to avoid slowing
         // the JDI event dispatching thread, and the session connect process.
-        if (EventQueue.isDispatchThread()) {
-            buildTreeInAWTThread();
-        } else {
-            EventQueue.invokeLater(new Runnable() {
-                @Override
-                public void run() {
-                    buildTreeInAWTThread();
-                }
-            });
-        }
+        refresher.request();
     }
 
     /**
      * Builds the group/thread node tree for the current session on the AWT
-     * event dispatching thread.
+     * event dispatching thread. If the tree already represents the session,
+     * it is updated incrementally, such that only the nodes for new groups
+     * and threads are created, and the expanded nodes remain expanded. The
+     * groups and threads are loaded in the background, after which the path
+     * to the current thread is expanded.
      */
     private void buildTreeInAWTThread() {
         SessionManager sm = SessionProvider.getSessionManager();
         Session session = sm.getCurrent();
         DebuggingContext dc = ContextProvider.getContext(session);
-        List<Node> list = new LinkedList<Node>();
-        Node rootNode = explorerManager.getRootContext();
-        final List<String[]> expanded = getExpanded(nodeView, rootNode);
         if (session.isConnected()) {
             VirtualMachine vm = session.getConnection().getVM();
-            List<ThreadGroupReference> groups = vm.topLevelThreadGroups();
-            NodeFactory factory = NodeFactory.getDefault();
-            for (ThreadGroupReference group : groups) {
-                list.add(factory.createThreadGroupNode(group, dc));
+            Children kids = explorerManager.getRootContext().getChildren();
+            final GroupChildren groups;
+            if (kids instanceof GroupChildren
+                    && ((GroupChildren) kids).represents(vm, dc)) {
+                groups = (GroupChildren) kids;
+            } else {
+                groups = new GroupChildren(vm, dc);
+                buildRoot(groups);
             }
-        }
-        if (list.size() > 0) {
-            Children children = new Children.Array();
-            Node[] nodes = list.toArray(new Node[list.size()]);
-            children.add(nodes);
-            buildRoot(children);
-            // Expand the branches that the user had expanded earlier.
-            expandPaths(expanded, nodeView, rootNode);
-            // Expand the path leading to the current thread.
-            ThreadReference thread = dc.getThread();
-            if (thread != null) {
-                Node node = findThreadNode(thread);
-                if (node != null) {
-                    // Cannot expand leaf nodes, so use its parent.
-                    nodeView.expandNode(node.getParentNode());
+            groups.load(new Runnable() {
+                @Override
+                public void run() {
+                    // Expand the path leading to the current thread.
+                    expandPath(groups, groups.getCurrentPath().iterator());
                 }
-            }
+            });
         } else {
             buildRoot(Children.LEAF);
         }
@@ -256,6 +254,37 @@ public class ThreadsView extends AbstractView
         }
     }
 
+    /**
+     * Expands the thread group nodes along the given path, waiting for the
+     * children of each group to be loaded before expanding the next.
+     * <p/>
+     * @param kids children in which to find the next group.
+     * @param path remaining thread groups to be expanded.
+     */
+    private void expandPath(Children kids,
+            final Iterator<ThreadGroupReference> path) {
+        if (!path.hasNext()) {
+            return;
+        }
+        ThreadGroupReference group = path.next();
+        for (Node node : kids.getNodes()) {
+            if (node instanceof ThreadGroupNode && group.equals(
+                    ((ThreadGroupNode) node).getThreadGroup())) {
+                nodeView.expandNode(node);
+                final Children subkids = node.getChildren();
+                if (path.hasNext() && subkids instanceof KeyedChildren) {
+                    ((KeyedChildren<?>) subkids).load(new Runnable() {
+                        @Override
+                        public void run() {
+                            expandPath(subkids, path);
+                        }
+                    });
+                }
+                break;
+            }
+        }
+    }
+
     /**
      * Obtain the window instance, first by looking for it in the window system,
      * then if not found, creating the instance.
@@ -280,34 +309,6 @@ public class ThreadsView extends AbstractView
         return getDefault();
     }
 
-    /**
-     * Finds the node for the given thread.
-     * <p/>
-     * @param thread thread for which to find node.
-     * @return corresponding thread node, or null if none found.
-     */
-    private ThreadNode findThreadNode(ThreadReference thread) {
-        Queue<Node> queue = new LinkedList<Node>();
-        queue.offer(explorerManager.getRootContext());
-        while (!queue.isEmpty()) {
-            Node node = queue.poll();
-            if (node instanceof ThreadNode) {
-                ThreadNode tn = (ThreadNode) node;
-                ThreadReference tr = tn.getThread();
-                if (tr.equals(thread)) {
-                    return tn;
-                }
-            }
-            Children children = node.getChildren();
-            Enumeration<Node> enm = children.nodes();
-            while (enm.hasMoreElements()) {
-                Node child = enm.nextElement();
-                queue.offer(child);
-            }
-        }
-        return null;
-    }
-
     /**
      * Returns the single instance of this class, creating it if necessary.
      * Clients should not call this method, but instead use findInstance().
@@ -399,6 +400,94 @@ public class ThreadsView extends AbstractView
         nodeView.writeSettings(p, "Threads");
     }
 
+    /**
+     * The top-level thread groups of a debuggee, which are retained as
+     * long as the view continues to represent the same debuggee.
+     * <p/>
+     * @author Nathan Fiedler
+     */
+    private static class GroupChildren extends KeyedChildren<ThreadGroupReference> {
+
+        /**
+         * The debuggee whose thread groups we represent.
+         */
+        private final VirtualMachine vm;
+        /**
+         * The debugging context for the threads.
+         */
+        private final DebuggingContext context;
+        /**
+         * Thread groups leading to the current thread, top-most first.
+         */
+        private volatile List<ThreadGroupReference> currentPath;
+
+        /**
+         * Creates a new instance of GroupChildren.
+         * <p/>
+         * @param vm      debuggee virtual machine.
+         * @param context debugging context.
+         */
+        GroupChildren(VirtualMachine vm, DebuggingContext context) {
+            this.vm = vm;
+            this.context = context;
+            currentPath = Collections.emptyList();
+        }
+
+        @Override
+        protected List<ThreadGroupReference> computeKeys() {
+            try {
+                // Find the groups leading to the current thread, while
+                // we are off the event thread.
+                List<ThreadGroupReference> path =
+                        new LinkedList<ThreadGroupReference>();
+                ThreadReference thread = context.getThread();
+                long start = JdwpProfiler.start();
+                if (thread != null) {
+                    ThreadGroupReference group = thread.threadGroup();
+                    while (group != null) {
+                        path.add(0, group);
+                        group = group.parent();
+                    }
+                }
+                currentPath = path;
+                List<ThreadGroupReference> groups = vm.topLevelThreadGroups();
+                JdwpProfiler.record(vm, JdwpProfiler.Category.THREADS, start);
+                return groups;
+            } catch (VMDisconnectedException vmde) {
+                currentPath = Collections.emptyList();
+                return Collections.emptyList();
+            }
+        }
+
+        @Override
+        protected Node createNode(ThreadGroupReference key) {
+            NodeFactory factory = NodeFactory.getDefault();
+            return factory.createThreadGroupNode(key, context);
+        }
+
+        /**
+         * Returns the thread groups leading to the current thread, as of
+         * the most recent load.
+         * <p/>
+         * @return thread groups, top-most first (empty if no thread).
+         */
+        List<ThreadGroupReference> getCurrentPath() {
+            return currentPath;
+        }
+
+        /**
+         * Indicates if these children represent the given debuggee and
+         * debugging context.
+         * <p/>
+         * @param vm      debuggee virtual machine.
+         * @param context debugging context.
+         * @return true if these children represent the debuggee.
+         */
+        boolean represents(VirtualMachine vm, DebuggingContext context) {
+            return this.vm == vm && this.context == context;
+        }
+    }
+
     /**
      * Implements the action of refreshing the node tree.
      * <p/>
@@ -31,6 +31,9 @@ import com.bluemarsh.jswat.core.session.SessionManager;
 import com.bluemarsh.jswat.core.session.SessionManagerEvent;
 import com.bluemarsh.jswat.core.session.SessionManagerListener;
 import com.bluemarsh.jswat.core.session.SessionProvider;
+import com.bluemarsh.jswat.core.util.JdwpProfiler;
+import com.bluemarsh.jswat.core.util.SuspendCache;
+import com.bluemarsh.jswat.nodes.KeyedChildren;
 import com.bluemarsh.jswat.nodes.MessageNode;
 import com.bluemarsh.jswat.nodes.variables.VariableFactory;
 import com.bluemarsh.jswat.nodes.variables.VariableNode;
@@ -48,12 +51,11 @@ import com.sun.jdi.ThreadReference;
 import com.sun.jdi.VMDisconnectedException;
 import com.sun.jdi.Value;
 import java.awt.BorderLayout;
-import java.awt.EventQueue;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 import javax.swing.JScrollPane;
 import org.openide.explorer.ExplorerManager;
 import org.openide.explorer.view.OutlineView;
@@ -88,6 +90,10 @@ public class VariablesView extends AbstractView
      * Columns for the tree-table view.
      */
     private transient Node.Property[] columns;
+    /**
+     * Coalesces requests to rebuild the tree.
+     */
+    private transient RefreshCoalescer refresher;
 
     /**
      * Constructs a VariablesView instance.
@@ -96,6 +102,12 @@ public class VariablesView extends AbstractView
         explorerManager = new ExplorerManager();
         buildRoot(Children.LEAF);
         addSelectionListener(explorerManager);
+        refresher = new RefreshCoalescer(new Runnable() {
+            @Override
+            public void run() {
+                buildTreeInAWTThread();
+            }
+        });
 
         // Create the nodes view.
         String columnLabel = NbBundle.getMessage(
@@ -146,114 +158,34 @@ public class VariablesView extends AbstractView
     }
 
     /**
-     * Builds the node tree for the current session.
+     * Builds the node tree for the current session. Any number of calls
+     * made before the tree is next built result in a single build.
      */
     private void buildTree() {
+        refresher.request();
+    }
+
+    /**
+     * Builds the node tree for the current session on the AWT event
+     * dispatching thread. If the tree already represents the session, it
+     * is updated incrementally, such that nodes are created only for the
+     * variables that have changed, and expanded nodes remain expanded.
+     */
+    private void buildTreeInAWTThread() {
         SessionManager sm = SessionProvider.getSessionManager();
         Session session = sm.getCurrent();
-        List<Node> list = new LinkedList<Node>();
-        Node rootNode = explorerManager.getRootContext();
-        final List<String[]> expanded = getExpanded(nodeView, rootNode);
         if (session.isConnected()) {
             DebuggingContext dc = ContextProvider.getContext(session);
-            ThreadReference thread = dc.getThread();
-            if (thread != null) {
-                try {
-                    StackFrame frame = dc.getStackFrame();
-                    if (frame.location().codeIndex() == -1) {
-                        throw new NativeMethodException("work around JPDA bug");
-                    }
-                    ReferenceType clazz = frame.location().declaringType();
-                    ObjectReference thisObj = frame.thisObject();
-
-                    // Build the set of visible variables, starting with fields.
-                    Set<VariableNode> variables = new HashSet<VariableNode>();
-                    VariableFactory vf = VariableFactory.getDefault();
-                    if (thisObj != null) {
-                        // This takes in all of the fields, static and instance.
-                        VariableNode thisNode = vf.create(thisObj, null);
-                        variables.add(thisNode);
-                    } else {
-                        // Must be in a static method, so show the static fields.
-                        List<Field> fields = clazz.visibleFields();
-                        for (Field field : fields) {
-                            if (field.isStatic()) {
-                                Value value = clazz.getValue(field);
-                                VariableNode vn = vf.create(field, value, null);
-                                variables.add(vn);
-                            }
-                        }
-                    }
-
-                    // Now collect the visible local variables.
-                    try {
-                        List<LocalVariable> locals = frame.visibleVariables();
-                        for (LocalVariable local : locals) {
-                            Value value = frame.getValue(local);
-                            VariableNode vn = vf.create(local, value, null);
-                            variables.add(vn);
-                        }
-                    } catch (AbsentInformationException aie) {
-                        // Catch this here so we at least capture the available
-                        // fields of this class, despite missing local variables.
-                        list.add(new MessageNode(NbBundle.getMessage(
-                                VariablesView.class, "EXC_AbsentInformation"),
-                                NbBundle.getMessage(VariablesView.class,
-                                "TIP_AbsentInformation")));
-                        // Get the argument values, even without their names.
-                        List<Value> arguments = frame.getArgumentValues();
-                        int count = 1;
-                        String prefix = NbBundle.getMessage(VariablesView.class,
-                                "LBL_VariablesView_Argument");
-                        for (Value arg : arguments) {
-                            VariableNode vn = vf.create(prefix + count, arg);
-                            variables.add(vn);
-                            count++;
-                        }
-                    }
-
-                    list.addAll(variables);
-                } catch (IncompatibleThreadStateException itse) {
-                    list.add(new MessageNode(NbBundle.getMessage(VariablesView.class,
-                            "EXC_ThreadNotSuspended")));
-                } catch (InconsistentDebugInfoException idie) {
-                    list.add(new MessageNode(NbBundle.getMessage(VariablesView.class,
-                            "EXC_InconsistentInfo")));
-                } catch (IndexOutOfBoundsException ioobe) {
-                    list.add(new MessageNode(NbBundle.getMessage(VariablesView.class,
-                            "EXC_ThreadNotStarted")));
-                } catch (InvalidStackFrameException isfe) {
-                    list.add(new MessageNode(NbBundle.getMessage(VariablesView.class,
-                            "EXC_InvalidStackFrame")));
-                } catch (NativeMethodException nme) {
-                    list.add(new MessageNode(NbBundle.getMessage(VariablesView.class,
-                            "EXC_NativeMethod")));
-                } catch (VMDisconnectedException vmde) {
-                    // This happens often, nothing we can do.
-                }
+            Children kids = explorerManager.getRootContext().getChildren();
+            if (kids instanceof VariableChildren
+                    && ((VariableChildren) kids).represents(dc)) {
+                ((VariableChildren) kids).refresh();
             } else {
-                list.add(new MessageNode(NbBundle.getMessage(VariablesView.class,
-                        "EXC_NoCurrentThread")));
+                buildRoot(new VariableChildren(dc));
             }
-        }
-        if (list.size() > 0) {
-            Children children = new Children.Array();
-            Node[] nodes = list.toArray(new Node[list.size()]);
-            children.add(nodes);
-            buildRoot(children);
         } else {
             buildRoot(Children.LEAF);
         }
-
-        // Must expand the nodes on the AWT event thread.
-        EventQueue.invokeLater(new Runnable() {
-            @Override
-            public void run() {
-                // Need to refetch the root in case it was replaced.
-                Node rootNode = explorerManager.getRootContext();
-                expandPaths(expanded, nodeView, rootNode);
-            }
-        });
     }
 
     @Override
@@ -410,4 +342,266 @@ public class VariablesView extends AbstractView
         p.setProperty("version", "1.0");
         nodeView.writeSettings(p, "Variables");
     }
+
+    /**
+     * The variables visible in the current stack frame, keyed by their
+     * name, type, and value, such that nodes are retained for the variables
+     * that are unchanged since the last refresh.
+     * <p/>
+     * @author Nathan Fiedler
+     */
+    private static class VariableChildren extends KeyedChildren<Object> {
+
+        /**
+         * The debugging context providing the current stack frame.
+         */
+        private final DebuggingContext context;
+
+        /**
+         * Creates a new instance of VariableChildren.
+         * <p/>
+         * @param context debugging context.
+         */
+        VariableChildren(DebuggingContext context) {
+            this.context = context;
+        }
+
+        @Override
+        protected List<Object> computeKeys() {
+            List<Object> keys = new ArrayList<Object>();
+            ThreadReference thread = context.getThread();
+            if (thread == null) {
+                keys.add(new MessageKey("EXC_NoCurrentThread", null));
+                return keys;
+            }
+            try {
+                StackFrame frame = context.getStackFrame();
+                SuspendCache cache = SuspendCache.getInstance(
+                        SessionProvider.getCurrentSession());
+                if (frame.location().codeIndex() == -1) {
+                    throw new NativeMethodException("work around JPDA bug");
+                }
+                ReferenceType clazz = frame.location().declaringType();
+                ObjectReference thisObj = cache.thisObject(frame);
+
+                // Build the set of visible variables, starting with fields.
+                List<VariableKey> variables = new ArrayList<VariableKey>();
+                if (thisObj != null) {
+                    // This takes in all of the fields, static and instance.
+                    variables.add(new VariableKey("this",
+                            thisObj.referenceType().name(), thisObj, thisObj));
+                } else {
+                    // Must be in a static method, so show the static fields.
+                    List<Field> fields = clazz.visibleFields();
+                    for (Field field : fields) {
+                        if (field.isStatic()) {
+                            long start = JdwpProfiler.start();
+                            Value value = clazz.getValue(field);
+                            JdwpProfiler.record(clazz.virtualMachine(),
+                                    JdwpProfiler.Category.VALUES, start);
+                            variables.add(new VariableKey(field.name(),
+                                    field.typeName(), value, field));
+                        }
+                    }
+                }
+
+                // Now collect the visible local variables.
+                try {
+                    List<LocalVariable> locals = cache.visibleVariables(frame);
+                    Map<LocalVariable, Value> values =
+                            cache.getValues(frame, locals);
+                    for (LocalVariable local : locals) {
+                        Value value = values.get(local);
+                        variables.add(new VariableKey(local.name(),
+                                local.typeName(), value, local));
+                    }
+                } catch (AbsentInformationException aie) {
+                    // Catch this here so we at least capture the available
+                    // fields of this class, despite missing local variables.
+                    keys.add(new MessageKey("EXC_AbsentInformation",
+                            "TIP_AbsentInformation"));
+                    // Get the argument values, even without their names.
+                    List<Value> arguments = frame.getArgumentValues();
+                    int count = 1;
+                    String prefix = NbBundle.getMessage(VariablesView.class,
+                            "LBL_VariablesView_Argument");
+                    for (Value arg : arguments) {
+                        String type = arg == null ? null : arg.type().name();
+                        variables.add(new VariableKey(prefix + count, type,
+                                arg, null));
+                        count++;
+                    }
+                }
+
+                Collections.sort(variables);
+                keys.addAll(variables);
+            } catch (IncompatibleThreadStateException itse) {
+                keys.add(new MessageKey("EXC_ThreadNotSuspended", null));
+            } catch (InconsistentDebugInfoException idie) {
+                keys.add(new MessageKey("EXC_InconsistentInfo", null));
+            } catch (IndexOutOfBoundsException ioobe) {
+                keys.add(new MessageKey("EXC_ThreadNotStarted", null));
+            } catch (InvalidStackFrameException isfe) {
+                keys.add(new MessageKey("EXC_InvalidStackFrame", null));
+            } catch (NativeMethodException nme) {
+                keys.add(new MessageKey("EXC_NativeMethod", null));
+            } catch (VMDisconnectedException vmde) {
+                // This happens often, nothing we can do.
+                keys.clear();
+            }
+            return keys;
+        }
+
+        @Override
+        protected Node createNode(Object key) {
+            if (key instanceof MessageKey) {
+                MessageKey mk = (MessageKey) key;
+                String msg = NbBundle.getMessage(VariablesView.class, mk.msg);
+                if (mk.tip == null) {
+                    return new MessageNode(msg);
+                }
+                return new MessageNode(msg, NbBundle.getMessage(
+                        VariablesView.class, mk.tip));
+            }
+            VariableKey vk = (VariableKey) key;
+            VariableFactory vf = VariableFactory.getDefault();
+            if (vk.source instanceof Field) {
+                return vf.create((Field) vk.source, vk.value, null);
+            } else if (vk.source instanceof LocalVariable) {
+                return vf.create((LocalVariable) vk.source, vk.value, null);
+            } else if (vk.source instanceof ObjectReference) {
+                return vf.create((ObjectReference) vk.source, null);
+            } else {
+                return vf.create(vk.name, vk.value);
+            }
+        }
+
+        @Override
+        protected void refreshNode(Node node) {
+            if (node instanceof VariableNode) {
+                ((VariableNode) node).refresh();
+            } else {
+                super.refreshNode(node);
+            }
+        }
+
+        /**
+         * Indicates if these children represent the given context.
+         * <p/>
+         * @param context debugging context.
+         * @return true if these children represent the context.
+         */
+        boolean represents(DebuggingContext context) {
+            return this.context == context;
+        }
+    }
+
+    /**
+     * Identifies a message node by its bundle keys.
+     * <p/>
+     * @author Nathan Fiedler
+     */
+    private static class MessageKey {
+
+        /**
+         * Bundle key of the message.
+         */
+        private final String msg;
+        /**
+         * Bundle key of the tooltip, or null if none.
+         */
+        private final String tip;
+
+        /**
+         * Creates a new instance of MessageKey.
+         * <p/>
+         * @param msg bundle key of the message.
+         * @param tip bundle key of the tooltip, or null if none.
+         */
+        MessageKey(String msg, String tip) {
+            this.msg = msg;
+            this.tip = tip;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof MessageKey && msg.equals(((MessageKey) obj).msg);
+        }
+
+        @Override
+        public int hashCode() {
+            return msg.hashCode();
+        }
+    }
+
+    /**
+     * Identifies a variable by its name, type, and value. The source of
+     * the variable (field, local variable, or 'this' object) is used only
+     * to create the node.
+     * <p/>
+     * @author Nathan Fiedler
+     */
+    private static class VariableKey implements Comparable<VariableKey> {
+
+        /**
+         * Name of the variable.
+         */
+        private final String name;
+        /**
+         * Name of the variable type, or null if unknown.
+         */
+        private final String type;
+        /**
+         * Value of the variable, may be null.
+         */
+        private final Value value;
+        /**
+         * Field, LocalVariable, 'this' ObjectReference, or null.
+         */
+        private final Object source;
+
+        /**
+         * Creates a new instance of VariableKey.
+         * <p/>
+         * @param name   name of the variable.
+         * @param type   name of the variable type, or null if unknown.
+         * @param value  value of the variable.
+         * @param source where the variable came from, or null.
+         */
+        VariableKey(String name, String type, Value value, Object source) {
+            this.name = name;
+            this.type = type;
+            this.value = value;
+            this.source = source;
+        }
+
+        @Override
+        public int compareTo(VariableKey o) {
+            // Keep 'this' above the others.
+            if (name.equals("this")) {
+                return o.name.equals("this") ? 0 : -1;
+            } else if (o.name.equals("this")) {
+                return 1;
+            }
+            return name.compareTo(o.name);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof VariableKey) {
+                VariableKey other = (VariableKey) obj;
+                return name.equals(other.name)
+                        && (type == null ? other.type == null
+                        : type.equals(other.type))
+                        && (value == null ? other.value == null
+                        : value.equals(other.value));
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return name.hashCode();
+        }
+    }
 }